@@ -242,7 +242,7 @@ public class ARQ
      * choosing the value.
      * <p/>
      * Operations currently affected by this symbol: <br>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY, GROUP BY, SPARQL Update, CONSTRUCT (optionally), hash joins
      * <p/>
      * TODO: Give a reasonable suggested value here.  10,000?
      * <p/>
@@ -250,7 +250,7 @@ public class ARQ
      */
     // Some possible additions to the list:
     // Sort: DISTINCT, merge joins<br>
-    // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
+    // Hash table: MINUS, SERVICE, VALUES <br>
     public static final Symbol spillToDiskThreshold = ARQConstants.allocSymbol("spillToDiskThreshold") ;
     
     // Optimizer controls.
@@ -401,6 +401,38 @@ public class ARQ
      * of joins to favour index joins wherever possible
      */
     public static final Symbol optIndexJoinStrategy = ARQConstants.allocSymbol("optIndexJoinStrategy");
+
+    /**
+     * Context key controlling whether the main query engine uses hash joins (and merge joins
+     * for inputs sorted on a shared variable) when both sides of a join are evaluated separately.
+     * Default is "true".
+     * @see #spillToDiskThreshold
+     */
+    public static final Symbol hashJoin = ARQConstants.allocSymbol("hashJoin");
+
+    /**
+     * Context key controlling whether the main query engine evaluates the branches of a UNION,
+     * and the two sides of a join evaluated separately, concurrently on a shared thread pool.
+     * This is only useful if the dataset supports concurrent reads from several threads.
+     * Must be explicitly set "true" to operate.
+     */
+    public static final Symbol parallelExecution = ARQConstants.allocSymbol("parallelExecution");
+
+    /**
+     * Context key controlling whether the main query engine evaluates chains of FILTER, BIND (extend),
+     * projection, DISTINCT, OFFSET/LIMIT and joins a batch of rows at a time, rather than row by row.
+     * Must be explicitly set "true" to operate.
+     * @see com.hp.hpl.jena.sparql.engine.batch.BindingBatch
+     */
+    public static final Symbol batchExecution = ARQConstants.allocSymbol("batchExecution");
+
+    /**
+     * Context key controlling whether FILTER and BIND expressions are compiled before evaluation:
+     * constants folded and comparisons against constants given direct integer, string and IRI tests.
+     * Must be explicitly set "true" to operate.
+     * @see com.hp.hpl.jena.sparql.expr.compile.ExprCompiler
+     */
+    public static final Symbol compileExpressions = ARQConstants.allocSymbol("compileExpressions");
     
     /**
      * Context key controlling whether the standard optimizater applies optimizations to joined BGPs to
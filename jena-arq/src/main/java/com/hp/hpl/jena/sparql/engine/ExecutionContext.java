@@ -77,16 +77,21 @@ public class ExecutionContext implements FunctionEnv
 //    public ExecutionContext getExecutionContext()       { return this ; }
 
     
+    // Iterators may be created and closed on several threads (see QueryIterParallel). 
     public void openIterator(QueryIterator qIter)
     {
-        openIterators.add(qIter) ;
-        if ( allIterators != null )
-            allIterators.add(qIter) ;
+        synchronized(openIterators) {
+            openIterators.add(qIter) ;
+            if ( allIterators != null )
+                allIterators.add(qIter) ;
+        }
     }
 
     public void closedIterator(QueryIterator qIter)
     {
-        openIterators.remove(qIter) ;
+        synchronized(openIterators) {
+            openIterators.remove(qIter) ;
+        }
     }
 
     public Iterator<QueryIterator> listOpenIterators()  { return openIterators.iterator() ; }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+/** A batch iterator that processes the batches of another batch iterator, one at a time. */
+public abstract class BatchIter1 implements QueryIteratorBatch
+{
+    private final QueryIteratorBatch input ;
+    private BindingBatch slot = null ;
+    private boolean finished = false ;
+
+    protected BatchIter1(QueryIteratorBatch input)
+    {
+        this.input = input ;
+    }
+
+    protected QueryIteratorBatch getInput() { return input ; }
+
+    /** Process an input batch : return a batch, which may be empty or null for no rows. */ 
+    protected abstract BindingBatch process(BindingBatch batch) ;
+
+    /** No more batches are wanted from the input. */
+    protected void finish()     { finished = true ; }
+
+    @Override
+    public boolean hasNextBatch()
+    {
+        if ( slot != null )
+            return true ;
+        while ( ! finished && input.hasNextBatch() )
+        {
+            BindingBatch batch = process(input.nextBatch()) ;
+            if ( batch != null && batch.size() > 0 )
+            {
+                slot = batch ;
+                return true ;
+            }
+        }
+        return false ;
+    }
+
+    @Override
+    public BindingBatch nextBatch()
+    {
+        BindingBatch.checkNext(hasNextBatch()) ;
+        BindingBatch batch = slot ;
+        slot = null ;
+        return batch ;
+    }
+
+    @Override
+    public void close()
+    {
+        input.close() ;
+    }
+
+    @Override
+    public void cancel()
+    {
+        input.cancel() ;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.HashSet ;
+import java.util.Set ;
+
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+
+/** DISTINCT, in memory. */
+public class BatchIterDistinct extends BatchIter1
+{
+    private Set<Binding> seen = new HashSet<>() ;
+
+    public BatchIterDistinct(QueryIteratorBatch input)
+    {
+        super(input) ;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch)
+    {
+        int[] selected = new int[batch.size()] ;
+        int n = 0 ;
+        for ( int i = 0 ; i < batch.size() ; i++ )
+        {
+            if ( seen.add(batch.row(i)) )
+                selected[n++] = i ;
+        }
+        if ( n == batch.size() )
+            return batch ;
+        return batch.select(selected, n) ;
+    }
+
+    @Override
+    public void close()
+    {
+        seen = new HashSet<>() ;
+        super.close() ;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledVarExprList ;
+
+/** BIND / (extend) : add a column for each expression.
+ *  As QueryIterAssign, each expression sees the values assigned before it, 
+ *  and a row is dropped if a variable already has a different value.
+ */
+public class BatchIterExtend extends BatchIter1
+{
+    private final VarExprList exprs ;
+    // Null if not compiled.
+    private final CompiledVarExprList compiled ;
+    private final ExecutionContext execCxt ;
+
+    public BatchIterExtend(QueryIteratorBatch input, VarExprList exprs, ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.exprs = exprs ;
+        this.compiled = execCxt.getContext().isTrue(ARQ.compileExpressions) ? new CompiledVarExprList(exprs) : null ;
+        this.execCxt = execCxt ;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch)
+    {
+        int size = batch.size() ;
+        List<Var> assignVars = exprs.getVars() ;
+
+        // The input columns (shared) then new columns.
+        int width = batch.width() ;
+        for ( Var v : assignVars )
+        {
+            if ( batch.indexOf(v) < 0 )
+                width++ ;
+        }
+        Var[] vars = new Var[width] ;
+        Node[][] columns = new Node[width][] ;
+        boolean[] copied = new boolean[width] ;
+        int w = 0 ;
+        for ( ; w < batch.width() ; w++ )
+        {
+            vars[w] = batch.getVar(w) ;
+            columns[w] = batch.getColumn(w) ;
+        }
+        for ( Var v : assignVars )
+        {
+            if ( batch.indexOf(v) < 0 )
+            {
+                vars[w] = v ;
+                columns[w] = new Node[size] ;
+                copied[w] = true ;
+                w++ ;
+            }
+        }
+        BindingBatch result = new BindingBatch(vars, columns, size) ;
+        int[] index = new int[assignVars.size()] ;
+        for ( int j = 0 ; j < index.length ; j++ )
+            index[j] = result.indexOf(assignVars.get(j)) ;
+
+        BindingBatch.Row cursor = result.cursor() ;
+        int[] selected = new int[size] ;
+        int n = 0 ;
+        rows:
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            cursor.setRow(i) ;
+            for ( int j = 0 ; j < index.length ; j++ )
+            {
+                Var v = assignVars.get(j) ;
+                Node node = ( compiled != null ) ? compiled.get(v, cursor, execCxt) : exprs.get(v, cursor, execCxt) ;
+                if ( node == null )
+                    // Expression failed to evaluate - no assignment
+                    continue ;
+                int c = index[j] ;
+                Node current = columns[c][i] ;
+                if ( current != null )
+                {
+                    // Error in single assignment.
+                    if ( ! current.sameValueAs(node) )
+                        continue rows ;
+                    continue ;
+                }
+                if ( ! copied[c] )
+                {
+                    // Copy on write : the column belongs to the input batch.
+                    columns[c] = columns[c].clone() ;
+                    copied[c] = true ;
+                }
+                columns[c][i] = node ;
+            }
+            selected[n++] = i ;
+        }
+        if ( n == size )
+            return result ;
+        return result.select(selected, n) ;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.List ;
+
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprException ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
+
+/** FILTER : keep the rows of each batch for which all the expressions are true. */
+public class BatchIterFilter extends BatchIter1
+{
+    private final ExprList exprs ;
+    // Null if not compiled.
+    private final List<CompiledExpr> compiled ;
+    private final ExecutionContext execCxt ;
+
+    public BatchIterFilter(QueryIteratorBatch input, ExprList exprs, ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.exprs = exprs ;
+        this.compiled = execCxt.getContext().isTrue(ARQ.compileExpressions) ? ExprCompiler.compile(exprs) : null ;
+        this.execCxt = execCxt ;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch)
+    {
+        BindingBatch.Row cursor = batch.cursor() ;
+        int[] selected = new int[batch.size()] ;
+        int n = 0 ;
+        for ( int i = 0 ; i < batch.size() ; i++ )
+        {
+            cursor.setRow(i) ;
+            if ( accept(cursor) )
+                selected[n++] = i ;
+        }
+        if ( n == batch.size() )
+            return batch ;
+        return batch.select(selected, n) ;
+    }
+
+    // As QueryIterFilterExpr
+    private boolean accept(BindingBatch.Row row)
+    {
+        for ( int i = 0 ; i < exprs.size() ; i++ )
+        {
+            Expr expr = exprs.get(i) ;
+            try {
+                boolean b = ( compiled != null ) 
+                    ? compiled.get(i).isSatisfied(row, execCxt)
+                    : expr.isSatisfied(row, execCxt) ;
+                if ( ! b )
+                    return false ;
+            } catch (ExprException ex)
+            { // Some evaluation exception
+                Log.warn(this, "Expression Exception in "+expr, ex) ;
+                return false ;
+            }
+            catch (Exception ex)
+            {
+                Log.warn(this, "General exception in "+expr, ex) ;
+                return false ;
+            }
+        }
+        return true ;
+    }
+}
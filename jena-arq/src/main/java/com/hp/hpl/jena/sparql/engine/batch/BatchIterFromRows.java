@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+
+/** Batches from the bindings of a {@link QueryIterator}. */
+public class BatchIterFromRows implements QueryIteratorBatch
+{
+    private final QueryIterator qIter ;
+    private final int batchSize ;
+
+    public BatchIterFromRows(QueryIterator qIter)
+    {
+        this(qIter, BindingBatch.DefaultSize) ;
+    }
+
+    public BatchIterFromRows(QueryIterator qIter, int batchSize)
+    {
+        this.qIter = qIter ;
+        this.batchSize = batchSize ;
+    }
+
+    @Override
+    public boolean hasNextBatch()
+    {
+        return qIter.hasNext() ;
+    }
+
+    @Override
+    public BindingBatch nextBatch()
+    {
+        BindingBatch.checkNext(hasNextBatch()) ;
+        List<Binding> rows = new ArrayList<>(batchSize) ;
+        while ( rows.size() < batchSize && qIter.hasNext() )
+            rows.add(qIter.nextBinding()) ;
+        return BindingBatch.create(rows) ;
+    }
+
+    @Override
+    public void close()
+    {
+        qIter.close() ;
+    }
+
+    @Override
+    public void cancel()
+    {
+        qIter.cancel() ;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Collections ;
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** Inner join : a hash table, on the join key, is built from all the right side 
+ *  and each batch of the left side is joined with it.  In memory.
+ *  Rows with an unbound join key variable are compared with all rows of the other side.
+ *  <p>
+ *  The right side is held as rows of nodes, not bindings, and the results are written
+ *  directly into the columns of the output batch. An output batch has at most 
+ *  {@code batchSize} rows, however many matches one left batch has.
+ */
+public class BatchIterHashJoin implements QueryIteratorBatch
+{
+    private static final int InitialSize = 16 ;
+
+    private final QueryIteratorBatch left ;
+    private final QueryIteratorBatch right ;
+    private final List<Var> joinKey ;
+    private final int batchSize ;
+
+    // The right side : each row has the values of rightVars, in order ; 
+    // a row is shorter if later variables had not been seen when it was read.
+    private List<Var> rightVars = null ;
+    private Map<List<Node>, List<Node[]>> table = null ;
+    private List<Node[]> unkeyed = null ;
+    private List<Node[]> all = null ;
+
+    // The left batch being joined.
+    private BindingBatch current = null ;
+    private int[] keyCols ;         // Join key variables, as columns of current.
+    private int[] outCols ;         // Right variables, as columns of the output.
+    private Var[] outVars ;
+    private int row = 0 ;
+    // Candidates for the current row : first then second.
+    private List<Node[]> first = null ;
+    private List<Node[]> second = null ;
+    private int pos = 0 ;
+
+    private Node[][] columns = null ;
+    private int capacity = 0 ;
+    private int size = 0 ;
+    private BindingBatch slot = null ;
+    private boolean finished = false ;
+
+    public BatchIterHashJoin(QueryIteratorBatch left, QueryIteratorBatch right, List<Var> joinKey)
+    {
+        this(left, right, joinKey, BindingBatch.DefaultSize) ;
+    }
+
+    public BatchIterHashJoin(QueryIteratorBatch left, QueryIteratorBatch right, List<Var> joinKey, int batchSize)
+    {
+        this.left = left ;
+        this.right = right ;
+        this.joinKey = joinKey ;
+        this.batchSize = Math.max(1, batchSize) ;
+    }
+
+    private void build()
+    {
+        rightVars = new ArrayList<>() ;
+        table = new HashMap<>() ;
+        unkeyed = new ArrayList<>() ;
+        all = new ArrayList<>() ;
+        while ( right.hasNextBatch() )
+        {
+            BindingBatch batch = right.nextBatch() ;
+            int[] map = new int[batch.width()] ;
+            for ( int c = 0 ; c < map.length ; c++ )
+            {
+                Var v = batch.getVar(c) ;
+                int j = rightVars.indexOf(v) ;
+                if ( j < 0 )
+                {
+                    j = rightVars.size() ;
+                    rightVars.add(v) ;
+                }
+                map[c] = j ;
+            }
+            int[] cols = columns(batch) ;
+            for ( int i = 0 ; i < batch.size() ; i++ )
+            {
+                Node[] r = new Node[rightVars.size()] ;
+                for ( int c = 0 ; c < map.length ; c++ )
+                    r[map[c]] = batch.get(i, c) ;
+                all.add(r) ;
+                List<Node> key = key(batch, cols, i) ;
+                if ( key == null )
+                {
+                    unkeyed.add(r) ;
+                    continue ;
+                }
+                List<Node[]> x = table.get(key) ;
+                if ( x == null )
+                {
+                    x = new ArrayList<>(2) ;
+                    table.put(key, x) ;
+                }
+                x.add(r) ;
+            }
+        }
+    }
+
+    private int[] columns(BindingBatch batch)
+    {
+        int[] cols = new int[joinKey.size()] ;
+        for ( int j = 0 ; j < cols.length ; j++ )
+            cols[j] = batch.indexOf(joinKey.get(j)) ;
+        return cols ;
+    }
+
+    // The join key of a row, or null if a join key variable is unbound.
+    private static List<Node> key(BindingBatch batch, int[] cols, int row)
+    {
+        Node[] x = new Node[cols.length] ;
+        for ( int j = 0 ; j < cols.length ; j++ )
+        {
+            x[j] = ( cols[j] < 0 ) ? null : batch.get(row, cols[j]) ;
+            if ( x[j] == null )
+                return null ;
+        }
+        return Arrays.asList(x) ;
+    }
+
+    @Override
+    public boolean hasNextBatch()
+    {
+        if ( slot != null )
+            return true ;
+        if ( finished )
+            return false ;
+        if ( table == null )
+        {
+            build() ;
+            if ( all.isEmpty() )
+            {
+                finished = true ;
+                return false ;
+            }
+        }
+        while ( slot == null )
+        {
+            if ( current == null || row >= current.size() )
+            {
+                // Output does not span left batches : they may have different variables.
+                if ( size > 0 )
+                {
+                    emit() ;
+                    break ;
+                }
+                if ( ! left.hasNextBatch() )
+                {
+                    finished = true ;
+                    return false ;
+                }
+                start(left.nextBatch()) ;
+                continue ;
+            }
+            if ( first == null )
+            {
+                List<Node> key = key(current, keyCols, row) ;
+                if ( key == null )
+                {
+                    first = all ;
+                    second = Collections.emptyList() ;
+                }
+                else
+                {
+                    List<Node[]> x = table.get(key) ;
+                    first = ( x == null ) ? Collections.<Node[]>emptyList() : x ;
+                    second = unkeyed ;
+                }
+                pos = 0 ;
+            }
+            int n = first.size()+second.size() ;
+            while ( pos < n && slot == null )
+            {
+                Node[] r = ( pos < first.size() ) ? first.get(pos) : second.get(pos-first.size()) ;
+                pos++ ;
+                if ( compatible(r) )
+                    add(r) ;
+            }
+            if ( pos >= n )
+            {
+                row++ ;
+                first = null ;
+                second = null ;
+            }
+        }
+        return true ;
+    }
+
+    private void start(BindingBatch batch)
+    {
+        current = batch ;
+        row = 0 ;
+        keyCols = columns(batch) ;
+        // Output : the left variables then those only on the right.
+        List<Var> vars = new ArrayList<>(batch.width()+rightVars.size()) ;
+        for ( int c = 0 ; c < batch.width() ; c++ )
+            vars.add(batch.getVar(c)) ;
+        outCols = new int[rightVars.size()] ;
+        for ( int j = 0 ; j < outCols.length ; j++ )
+        {
+            Var v = rightVars.get(j) ;
+            int c = batch.indexOf(v) ;
+            if ( c < 0 )
+            {
+                c = vars.size() ;
+                vars.add(v) ;
+            }
+            outCols[j] = c ;
+        }
+        outVars = vars.toArray(new Var[vars.size()]) ;
+    }
+
+    // As Algebra.compatible : equal wherever both sides are bound.
+    private boolean compatible(Node[] r)
+    {
+        int width = current.width() ;
+        for ( int j = 0 ; j < r.length ; j++ )
+        {
+            int c = outCols[j] ;
+            if ( c >= width || r[j] == null )
+                continue ;
+            Node n = current.get(row, c) ;
+            if ( n != null && ! n.equals(r[j]) )
+                return false ;
+        }
+        return true ;
+    }
+
+    private void add(Node[] r)
+    {
+        if ( columns == null )
+        {
+            capacity = Math.min(InitialSize, batchSize) ;
+            columns = new Node[outVars.length][capacity] ;
+        }
+        else if ( size == capacity )
+        {
+            capacity = Math.min(2*capacity, batchSize) ;
+            for ( int c = 0 ; c < columns.length ; c++ )
+                columns[c] = Arrays.copyOf(columns[c], capacity) ;
+        }
+        int width = current.width() ;
+        for ( int c = 0 ; c < width ; c++ )
+            columns[c][size] = current.get(row, c) ;
+        for ( int j = 0 ; j < r.length ; j++ )
+        {
+            if ( r[j] != null )
+                columns[outCols[j]][size] = r[j] ;
+        }
+        size++ ;
+        if ( size >= batchSize )
+            emit() ;
+    }
+
+    private void emit()
+    {
+        Node[][] cols = columns ;
+        if ( capacity != size )
+        {
+            for ( int c = 0 ; c < cols.length ; c++ )
+                cols[c] = Arrays.copyOf(cols[c], size) ;
+        }
+        slot = new BindingBatch(outVars, cols, size) ;
+        columns = null ;
+        size = 0 ;
+    }
+
+    @Override
+    public BindingBatch nextBatch()
+    {
+        BindingBatch.checkNext(hasNextBatch()) ;
+        BindingBatch batch = slot ;
+        slot = null ;
+        return batch ;
+    }
+
+    @Override
+    public void close()
+    {
+        table = null ;
+        unkeyed = null ;
+        all = null ;
+        current = null ;
+        columns = null ;
+        right.close() ;
+        left.close() ;
+    }
+
+    @Override
+    public void cancel()
+    {
+        right.cancel() ;
+        left.cancel() ;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** Projection : keep the columns of the given variables.  The columns are shared, not copied. */
+public class BatchIterProject extends BatchIter1
+{
+    private final List<Var> projectVars ;
+
+    public BatchIterProject(QueryIteratorBatch input, List<Var> vars)
+    {
+        super(input) ;
+        this.projectVars = vars ;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch)
+    {
+        List<Var> vars = new ArrayList<>(projectVars.size()) ;
+        List<Node[]> columns = new ArrayList<>(projectVars.size()) ;
+        for ( Var v : projectVars )
+        {
+            int c = batch.indexOf(v) ;
+            if ( c >= 0 )
+            {
+                vars.add(v) ;
+                columns.add(batch.getColumn(c)) ;
+            }
+        }
+        return new BindingBatch(vars.toArray(new Var[vars.size()]), 
+                                columns.toArray(new Node[columns.size()][]), 
+                                batch.size()) ;
+    }
+}
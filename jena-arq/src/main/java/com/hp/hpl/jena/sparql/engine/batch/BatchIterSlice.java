@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import com.hp.hpl.jena.query.Query ;
+
+/** OFFSET and LIMIT : trims batches, and stops reading the input once the limit is reached. */
+public class BatchIterSlice extends BatchIter1
+{
+    private long toSkip ;
+    private final long limit ;
+    private long count = 0 ;
+
+    /** Offset and limit as in {@link com.hp.hpl.jena.sparql.algebra.op.OpSlice} ({@link Query#NOLIMIT} for none) */
+    public BatchIterSlice(QueryIteratorBatch input, long offset, long limit)
+    {
+        super(input) ;
+        this.toSkip = ( offset == Query.NOLIMIT ) ? 0 : offset ;
+        this.limit = limit ;
+        if ( limit == 0 )
+            finish() ;
+    }
+
+    @Override
+    protected BindingBatch process(BindingBatch batch)
+    {
+        int size = batch.size() ;
+        int from = 0 ;
+        if ( toSkip > 0 )
+        {
+            from = (int)Math.min(toSkip, size) ;
+            toSkip -= from ;
+        }
+        int to = size ;
+        if ( limit != Query.NOLIMIT )
+        {
+            to = (int)Math.min(size, from + ( limit - count )) ;
+            if ( count + to - from >= limit )
+                finish() ;
+        }
+        count += to - from ;
+        if ( from == 0 && to == size )
+            return batch ;
+        return batch.slice(from, to) ;
+    }
+}
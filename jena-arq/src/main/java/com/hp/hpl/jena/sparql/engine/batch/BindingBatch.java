@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.NoSuchElementException ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBase ;
+
+/** A block of bindings, stored by column : an array of nodes for each variable, with null for "unbound".
+ *  A batch is not changed after it has been created ; batches can share columns. 
+ */
+public class BindingBatch
+{
+    /** Usual number of rows in a batch */
+    public static final int DefaultSize = 1024 ;
+
+    private final Var[] vars ;
+    private final Node[][] columns ;
+    private final int size ;
+
+    /** The arrays are used, not copied. */
+    public BindingBatch(Var[] vars, Node[][] columns, int size)
+    {
+        this.vars = vars ;
+        this.columns = columns ;
+        this.size = size ;
+    }
+
+    /** Create a batch from rows ; the variables are all those in any of the rows. */
+    public static BindingBatch create(List<Binding> rows)
+    {
+        Map<Var, Node[]> cols = new LinkedHashMap<>() ;
+        int n = rows.size() ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            Binding b = rows.get(i) ;
+            for ( Iterator<Var> iter = b.vars() ; iter.hasNext() ; )
+            {
+                Var v = iter.next() ;
+                Node[] col = cols.get(v) ;
+                if ( col == null )
+                {
+                    col = new Node[n] ;
+                    cols.put(v, col) ;
+                }
+                col[i] = b.get(v) ;
+            }
+        }
+        Var[] vars = cols.keySet().toArray(new Var[cols.size()]) ;
+        Node[][] columns = cols.values().toArray(new Node[cols.size()][]) ;
+        return new BindingBatch(vars, columns, n) ;
+    }
+
+    public int size()                       { return size ; }
+    public int width()                      { return vars.length ; }
+    public Var getVar(int col)              { return vars[col] ; }
+    public Node[] getColumn(int col)        { return columns[col] ; }
+    public Node get(int row, int col)       { return columns[col][row] ; }
+
+    /** The column for a variable, or -1 */
+    public int indexOf(Var var)
+    {
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            if ( vars[i].equals(var) )
+                return i ;
+        }
+        return -1 ;
+    }
+
+    /** A row as a binding.  The binding is a view of the batch. */  
+    public Binding row(int row)
+    {
+        return new Row(this, row) ;
+    }
+
+    /** A binding that can be moved from row to row, 
+     *  for evaluating expressions without creating a binding for each row. */
+    Row cursor()
+    {
+        return new Row(this, 0) ;
+    }
+
+    /** A new batch of the rows given by the first {@code n} entries of {@code rows} */ 
+    public BindingBatch select(int[] rows, int n)
+    {
+        Node[][] cols = new Node[columns.length][] ;
+        for ( int c = 0 ; c < cols.length ; c++ )
+        {
+            Node[] src = columns[c] ;
+            Node[] col = new Node[n] ;
+            for ( int i = 0 ; i < n ; i++ )
+                col[i] = src[rows[i]] ;
+            cols[c] = col ;
+        }
+        return new BindingBatch(vars, cols, n) ;
+    }
+
+    /** A new batch of rows {@code from} (inclusive) to {@code to} (exclusive) */
+    public BindingBatch slice(int from, int to)
+    {
+        Node[][] cols = new Node[columns.length][] ;
+        for ( int c = 0 ; c < cols.length ; c++ )
+            cols[c] = Arrays.copyOfRange(columns[c], from, to) ;
+        return new BindingBatch(vars, cols, to-from) ;
+    }
+
+    @Override
+    public String toString()
+    {
+        List<Binding> x = new ArrayList<>(size) ;
+        for ( int i = 0 ; i < size ; i++ )
+            x.add(row(i)) ;
+        return x.toString() ;
+    }
+
+    /** A row of a batch, as a binding. */
+    static final class Row extends BindingBase
+    {
+        private final BindingBatch batch ;
+        private int row ;
+
+        Row(BindingBatch batch, int row)
+        {
+            super(null) ;
+            this.batch = batch ;
+            this.row = row ;
+        }
+
+        void setRow(int row)    { this.row = row ; }
+
+        @Override
+        protected Iterator<Var> vars1()
+        {
+            List<Var> x = new ArrayList<>(batch.vars.length) ;
+            for ( int c = 0 ; c < batch.vars.length ; c++ )
+            {
+                if ( batch.columns[c][row] != null )
+                    x.add(batch.vars[c]) ;
+            }
+            return x.iterator() ;
+        }
+
+        @Override
+        protected int size1()
+        {
+            int n = 0 ;
+            for ( int c = 0 ; c < batch.vars.length ; c++ )
+            {
+                if ( batch.columns[c][row] != null )
+                    n++ ;
+            }
+            return n ;
+        }
+
+        @Override
+        protected boolean isEmpty1()
+        {
+            return size1() == 0 ;
+        }
+
+        @Override
+        protected boolean contains1(Var var)
+        {
+            return get1(var) != null ;
+        }
+
+        @Override
+        protected Node get1(Var var)
+        {
+            int c = batch.indexOf(var) ;
+            return ( c < 0 ) ? null : batch.columns[c][row] ;
+        }
+    }
+    
+    static void checkNext(boolean hasNext)
+    {
+        if ( ! hasNext )
+            throw new NoSuchElementException() ;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** A query iterator over the rows of the batches of a {@link QueryIteratorBatch}. */
+public class QueryIterBatched extends QueryIter
+{
+    private final QueryIteratorBatch batches ;
+    private BindingBatch current = null ;
+    private int index = 0 ;
+
+    public QueryIterBatched(QueryIteratorBatch batches, ExecutionContext execCxt)
+    {
+        super(execCxt) ;
+        this.batches = batches ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        while ( current == null || index >= current.size() )
+        {
+            current = null ;
+            if ( ! batches.hasNextBatch() )
+                return false ;
+            current = batches.nextBatch() ;
+            index = 0 ;
+        }
+        return true ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        BindingBatch.checkNext(hasNextBinding()) ;
+        return current.row(index++) ;
+    }
+
+    @Override
+    protected void closeIterator()
+    {
+        batches.close() ;
+    }
+
+    @Override
+    protected void requestCancel()
+    {
+        batches.cancel() ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt)
+    { out.print(Utils.className(this)) ; }
+}
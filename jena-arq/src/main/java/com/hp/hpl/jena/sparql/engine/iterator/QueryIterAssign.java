@@ -21,6 +21,7 @@ package com.hp.hpl.jena.sparql.engine.iterator;
 import org.apache.jena.atlas.io.IndentedWriter ;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.QueryExecException ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.core.VarExprList ;
@@ -30,6 +31,7 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledVarExprList ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.Utils ;
 
@@ -38,6 +40,8 @@ import com.hp.hpl.jena.sparql.util.Utils ;
 public class QueryIterAssign extends QueryIterProcessBinding
 {
     private VarExprList exprs ;
+    // Null if not compiled.
+    private final CompiledVarExprList compiled ;
     private final boolean mustBeNewVar ;
     
     public QueryIterAssign(QueryIterator input, Var var, Expr expr, ExecutionContext qCxt)
@@ -54,6 +58,7 @@ public class QueryIterAssign extends QueryIterProcessBinding
         super(input, qCxt) ;
         this.exprs = exprs ;
         this.mustBeNewVar = mustBeNewVar ;
+        this.compiled = qCxt.getContext().isTrue(ARQ.compileExpressions) ? new CompiledVarExprList(exprs) : null ;
     }
     
     @Override
@@ -65,7 +70,7 @@ public class QueryIterAssign extends QueryIterProcessBinding
             // Not this, where expressions do not see the new bindings.
             // Node n = exprs.get(v, bind, funcEnv) ;
             // which gives (Lisp) "let" semantics, not "let*" semantics 
-            Node n = exprs.get(v, b, getExecContext()) ;
+            Node n = ( compiled != null ) ? compiled.get(v, b, getExecContext()) : exprs.get(v, b, getExecContext()) ;
             
             if ( n == null )
                 // Expression failed to evaluate - no assignment
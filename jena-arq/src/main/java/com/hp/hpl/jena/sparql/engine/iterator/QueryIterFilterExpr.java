@@ -21,11 +21,14 @@ package com.hp.hpl.jena.sparql.engine.iterator;
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.atlas.logging.Log ;
 
+import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprException ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.ExprUtils ;
 import com.hp.hpl.jena.sparql.util.Utils ;
@@ -36,18 +39,24 @@ import com.hp.hpl.jena.sparql.util.Utils ;
 public class QueryIterFilterExpr extends QueryIterProcessBinding
 {
     private final Expr expr ;
+    // Null if not compiled.
+    private final CompiledExpr compiled ;
     
     public QueryIterFilterExpr(QueryIterator input, Expr expr, ExecutionContext context)
     {
         super(input, context) ;
         this.expr = expr ;
+        this.compiled = context.getContext().isTrue(ARQ.compileExpressions) ? ExprCompiler.compile(expr) : null ;
     }
     
     @Override
     public Binding accept(Binding binding)
     {
         try {
-            if ( expr.isSatisfied(binding, super.getExecContext()) )
+            boolean b = ( compiled != null )
+                ? compiled.isSatisfied(binding, super.getExecContext())
+                : expr.isSatisfied(binding, super.getExecContext()) ;
+            if ( b )
                 return binding ;
             return null ;
         } catch (ExprException ex)
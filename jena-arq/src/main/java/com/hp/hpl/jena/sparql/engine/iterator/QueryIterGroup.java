@@ -19,16 +19,22 @@
 package com.hp.hpl.jena.sparql.engine.iterator;
 
 import java.util.ArrayList ;
-import java.util.Collection ;
 import java.util.Iterator ;
+import java.util.LinkedHashMap ;
 import java.util.List ;
+import java.util.Map ;
 
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorConcat ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
-import org.apache.jena.atlas.lib.MultiMap ;
-import org.apache.jena.atlas.lib.Pair ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.core.VarExprList ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
@@ -39,10 +45,22 @@ import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.expr.ExprAggregator ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
 import com.hp.hpl.jena.sparql.expr.aggregate.Accumulator ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AccumulatorPartial ;
 
+/** GROUP BY, with aggregation.
+ * <p>
+ * If {@link ARQ#spillToDiskThreshold} is set, at most that many groups are held in memory.
+ * When all the aggregators can be calculated in parts ({@link AccumulatorPartial} - COUNT, SUM, MIN, MAX, AVG),
+ * the groups in memory are pre-aggregated and their partial results written to disk, partitioned by group key,
+ * when the limit is reached; each partition is then merged separately.
+ * Otherwise, the groups already in memory continue to be accumulated and the rows for other groups
+ * are written to disk, partitioned by group key, to be grouped afterwards.  
+ */
 public class QueryIterGroup extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;
+	// Spill files ; closed with this iterator.
+	private final List<DataBag<Binding>> bags = new ArrayList<>() ;
 
 	public QueryIterGroup(QueryIterator qIter, 
                           VarExprList groupVars,
@@ -51,7 +69,7 @@ public class QueryIterGroup extends QueryIterPlainWrapper
     {
         super(null, execCxt) ;
         this.embeddedIterator = qIter;
-        Iterator<Binding> iter = calc(qIter, groupVars, aggregators, execCxt) ;
+        Iterator<Binding> iter = calc(qIter, groupVars, aggregators, bags, execCxt) ;
         setIterator(iter) ;
     }
 
@@ -62,124 +80,272 @@ public class QueryIterGroup extends QueryIterPlainWrapper
 	    super.requestCancel() ;
 	}
 	
+	@Override
+	protected void closeIterator()
+	{
+	    super.closeIterator() ;
+	    for ( DataBag<Binding> bag : bags )
+	        bag.close() ;
+	    bags.clear() ;
+	}
+	
     // Phase 1 : Consume the input iterator, assigning groups (keys) 
     //           and push rows through the aggregator function. 
     
     // Phase 2 : Go over the group bindings and assign the value of each aggregation.
 	
-	private static Pair<Var, Accumulator> placeholder = Pair.create((Var)null, (Accumulator)null) ; 
-	
-    
     private static Iterator<Binding> calc(final QueryIterator iter, 
                                           final VarExprList groupVarExpr, final List<ExprAggregator> aggregators,
+                                          final List<DataBag<Binding>> bags,
                                           final ExecutionContext execCxt)
     {
         return new IteratorDelayedInitialization<Binding>() {
             @Override
             protected Iterator<Binding> initializeIterator() {
+                Grouping grouping = new Grouping(groupVarExpr, aggregators, bags, execCxt) ;
+                return grouping.group(iter, false, 0) ;
+            }
+        };
+    }
 
-                boolean noAggregators =  ( aggregators == null || aggregators.size() == 0 ) ;
-                
-                // Phase 1 : assign bindings to buckets by key and pump through the aggregrators.
-                MultiMap<Binding, Pair<Var, Accumulator>> accumulators = MultiMap.createMapList() ;
+    private static final int numPartitions = 32 ;
+    // Partitions of partitions ... stop at this depth and work in memory.
+    private static final int maxLevel = 4 ;
 
-                for ( ; iter.hasNext() ; )
+    private static class Grouping
+    {
+        private final VarExprList groupVarExpr ;
+        private final List<ExprAggregator> aggregators ;
+        private final List<DataBag<Binding>> bags ;
+        private final ExecutionContext execCxt ;
+        private final long threshold ;
+        // All aggregators can be pre-aggregated.
+        private final boolean partial ;
+        // The variables for the partial results of each aggregator, when written to disk. 
+        private final Var[][] partialVars ;
+
+        Grouping(VarExprList groupVarExpr, List<ExprAggregator> aggregators, List<DataBag<Binding>> bags, ExecutionContext execCxt)
+        {
+            this.groupVarExpr = groupVarExpr ;
+            this.aggregators = ( aggregators == null ) ? new ArrayList<ExprAggregator>() : aggregators ;
+            this.bags = bags ;
+            this.execCxt = execCxt ;
+            this.threshold = (Long)execCxt.getContext().get(ARQ.spillToDiskThreshold, -1L) ;
+            
+            boolean allPartial = true ;
+            partialVars = new Var[this.aggregators.size()][] ;
+            for ( int i = 0 ; i < partialVars.length ; i++ )
+            {
+                Accumulator acc = this.aggregators.get(i).getAggregator().createAccumulator() ;
+                if ( ! ( acc instanceof AccumulatorPartial ) )
                 {
-                    Binding b = iter.nextBinding() ;
-                    Binding key = genKey(groupVarExpr, b, execCxt) ;
+                    allPartial = false ;
+                    continue ;
+                }
+                int n = ((AccumulatorPartial)acc).getPartial().length ;
+                partialVars[i] = new Var[n] ;
+                for ( int j = 0 ; j < n ; j++ )
+                    partialVars[i][j] = Var.alloc(ARQConstants.allocVarMarker+"group"+i+"_"+j) ;
+            }
+            this.partial = allPartial ;
+        }
 
-                    if ( noAggregators )
-                    {
-                        // Put in a dummy to remember the input.
-                        accumulators.put(key, placeholder ) ;
-                        continue ;
-                    }
+        /** Group the input, which is either rows to aggregate or (partialInput) the partial results of groups */
+        Iterator<Binding> group(Iterator<Binding> input, boolean partialInput, int level)
+        {
+            boolean spill = ( threshold >= 0 && level < maxLevel ) ;
+            // Group key to accumulators, in the order of the aggregators.
+            Map<Binding, Accumulator[]> groups = new LinkedHashMap<>() ;
+            List<DataBag<Binding>> partitions = null ;
 
-                    Collection<Pair<Var, Accumulator>> accs = accumulators.get(key) ;
-                    // Create if does not exist.
-                    if ( accs == null )
+            while ( input.hasNext() )
+            {
+                Binding b = input.next() ;
+                Binding key = partialInput ? keyOf(b) : genKey(groupVarExpr, b, execCxt) ;
+                Accumulator[] accs = groups.get(key) ;
+                // Create if does not exist.
+                if ( accs == null )
+                {
+                    if ( spill && groups.size() >= threshold )
                     {
-                        for ( ExprAggregator agg : aggregators )
+                        if ( partitions == null )
+                            partitions = newPartitions() ;
+                        if ( partial )
+                            // Write the partial results so far and start again.
+                            flush(groups, partitions, level) ;
+                        else
                         {
-                            Accumulator x = agg.getAggregator().createAccumulator() ;
-                            Var v = agg.getVar() ;
-                            accumulators.put(key, Pair.create(v, x)) ;
+                            // Not a group in memory : deal with this row later.
+                            partitions.get(partition(key, level)).add(b) ;
+                            continue ;
                         }
-                        accs = accumulators.get(key) ;
                     }
+                    accs = new Accumulator[aggregators.size()] ;
+                    for ( int i = 0 ; i < accs.length ; i++ )
+                        accs[i] = aggregators.get(i).getAggregator().createAccumulator() ;
+                    groups.put(key, accs) ;
+                }
 
-                    // Do the per-accumulator calculation.
-                    for ( Pair<Var, Accumulator> pair : accs )
-                        pair.getRight().accumulate(b, execCxt) ;
+                // Do the per-accumulator calculation.
+                if ( partialInput )
+                    merge(accs, b) ;
+                else
+                {
+                    for ( Accumulator acc : accs )
+                        acc.accumulate(b, execCxt) ;
                 }
+            }
+
+            if ( partitions == null )
+                return results(groups, level == 0) ;
+
+            IteratorConcat<Binding> iter = new IteratorConcat<>() ;
+            if ( partial )
+                flush(groups, partitions, level) ;
+            else
+                iter.add(results(groups, false)) ;
+            for ( final DataBag<Binding> bag : partitions )
+            {
+                if ( bag.size() == 0 )
+                    continue ;
+                final int nextLevel = level+1 ;
+                iter.add(new IteratorDelayedInitialization<Binding>() {
+                    @Override
+                    protected Iterator<Binding> initializeIterator()
+                    { return group(bag.iterator(), partial, nextLevel) ; }
+                }) ;
+            }
+            return iter ;
+        }
 
-                // Phase 2 : Empty input
-                // has as iter.hasNext false at start.
+        private List<DataBag<Binding>> newPartitions()
+        {
+            long limit = Math.max(1, threshold/numPartitions) ;
+            List<DataBag<Binding>> partitions = new ArrayList<>(numPartitions) ;
+            for ( int i = 0 ; i < numPartitions ; i++ )
+            {
+                DataBag<Binding> bag = BagFactory.newDefaultBag(ThresholdPolicyFactory.<Binding>count(limit),
+                                                                SerializationFactoryFinder.bindingSerializationFactory()) ;
+                bags.add(bag) ;
+                partitions.add(bag) ;
+            }
+            return partitions ;
+        }
 
-                // If there are no binding from the input stage, two things can happen.
-                //   If there are no aggregators, there are no groups.
-                //   If there are aggregators, then they may have a default value. 
+        private static int partition(Binding key, int level)
+        {
+            // Mix the bits, differently at each level so a partition is split when it is partitioned.
+            int h = ( key.hashCode() + level ) * 0x9E3779B9 ;
+            return ( h >>> 1 ) % numPartitions ;
+        }
 
-                if ( accumulators.isEmpty() )
+        // Write the groups, with the partial results of the aggregators, and clear the groups.
+        private void flush(Map<Binding, Accumulator[]> groups, List<DataBag<Binding>> partitions, int level)
+        {
+            for ( Map.Entry<Binding, Accumulator[]> e : groups.entrySet() )
+            {
+                BindingMap row = copy(e.getKey()) ;
+                Accumulator[] accs = e.getValue() ;
+                for ( int i = 0 ; i < accs.length ; i++ )
                 {
-                    if ( noAggregators )
+                    Node[] state = ((AccumulatorPartial)accs[i]).getPartial() ;
+                    for ( int j = 0 ; j < state.length ; j++ )
                     {
-                        // No rows to group, no aggregators.
-                        // ==> No result rows.
-                        return Iter.nullIterator() ;
+                        if ( state[j] != null )
+                            row.add(partialVars[i][j], state[j]) ;
                     }
-                    
-                    BindingMap binding = BindingFactory.create() ;
+                }
+                partitions.get(partition(e.getKey(), level)).add(row) ;
+            }
+            groups.clear() ;
+        }
+
+        // Merge a row of partial results.
+        private void merge(Accumulator[] accs, Binding row)
+        {
+            for ( int i = 0 ; i < accs.length ; i++ )
+            {
+                Node[] state = new Node[partialVars[i].length] ;
+                for ( int j = 0 ; j < state.length ; j++ )
+                    state[j] = row.get(partialVars[i][j]) ;
+                ((AccumulatorPartial)accs[i]).mergePartial(state) ;
+            }
+        }
 
-                    for ( ExprAggregator agg : aggregators )
+        // The group key of a row of partial results.
+        private Binding keyOf(Binding row)
+        {
+            BindingMap x = BindingFactory.create() ;
+            for ( Var var : groupVarExpr.getVars() )
+            {
+                Node node = row.get(var) ;
+                if ( node != null )
+                    x.add(var, node) ;
+            }
+            return x ;
+        }
+
+        private static BindingMap copy(Binding binding)
+        {
+            BindingMap x = BindingFactory.create() ;
+            x.addAll(binding) ;
+            return x ;
+        }
+
+        // Phase 2 : For each group, get binding, add aggregator values to the binding.
+        private Iterator<Binding> results(Map<Binding, Accumulator[]> groups, boolean allInput)
+        {
+            boolean noAggregators = aggregators.isEmpty() ;
+
+            // If there are no binding from the input stage, two things can happen.
+            //   If there are no aggregators, there are no groups.
+            //   If there are aggregators, then they may have a default value. 
+            if ( groups.isEmpty() )
+            {
+                if ( noAggregators || ! allInput )
+                    // No rows to group, no aggregators.
+                    // ==> No result rows.
+                    return Iter.nullIterator() ;
+
+                BindingMap binding = BindingFactory.create() ;
+
+                for ( ExprAggregator agg : aggregators )
+                {
+                    Var v = agg.getVar();
+                    Node value = agg.getAggregator().getValueEmpty();
+                    if ( value != null )
                     {
-                        Var v = agg.getVar();
-                        Node value = agg.getAggregator().getValueEmpty();
-                        if ( value != null )
-                        {
-                            binding.add( v, value );
-                        }
+                        binding.add( v, value );
                     }
-                        
-                    if ( binding == null )
-                        // This does not happen if there are any aggregators. 
-                        return Iter.nullIterator() ;
-                    // cast to get the static type inference to work.
-                    return Iter.singletonIter((Binding)binding) ;
                 }
+                // cast to get the static type inference to work.
+                return Iter.singletonIter((Binding)binding) ;
+            }
+
+            // There was input and so there are some groups.
+            if ( noAggregators )
+                return groups.keySet().iterator() ;
 
-                // Phase 2 : There was input and so there are some groups.
-                // For each bucket, get binding, add aggregator values to the binding.
-                // We used AccNull so there are always accumulators. 
-                
-                if ( noAggregators )
-                    // We used placeholder so there are always the key. 
-                    return accumulators.keys().iterator() ;
-                
-                List<Binding> results = new ArrayList<>() ;
-
-                for ( Binding k : accumulators.keys() )
+            List<Binding> results = new ArrayList<>(groups.size()) ;
+
+            for ( Map.Entry<Binding, Accumulator[]> e : groups.entrySet() )
+            {
+                BindingMap b = BindingFactory.create(e.getKey()) ;
+                Accumulator[] accs = e.getValue() ;
+                for ( int i = 0 ; i < accs.length ; i++ )
                 {
-                    Collection<Pair<Var, Accumulator>> accs = accumulators.get(k) ;
-                    BindingMap b = BindingFactory.create(k) ;
-                    
-                    for ( Pair<Var, Accumulator> pair : accs )
-                    {
-                        Var v = pair.getLeft() ;
-                        NodeValue value = pair.getRight().getValue() ;
-                        Node n = (value==null) ? null : value.asNode() ;
-                        if ( v == null || n == null )
-                        {} 
-                        else
-                            b.add(v, n) ;
-                    }
-                    results.add(b) ;
+                    Var v = aggregators.get(i).getVar() ;
+                    NodeValue value = accs[i].getValue() ;
+                    Node n = (value==null) ? null : value.asNode() ;
+                    if ( v != null && n != null )
+                        b.add(v, n) ;
                 }
-                return results.iterator() ;
+                results.add(b) ;
             }
-        };
+            return results.iterator() ;
+        }
     }
-    
+
     static private Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) 
     {
         return copyProject(vars, binding, execCxt) ;
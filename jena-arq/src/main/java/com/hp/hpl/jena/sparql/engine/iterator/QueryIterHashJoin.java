@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DefaultDataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.IteratorConcat ;
+import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.algebra.Algebra ;
+import com.hp.hpl.jena.sparql.algebra.JoinType ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+
+/**
+ * Hash join, or left join, of two streams of bindings.
+ * <p>
+ * The "build" side is read into a hash table keyed on the values of the join key variables,
+ * then each row of the "probe" side looks up the rows it may join with.
+ * Rows where a join key variable is unbound can not be hashed; they are compared with
+ * every row of the other side. The join key affects only how fast the join is, not the
+ * results, but it should be variables that are usually bound on both sides.
+ * <p>
+ * If the build side has more rows than {@link ARQ#spillToDiskThreshold}, both sides are
+ * partitioned on the hash of the join key into data bags, which are written to disk,
+ * and then each partition is joined in turn (a "grace" hash join).
+ * <p>
+ * For a left join, the probe side is the left side. A plain join may build on either side. 
+ */
+public class QueryIterHashJoin extends QueryIter2
+{
+    private static final int numPartitions = 32 ;
+
+    private final List<Var> joinKey ;
+    private final JoinType joinType ;
+    private final ExprList conditions ;
+    private final long threshold ;
+    private Iterator<Binding> results = null ;
+    private final List<DefaultDataBag<Binding>> bags = new ArrayList<>() ;
+
+    /** Join, building the hash table from the right side */ 
+    public static QueryIterator create(QueryIterator left, QueryIterator right, List<Var> joinKey,
+                                       JoinType joinType, ExprList conditions, ExecutionContext execCxt)
+    {
+        return new QueryIterHashJoin(left, right, joinKey, joinType, conditions, execCxt) ;
+    }
+
+    /** Plain join, building the hash table from the left side (for example, because it is the smaller side) */ 
+    public static QueryIterator createBuildLeft(QueryIterator left, QueryIterator right, List<Var> joinKey,
+                                                ExprList conditions, ExecutionContext execCxt)
+    {
+        return new QueryIterHashJoin(right, left, joinKey, JoinType.PLAIN, conditions, execCxt) ;
+    }
+
+    private QueryIterHashJoin(QueryIterator probe, QueryIterator build, List<Var> joinKey,
+                              JoinType joinType, ExprList conditions, ExecutionContext execCxt)
+    {
+        super(probe, build, execCxt) ;
+        this.joinKey = joinKey ;
+        this.joinType = joinType ;
+        this.conditions = conditions ;
+        this.threshold = (Long)execCxt.getContext().get(ARQ.spillToDiskThreshold, -1L) ;
+    }
+    
+    private QueryIterator getProbe()    { return getLeft() ; }
+    private QueryIterator getBuild()    { return getRight() ; }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( results == null )
+            results = build() ;
+        return results.hasNext() ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        return results.next() ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    { }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        for ( DefaultDataBag<Binding> bag : bags )
+            bag.close() ;
+        bags.clear() ;
+    }
+    
+    /** The join key values, or null if a join key variable is unbound */ 
+    private List<Node> key(Binding binding)
+    {
+        Node[] x = new Node[joinKey.size()] ;
+        for ( int i = 0 ; i < x.length ; i++ )
+        {
+            x[i] = binding.get(joinKey.get(i)) ;
+            if ( x[i] == null )
+                return null ;
+        }
+        return Arrays.asList(x) ;
+    }
+
+    private static int partition(List<Node> key)
+    {
+        // Mix the bits so the partitions do not all share the low bits used within the hash table.
+        return ((key.hashCode() * 0x9E3779B9) >>> 1) % numPartitions ;
+    }
+
+    private Iterator<Binding> build()
+    {
+        QueryIterator build = getBuild() ;
+        HashTable table = new HashTable() ;
+        List<Binding> unkeyed = new ArrayList<>() ;
+        long count = 0 ;
+        while ( build.hasNext() )
+        {
+            if ( threshold >= 0 && count >= threshold )
+                return partitioned(table, unkeyed) ;
+            add(table, unkeyed, build.nextBinding()) ;
+            count++ ;
+        }
+        // All in memory : stream the probe side.
+        return new Probe(getProbe(), table, unkeyed, null, joinType == JoinType.LEFT) ;
+    }
+
+    private void add(HashTable table, List<Binding> unkeyed, Binding binding)
+    {
+        List<Node> key = key(binding) ;
+        if ( key == null )
+            unkeyed.add(binding) ;
+        else
+            table.add(key, binding) ;
+    }
+
+    private DefaultDataBag<Binding> newBag(long limit)
+    {
+        DefaultDataBag<Binding> bag = BagFactory.newDefaultBag(ThresholdPolicyFactory.<Binding>count(limit),
+                                                               SerializationFactoryFinder.bindingSerializationFactory()) ;
+        bags.add(bag) ;
+        return bag ;
+    }
+
+    // Grace hash join : partition both sides to disk, then join partition by partition.
+    private Iterator<Binding> partitioned(HashTable table, List<Binding> unkeyed)
+    {
+        long limit = Math.max(1, threshold/numPartitions) ;
+        final List<DefaultDataBag<Binding>> buildBags = new ArrayList<>(numPartitions) ;
+        final List<DefaultDataBag<Binding>> probeBags = new ArrayList<>(numPartitions) ;
+        for ( int i = 0 ; i < numPartitions ; i++ )
+        {
+            buildBags.add(newBag(limit)) ;
+            probeBags.add(newBag(limit)) ;
+        }
+        final DefaultDataBag<Binding> unkeyedBuild = newBag(limit) ;
+        final DefaultDataBag<Binding> unkeyedProbe = newBag(limit) ;
+
+        unkeyedBuild.addAll(unkeyed) ;
+        for ( Map.Entry<List<Node>, List<Binding>> e : table.buckets.entrySet() )
+            buildBags.get(partition(e.getKey())).addAll(e.getValue()) ;
+        table.buckets.clear() ;
+        unkeyed.clear() ;
+        
+        for ( QueryIterator build = getBuild() ; build.hasNext() ; )
+            distribute(build.nextBinding(), buildBags, unkeyedBuild) ;
+        for ( QueryIterator probe = getProbe() ; probe.hasNext() ; )
+            distribute(probe.nextBinding(), probeBags, unkeyedProbe) ;
+
+        // Probe rows with an unbound join key variable are compared with every build row, one partition at a time.
+        final BitSet matched = new BitSet() ;
+        final boolean leftJoin = ( joinType == JoinType.LEFT ) ;
+        IteratorConcat<Binding> iter = new IteratorConcat<>() ;
+        for ( int i = 0 ; i < numPartitions ; i++ )
+        {
+            final int p = i ;
+            iter.add(new IteratorDelayedInitialization<Binding>() {
+                @Override
+                protected Iterator<Binding> initializeIterator()
+                {
+                    HashTable partitionTable = new HashTable() ;
+                    for ( Binding b : buildBags.get(p) )
+                        partitionTable.add(key(b), b) ;
+                    // Reading a bag from disk for each probe row is slow but build rows with an unbound join key are unusual.
+                    Iterable<Binding> unkeyedRows = ( unkeyedBuild.size() == 0 ) ? Collections.<Binding>emptyList() : unkeyedBuild ;
+                    Iterator<Binding> iter1 = new Probe(probeBags.get(p).iterator(), partitionTable, unkeyedRows, null, leftJoin) ;
+                    if ( unkeyedProbe.size() == 0 )
+                        return iter1 ;
+                    Iterator<Binding> iter2 = new Probe(unkeyedProbe.iterator(), partitionTable, Collections.<Binding>emptyList(), matched, false) ;
+                    return IteratorConcat.concat(iter1, iter2) ;
+                }
+            }) ;
+        }
+        // Lastly, the rows with unbound join key variables on both sides.
+        iter.add(new IteratorDelayedInitialization<Binding>() {
+            @Override
+            protected Iterator<Binding> initializeIterator()
+            {
+                return new Probe(unkeyedProbe.iterator(), new HashTable(), unkeyedBuild, matched, leftJoin) ;
+            }
+        }) ;
+        return iter ;
+    }
+
+    private void distribute(Binding binding, List<DefaultDataBag<Binding>> partitions, DefaultDataBag<Binding> unkeyed)
+    {
+        List<Node> key = key(binding) ;
+        if ( key == null )
+            unkeyed.add(binding) ;
+        else
+            partitions.get(partition(key)).add(binding) ;
+    }
+
+    /** Build rows by join key */
+    private static class HashTable
+    {
+        final Map<List<Node>, List<Binding>> buckets = new HashMap<>() ;
+        
+        void add(List<Node> key, Binding binding)
+        {
+            List<Binding> x = buckets.get(key) ;
+            if ( x == null )
+            {
+                x = new ArrayList<>(2) ;
+                buckets.put(key, x) ;
+            }
+            x.add(binding) ;
+        }
+        
+        List<Binding> get(List<Node> key)
+        {
+            List<Binding> x = buckets.get(key) ;
+            return ( x == null ) ? Collections.<Binding>emptyList() : x ;
+        }
+    }
+
+    /** Join each probe row with the rows of the hash table (the matching bucket or,
+     *  if the probe row has an unbound join key variable, all of them)
+     *  and with the build rows that have an unbound join key variable.
+     *  Optionally, record which probe rows (by position) found a match,
+     *  and output the probe rows that did not match in this or an earlier pass.
+     */
+    private class Probe implements Iterator<Binding>
+    {
+        private final Iterator<Binding> rows ;
+        private final HashTable table ;
+        private final Iterable<Binding> unkeyed ;
+        private final BitSet matched ;
+        private final boolean outputUnmatched ;
+        private final Deque<Binding> pending = new ArrayDeque<>() ;
+        private int index = 0 ;
+
+        Probe(Iterator<Binding> rows, HashTable table, Iterable<Binding> unkeyed, BitSet matched, boolean outputUnmatched)
+        {
+            this.rows = rows ;
+            this.table = table ;
+            this.unkeyed = unkeyed ;
+            this.matched = matched ;
+            this.outputUnmatched = outputUnmatched ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( pending.isEmpty() && rows.hasNext() )
+                step(rows.next()) ;
+            return ! pending.isEmpty() ;
+        }
+
+        @Override
+        public Binding next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return pending.removeFirst() ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+
+        private void step(Binding row)
+        {
+            int i = index++ ;
+            List<Node> key = key(row) ;
+            int count = 0 ;
+            if ( key != null )
+                count += join(row, table.get(key)) ;
+            else
+            {
+                for ( List<Binding> bucket : table.buckets.values() )
+                    count += join(row, bucket) ;
+            }
+            count += join(row, unkeyed) ;
+            if ( matched != null && count > 0 )
+                matched.set(i) ;
+            if ( outputUnmatched && count == 0 && ( matched == null || ! matched.get(i) ) )
+                pending.add(row) ;
+        }
+
+        private int join(Binding row, Iterable<Binding> candidates)
+        {
+            int count = 0 ;
+            for ( Binding b : candidates )
+            {
+                Binding r = Algebra.merge(row, b) ;
+                if ( r == null )
+                    continue ;
+                // Theta-join, as TableJoin.
+                if ( conditions == null || conditions.isSatisfied(r, getExecContext()) )
+                {
+                    count++ ;
+                    pending.add(r) ;
+                }
+            }
+            return count ;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Comparator ;
+import java.util.Deque ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.PeekIterator ;
+
+import com.hp.hpl.jena.sparql.algebra.Algebra ;
+import com.hp.hpl.jena.sparql.algebra.JoinType ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+
+/**
+ * Sort-merge join, or left join, of two streams of bindings that are both sorted
+ * by the given comparator, for example the results of ORDER BY on the join variable.
+ * Neither side is materialized: only the run of right rows that compare equal
+ * to the current left row is held in memory.
+ * <p>
+ * Rows that compare equal are then checked with the SPARQL compatibility rule,
+ * so the comparator need only put compatible rows together, in the same order on both sides.
+ * The join variables must be bound in every row.
+ */
+public class QueryIterMergeJoin extends QueryIter2
+{
+    private final Comparator<Binding> comparator ;
+    private final JoinType joinType ;
+    private final ExprList conditions ;
+    private final PeekIterator<Binding> right ;
+    private final List<Binding> group = new ArrayList<>() ;    // Right rows equal to the current left row. 
+    private final Deque<Binding> pending = new ArrayDeque<>() ;
+    
+    public QueryIterMergeJoin(QueryIterator left, QueryIterator right, Comparator<Binding> comparator,
+                              JoinType joinType, ExprList conditions, ExecutionContext execCxt)
+    {
+        super(left, right, execCxt) ;
+        this.comparator = comparator ;
+        this.joinType = joinType ;
+        this.conditions = conditions ;
+        this.right = PeekIterator.create(right) ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        while ( pending.isEmpty() && getLeft().hasNext() )
+            step(getLeft().nextBinding()) ;
+        return ! pending.isEmpty() ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        return pending.removeFirst() ;
+    }
+
+    private void step(Binding left)
+    {
+        if ( group.isEmpty() || comparator.compare(group.get(0), left) != 0 )
+        {
+            group.clear() ;
+            // Skip right rows before the left row: there are no later left rows they can join with.
+            while ( right.hasNext() && comparator.compare(right.peek(), left) < 0 )
+                right.next() ;
+            while ( right.hasNext() && comparator.compare(right.peek(), left) == 0 )
+                group.add(right.next()) ;
+        }
+        int count = 0 ;
+        for ( Binding b : group )
+        {
+            Binding r = Algebra.merge(left, b) ;
+            if ( r == null )
+                continue ;
+            if ( conditions == null || conditions.isSatisfied(r, getExecContext()) )
+            {
+                count++ ;
+                pending.add(r) ;
+            }
+        }
+        if ( count == 0 && joinType == JoinType.LEFT )
+            pending.add(left) ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    { }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        group.clear() ;
+        pending.clear() ;
+    }
+}
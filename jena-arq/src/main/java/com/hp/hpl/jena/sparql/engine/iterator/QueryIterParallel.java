@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.concurrent.ArrayBlockingQueue ;
+import java.util.concurrent.BlockingQueue ;
+import java.util.concurrent.ForkJoinPool ;
+import java.util.concurrent.ForkJoinWorkerThread ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
+import com.hp.hpl.jena.query.QueryExecException ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/**
+ * A query iterator that evaluates two or more iterators concurrently, on a shared
+ * thread pool, and merges their results, in no particular order, through a bounded queue.
+ * With one sub-iterator, this evaluates it ahead of the consumer ("prefetch"). 
+ * <p>
+ * Cancelling this iterator (including by a query timeout) cancels the sub-iterators.
+ * When called from one of the pool's own threads (nested parallel evaluation),
+ * the sub-iterators are evaluated in turn on the calling thread.
+ * @see ARQ#parallelExecution
+ */
+public class QueryIterParallel extends QueryIter
+{
+    private static final int queueSize = 1000 ;
+    // Producers and consumer wake up this often to check for cancellation.
+    private static final long pollMillis = 100 ;
+
+    private static ForkJoinPool pool = null ;
+
+    private static synchronized ForkJoinPool pool()
+    {
+        if ( pool == null )
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors()) ;
+        return pool ;
+    }
+
+    // Queue markers.
+    private static final Object endOfStream = new Object() ;
+    private static class Failure
+    {
+        final Throwable exception ;
+        Failure(Throwable exception) { this.exception = exception ; }
+    }
+
+    private final List<QueryIterator> subIterators ;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize) ;
+    private boolean started = false ;
+    private boolean sequential = false ;
+    private int active = 0 ;
+    private int current = 0 ;
+    private Binding slot = null ;
+    private volatile boolean stopping = false ;
+    private volatile boolean cancelled = false ;
+
+    /** Evaluate the iterators concurrently. Evaluation starts when this iterator is first used. */
+    public QueryIterParallel(List<QueryIterator> subIterators, ExecutionContext execCxt)
+    {
+        super(execCxt) ;
+        this.subIterators = new ArrayList<>(subIterators) ;
+    }
+
+    /** Evaluate an iterator on another thread, starting now, ahead of the consumer. */ 
+    public static QueryIterator prefetch(QueryIterator qIter, ExecutionContext execCxt)
+    {
+        QueryIterParallel qIterParallel = new QueryIterParallel(Collections.singletonList(qIter), execCxt) ;
+        qIterParallel.start() ;
+        return qIterParallel ;
+    }
+
+    private void start()
+    {
+        if ( started )
+            return ;
+        started = true ;
+        Thread thread = Thread.currentThread() ;
+        if ( thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread)thread).getPool() == pool() )
+        {
+            // Already a pool thread : avoid tying up more threads waiting on the queue.
+            sequential = true ;
+            return ;
+        }
+        for ( final QueryIterator qIter : subIterators )
+        {
+            active++ ;
+            pool().execute(new Runnable() {
+                @Override
+                public void run() { produce(qIter) ; }
+            }) ;
+        }
+    }
+
+    // Runs on a pool thread.
+    private void produce(QueryIterator qIter)
+    {
+        try {
+            while ( ! stopping && qIter.hasNext() )
+                put(qIter.nextBinding()) ;
+        } catch (Throwable ex) {
+            put(new Failure(ex)) ;
+        } finally {
+            try { performClose(qIter) ; } catch (Throwable ex) {}
+            put(endOfStream) ;
+        }
+    }
+
+    // A producer waiting for the consumer does not hold on to a pool thread: 
+    // the pool adds a thread while it waits so other tasks, such as the branches of
+    // a parallel union that the consumer is reading first, still run.
+    private void put(Object item)
+    {
+        try { ForkJoinPool.managedBlock(new Put(item)) ; }
+        catch (InterruptedException ex) {}
+    }
+    
+    private class Put implements ForkJoinPool.ManagedBlocker
+    {
+        private final Object item ;
+        private boolean done = false ;
+        
+        Put(Object item) { this.item = item ; }
+        
+        @Override
+        public boolean block() throws InterruptedException
+        {
+            if ( ! done )
+                done = stopping || queue.offer(item, pollMillis, TimeUnit.MILLISECONDS) ;
+            return done ;
+        }
+
+        @Override
+        public boolean isReleasable()
+        {
+            if ( ! done )
+                done = stopping || queue.offer(item) ;
+            return done ;
+        }
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( slot != null )
+            return true ;
+        start() ;
+        if ( sequential )
+            return hasNextSequential() ;
+        try {
+            while ( active > 0 )
+            {
+                Object item = queue.poll(pollMillis, TimeUnit.MILLISECONDS) ;
+                if ( item == null )
+                {
+                    if ( cancelled )
+                        throw new QueryCancelledException() ;
+                    continue ;
+                }
+                if ( item == endOfStream )
+                {
+                    active-- ;
+                    continue ;
+                }
+                if ( item instanceof Failure )
+                {
+                    Throwable ex = ((Failure)item).exception ;
+                    if ( ex instanceof RuntimeException )
+                        throw (RuntimeException)ex ;
+                    if ( ex instanceof Error )
+                        throw (Error)ex ;
+                    throw new QueryExecException(ex) ;
+                }
+                slot = (Binding)item ;
+                return true ;
+            }
+        } catch (InterruptedException ex) {
+            throw new QueryCancelledException() ;
+        }
+        return false ;
+    }
+
+    private boolean hasNextSequential()
+    {
+        for ( ; current < subIterators.size() ; current++ )
+        {
+            QueryIterator qIter = subIterators.get(current) ;
+            if ( qIter.hasNext() )
+            {
+                slot = qIter.nextBinding() ;
+                return true ;
+            }
+        }
+        return false ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( ! hasNextBinding() )
+            throw new NoSuchElementException(Utils.className(this)) ;
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    @Override
+    protected void closeIterator()
+    {
+        if ( ! started || sequential )
+        {
+            for ( QueryIterator qIter : subIterators )
+                performClose(qIter) ;
+            return ;
+        }
+        // The producers close their iterators, on their own threads, when they stop.
+        stopping = true ;
+        if ( active > 0 )
+        {
+            for ( QueryIterator qIter : subIterators )
+                performRequestCancel(qIter) ;
+        }
+        queue.clear() ;
+    }
+
+    @Override
+    protected void requestCancel()
+    {
+        cancelled = true ;
+        for ( QueryIterator qIter : subIterators )
+            performRequestCancel(qIter) ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt)
+    { 
+        out.println(Utils.className(this)) ;
+        out.incIndent() ;
+        for ( QueryIterator qIter : subIterators )
+            qIter.output(out, sCxt) ;
+        out.decIndent() ;
+        out.ensureStartOfLine() ;
+    }
+}
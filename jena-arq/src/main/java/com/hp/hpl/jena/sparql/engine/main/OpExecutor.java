@@ -19,6 +19,8 @@
 package com.hp.hpl.jena.sparql.engine.main ;
 
 import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.Comparator ;
 import java.util.Iterator ;
 import java.util.List ;
 import java.util.Set ;
@@ -29,7 +31,9 @@ import org.apache.jena.atlas.logging.Log ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.QueryExecException ;
+import com.hp.hpl.jena.query.SortCondition ;
 import com.hp.hpl.jena.sparql.ARQNotImplemented ;
+import com.hp.hpl.jena.sparql.algebra.JoinType ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
 import com.hp.hpl.jena.sparql.algebra.OpVars ;
 import com.hp.hpl.jena.sparql.algebra.op.* ;
@@ -38,7 +42,9 @@ import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.batch.* ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
 import com.hp.hpl.jena.sparql.engine.iterator.* ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin ;
@@ -50,6 +56,7 @@ import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprList ;
 import com.hp.hpl.jena.sparql.procedure.ProcEval ;
 import com.hp.hpl.jena.sparql.procedure.Procedure ;
+import com.hp.hpl.jena.sparql.util.Context ;
 
 /**
  * Turn an Op expression into an execution of QueryIterators.
@@ -120,7 +127,9 @@ public class OpExecutor
     // ---- The recursive step.
     protected QueryIterator exec(Op op, QueryIterator input) {
         level++ ;
-        QueryIterator qIter = dispatcher.exec(op, input) ;
+        QueryIterator qIter = isBatchOp(op, input)
+            ? new QueryIterBatched(execBatch(op, input), execCxt)
+            : dispatcher.exec(op, input) ;
         // Intentionally not try/finally so exceptions leave some evidence
         // around.
         level-- ;
@@ -222,10 +231,104 @@ public class OpExecutor
             QueryIterator qIter = new QueryIterJoin(left, right, execCxt) ;
             return qIter ;
         }
+        // A left side known to be small is fed into the right side (substitution)
+        // if that gives the same results.
+        long leftSize = cardinality(opJoin.getLeft()) ;
+        if ( leftSize >= 0 && leftSize <= SubstitutionLimit && JoinClassifier.isLinear(opJoin) ) {
+            QueryIterator left = exec(opJoin.getLeft(), input) ;
+            return exec(opJoin.getRight(), left) ;
+        }
         QueryIterator left = exec(opJoin.getLeft(), input) ;
         QueryIterator right = exec(opJoin.getRight(), root()) ;
-        QueryIterator qIter = new QueryIterJoin(left, right, execCxt) ;
-        return qIter ;
+        return join(opJoin.getLeft(), opJoin.getRight(), left, right, JoinType.PLAIN, null) ;
+    }
+
+    // Left sides with up to this many rows are substituted into the right side.
+    private static final long SubstitutionLimit = 100 ;
+
+    /** Join the results of two separately evaluated operations :
+     *  a merge join if both are sorted on a shared variable,
+     *  a hash join if they have variables in common,
+     *  otherwise a nested loop join. 
+     */
+    protected QueryIterator join(Op opLeft, Op opRight, QueryIterator left, QueryIterator right, JoinType joinType, ExprList exprs) {
+        // The joins read all of one side (the right, or the left for createBuildLeft) first :
+        // if parallel, evaluate the other side at the same time.
+        boolean parallel = execCxt.getContext().isTrue(ARQ.parallelExecution) ;
+        if ( execCxt.getContext().isTrueOrUndef(ARQ.hashJoin) ) {
+            List<Var> joinKey = joinKey(opLeft, opRight) ;
+            if ( ! joinKey.isEmpty() ) {
+                Comparator<Binding> order = mergeOrder(opLeft, opRight) ;
+                if ( order != null ) {
+                    if ( parallel )
+                        left = QueryIterParallel.prefetch(left, execCxt) ;
+                    return new QueryIterMergeJoin(left, right, order, joinType, exprs, execCxt) ;
+                }
+                long leftSize = cardinality(opLeft) ;
+                long rightSize = cardinality(opRight) ;
+                // Build the hash table from the smaller side.
+                if ( joinType == JoinType.PLAIN && leftSize >= 0 && ( rightSize < 0 || leftSize < rightSize ) ) {
+                    if ( parallel )
+                        right = QueryIterParallel.prefetch(right, execCxt) ;
+                    return QueryIterHashJoin.createBuildLeft(left, right, joinKey, exprs, execCxt) ;
+                }
+                if ( parallel )
+                    left = QueryIterParallel.prefetch(left, execCxt) ;
+                return QueryIterHashJoin.create(left, right, joinKey, joinType, exprs, execCxt) ;
+            }
+        }
+        if ( parallel )
+            left = QueryIterParallel.prefetch(left, execCxt) ;
+        if ( joinType == JoinType.LEFT )
+            return new QueryIterLeftJoin(left, right, exprs, execCxt) ;
+        return new QueryIterJoin(left, right, execCxt) ;
+    }
+
+    // Variables bound in every row of both sides; failing that, variables that may be.
+    private static List<Var> joinKey(Op opLeft, Op opRight) {
+        Set<Var> vars = OpVars.fixedVars(opLeft) ;
+        vars.retainAll(OpVars.fixedVars(opRight)) ;
+        if ( vars.isEmpty() ) {
+            vars = OpVars.visibleVars(opLeft) ;
+            vars.retainAll(OpVars.visibleVars(opRight)) ;
+        }
+        return new ArrayList<>(vars) ;
+    }
+
+    // Both sides are ordered first by the same variable, which is bound in every row of both.
+    private Comparator<Binding> mergeOrder(Op opLeft, Op opRight) {
+        if ( ! ( opLeft instanceof OpOrder ) || ! ( opRight instanceof OpOrder ) )
+            return null ;
+        SortCondition cond = ((OpOrder)opLeft).getConditions().get(0) ;
+        if ( ! cond.equals(((OpOrder)opRight).getConditions().get(0)) || ! cond.getExpression().isVariable() )
+            return null ;
+        Var var = cond.getExpression().asVar() ;
+        if ( ! OpVars.fixedVars(opLeft).contains(var) || ! OpVars.fixedVars(opRight).contains(var) )
+            return null ;
+        return new BindingComparator(Collections.singletonList(cond), execCxt) ;
+    }
+
+    // Cardinality hint : the number of rows, if easily known, else -1.
+    private static long cardinality(Op op) {
+        if ( op instanceof OpTable )
+            return ((OpTable)op).getTable().size() ;
+        if ( op instanceof OpNull )
+            return 0 ;
+        if ( op instanceof OpSlice )
+            return min(((OpSlice)op).getLength(), cardinality(((OpSlice)op).getSubOp())) ;
+        if ( op instanceof OpTopN )
+            return min(((OpTopN)op).getLimit(), cardinality(((OpTopN)op).getSubOp())) ;
+        if ( op instanceof OpDistinct || op instanceof OpReduced || op instanceof OpProject || op instanceof OpOrder )
+            return cardinality(((OpModifier)op).getSubOp()) ;
+        return -1 ;
+    }
+
+    private static long min(long size1, long size2) {
+        if ( size1 < 0 )
+            return size2 ;
+        if ( size2 < 0 )
+            return size1 ;
+        return Math.min(size1, size2) ;
     }
 
     // Pass iterator from one step directly into the next.
@@ -242,8 +345,7 @@ public class OpExecutor
     protected QueryIterator execute(OpLeftJoin opLeftJoin, QueryIterator input) {
         QueryIterator left = exec(opLeftJoin.getLeft(), input) ;
         QueryIterator right = exec(opLeftJoin.getRight(), root()) ;
-        QueryIterator qIter = new QueryIterLeftJoin(left, right, opLeftJoin.getExprs(), execCxt) ;
-        return qIter ;
+        return join(opLeftJoin.getLeft(), opLeftJoin.getRight(), left, right, JoinType.LEFT, opLeftJoin.getExprs()) ;
     }
 
     protected QueryIterator execute(OpConditional opCondition, QueryIterator input) {
@@ -443,6 +545,63 @@ public class OpExecutor
         return qIter ;
     }
 
+    // ---- Batch evaluation (ARQ.batchExecution)
+
+    // Operations with a batch implementation that start a batch pipeline.
+    private boolean isBatchOp(Op op, QueryIterator input) {
+        if ( ! execCxt.getContext().isTrue(ARQ.batchExecution) )
+            return false ;
+        if ( op instanceof OpFilter ) {
+            // Storage layers place filters in basic patterns.
+            Op sub = ((OpFilter)op).getSubOp() ;
+            return !( sub instanceof OpBGP || sub instanceof OpQuadPattern || sub instanceof OpQuadBlock ) ;
+        }
+        if ( op instanceof OpProject )
+            // Otherwise QueryIterProjectMerge.
+            return input instanceof QueryIterRoot ;
+        if ( op instanceof OpDistinct )
+            // In memory only.
+            return (Long)execCxt.getContext().get(ARQ.spillToDiskThreshold, -1L) < 0 ;
+        return op instanceof OpExtend || op instanceof OpSlice ;
+    }
+
+    /** Evaluate an operation as batches : the batch implementation if there is one, 
+     *  otherwise as rows, grouped into batches. */
+    protected QueryIteratorBatch execBatch(Op op, QueryIterator input) {
+        if ( isBatchOp(op, input) ) {
+            if ( op instanceof OpFilter )
+                return new BatchIterFilter(execBatch(((OpFilter)op).getSubOp(), input), ((OpFilter)op).getExprs(), execCxt) ;
+            if ( op instanceof OpExtend )
+                return new BatchIterExtend(execBatch(((OpExtend)op).getSubOp(), input), ((OpExtend)op).getVarExprList(), execCxt) ;
+            if ( op instanceof OpProject )
+                return new BatchIterProject(execBatch(((OpProject)op).getSubOp(), input), ((OpProject)op).getVars()) ;
+            if ( op instanceof OpDistinct )
+                return new BatchIterDistinct(execBatch(((OpDistinct)op).getSubOp(), input)) ;
+            if ( op instanceof OpSlice )
+                return new BatchIterSlice(execBatch(((OpSlice)op).getSubOp(), input), ((OpSlice)op).getStart(), ((OpSlice)op).getLength()) ;
+        }
+        if ( op instanceof OpJoin && isBatchJoin((OpJoin)op) ) {
+            OpJoin opJoin = (OpJoin)op ;
+            QueryIteratorBatch left = execBatch(opJoin.getLeft(), input) ;
+            QueryIteratorBatch right = execBatch(opJoin.getRight(), root()) ;
+            return new BatchIterHashJoin(left, right, joinKey(opJoin.getLeft(), opJoin.getRight())) ;
+        }
+        return new BatchIterFromRows(exec(op, input)) ;
+    }
+
+    // A join that would be an in-memory hash join (see execute(OpJoin) and join()).
+    private boolean isBatchJoin(OpJoin opJoin) {
+        Context context = execCxt.getContext() ;
+        if ( ! context.isTrueOrUndef(ARQ.hashJoin) || context.isTrue(ARQ.parallelExecution) )
+            return false ;
+        if ( (Long)context.get(ARQ.spillToDiskThreshold, -1L) >= 0 )
+            return false ;
+        long leftSize = cardinality(opJoin.getLeft()) ;
+        if ( leftSize >= 0 && leftSize <= SubstitutionLimit && JoinClassifier.isLinear(opJoin) )
+            return false ;
+        return ! joinKey(opJoin.getLeft(), opJoin.getRight()).isEmpty() && mergeOrder(opJoin.getLeft(), opJoin.getRight()) == null ;
+    }
+
     public static QueryIterator createRootQueryIterator(ExecutionContext execCxt) {
         return QueryIterRoot.create(execCxt) ;
     }
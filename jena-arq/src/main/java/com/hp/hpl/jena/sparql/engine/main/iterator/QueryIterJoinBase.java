@@ -34,7 +34,7 @@ import com.hp.hpl.jena.sparql.expr.ExprList ;
  *  from one side into the other. */ 
 public class QueryIterJoinBase extends QueryIter
 {
-    // This should be converted to a hash or sort-merge join.
+    // Nested loop join; see QueryIterHashJoin and QueryIterMergeJoin for the alternatives.
     private final QueryIterator left ;
     private final QueryIterator right ;
     private final QueryIterator result ;
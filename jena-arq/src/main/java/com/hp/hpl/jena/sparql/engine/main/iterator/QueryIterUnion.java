@@ -18,15 +18,18 @@
 
 package com.hp.hpl.jena.sparql.engine.main.iterator;
 
+import java.util.ArrayList ;
 import java.util.List ;
 
 import org.apache.jena.atlas.io.IndentedWriter ;
 
+import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterConcat ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterParallel ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRepeatApply ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSingleton ;
 import com.hp.hpl.jena.sparql.engine.main.QC ;
@@ -52,18 +55,28 @@ public class QueryIterUnion extends QueryIterRepeatApply
     @Override
     protected QueryIterator nextStage(Binding binding)
     {
-        QueryIterConcat unionQIter = new QueryIterConcat(getExecContext()) ;
-        for (Op subOp : subOps)
+        if ( getExecContext().getContext().isTrue(ARQ.parallelExecution) )
         {
-            subOp = QC.substitute(subOp, binding) ;
-            QueryIterator parent = QueryIterSingleton.create(binding, getExecContext()) ;
-            QueryIterator qIter = QC.execute(subOp, parent, getExecContext()) ;
-            unionQIter.add(qIter) ;
+            List<QueryIterator> branches = new ArrayList<>() ;
+            for (Op subOp : subOps)
+                branches.add(branch(subOp, binding)) ;
+            return new QueryIterParallel(branches, getExecContext()) ;
         }
+
+        QueryIterConcat unionQIter = new QueryIterConcat(getExecContext()) ;
+        for (Op subOp : subOps)
+            unionQIter.add(branch(subOp, binding)) ;
         
         return unionQIter ;
     }
     
+    private QueryIterator branch(Op subOp, Binding binding)
+    {
+        subOp = QC.substitute(subOp, binding) ;
+        QueryIterator parent = QueryIterSingleton.create(binding, getExecContext()) ;
+        return QC.execute(subOp, parent, getExecContext()) ;
+    }
+    
     @Override
     public void output(IndentedWriter out, SerializationContext sCxt)
     { 
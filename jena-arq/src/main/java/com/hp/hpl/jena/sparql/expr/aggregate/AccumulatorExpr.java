@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
@@ -61,6 +62,12 @@ abstract class AccumulatorExpr implements Accumulator
     }
 
     protected long getErrorCount() { return errorCount ; }
+
+    // Partial state (see AccumulatorPartial) : numbers as RDF terms.
+    protected static Node asNode(long value)        { return NodeValue.makeInteger(value).asNode() ; }
+    protected static long asLong(Node node)         { return NodeValue.makeNode(node).getInteger().longValue() ; }
+    protected static Node asNode(NodeValue nv)      { return ( nv == null ) ? null : nv.asNode() ; }
+    protected static NodeValue asNodeValue(Node n)  { return ( n == null ) ? null : NodeValue.makeNode(n) ; }
     
     /** Called if no errors to get the accumulated result */
     protected abstract NodeValue getAccValue() ; 
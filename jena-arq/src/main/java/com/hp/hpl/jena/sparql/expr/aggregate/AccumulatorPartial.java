@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.aggregate;
+
+import com.hp.hpl.jena.graph.Node ;
+
+/** An Accumulator for an aggregate that can be calculated in parts (COUNT, SUM, MIN, MAX, AVG) :
+ *  the accumulated state of several accumulators for the same group 
+ *  can be merged to give the same value as a single accumulator over all the rows.
+ *  This is used by GROUP BY to pre-aggregate and to spill partial results to disk.
+ */
+public interface AccumulatorPartial extends Accumulator
+{
+    /** The state so far, as RDF terms (entries may be null).
+     *  The array is always the same length for accumulators of the same aggregator.
+     */
+    public Node[] getPartial() ;
+
+    /** Merge in the state, from {@link #getPartial}, of another accumulator for the same aggregator */
+    public void mergePartial(Node[] partial) ;
+}
@@ -60,7 +60,7 @@ public class AggAvg extends AggregatorBase
     }
     
     // ---- Accumulator
-    private static class AccAvg extends AccumulatorExpr
+    private static class AccAvg extends AccumulatorExpr implements AccumulatorPartial
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = noValuesToAvg ;
@@ -106,5 +106,25 @@ public class AggAvg extends AggregatorBase
             NodeValue nvCount = NodeValue.makeInteger(count) ;
             return XSDFuncOp.numDivide(total, nvCount) ;
         }
+
+        @Override
+        public Node[] getPartial()
+        {
+            Node nTotal = ( count == 0 ) ? null : asNode(total) ;
+            return new Node[]{ nTotal, asNode(count), asNode(errorCount) } ;
+        }
+
+        @Override
+        public void mergePartial(Node[] partial)
+        {
+            int c = (int)asLong(partial[1]) ;
+            if ( c > 0 )
+            {
+                NodeValue nv = asNodeValue(partial[0]) ;
+                total = ( count == 0 ) ? nv : XSDFuncOp.numAdd(nv, total) ;
+                count += c ;
+            }
+            errorCount += asLong(partial[2]) ;
+        }
     }
 }
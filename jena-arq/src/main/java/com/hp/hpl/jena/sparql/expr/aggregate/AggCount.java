@@ -71,7 +71,7 @@ public class AggCount extends AggregatorBase
         return true ;
     }
 
-    static class AccCount implements Accumulator
+    static class AccCount implements AccumulatorPartial
     {
         private long count = 0 ;
         public AccCount()   { }
@@ -81,5 +81,12 @@ public class AggCount extends AggregatorBase
         // Errors can't occur.
         @Override
         public NodeValue getValue()             { return NodeValue.makeInteger(count) ; }
+
+        @Override
+        public Node[] getPartial()              { return new Node[]{ NodeValue.makeInteger(count).asNode() } ; }
+
+        @Override
+        public void mergePartial(Node[] partial)
+        { count += NodeValue.makeNode(partial[0]).getInteger().longValue() ; }
     }
 }
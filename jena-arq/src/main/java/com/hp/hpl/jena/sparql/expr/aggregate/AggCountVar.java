@@ -56,7 +56,7 @@ public class AggCountVar extends AggregatorBase
     public Node getValueEmpty()     { return NodeConst.nodeZero ; } 
 
     // ---- Accumulator
-    private static class AccCountVar extends AccumulatorExpr
+    private static class AccCountVar extends AccumulatorExpr implements AccumulatorPartial
     {
         private long count = 0 ;
         public AccCountVar(Expr expr)   { super(expr) ; }
@@ -76,5 +76,11 @@ public class AggCountVar extends AggregatorBase
 
         @Override
         public NodeValue getAccValue()             { return NodeValue.makeInteger(count) ; }
+
+        @Override
+        public Node[] getPartial()                  { return new Node[]{ asNode(count) } ; }
+
+        @Override
+        public void mergePartial(Node[] partial)    { count += asLong(partial[0]) ; }
     }
 }
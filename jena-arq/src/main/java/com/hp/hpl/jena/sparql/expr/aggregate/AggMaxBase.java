@@ -40,7 +40,7 @@ abstract class AggMaxBase extends AggregatorBase
     public final Node getValueEmpty()     { return null ; } 
 
     // ---- Accumulator
-    private static class AccMax extends AccumulatorExpr
+    private static class AccMax extends AccumulatorExpr implements AccumulatorPartial
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue maxSoFar = null ;
@@ -73,5 +73,18 @@ abstract class AggMaxBase extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return maxSoFar ; }
+
+        @Override
+        public Node[] getPartial()
+        { return new Node[]{ asNode(maxSoFar), asNode(errorCount) } ; }
+
+        @Override
+        public void mergePartial(Node[] partial)
+        {
+            NodeValue nv = asNodeValue(partial[0]) ;
+            if ( nv != null && ( maxSoFar == null || NodeValue.compareAlways(maxSoFar, nv) < 0 ) )
+                maxSoFar = nv ;
+            errorCount += asLong(partial[1]) ;
+        }
     }
 }
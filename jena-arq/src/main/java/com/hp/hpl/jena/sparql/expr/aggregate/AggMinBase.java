@@ -40,7 +40,7 @@ abstract class AggMinBase extends AggregatorBase
     public final Node getValueEmpty()     { return null ; } 
 
     // ---- Accumulator
-    private static class AccMin extends AccumulatorExpr
+    private static class AccMin extends AccumulatorExpr implements AccumulatorPartial
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue minSoFar = null ;
@@ -73,5 +73,18 @@ abstract class AggMinBase extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return minSoFar ; }
+
+        @Override
+        public Node[] getPartial()
+        { return new Node[]{ asNode(minSoFar), asNode(errorCount) } ; }
+
+        @Override
+        public void mergePartial(Node[] partial)
+        {
+            NodeValue nv = asNodeValue(partial[0]) ;
+            if ( nv != null && ( minSoFar == null || NodeValue.compareAlways(minSoFar, nv) > 0 ) )
+                minSoFar = nv ;
+            errorCount += asLong(partial[1]) ;
+        }
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.compile;
+
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.expr.nodevalue.XSDFuncOp ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
+
+/** An expression prepared for repeated evaluation by {@link ExprCompiler}.
+ *  Evaluation gives the same results, and raises the same errors, as
+ *  {@link Expr#eval(Binding, FunctionEnv)} on the original expression. 
+ */
+public abstract class CompiledExpr
+{
+    private final Expr expr ;
+
+    protected CompiledExpr(Expr expr)
+    {
+        this.expr = expr ;
+    }
+    
+    /** The expression this evaluates */
+    public Expr getExpr()   { return expr ; }
+    
+    public abstract NodeValue eval(Binding binding, FunctionEnv env) ;
+    
+    /** As {@link Expr#isSatisfied(Binding, FunctionEnv)} */ 
+    public boolean isSatisfied(Binding binding, FunctionEnv env)
+    {
+        try {
+            NodeValue v = eval(binding, env) ;
+            return XSDFuncOp.booleanEffectiveValue(v) ;
+        }
+        catch (ExprEvalException ex)
+        { 
+            return false ;
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return expr.toString() ;
+    }
+}
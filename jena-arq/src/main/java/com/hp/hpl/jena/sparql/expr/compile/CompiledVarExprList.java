@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.compile;
+
+import java.util.HashMap ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
+
+/** The compiled form of a {@link VarExprList}. */
+public class CompiledVarExprList
+{
+    private final Map<Var, CompiledExpr> exprs = new HashMap<>() ;
+
+    public CompiledVarExprList(VarExprList exprs)
+    {
+        for ( Var v : exprs.getVars() )
+        {
+            if ( exprs.hasExpr(v) )
+                this.exprs.put(v, ExprCompiler.compile(exprs.getExpr(v))) ;
+        }
+    }
+    
+    /** As {@link VarExprList#get(Var, Binding, FunctionEnv)} */
+    public Node get(Var var, Binding binding, FunctionEnv funcEnv)
+    {
+        CompiledExpr expr = exprs.get(var) ; 
+        if ( expr == null )
+            return binding.get(var) ; 
+        
+        try {
+            NodeValue nv = expr.eval(binding, funcEnv) ;
+            if ( nv == null )
+                return null ;
+            return nv.asNode() ;
+        } catch (ExprEvalException ex) { }
+        return null ;
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.compile;
+
+import java.lang.reflect.Method ;
+import java.math.BigInteger ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.* ;
+import com.hp.hpl.jena.sparql.expr.nodevalue.XSDFuncOp ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
+
+/** Turn an expression into a tree of evaluators, prepared once and then
+ *  run for each binding.
+ *  <ul>
+ *  <li>Constant sub-expressions are folded.</li>
+ *  <li>A comparison of a variable with a constant ({@code =, !=, <, <=, >, >=})
+ *      compares xsd:integers as longs, simple strings as Java strings and IRIs as nodes,
+ *      without creating any {@link NodeValue}s.</li>
+ *  <li>Functions evaluate their compiled arguments and then the function directly.</li>
+ *  <li>Anything else (functions with special evaluation rules, EXISTS, aggregates, ...)
+ *      is evaluated by the expression itself.</li>
+ *  </ul>
+ *  Results, and errors, are the same as evaluating the original expression.   
+ */
+public class ExprCompiler
+{
+    public static CompiledExpr compile(Expr expr)
+    {
+        if ( expr == null )
+            return null ;
+        return build(ExprLib.foldConstants(expr)) ;
+    }
+
+    public static List<CompiledExpr> compile(ExprList exprs)
+    {
+        List<CompiledExpr> x = new ArrayList<>(exprs.size()) ;
+        for ( Expr expr : exprs )
+            x.add(compile(expr)) ;
+        return x ;
+    }
+    
+    private static CompiledExpr build(Expr expr)
+    {
+        if ( expr == null )
+            return null ;
+        if ( expr.isConstant() )
+            return new CompiledConstant(expr.getConstant()) ;
+        // Not subclasses (e.g. ExprAggregator)
+        if ( expr.getClass() == ExprVar.class )
+            return new CompiledVar((ExprVar)expr) ;
+        if ( expr instanceof E_LogicalAnd )
+            return new CompiledAnd((E_LogicalAnd)expr, build(((E_LogicalAnd)expr).getArg1()), build(((E_LogicalAnd)expr).getArg2())) ;
+        if ( expr instanceof E_LogicalOr )
+            return new CompiledOr((E_LogicalOr)expr, build(((E_LogicalOr)expr).getArg1()), build(((E_LogicalOr)expr).getArg2())) ;
+        
+        if ( hasSpecialEval(expr) )
+            return new CompiledInterpreted(expr) ;
+
+        if ( expr instanceof ExprFunction1 )
+        {
+            ExprFunction1 func = (ExprFunction1)expr ;
+            return new CompiledFunction1(func, build(func.getArg())) ;
+        }
+        if ( expr instanceof ExprFunction2 )
+        {
+            ExprFunction2 func = (ExprFunction2)expr ;
+            CompiledExpr c = buildComparison(func) ;
+            if ( c != null )
+                return c ;
+            return new CompiledFunction2(func, build(func.getArg1()), build(func.getArg2())) ;
+        }
+        if ( expr instanceof ExprFunction3 )
+        {
+            ExprFunction3 func = (ExprFunction3)expr ;
+            return new CompiledFunction3(func, build(func.getArg1()), build(func.getArg2()), build(func.getArg3())) ;
+        }
+        if ( expr instanceof ExprFunctionN )
+        {
+            ExprFunctionN func = (ExprFunctionN)expr ;
+            CompiledExpr[] args = new CompiledExpr[func.numArgs()] ;
+            for ( int i = 0 ; i < args.length ; i++ )
+                args[i] = build(func.getArg(i+1)) ;
+            return new CompiledFunctionN(func, args) ;
+        }
+        return new CompiledInterpreted(expr) ;
+    }
+
+    /** Does the function have its own evaluation rules (e.g. does not evaluate all its arguments first)? */  
+    private static boolean hasSpecialEval(Expr expr)
+    {
+        return specialEval.get(expr.getClass()) ;
+    }
+
+    // The reflection is done once per class of expression.
+    private static final ClassValue<Boolean> specialEval = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> exprClass)
+        {
+            for ( Class<?> c = exprClass ; c != null ; c = c.getSuperclass() )
+            {
+                if ( c == ExprFunction1.class || c == ExprFunction2.class || c == ExprFunction3.class || c == ExprFunctionN.class )
+                    return false ;
+                for ( Method m : c.getDeclaredMethods() )
+                {
+                    if ( m.getName().equals("evalSpecial") )
+                        return true ;
+                }
+            }
+            // Not one of the function forms.
+            return true ;
+        }
+    } ;
+    
+    // ---- Comparisons
+
+    private static final int EQ = 0 ;
+    private static final int NE = 1 ;
+    private static final int LT = 2 ;
+    private static final int LE = 3 ;
+    private static final int GT = 4 ;
+    private static final int GE = 5 ;
+    
+    private static CompiledExpr buildComparison(ExprFunction2 func)
+    {
+        int op ;
+        if ( func instanceof E_Equals )                 op = EQ ;
+        else if ( func instanceof E_NotEquals )         op = NE ;
+        else if ( func instanceof E_LessThan )          op = LT ;
+        else if ( func instanceof E_LessThanOrEqual )   op = LE ;
+        else if ( func instanceof E_GreaterThan )       op = GT ;
+        else if ( func instanceof E_GreaterThanOrEqual )op = GE ;
+        else
+            return null ;
+        
+        Expr arg1 = func.getArg1() ;
+        Expr arg2 = func.getArg2() ;
+        if ( arg1.getClass() == ExprVar.class && arg2.isConstant() )
+            return new CompiledCompare(func, op, arg1.asVar(), arg2.getConstant(), true) ;
+        if ( arg1.isConstant() && arg2.getClass() == ExprVar.class )
+            return new CompiledCompare(func, op, arg2.asVar(), arg1.getConstant(), false) ;
+        return null ;
+    }
+
+    private static boolean test(int op, int cmp)
+    {
+        switch (op)
+        {
+            case EQ: return cmp == 0 ;
+            case NE: return cmp != 0 ;
+            case LT: return cmp < 0 ;
+            case LE: return cmp <= 0 ;
+            case GT: return cmp > 0 ;
+            case GE: return cmp >= 0 ;
+        }
+        return false ;
+    }
+    
+    private static final String xsdInteger = XSDDatatype.XSDinteger.getURI() ;
+    private static final String xsdString = XSDDatatype.XSDstring.getURI() ;
+    // Fewer digits than this always fit in a long. 
+    private static final int MaxDigits = 18 ;
+
+    /** Is the xsd:integer lexical form only digits, with an optional sign, and small enough for a long? */
+    private static boolean isSimpleInteger(String lex)
+    {
+        int len = lex.length() ;
+        int start = 0 ;
+        if ( len > 0 && ( lex.charAt(0) == '+' || lex.charAt(0) == '-' ) )
+            start = 1 ;
+        if ( len == start || len-start > MaxDigits )
+            return false ;
+        for ( int i = start ; i < len ; i++ )
+        {
+            char ch = lex.charAt(i) ;
+            if ( ch < '0' || ch > '9' )
+                return false ;
+        }
+        return true ;
+    }
+    
+    /** A string that compares by its lexical form : a simple literal or an xsd:string */  
+    private static boolean isSimpleString(Node node)
+    {
+        if ( ! node.getLiteralLanguage().isEmpty() )
+            return false ;
+        String dt = node.getLiteralDatatypeURI() ;
+        return dt == null || dt.equals(xsdString) ;
+    }
+
+    /** (var op constant) or (constant op var) */ 
+    private static class CompiledCompare extends CompiledExpr
+    {
+        private final ExprFunction2 func ;
+        private final int op ;
+        private final Var var ;
+        private final NodeValue constant ;
+        private final boolean varFirst ;
+        
+        private final boolean isInteger ;
+        private final long integer ;
+        private final String string ;
+        private final Node iri ;
+
+        CompiledCompare(ExprFunction2 func, int op, Var var, NodeValue constant, boolean varFirst)
+        {
+            super(func) ;
+            this.func = func ;
+            this.op = op ;
+            this.var = var ;
+            this.constant = constant ;
+            this.varFirst = varFirst ;
+            
+            boolean b = false ;
+            long x = 0 ;
+            if ( constant.isInteger() )
+            {
+                BigInteger i = constant.getInteger() ;
+                if ( i.bitLength() < 64 )
+                {
+                    b = true ;
+                    x = i.longValue() ;
+                }
+            }
+            this.isInteger = b ;
+            this.integer = x ;
+            Node n = constant.asNode() ;
+            this.string = ( constant.isString() && n.isLiteral() && isSimpleString(n) ) ? constant.getString() : null ;
+            // IRIs only test for (in)equality.
+            this.iri = ( n.isURI() && ( op == EQ || op == NE ) ) ? n : null ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            Node node = CompiledVar.get(var, binding) ;
+            if ( node.isLiteral() )
+            {
+                if ( isInteger && xsdInteger.equals(node.getLiteralDatatypeURI()) )
+                {
+                    String lex = node.getLiteralLexicalForm() ;
+                    if ( isSimpleInteger(lex) )
+                        return result(Long.compare(Long.parseLong(lex), integer)) ;
+                }
+                else if ( string != null && isSimpleString(node) )
+                    return result(node.getLiteralLexicalForm().compareTo(string)) ;
+            }
+            else if ( iri != null && node.isURI() )
+                return result(node.equals(iri) ? 0 : 1) ;
+            
+            // General case.
+            NodeValue nv = NodeValue.makeNode(node) ;
+            return varFirst ? func.eval(nv, constant, env) : func.eval(constant, nv, env) ;
+        }
+        
+        /** cmp is (variable value) compared to (constant) */
+        private NodeValue result(int cmp)
+        {
+            if ( ! varFirst )
+                cmp = -cmp ;
+            return NodeValue.booleanReturn(test(op, cmp)) ;
+        }
+    }
+    
+    // ---- Basic forms
+    
+    private static NodeValue eval(CompiledExpr expr, Binding binding, FunctionEnv env)
+    {
+        if ( expr == null )
+            return null ;
+        return expr.eval(binding, env) ;
+    }
+    
+    private static class CompiledConstant extends CompiledExpr
+    {
+        private final NodeValue value ;
+
+        CompiledConstant(NodeValue value)
+        {
+            super(value) ;
+            this.value = value ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            return value ;
+        }
+    }
+    
+    /** As ExprVar */
+    private static class CompiledVar extends CompiledExpr
+    {
+        private final Var var ;
+
+        CompiledVar(ExprVar expr)
+        {
+            super(expr) ;
+            this.var = expr.asVar() ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            return NodeValue.makeNode(get(var, binding)) ;
+        }
+        
+        static Node get(Var var, Binding binding)
+        {
+            if ( binding == null )
+                throw new VariableNotBoundException("Not bound: (no binding): "+var) ;
+            Node node = binding.get(var) ;
+            if ( node == null )
+                throw new VariableNotBoundException("Not bound: variable "+var) ;
+            return node ;
+        }
+    }
+    
+    /** Evaluated by the expression itself */
+    private static class CompiledInterpreted extends CompiledExpr
+    {
+        private final Expr expr ;
+
+        CompiledInterpreted(Expr expr)
+        {
+            super(expr) ;
+            this.expr = expr ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            return expr.eval(binding, env) ;
+        }
+    }
+
+    /** As E_LogicalAnd */ 
+    private static class CompiledAnd extends CompiledExpr
+    {
+        private final CompiledExpr left ;
+        private final CompiledExpr right ;
+
+        CompiledAnd(E_LogicalAnd expr, CompiledExpr left, CompiledExpr right)
+        {
+            super(expr) ;
+            this.left = left ;
+            this.right = right ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            ExprEvalException error = null ;
+            try {
+                if ( ! XSDFuncOp.booleanEffectiveValue(left.eval(binding, env)) )
+                    return NodeValue.FALSE ;
+            } catch (ExprEvalException eee) { error = eee ; }
+            
+            try {
+                if ( ! XSDFuncOp.booleanEffectiveValue(right.eval(binding, env)) )
+                    return NodeValue.FALSE ;
+                if ( error != null )
+                    throw error ;
+                return NodeValue.TRUE ;
+            } catch (ExprEvalException eee)
+            {
+                if ( error != null )
+                    throw error ;
+                throw eee ;
+            }
+        }
+    }
+
+    /** As E_LogicalOr */ 
+    private static class CompiledOr extends CompiledExpr
+    {
+        private final CompiledExpr left ;
+        private final CompiledExpr right ;
+
+        CompiledOr(E_LogicalOr expr, CompiledExpr left, CompiledExpr right)
+        {
+            super(expr) ;
+            this.left = left ;
+            this.right = right ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            ExprEvalException error = null ;
+            try {
+                if ( XSDFuncOp.booleanEffectiveValue(left.eval(binding, env)) )
+                    return NodeValue.TRUE ;
+            } catch (ExprEvalException eee) { error = eee ; }
+            
+            try {
+                if ( XSDFuncOp.booleanEffectiveValue(right.eval(binding, env)) )
+                    return NodeValue.TRUE ;
+                if ( error != null )
+                    throw error ;
+                return NodeValue.FALSE ;
+            } catch (ExprEvalException eee)
+            {
+                if ( error != null )
+                    throw error ;
+                throw eee ;
+            }
+        }
+    }
+
+    private static class CompiledFunction1 extends CompiledExpr
+    {
+        private final ExprFunction1 func ;
+        private final CompiledExpr arg ;
+
+        CompiledFunction1(ExprFunction1 func, CompiledExpr arg)
+        {
+            super(func) ;
+            this.func = func ;
+            this.arg = arg ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            return func.eval(ExprCompiler.eval(arg, binding, env), env) ;
+        }
+    }
+
+    private static class CompiledFunction2 extends CompiledExpr
+    {
+        private final ExprFunction2 func ;
+        private final CompiledExpr arg1 ;
+        private final CompiledExpr arg2 ;
+
+        CompiledFunction2(ExprFunction2 func, CompiledExpr arg1, CompiledExpr arg2)
+        {
+            super(func) ;
+            this.func = func ;
+            this.arg1 = arg1 ;
+            this.arg2 = arg2 ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            NodeValue x = ExprCompiler.eval(arg1, binding, env) ;
+            NodeValue y = ExprCompiler.eval(arg2, binding, env) ;
+            return func.eval(x, y, env) ;
+        }
+    }
+
+    private static class CompiledFunction3 extends CompiledExpr
+    {
+        private final ExprFunction3 func ;
+        private final CompiledExpr arg1 ;
+        private final CompiledExpr arg2 ;
+        private final CompiledExpr arg3 ;
+
+        CompiledFunction3(ExprFunction3 func, CompiledExpr arg1, CompiledExpr arg2, CompiledExpr arg3)
+        {
+            super(func) ;
+            this.func = func ;
+            this.arg1 = arg1 ;
+            this.arg2 = arg2 ;
+            this.arg3 = arg3 ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            NodeValue x = ExprCompiler.eval(arg1, binding, env) ;
+            NodeValue y = ExprCompiler.eval(arg2, binding, env) ;
+            NodeValue z = ExprCompiler.eval(arg3, binding, env) ;
+            return func.eval(x, y, z, env) ;
+        }
+    }
+
+    private static class CompiledFunctionN extends CompiledExpr
+    {
+        private final ExprFunctionN func ;
+        private final CompiledExpr[] args ;
+
+        CompiledFunctionN(ExprFunctionN func, CompiledExpr[] args)
+        {
+            super(func) ;
+            this.func = func ;
+            this.args = args ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)
+        {
+            List<NodeValue> argsEval = new ArrayList<>(args.length) ;
+            for ( CompiledExpr arg : args )
+                argsEval.add(ExprCompiler.eval(arg, binding, env)) ;
+            return func.eval(argsEval, env) ;
+        }
+    }
+}
@@ -49,6 +49,53 @@ public class CacheFactory
         return createCacheWithGetter(cache, getter) ;
     }
 
+    /** Create a thread-safe cache which has space for up to a certain number of objects.
+     * The cache is segmented so concurrent access to different keys does not contend
+     * on a single lock. It is approximately LRU (LRU within each segment) and keeps
+     * hit/miss/eject statistics. The cache returns null for a cache miss.
+     */
+    public static <Key, Value> CacheStats<Key, Value> createCacheConcurrent(int maxSize)
+    {
+        return createCacheConcurrent(dftConcurrencyLevel, maxSize) ;
+    }
+
+    /** Create a thread-safe cache, split into (about) {@code numSegments} independently locked segments.
+     * @see #createCacheConcurrent(int)
+     */
+    public static <Key, Value> CacheStats<Key, Value> createCacheConcurrent(int numSegments, int maxSize)
+    {
+        return new CacheConcurrent<>(numSegments, 0.75f, maxSize) ;
+    }
+
+    /** Create a cache with the scan-resistant "2Q" replacement policy.
+     * A one-off pass over many keys does not eject entries that have been used more than once.
+     * This cache is not thread-safe. The cache returns null for a cache miss.
+     */
+    public static <Key, Value> Cache<Key, Value> createCache2Q(int maxSize)
+    {
+        return new Cache2Q<>(maxSize) ;
+    }
+
+    /** Create a thread-safe, segmented cache where each segment uses the "2Q" replacement policy.
+     * @see #createCache2Q(int)
+     * @see #createCacheConcurrent(int)
+     */
+    public static <Key, Value> CacheStats<Key, Value> createCacheConcurrent2Q(int maxSize)
+    {
+        return createCacheConcurrent2Q(dftConcurrencyLevel, maxSize) ;
+    }
+
+    /** Create a thread-safe, segmented "2Q" cache, split into (about) {@code numSegments} segments.
+     * @see #createCacheConcurrent2Q(int)
+     */
+    public static <Key, Value> CacheStats<Key, Value> createCacheConcurrent2Q(int numSegments, int maxSize)
+    {
+        return new CacheConcurrent<>(CacheConcurrent.Policy.TwoQ, numSegments, 0.75f, maxSize) ;
+    }
+
+    // Enough segments to make collisions between active threads unlikely.
+    private static final int dftConcurrencyLevel = 4*Runtime.getRuntime().availableProcessors() ;
+
     /** Create a null cache */
     public static <Key, Value> Cache<Key, Value> createNullCache()
     {
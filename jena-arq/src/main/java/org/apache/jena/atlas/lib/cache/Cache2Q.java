@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib.cache;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.lib.ActionKeyValue ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.CacheResizable ;
+
+/** A "2Q" cache (Johnson and Shasha, VLDB '94; the simplified full version).
+ * <p>
+ * New entries go into a FIFO queue ("A1in"). Keys that fall off that queue are
+ * remembered, without their values, in a ghost queue ("A1out"). An entry only
+ * enters the main LRU area ("Am") when it is seen again while its key is in the
+ * ghost queue. A single pass over many keys (e.g. a long range scan) therefore
+ * only cycles the FIFO queue and does not flush the frequently used entries.
+ * <p>
+ * This class is not thread-safe. Add a synchronization wrapper if needed
+ * ({@link CacheFactory#createCacheConcurrent2Q} provides a segmented, thread-safe form).
+ */
+public class Cache2Q<K,V> implements Cache<K,V>, CacheResizable
+{
+    private int maxSize ;
+    private int maxIn ;
+    private int maxOut ;
+
+    // FIFO of first-time entries.
+    private final LinkedHashMap<K,V> a1in ;
+    // Ghost entries: keys recently dropped from a1in.
+    private final Set<K> a1out ;
+    // LRU of entries seen more than once.
+    private final LinkedHashMap<K,V> am ;
+
+    private ActionKeyValue<K,V> dropHandler = null ;
+
+    public Cache2Q(int maxSize)
+    {
+        // Sizes as recommended in the paper: 25% of slots for A1in, ghosts for 50% of slots.
+        this(maxSize, Math.max(1, maxSize/4), Math.max(1, maxSize/2)) ;
+    }
+
+    public Cache2Q(int maxSize, int maxIn, int maxOut)
+    {
+        this.maxSize = maxSize ;
+        this.maxIn = maxIn ;
+        this.maxOut = maxOut ;
+        this.a1in = new LinkedHashMap<>() ;
+        this.a1out = new LinkedHashSet<>() ;
+        this.am = new LinkedHashMap<>(16, 0.75f, true) ;
+    }
+
+    @Override
+    public boolean containsKey(K key)
+    {
+        return am.containsKey(key) || a1in.containsKey(key) ;
+    }
+
+    @Override
+    public V get(K key)
+    {
+        // Access order LinkedHashMap - this moves the entry to the MRU end.
+        V v = am.get(key) ;
+        if ( v != null )
+            return v ;
+        // No reordering in A1in : it is FIFO.
+        return a1in.get(key) ;
+    }
+
+    @Override
+    public V put(K key, V thing)
+    {
+        if ( thing == null )
+        {
+            // As other caches: put(,null) is a remove.
+            V old = am.remove(key) ;
+            if ( old == null )
+                old = a1in.remove(key) ;
+            return old ;
+        }
+        if ( am.containsKey(key) )
+            return am.put(key, thing) ;
+        if ( a1in.containsKey(key) )
+            // Update in place; does not change the FIFO position.
+            return a1in.put(key, thing) ;
+        if ( a1out.remove(key) )
+            // Seen recently - it's "hot".
+            am.put(key, thing) ;
+        else
+            a1in.put(key, thing) ;
+        reclaim() ;
+        return null ;
+    }
+
+    /** Reduce to the cache size limit. */
+    private void reclaim()
+    {
+        while ( a1in.size() + am.size() > maxSize )
+        {
+            if ( a1in.size() > maxIn || am.isEmpty() )
+            {
+                Map.Entry<K,V> e = evict(a1in) ;
+                a1out.add(e.getKey()) ;
+                if ( a1out.size() > maxOut )
+                {
+                    Iterator<K> iter = a1out.iterator() ;
+                    iter.next() ;
+                    iter.remove() ;
+                }
+            }
+            else
+                evict(am) ;
+        }
+    }
+
+    private Map.Entry<K,V> evict(LinkedHashMap<K,V> map)
+    {
+        Iterator<Map.Entry<K,V>> iter = map.entrySet().iterator() ;
+        Map.Entry<K,V> e = iter.next() ;
+        iter.remove() ;
+        if ( dropHandler != null )
+            dropHandler.apply(e.getKey(), e.getValue()) ;
+        return e ;
+    }
+
+    @Override
+    public boolean remove(K key)
+    {
+        a1out.remove(key) ;
+        if ( am.remove(key) != null )
+            return true ;
+        return a1in.remove(key) != null ;
+    }
+
+    @Override
+    public Iterator<K> keys()
+    {
+        List<K> x = new ArrayList<>(a1in.size()+am.size()) ;
+        x.addAll(a1in.keySet()) ;
+        x.addAll(am.keySet()) ;
+        return x.iterator() ;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return a1in.isEmpty() && am.isEmpty() ;
+    }
+
+    @Override
+    public void clear()
+    {
+        a1in.clear() ;
+        a1out.clear() ;
+        am.clear() ;
+    }
+
+    @Override
+    public long size()
+    {
+        return a1in.size() + am.size() ;
+    }
+
+    /** Callback for entries when dropped from the cache */
+    @Override
+    public void setDropHandler(ActionKeyValue<K,V> dropHandler)
+    {
+        this.dropHandler = dropHandler ;
+    }
+
+    @Override
+    public int getMaxSize()
+    {
+        return maxSize ;
+    }
+
+    /** Change the capacity. The A1in and ghost queues keep their proportion of the whole. */
+    @Override
+    public void setMaxSize(int newMaxSize)
+    {
+        if ( newMaxSize <= 0 )
+            throw new IllegalArgumentException("Cache2Q: maxSize must be positive: "+newMaxSize) ;
+        maxIn = (int)Math.max(1, ((long)maxIn)*newMaxSize/maxSize) ;
+        maxOut = (int)Math.max(1, ((long)maxOut)*newMaxSize/maxSize) ;
+        maxSize = newMaxSize ;
+        Iterator<K> iter = a1out.iterator() ;
+        while ( a1out.size() > maxOut )
+        {
+            iter.next() ;
+            iter.remove() ;
+        }
+        reclaim() ;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib.cache;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.ActionKeyValue ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheResizable ;
+import org.apache.jena.atlas.lib.CacheStats ;
+
+/** A thread-safe, striped cache.
+ * <p>
+ * The key space is split over a number of segments, each an independent cache
+ * with its own lock, so threads working on different keys rarely contend.
+ * The replacement policy (LRU or 2Q) is per-segment, not global.
+ * <p>
+ * Statistics are kept per segment, under the segment lock, so they cost no
+ * additional synchronization; the reported values are the sums over all segments.
+ * <p>
+ * The capacity can be changed while the cache is in use; it is shared equally
+ * between the segments.
+ */
+public class CacheConcurrent<K,V> implements CacheStats<K,V>, CacheResizable
+{
+    private final Segment<K,V>[] segments ;
+    private final int segmentMask ;
+    private static final int MinSegmentSize = 16 ;
+
+    /** Replacement policy of each segment */
+    public enum Policy { LRU, TwoQ }
+
+    private static class Segment<K,V>
+    {
+        // CacheLRU or Cache2Q - both resizable.
+        final Cache<K,V> cache ;
+        long hits = 0 ;
+        long misses = 0 ;
+        long ejects = 0 ;
+        ActionKeyValue<K,V> dropHandler = null ;
+
+        Segment(Policy policy, float loadFactor, int maxSize)
+        {
+            switch (policy)
+            {
+                case TwoQ:  cache = new Cache2Q<>(maxSize) ; break ;
+                case LRU:
+                default:    cache = new CacheLRU<>(loadFactor, maxSize) ; break ;
+            }
+            // Always installed - counts ejections and passes them on.
+            cache.setDropHandler(new ActionKeyValue<K,V>() {
+                @Override
+                public void apply(K key, V value)
+                {
+                    ejects++ ;
+                    if ( dropHandler != null )
+                        dropHandler.apply(key, value) ;
+                }
+            }) ;
+        }
+    }
+
+    /** Create an LRU cache with up to the given number of segments (a power of two, and
+     * fewer for small caches) and an overall capacity of (approximately) maxSize entries.
+     */
+    public CacheConcurrent(int numSegments, float loadFactor, int maxSize)
+    {
+        this(Policy.LRU, numSegments, loadFactor, maxSize) ;
+    }
+
+    /** Create a cache with the given per-segment replacement policy.
+     * @see #CacheConcurrent(int, float, int)
+     */
+    public CacheConcurrent(Policy policy, int numSegments, float loadFactor, int maxSize)
+    {
+        if ( maxSize <= 0 )
+            throw new IllegalArgumentException("CacheConcurrent: maxSize must be positive: "+maxSize) ;
+        // Segments must not be so small that hash collisions cause early ejection.
+        int n = 1 ;
+        while ( n < numSegments && (n << 1)*MinSegmentSize <= maxSize )
+            n = n << 1 ;
+        int segmentSize = (maxSize + n - 1) / n ;
+        @SuppressWarnings("unchecked")
+        Segment<K,V>[] x = (Segment<K,V>[])new Segment<?,?>[n] ;
+        for ( int i = 0 ; i < n ; i++ )
+            x[i] = new Segment<>(policy, loadFactor, segmentSize) ;
+        this.segments = x ;
+        this.segmentMask = n - 1 ;
+    }
+
+    private Segment<K,V> segment(Object key)
+    {
+        // Spread the hash bits (as java.util.HashMap) so poor hashCodes still use all segments.
+        int h = key.hashCode() ;
+        h ^= (h >>> 20) ^ (h >>> 12) ;
+        h ^= (h >>> 7) ^ (h >>> 4) ;
+        return segments[h & segmentMask] ;
+    }
+
+    @Override
+    public boolean containsKey(K key)
+    {
+        Segment<K,V> seg = segment(key) ;
+        synchronized (seg)
+        {
+            return seg.cache.containsKey(key) ;
+        }
+    }
+
+    @Override
+    public V get(K key)
+    {
+        Segment<K,V> seg = segment(key) ;
+        synchronized (seg)
+        {
+            V v = seg.cache.get(key) ;
+            if ( v == null )
+                seg.misses++ ;
+            else
+                seg.hits++ ;
+            return v ;
+        }
+    }
+
+    @Override
+    public V put(K key, V thing)
+    {
+        Segment<K,V> seg = segment(key) ;
+        synchronized (seg)
+        {
+            return seg.cache.put(key, thing) ;
+        }
+    }
+
+    @Override
+    public boolean remove(K key)
+    {
+        Segment<K,V> seg = segment(key) ;
+        synchronized (seg)
+        {
+            return seg.cache.remove(key) ;
+        }
+    }
+
+    /** Iterate over a snapshot of the keys. */
+    @Override
+    public Iterator<K> keys()
+    {
+        List<K> x = new ArrayList<>() ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg)
+            {
+                Iterator<K> iter = seg.cache.keys() ;
+                while ( iter.hasNext() )
+                    x.add(iter.next()) ;
+            }
+        }
+        return x.iterator() ;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg)
+            {
+                if ( ! seg.cache.isEmpty() )
+                    return false ;
+            }
+        }
+        return true ;
+    }
+
+    @Override
+    public void clear()
+    {
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg)
+            {
+                seg.cache.clear() ;
+            }
+        }
+    }
+
+    @Override
+    public long size()
+    {
+        long x = 0 ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg)
+            {
+                x += seg.cache.size() ;
+            }
+        }
+        return x ;
+    }
+
+    @Override
+    public void setDropHandler(ActionKeyValue<K,V> dropHandler)
+    {
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg)
+            {
+                seg.dropHandler = dropHandler ;
+            }
+        }
+    }
+
+    @Override
+    public int getMaxSize()
+    {
+        long x = 0 ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg) { x += ((CacheResizable)seg.cache).getMaxSize() ; }
+        }
+        return (int)Math.min(x, Integer.MAX_VALUE) ;
+    }
+
+    /** Change the capacity. Each segment gets an equal share (at least one entry). */
+    @Override
+    public void setMaxSize(int maxSize)
+    {
+        if ( maxSize <= 0 )
+            throw new IllegalArgumentException("CacheConcurrent: maxSize must be positive: "+maxSize) ;
+        int segmentSize = Math.max(1, (maxSize + segments.length - 1) / segments.length) ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg) { ((CacheResizable)seg.cache).setMaxSize(segmentSize) ; }
+        }
+    }
+
+    /** Number of segments */
+    public int getNumSegments()         { return segments.length ; }
+
+    @Override
+    public long getCacheEntries()       { return size() ; }
+
+    @Override
+    public long getCacheHits()
+    {
+        long x = 0 ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg) { x += seg.hits ; }
+        }
+        return x ;
+    }
+
+    @Override
+    public long getCacheMisses()
+    {
+        long x = 0 ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg) { x += seg.misses ; }
+        }
+        return x ;
+    }
+
+    @Override
+    public long getCacheEjects()
+    {
+        long x = 0 ;
+        for ( Segment<K,V> seg : segments )
+        {
+            synchronized (seg) { x += seg.ejects ; }
+        }
+        return x ;
+    }
+}
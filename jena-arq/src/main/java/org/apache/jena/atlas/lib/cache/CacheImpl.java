@@ -18,6 +18,7 @@
 
 package org.apache.jena.atlas.lib.cache;
 
+import java.util.Iterator ;
 import java.util.LinkedHashMap ;
 import java.util.Map ;
 
@@ -55,6 +56,20 @@ class CacheImpl<K,V> extends LinkedHashMap<K, V>
         this.dropHandler = dropHandler ;
     }
 
+    /** Change the maximum number of entries, dropping the least recently used entries if necessary */
+    public void setMaxEntries(int maxSize)
+    {
+        maxEntries = maxSize ;
+        Iterator<Map.Entry<K,V>> iter = entrySet().iterator() ;
+        while ( size() > maxEntries && iter.hasNext() )
+        {
+            Map.Entry<K,V> eldest = iter.next() ;
+            if ( dropHandler != null )
+                dropHandler.apply(eldest.getKey(), eldest.getValue()) ;
+            iter.remove() ;
+        }
+    }
+
     @Override
     protected boolean removeEldestEntry(Map.Entry<K,V> eldest) 
     {
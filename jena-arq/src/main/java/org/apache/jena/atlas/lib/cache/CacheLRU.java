@@ -23,11 +23,12 @@ import java.util.Iterator ;
 import org.apache.jena.atlas.lib.ActionKeyValue ;
 import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.CacheResizable ;
 
 
 /** This class is not thread-safe. Add a synchronization wrapper if needed ({@link CacheFactory#createSync})  */
 
-public class CacheLRU<K,V> implements Cache<K,V>
+public class CacheLRU<K,V> implements Cache<K,V>, CacheResizable
 {
     // Use an internal class so we don't expose the full LinkedHashMap interface.
     private CacheImpl<K,V> cache ;
@@ -91,4 +92,17 @@ public class CacheLRU<K,V> implements Cache<K,V>
     {
         cache.setDropHandler(dropHandler) ;
     }
+
+    @Override
+    public int getMaxSize()
+    {
+        return cache.maxEntries ;
+    }
+
+    /** Change the capacity; shrinking drops the least recently used entries. */
+    @Override
+    public void setMaxSize(int maxSize)
+    {
+        cache.setMaxEntries(maxSize) ;
+    }
 }
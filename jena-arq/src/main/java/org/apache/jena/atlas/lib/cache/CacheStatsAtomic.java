@@ -22,11 +22,14 @@ import java.util.concurrent.atomic.AtomicLong ;
 
 import org.apache.jena.atlas.lib.ActionKeyValue ;
 import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheResizable ;
 import org.apache.jena.atlas.lib.CacheStats ;
 
 
-/** Capture statisics for a cache - this class is thread safe (you can read the stats while the cache is active) */ 
-public class CacheStatsAtomic<Key,Value> extends CacheWrapper<Key,Value> implements CacheStats<Key,Value>
+/** Capture statisics for a cache - this class is thread safe (you can read the stats while the cache is active).
+ * It can be resized if the wrapped cache can be resized.
+ */ 
+public class CacheStatsAtomic<Key,Value> extends CacheWrapper<Key,Value> implements CacheStats<Key,Value>, CacheResizable
 {
     // Overall statistics 
     // AtomicLong?
@@ -109,6 +112,22 @@ public class CacheStatsAtomic<Key,Value> extends CacheWrapper<Key,Value> impleme
         cache.setDropHandler(new EjectMonitor(dropHandler)) ;
     }
     
+    @Override
+    public int getMaxSize()
+    {
+        if ( cache instanceof CacheResizable )
+            return ((CacheResizable)cache).getMaxSize() ;
+        return -1 ;
+    }
+
+    @Override
+    public void setMaxSize(int maxSize)
+    {
+        if ( ! ( cache instanceof CacheResizable ) )
+            throw new UnsupportedOperationException("Cache can not be resized: "+cache.getClass().getSimpleName()) ;
+        ((CacheResizable)cache).setMaxSize(maxSize) ;
+    }
+
     @Override
     public final long getCacheEntries() { return cacheEntries.get() ; }
     @Override
@@ -21,9 +21,13 @@ package com.hp.hpl.jena.sparql.engine;
 import org.junit.runner.RunWith ;
 import org.junit.runners.Suite ;
 
+import com.hp.hpl.jena.sparql.engine.batch.TestBatchIterators ;
 import com.hp.hpl.jena.sparql.engine.binding.TestBindingStreams ;
 import com.hp.hpl.jena.sparql.engine.http.TestQueryEngineHTTP ;
 import com.hp.hpl.jena.sparql.engine.http.TestService ;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterGroup ;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterHashJoin ;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterParallel ;
 import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterSort ;
 
 @RunWith(Suite.class)
@@ -31,6 +35,10 @@ import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterSort ;
         TestBindingStreams.class
       , TestTableLib.class
       , TestQueryIterSort.class
+      , TestQueryIterHashJoin.class
+      , TestQueryIterGroup.class
+      , TestQueryIterParallel.class
+      , TestBatchIterators.class
       , TestService.class
       , TestQueryEngineHTTP.class
       , TestQueryEngineMultiThreaded.class
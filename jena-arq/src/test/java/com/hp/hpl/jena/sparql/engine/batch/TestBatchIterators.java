@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.batch;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.TreeMap ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterAssign ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterDistinct ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterFilterExpr ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterProject ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSlice ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin ;
+import com.hp.hpl.jena.sparql.expr.E_Add ;
+import com.hp.hpl.jena.sparql.expr.E_LessThan ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+import com.hp.hpl.jena.sparql.expr.ExprVar ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+/** The batch iterators give the same results as the row-at-a-time iterators. */
+public class TestBatchIterators {
+
+    private static final Var x = Var.alloc("x") ;
+    private static final Var y = Var.alloc("y") ;
+    private static final Var z = Var.alloc("z") ;
+
+    // Small batches, so that operations cross batch boundaries.
+    private static final int batchSize = 7 ;
+
+    private static ExecutionContext execCxt = 
+        new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+
+    // (?x ?y) : ?x repeats, ?y is sometimes unbound.
+    private static List<Binding> rows(int n, Var var2) {
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            BindingMap b = BindingFactory.create() ;
+            b.add(x, NodeFactoryExtra.intToNode(i % 10)) ;
+            if ( i % 4 != 0 )
+                b.add(var2, NodeFactoryExtra.intToNode(i)) ;
+            rows.add(b) ;
+        }
+        return rows ;
+    }
+
+    private static QueryIterator iter(List<Binding> rows) {
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    private static QueryIteratorBatch batches(List<Binding> rows) {
+        return new BatchIterFromRows(iter(rows), batchSize) ;
+    }
+
+    private static List<String> results(QueryIterator qIter, boolean sort) {
+        List<String> results = new ArrayList<>() ;
+        while ( qIter.hasNext() ) {
+            Binding b = qIter.next() ;
+            Map<String, Node> row = new TreeMap<>() ;
+            for ( Iterator<Var> vIter = b.vars() ; vIter.hasNext() ; ) {
+                Var v = vIter.next() ;
+                row.put(v.getVarName(), b.get(v)) ;
+            }
+            results.add(row.toString()) ;
+        }
+        qIter.close() ;
+        if ( sort )
+            Collections.sort(results) ;
+        return results ;
+    }
+
+    private static void test(QueryIterator expected, QueryIteratorBatch actual) {
+        test(expected, actual, false) ;
+    }
+
+    private static void test(QueryIterator expected, QueryIteratorBatch actual, boolean sort) {
+        assertEquals(results(expected, sort), results(new QueryIterBatched(actual, execCxt), sort)) ;
+    }
+
+    private static final Expr lessThan50 = new E_LessThan(new ExprVar(y), NodeValue.makeInteger(50)) ;
+
+    @Test public void batch_rows_01() {
+        test(iter(rows(0, y)), batches(rows(0, y))) ;
+    }
+
+    @Test public void batch_rows_02() {
+        test(iter(rows(100, y)), batches(rows(100, y))) ;
+    }
+
+    @Test public void batch_filter_01() {
+        List<Binding> rows = rows(100, y) ;
+        test(new QueryIterFilterExpr(iter(rows), lessThan50, execCxt),
+             new BatchIterFilter(batches(rows), new ExprList(lessThan50), execCxt)) ;
+    }
+
+    @Test public void batch_extend_01() {
+        List<Binding> rows = rows(100, y) ;
+        VarExprList exprs = new VarExprList() ;
+        exprs.add(z, new E_Add(new ExprVar(y), NodeValue.makeInteger(1))) ;
+        test(new QueryIterAssign(iter(rows), exprs, execCxt, true),
+             new BatchIterExtend(batches(rows), exprs, execCxt)) ;
+    }
+
+    @Test public void batch_extend_02() {
+        // Assign to a variable that is sometimes already bound.
+        List<Binding> rows = rows(100, y) ;
+        VarExprList exprs = new VarExprList() ;
+        exprs.add(y, NodeValue.makeInteger(5)) ;
+        test(new QueryIterAssign(iter(rows), exprs, execCxt, false),
+             new BatchIterExtend(batches(rows), exprs, execCxt)) ;
+    }
+
+    @Test public void batch_project_01() {
+        List<Binding> rows = rows(100, y) ;
+        List<Var> vars = Arrays.asList(y, z) ;
+        test(new QueryIterProject(iter(rows), vars, execCxt),
+             new BatchIterProject(batches(rows), vars)) ;
+    }
+
+    private static void testSlice(long offset, long limit) {
+        List<Binding> rows = rows(100, y) ;
+        test(new QueryIterSlice(iter(rows), offset, limit, execCxt),
+             new BatchIterSlice(batches(rows), offset, limit)) ;
+    }
+
+    @Test public void batch_slice_01()  { testSlice(Query.NOLIMIT, 10) ; }
+    @Test public void batch_slice_02()  { testSlice(15, Query.NOLIMIT) ; }
+    @Test public void batch_slice_03()  { testSlice(15, 20) ; }
+    @Test public void batch_slice_04()  { testSlice(15, 0) ; }
+    @Test public void batch_slice_05()  { testSlice(200, 5) ; }
+
+    @Test public void batch_distinct_01() {
+        List<Binding> rows = rows(100, y) ;
+        List<Var> vars = Arrays.asList(x) ;
+        test(new QueryIterDistinct(new QueryIterProject(iter(rows), vars, execCxt), execCxt),
+             new BatchIterDistinct(new BatchIterProject(batches(rows), vars))) ;
+    }
+
+    @Test public void batch_join_01() {
+        List<Binding> left = rows(50, y) ;
+        List<Binding> right = rows(30, z) ;
+        test(new QueryIterJoin(iter(left), iter(right), execCxt),
+             new BatchIterHashJoin(batches(left), batches(right), Arrays.asList(x)), true) ;
+    }
+
+    @Test public void batch_join_02() {
+        // Join on a variable that is sometimes unbound.
+        List<Binding> left = rows(50, y) ;
+        List<Binding> right = rows(30, y) ;
+        test(new QueryIterJoin(iter(left), iter(right), execCxt),
+             new BatchIterHashJoin(batches(left), batches(right), Arrays.asList(y)), true) ;
+    }
+
+    @Test public void batch_join_03() {
+        List<Binding> left = rows(50, y) ;
+        List<Binding> right = rows(0, z) ;
+        test(new QueryIterJoin(iter(left), iter(right), execCxt),
+             new BatchIterHashJoin(batches(left), batches(right), Arrays.asList(x)), true) ;
+    }
+
+    @Test public void batch_join_04() {
+        // Many results for each left batch : output batches are capped.
+        List<Binding> left = rows(50, y) ;
+        List<Binding> right = rows(60, z) ;
+        int cap = 5 ;
+        QueryIteratorBatch join = new BatchIterHashJoin(batches(left), batches(right), Arrays.asList(x), cap) ;
+        List<BindingBatch> output = new ArrayList<>() ;
+        while ( join.hasNextBatch() )
+            output.add(join.nextBatch()) ;
+        for ( BindingBatch b : output )
+            assertTrue(b.size() > 0 && b.size() <= cap) ;
+        test(new QueryIterJoin(iter(left), iter(right), execCxt),
+             new BatchIterHashJoin(batches(left), batches(right), Arrays.asList(x), cap), true) ;
+    }
+
+    @Test public void batch_join_05() {
+        // No join key : cross product, with capped batches.
+        List<Binding> left = rows(20, y) ;
+        List<Binding> right = rows(20, z) ;
+        test(new QueryIterJoin(iter(left), iter(right), execCxt),
+             new BatchIterHashJoin(batches(left), batches(right), Collections.<Var>emptyList(), 3), true) ;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals ;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.TreeMap ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.expr.ExprAggregator ;
+import com.hp.hpl.jena.sparql.expr.ExprVar ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AggregatorFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+/** GROUP BY gives the same results when it spills to disk. */
+public class TestQueryIterGroup {
+
+    private static final Var x = Var.alloc("x") ;
+    private static final Var y = Var.alloc("y") ;
+
+    private static ExecutionContext execCxt(long threshold) {
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, threshold) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
+    // (?x ?y) with 50 groups for ?x ; ?y is sometimes unbound and sometimes not a number.
+    private static List<Binding> rows(int n) {
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            BindingMap b = BindingFactory.create() ;
+            b.add(x, NodeFactoryExtra.intToNode(i % 50)) ;
+            if ( i % 17 == 3 )
+                b.add(y, NodeFactoryExtra.parseNode("'abc'")) ;
+            else if ( i % 5 != 0 )
+                b.add(y, NodeFactoryExtra.intToNode(i)) ;
+            rows.add(b) ;
+        }
+        return rows ;
+    }
+
+    private static List<ExprAggregator> partialAggregators() {
+        ExprVar ey = new ExprVar(y) ;
+        List<ExprAggregator> aggs = new ArrayList<>() ;
+        aggs.add(new ExprAggregator(Var.alloc(".0"), AggregatorFactory.createCount(false))) ;
+        aggs.add(new ExprAggregator(Var.alloc(".1"), AggregatorFactory.createCountExpr(false, ey))) ;
+        aggs.add(new ExprAggregator(Var.alloc(".2"), AggregatorFactory.createSum(false, ey))) ;
+        aggs.add(new ExprAggregator(Var.alloc(".3"), AggregatorFactory.createMin(false, ey))) ;
+        aggs.add(new ExprAggregator(Var.alloc(".4"), AggregatorFactory.createMax(false, ey))) ;
+        aggs.add(new ExprAggregator(Var.alloc(".5"), AggregatorFactory.createAvg(false, ey))) ;
+        return aggs ;
+    }
+
+    private static List<ExprAggregator> otherAggregators() {
+        List<ExprAggregator> aggs = partialAggregators() ;
+        aggs.add(new ExprAggregator(Var.alloc(".6"), AggregatorFactory.createCountExpr(true, new ExprVar(y)))) ;
+        return aggs ;
+    }
+
+    // Results as a sorted list of strings, independent of row order and binding implementation.
+    private static List<String> results(QueryIterator qIter) {
+        List<String> results = new ArrayList<>() ;
+        while ( qIter.hasNext() ) {
+            Binding b = qIter.next() ;
+            Map<String, Node> row = new TreeMap<>() ;
+            for ( Iterator<Var> vIter = b.vars() ; vIter.hasNext() ; ) {
+                Var v = vIter.next() ;
+                row.put(v.getVarName(), b.get(v)) ;
+            }
+            results.add(row.toString()) ;
+        }
+        qIter.close() ;
+        Collections.sort(results) ;
+        return results ;
+    }
+
+    private static List<String> group(List<Binding> rows, List<Var> groupVars, List<ExprAggregator> aggs, long threshold) {
+        ExecutionContext execCxt = execCxt(threshold) ;
+        QueryIterator input = new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+        return results(new QueryIterGroup(input, new VarExprList(groupVars), aggs, execCxt)) ;
+    }
+
+    private static void test(int n, List<Var> groupVars, List<ExprAggregator> aggs, long threshold) {
+        List<Binding> rows = rows(n) ;
+        List<String> expected = group(rows, groupVars, aggs, -1) ;
+        List<String> actual = group(rows, groupVars, aggs, threshold) ;
+        assertEquals(expected, actual) ;
+    }
+
+    private static final List<Var> byX = Collections.singletonList(x) ;
+    private static final List<Var> noVars = Collections.emptyList() ;
+    private static final List<ExprAggregator> noAggs = Collections.emptyList() ;
+
+    @Test public void group_01()    { test(0, byX, partialAggregators(), 10) ; }
+    @Test public void group_02()    { test(0, noVars, partialAggregators(), 10) ; }
+    @Test public void group_03()    { test(10, noVars, partialAggregators(), 0) ; }
+    @Test public void group_04()    { test(1000, noVars, partialAggregators(), 10) ; }
+
+    // Pre-aggregation.
+    @Test public void group_spill_01()  { test(1000, byX, partialAggregators(), 10) ; }
+    @Test public void group_spill_02()  { test(1000, byX, partialAggregators(), 1) ; }
+    @Test public void group_spill_03()  { test(1000, byX, noAggs, 10) ; }
+
+    // No pre-aggregation (COUNT DISTINCT).
+    @Test public void group_spill_04()  { test(1000, byX, otherAggregators(), 10) ; }
+    @Test public void group_spill_05()  { test(1000, byX, otherAggregators(), 1) ; }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals ;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.TreeMap ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.sparql.algebra.JoinType ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterLeftJoin ;
+import com.hp.hpl.jena.sparql.expr.ExprVar ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+/** Hash joins and merge joins give the same results as the nested loop join. */
+public class TestQueryIterHashJoin {
+
+    private static final Var x = Var.alloc("x") ;
+    private static final Var y = Var.alloc("y") ;
+    private static final Var z = Var.alloc("z") ;
+
+    private static ExecutionContext execCxt(long threshold) {
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, threshold) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
+    private static Binding row(Var var1, int val1, Var var2, int val2) {
+        BindingMap b = BindingFactory.create() ;
+        if ( val1 >= 0 )
+            b.add(var1, NodeFactoryExtra.intToNode(val1)) ;
+        if ( val2 >= 0 )
+            b.add(var2, NodeFactoryExtra.intToNode(val2)) ;
+        return b ;
+    }
+
+    // Left : (?x ?y), right : (?x ?z) ; some rows leave ?x unbound.
+    private static List<Binding> leftRows(int n) {
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < n ; i++ )
+            rows.add(row(x, i % 7 == 0 ? -1 : i % 10, y, i)) ;
+        return rows ;
+    }
+
+    private static List<Binding> rightRows(int n) {
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < n ; i++ )
+            rows.add(row(x, i % 11 == 0 ? -1 : i % 13, z, i)) ;
+        return rows ;
+    }
+
+    private static QueryIterator iter(List<Binding> rows, ExecutionContext execCxt) {
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    // Results as a sorted list of strings, independent of row order and binding implementation.
+    private static List<String> results(QueryIterator qIter) {
+        List<String> results = new ArrayList<>() ;
+        while ( qIter.hasNext() ) {
+            Binding b = qIter.next() ;
+            Map<String, Node> row = new TreeMap<>() ;
+            for ( Iterator<Var> vIter = b.vars() ; vIter.hasNext() ; ) {
+                Var v = vIter.next() ;
+                row.put(v.getVarName(), b.get(v)) ;
+            }
+            results.add(row.toString()) ;
+        }
+        qIter.close() ;
+        Collections.sort(results) ;
+        return results ;
+    }
+
+    private static void testJoin(int nLeft, int nRight, JoinType joinType, long threshold) {
+        ExecutionContext execCxt = execCxt(threshold) ;
+        List<Binding> left = leftRows(nLeft) ;
+        List<Binding> right = rightRows(nRight) ;
+        QueryIterator expected = ( joinType == JoinType.LEFT )
+            ? new QueryIterLeftJoin(iter(left, execCxt), iter(right, execCxt), null, execCxt)
+            : new QueryIterJoin(iter(left, execCxt), iter(right, execCxt), execCxt) ;
+        QueryIterator actual = QueryIterHashJoin.create(iter(left, execCxt), iter(right, execCxt),
+                                                        Collections.singletonList(x), joinType, null, execCxt) ;
+        assertEquals(results(expected), results(actual)) ;
+        if ( joinType == JoinType.PLAIN ) {
+            QueryIterator actual2 = QueryIterHashJoin.createBuildLeft(iter(left, execCxt), iter(right, execCxt),
+                                                                      Collections.singletonList(x), null, execCxt) ;
+            assertEquals(results(expected), results(actual2)) ;
+        }
+    }
+
+    @Test public void hash_join_01()    { testJoin(0, 0, JoinType.PLAIN, -1) ; }
+    @Test public void hash_join_02()    { testJoin(10, 0, JoinType.PLAIN, -1) ; }
+    @Test public void hash_join_03()    { testJoin(0, 10, JoinType.PLAIN, -1) ; }
+    @Test public void hash_join_04()    { testJoin(50, 60, JoinType.PLAIN, -1) ; }
+    @Test public void hash_join_05()    { testJoin(50, 60, JoinType.LEFT, -1) ; }
+    @Test public void hash_join_06()    { testJoin(10, 0, JoinType.LEFT, -1) ; }
+
+    // Spill to disk.
+    @Test public void hash_join_spill_01()    { testJoin(200, 300, JoinType.PLAIN, 20) ; }
+    @Test public void hash_join_spill_02()    { testJoin(200, 300, JoinType.LEFT, 20) ; }
+    @Test public void hash_join_spill_03()    { testJoin(200, 300, JoinType.PLAIN, 1) ; }
+
+    private static void testMergeJoin(JoinType joinType) {
+        ExecutionContext execCxt = execCxt(-1) ;
+        // Merge join requires the join variable bound in every row.
+        List<Binding> left = new ArrayList<>() ;
+        for ( int i = 0 ; i < 40 ; i++ )
+            left.add(row(x, i / 3, y, i)) ;
+        List<Binding> right = new ArrayList<>() ;
+        for ( int i = 0 ; i < 40 ; i++ )
+            right.add(row(x, 2 * (i / 4), z, i)) ;
+        BindingComparator comparator =
+            new BindingComparator(Collections.singletonList(new SortCondition(new ExprVar(x), Query.ORDER_ASCENDING)), execCxt) ;
+        Collections.sort(left, comparator) ;
+        Collections.sort(right, comparator) ;
+        QueryIterator expected = ( joinType == JoinType.LEFT )
+            ? new QueryIterLeftJoin(iter(left, execCxt), iter(right, execCxt), null, execCxt)
+            : new QueryIterJoin(iter(left, execCxt), iter(right, execCxt), execCxt) ;
+        QueryIterator actual = new QueryIterMergeJoin(iter(left, execCxt), iter(right, execCxt), comparator, joinType, null, execCxt) ;
+        assertEquals(results(expected), results(actual)) ;
+    }
+
+    @Test public void merge_join_01()   { testMergeJoin(JoinType.PLAIN) ; }
+    @Test public void merge_join_02()   { testMergeJoin(JoinType.LEFT) ; }
+}
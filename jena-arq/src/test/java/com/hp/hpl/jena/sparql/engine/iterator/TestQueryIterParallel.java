@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+public class TestQueryIterParallel {
+
+    private static final Var x = Var.alloc("x") ;
+
+    private static ExecutionContext execCxt() {
+        return new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
+    private static List<Binding> rows(int start, int n) {
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = start ; i < start+n ; i++ )
+            rows.add(BindingFactory.binding(x, NodeFactoryExtra.intToNode(i))) ;
+        return rows ;
+    }
+
+    private static QueryIterator iter(List<Binding> rows, ExecutionContext execCxt) {
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    private static List<Integer> values(QueryIterator qIter) {
+        List<Integer> values = new ArrayList<>() ;
+        while ( qIter.hasNext() )
+            values.add(NodeFactoryExtra.nodeToInt(qIter.nextBinding().get(x))) ;
+        qIter.close() ;
+        return values ;
+    }
+
+    @Test public void parallel_01() {
+        ExecutionContext execCxt = execCxt() ;
+        QueryIterator qIter = new QueryIterParallel(Collections.<QueryIterator>emptyList(), execCxt) ;
+        assertFalse(qIter.hasNext()) ;
+    }
+
+    // More rows than the queue holds.
+    @Test public void parallel_02() {
+        ExecutionContext execCxt = execCxt() ;
+        List<QueryIterator> branches = Arrays.asList(iter(rows(0, 2000), execCxt), iter(rows(2000, 0), execCxt),
+                                                     iter(rows(2000, 3000), execCxt)) ;
+        List<Integer> values = values(new QueryIterParallel(branches, execCxt)) ;
+        Collections.sort(values) ;
+        List<Integer> expected = new ArrayList<>() ;
+        for ( int i = 0 ; i < 5000 ; i++ )
+            expected.add(i) ;
+        assertEquals(expected, values) ;
+    }
+
+    // Prefetch keeps the order.
+    @Test public void parallel_03() {
+        ExecutionContext execCxt = execCxt() ;
+        List<Integer> values = values(QueryIterParallel.prefetch(iter(rows(0, 3000), execCxt), execCxt)) ;
+        for ( int i = 0 ; i < values.size() ; i++ )
+            assertEquals(i, values.get(i).intValue()) ;
+        assertEquals(3000, values.size()) ;
+    }
+
+    // Errors in a branch are passed to the consumer.
+    @Test(expected=UnsupportedOperationException.class)
+    public void parallel_04() {
+        ExecutionContext execCxt = execCxt() ;
+        Iterator<Binding> broken = new Iterator<Binding>() {
+            @Override public boolean hasNext()  { return true ; }
+            @Override public Binding next()     { throw new UnsupportedOperationException() ; }
+            @Override public void remove()      {}
+        } ;
+        List<QueryIterator> branches = Arrays.asList(iter(rows(0, 10), execCxt), new QueryIterPlainWrapper(broken, execCxt)) ;
+        values(new QueryIterParallel(branches, execCxt)) ;
+    }
+
+    // Cancellation of an endless branch.
+    @Test(expected=QueryCancelledException.class)
+    public void parallel_05() {
+        ExecutionContext execCxt = execCxt() ;
+        Iterator<Binding> endless = new Iterator<Binding>() {
+            @Override public boolean hasNext()  { return true ; }
+            @Override public Binding next()     { return BindingFactory.binding(x, NodeFactoryExtra.intToNode(0)) ; }
+            @Override public void remove()      {}
+        } ;
+        QueryIterator qIter = new QueryIterParallel(Collections.<QueryIterator>singletonList(new QueryIterPlainWrapper(endless, execCxt)), execCxt) ;
+        try {
+            for ( int i = 0 ; i < 5000 ; i++ )
+                qIter.nextBinding() ;
+            qIter.cancel() ;
+            for ( ;; )
+                qIter.nextBinding() ;
+        } finally { qIter.close() ; }
+    }
+
+    // Producers blocked on a full queue do not stop other parallel evaluation.
+    @Test(timeout=30000)
+    public void parallel_06() {
+        ExecutionContext execCxt = execCxt() ;
+        List<QueryIterator> blocked = new ArrayList<>() ;
+        for ( int i = 0 ; i < 2*Runtime.getRuntime().availableProcessors() ; i++ )
+            blocked.add(QueryIterParallel.prefetch(iter(rows(0, 2000), execCxt), execCxt)) ;
+        List<QueryIterator> branches = Arrays.asList(iter(rows(0, 10), execCxt), iter(rows(10, 10), execCxt)) ;
+        assertEquals(20, values(new QueryIterParallel(branches, execCxt)).size()) ;
+        for ( QueryIterator qIter : blocked )
+            assertEquals(2000, values(qIter).size()) ;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr;
+
+import static org.junit.Assert.assertEquals ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
+import com.hp.hpl.jena.sparql.function.FunctionEnvBase ;
+import com.hp.hpl.jena.sparql.util.ExprUtils ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+/** Compiled expressions give the same results as evaluating the expression. */
+public class TestExprCompiler
+{
+    private static String[] values = {
+        "0", "5", "+5", "-5", "'05'^^xsd:integer", "123456789012345678901234567890", 
+        "5.0", "'5'^^xsd:int", "'abc'^^xsd:integer", "1e0",
+        "''", "'abc'", "'abd'", "'ab'", "'abc'^^xsd:string", "'abc'@en", "'abc'^^<http://example/dt>",
+        "<http://example/x>", "<http://example/y>", "_:b", 
+        "true", "'2013-01-01'^^xsd:date"
+    } ;
+    
+    private static Var x = Var.alloc("x") ;
+    private static Var y = Var.alloc("y") ;
+    
+    @Test public void compile_const_01()    { test("1+2") ; }
+    @Test public void compile_const_02()    { test("'abc' < 'abd'") ; }
+    @Test public void compile_const_03()    { test("1/0") ; }
+
+    @Test public void compile_var_01()      { test("?x") ; }
+    @Test public void compile_var_02()      { test("?z") ; }
+
+    @Test public void compile_cmp_01()      { test("?x = 5") ; }
+    @Test public void compile_cmp_02()      { test("?x != 5") ; }
+    @Test public void compile_cmp_03()      { test("?x < 5") ; }
+    @Test public void compile_cmp_04()      { test("?x <= 5") ; }
+    @Test public void compile_cmp_05()      { test("?x > 5") ; }
+    @Test public void compile_cmp_06()      { test("?x >= 5") ; }
+    @Test public void compile_cmp_07()      { test("5 < ?x") ; }
+    @Test public void compile_cmp_08()      { test("5 >= ?x") ; }
+    @Test public void compile_cmp_09()      { test("?x > 2+3") ; }
+    @Test public void compile_cmp_10()      { test("?x = 123456789012345678901234567890") ; }
+    @Test public void compile_cmp_11()      { test("?x < -9223372036854775808") ; }
+    @Test public void compile_cmp_12()      { test("?x = 5.0") ; }
+    
+    @Test public void compile_cmp_20()      { test("?x = 'abc'") ; }
+    @Test public void compile_cmp_21()      { test("?x != 'abc'") ; }
+    @Test public void compile_cmp_22()      { test("?x < 'abc'") ; }
+    @Test public void compile_cmp_23()      { test("'abc' <= ?x") ; }
+    @Test public void compile_cmp_24()      { test("?x = 'abc'^^xsd:string") ; }
+    @Test public void compile_cmp_25()      { test("?x = 'abc'@en") ; }
+    @Test public void compile_cmp_26()      { test("?x > ''") ; }
+    
+    @Test public void compile_cmp_30()      { test("?x = <http://example/x>") ; }
+    @Test public void compile_cmp_31()      { test("<http://example/x> != ?x") ; }
+    @Test public void compile_cmp_32()      { test("?x < <http://example/x>") ; }
+
+    @Test public void compile_cmp_40()      { test("?x = ?y") ; }
+    @Test public void compile_cmp_41()      { test("?x < ?y") ; }
+    
+    @Test public void compile_logical_01()  { test("?x > 0 && ?x < 10") ; }
+    @Test public void compile_logical_02()  { test("?x < 0 || ?x > 10") ; }
+    @Test public void compile_logical_03()  { test("?z || ?x = 5") ; }
+    @Test public void compile_logical_04()  { test("?x = 5 && ?z") ; }
+    @Test public void compile_logical_05()  { test("! ( ?x = 'abc' )") ; }
+    @Test public void compile_logical_06()  { test("?z && ?z") ; }
+    
+    @Test public void compile_function_01() { test("?x + 1 > 5") ; }
+    @Test public void compile_function_02() { test("str(?x) = '5'") ; }
+    @Test public void compile_function_03() { test("strlen(?x) > 2") ; }
+    @Test public void compile_function_04() { test("concat(str(?x), '-', str(?y))") ; }
+    @Test public void compile_function_05() { test("substr(str(?x), 2)") ; }
+    @Test public void compile_function_06() { test("regex(str(?x), '^ab')") ; }
+    @Test public void compile_function_07() { test("isIRI(?x) || isLiteral(?x)") ; }
+    
+    @Test public void compile_special_01()  { test("bound(?x)") ; }
+    @Test public void compile_special_02()  { test("bound(?z)") ; }
+    @Test public void compile_special_03()  { test("if(?x = 5, 'yes', 'no')") ; }
+    @Test public void compile_special_04()  { test("coalesce(?z, ?x)") ; }
+    @Test public void compile_special_05()  { test("?x IN (5, 'abc', <http://example/x>)") ; }
+    @Test public void compile_special_06()  { test("?x NOT IN (5, ?z)") ; }
+    
+    private static void test(String string)
+    {
+        Expr expr = ExprUtils.parse(string) ;
+        CompiledExpr compiled = ExprCompiler.compile(expr) ;
+        FunctionEnv env = new FunctionEnvBase() ;
+        for ( Binding binding : bindings() )
+        {
+            String label = string+" "+binding ;
+            assertEquals(label, eval(expr, binding, env), eval(compiled, binding, env)) ;
+            assertEquals(label, expr.isSatisfied(binding, env), compiled.isSatisfied(binding, env)) ;
+        }
+    }
+    
+    private static List<Binding> bindings()
+    {
+        List<Binding> bindings = new ArrayList<>() ;
+        bindings.add(BindingFactory.binding()) ;
+        for ( String s : values )
+        {
+            Node n = NodeFactoryExtra.parseNode(s) ;
+            bindings.add(BindingFactory.binding(x, n)) ;
+            bindings.add(BindingFactory.binding(BindingFactory.binding(x, n), y, NodeFactoryExtra.parseNode("'abc'"))) ;
+        }
+        return bindings ;
+    }
+    
+    // The result as a string, "error" for an evaluation error.
+    private static String eval(Expr expr, Binding binding, FunctionEnv env)
+    {
+        try {
+            return str(expr.eval(binding, env)) ;
+        } catch (ExprEvalException ex) { return "error" ; }
+    }
+
+    private static String eval(CompiledExpr expr, Binding binding, FunctionEnv env)
+    {
+        try {
+            return str(expr.eval(binding, env)) ;
+        } catch (ExprEvalException ex) { return "error" ; }
+    }
+    
+    private static String str(NodeValue nv)
+    {
+        return nv == null ? "null" : nv.asNode().toString() ;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.extra ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.batch.BatchIterFromRows ;
+import com.hp.hpl.jena.sparql.engine.batch.BatchIterHashJoin ;
+import com.hp.hpl.jena.sparql.engine.batch.BindingBatch ;
+import com.hp.hpl.jena.sparql.engine.batch.QueryIteratorBatch ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+/** Throughput of the batched hash join against the row-at-a-time join, for a
+ *  selective join and for one where each left row matches many right rows.
+ *  Also reports the largest output batch.  Not a unit test.
+ */
+public class T_BatchHashJoin
+{
+    static final int LEFT = 20000 ;
+    static final int RIGHT = 20000 ;
+    static final int ROUNDS = 5 ;
+    
+    static final Var x = Var.alloc("x") ;
+    static final Var y = Var.alloc("y") ;
+    static final Var z = Var.alloc("z") ;
+    
+    static ExecutionContext execCxt = 
+        new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+
+    public static void main(String... args)
+    {
+        run("Selective (key per row)", LEFT, RIGHT) ;
+        run("Fan-out (20 keys)     ", 20, RIGHT) ;
+    }
+    
+    static void run(String label, int keys, int rightRows)
+    {
+        List<Binding> left = rows(LEFT, keys, y) ;
+        List<Binding> right = rows(rightRows, keys, z) ;
+        for ( int r = 0 ; r < ROUNDS ; r++ )
+        {
+            long start = System.nanoTime() ;
+            long count = 0 ;
+            QueryIterator qIter = new QueryIterJoin(iter(left), iter(right), execCxt) ;
+            while ( qIter.hasNext() )
+            {
+                qIter.next() ;
+                count++ ;
+            }
+            qIter.close() ;
+            long rowTime = System.nanoTime() - start ;
+
+            start = System.nanoTime() ;
+            long batchCount = 0 ;
+            int maxBatch = 0 ;
+            QueryIteratorBatch bIter = new BatchIterHashJoin(batches(left), batches(right), Arrays.asList(x)) ;
+            while ( bIter.hasNextBatch() )
+            {
+                BindingBatch batch = bIter.nextBatch() ;
+                batchCount += batch.size() ;
+                maxBatch = Math.max(maxBatch, batch.size()) ;
+            }
+            bIter.close() ;
+            long batchTime = System.nanoTime() - start ;
+            
+            System.out.printf("%s: %d results : rows %.1fms, batches %.1fms (%d results, max batch %d)\n",
+                              label, count, rowTime/1e6, batchTime/1e6, batchCount, maxBatch) ;
+        }
+    }
+    
+    // (?x ?var2) : ?x cycles through the keys.
+    static List<Binding> rows(int n, int keys, Var var2)
+    {
+        List<Binding> rows = new ArrayList<>(n) ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            BindingMap b = BindingFactory.create() ;
+            b.add(x, NodeFactoryExtra.intToNode(i % keys)) ;
+            b.add(var2, NodeFactoryExtra.intToNode(i)) ;
+            rows.add(b) ;
+        }
+        return rows ;
+    }
+    
+    static QueryIterator iter(List<Binding> rows)
+    {
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    static QueryIteratorBatch batches(List<Binding> rows)
+    {
+        return new BatchIterFromRows(iter(rows), BindingBatch.DefaultSize) ;
+    }
+}
@@ -87,6 +87,36 @@ public class TestCache extends BaseTest
         public String name() { return "StatsAtomic" ; }
         }
     ;
+
+    private static CacheMaker<Integer, Integer> concurrent = 
+        new CacheMaker<Integer, Integer>()
+        {
+        @Override
+        public Cache<Integer, Integer> make(int size) { return CacheFactory.createCacheConcurrent(size) ; }
+        @Override
+        public String name() { return "Concurrent" ; }
+        }
+    ;
+
+    private static CacheMaker<Integer, Integer> twoQ = 
+        new CacheMaker<Integer, Integer>()
+        {
+        @Override
+        public Cache<Integer, Integer> make(int size) { return CacheFactory.createCache2Q(size) ; }
+        @Override
+        public String name() { return "2Q" ; }
+        }
+    ;
+
+    private static CacheMaker<Integer, Integer> concurrent2Q = 
+        new CacheMaker<Integer, Integer>()
+        {
+        @Override
+        public Cache<Integer, Integer> make(int size) { return CacheFactory.createCacheConcurrent2Q(size) ; }
+        @Override
+        public String name() { return "Concurrent2Q" ; }
+        }
+    ;
            
     @Parameters
     public static Collection<Object[]> cacheMakers()
@@ -104,6 +134,15 @@ public class TestCache extends BaseTest
             , { statsAtomic , 10 }
             , { statsAtomic , 2 }
             , { statsAtomic , 1 }
+            , { concurrent , 10 }
+            , { concurrent , 2 }
+            , { concurrent , 1 }
+            , { twoQ , 10 }
+            , { twoQ , 2 }
+            , { twoQ , 1 }
+            , { concurrent2Q , 10 }
+            , { concurrent2Q , 2 }
+            , { concurrent2Q , 1 }
         } ) ; 
     }
 
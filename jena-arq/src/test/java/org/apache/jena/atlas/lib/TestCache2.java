@@ -22,6 +22,8 @@ import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
 import org.apache.jena.atlas.lib.cache.Cache1 ;
+import org.apache.jena.atlas.lib.cache.Cache2Q ;
+import org.apache.jena.atlas.lib.cache.CacheLRU ;
 import org.apache.jena.atlas.lib.cache.Getter ;
 import org.junit.Test ;
 
@@ -79,5 +81,76 @@ public class TestCache2 extends BaseTest
         assertEquals("10", str1) ;
     }
 
+    // 2Q : a scan does not eject a re-used entry.
+    @Test public void cache2Q_1()
+    {
+        Cache<Integer, String> cache = new Cache2Q<>(4, 1, 4) ;
+        for ( int i = 1 ; i <= 5 ; i++ )
+            cache.put(i, "v"+i) ;
+        // 1 has been pushed out to the ghost queue.
+        assertFalse(cache.containsKey(1)) ;
+        // Seen again : goes into the main area.
+        cache.put(1, "v1") ;
+        for ( int i = 100 ; i < 200 ; i++ )
+            cache.put(i, "v"+i) ;
+        assertTrue(cache.containsKey(1)) ;
+        assertEquals("v1", cache.get(1)) ;
+        assertTrue(cache.size() <= 4) ;
+    }
 
+    // Resize : shrinking drops the least recently used entries.
+    @Test public void cacheResize_1()
+    {
+        CacheLRU<Integer, String> cache = new CacheLRU<>(0.75f, 4) ;
+        for ( int i = 1 ; i <= 4 ; i++ )
+            cache.put(i, "v"+i) ;
+        cache.get(1) ;
+        cache.setMaxSize(2) ;
+        assertEquals(2, cache.getMaxSize()) ;
+        assertEquals(2, cache.size()) ;
+        assertTrue(cache.containsKey(1)) ;
+        assertTrue(cache.containsKey(4)) ;
+        cache.setMaxSize(3) ;
+        cache.put(5, "v5") ;
+        assertEquals(3, cache.size()) ;
+    }
+
+    @Test public void cacheResize_2()
+    {
+        Cache2Q<Integer, String> cache = new Cache2Q<>(8) ;
+        for ( int i = 1 ; i <= 8 ; i++ )
+            cache.put(i, "v"+i) ;
+        cache.setMaxSize(3) ;
+        assertEquals(3, cache.getMaxSize()) ;
+        assertEquals(3, cache.size()) ;
+        for ( int i = 100 ; i < 110 ; i++ )
+            cache.put(i, "v"+i) ;
+        assertEquals(3, cache.size()) ;
+    }
+
+    @Test public void cacheResize_3()
+    {
+        CacheStats<Integer, Integer> cache = CacheFactory.createCacheConcurrent(2, 100) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            cache.put(i, i) ;
+        CacheResizable r = (CacheResizable)cache ;
+        assertEquals(100, r.getMaxSize()) ;
+        r.setMaxSize(10) ;
+        assertEquals(10, r.getMaxSize()) ;
+        assertTrue(cache.size() <= 10) ;
+        assertEquals(100-cache.size(), cache.getCacheEjects()) ;
+    }
+
+    @Test public void cacheResize_4()
+    {
+        CacheStats<Integer, Integer> cache = CacheFactory.createStats(CacheFactory.<Integer, Integer>createCache(10)) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            cache.put(i, i) ;
+        ((CacheResizable)cache).setMaxSize(4) ;
+        assertEquals(4, cache.size()) ;
+        assertEquals(6, cache.getCacheEjects()) ;
+        // Not resizable.
+        CacheStats<Integer, Integer> cache0 = CacheFactory.createStats(CacheFactory.<Integer, Integer>createNullCache()) ;
+        assertEquals(-1, ((CacheResizable)cache0).getMaxSize()) ;
+    }
 }
@@ -81,4 +81,29 @@ public class TestCacheStats extends BaseTest
         cache.get(7) ;
         assertEquals(2,cs.getCacheHits()) ;
     }
+
+    @Test public void stats_05()
+    {
+        // Thread-safe, segmented cache which collects its own statistics.
+        CacheStats<Integer, Integer> cs = CacheFactory.createCacheConcurrent(4, 2) ;
+        cs.put(7,77) ;
+        assertEquals(1,cs.getCacheEntries()) ;
+        cs.get(7) ;
+        cs.get(8) ;
+        assertEquals(1,cs.getCacheHits()) ;
+        assertEquals(1,cs.getCacheMisses()) ;
+        cs.remove(7) ;
+        assertEquals(0,cs.getCacheEntries()) ;
+    }
+
+    @Test public void stats_06()
+    {
+        // One segment, one slot : every new key ejects the previous one.
+        CacheStats<Integer, Integer> cs = CacheFactory.createCacheConcurrent(1, 1) ;
+        cs.put(7,77) ;
+        cs.put(8,88) ;
+        cs.put(9,99) ;
+        assertEquals(1,cs.getCacheEntries()) ;
+        assertEquals(2,cs.getCacheEjects()) ;
+    }
 }
@@ -33,8 +33,9 @@ public abstract class ActionAsyncTask extends ActionItem
 {
     // ?? Better as a library (mixin) so can be used outside ActionItem
     private static AsyncPool asyncPool = AsyncPool.get() ;
+    private final String displayName ;
     
-    public ActionAsyncTask() { super() ; }
+    public ActionAsyncTask(String displayName) { super() ; this.displayName = displayName ; }
     
     @Override
     final
@@ -52,7 +53,7 @@ public abstract class ActionAsyncTask extends ActionItem
     final
     protected JsonValue execPostItem(HttpAction action) {
         Runnable task = createRunnable(action) ;
-        AsyncTask aTask = Async.execASyncTask(action, AsyncPool.get(), "backup", task) ;
+        AsyncTask aTask = Async.execASyncTask(action, AsyncPool.get(), displayName, task) ;
         Async.setLocationHeader(action, aTask);
         return Async.asJson(aTask) ;
     }
@@ -30,7 +30,7 @@ import org.slf4j.LoggerFactory ;
 
 public class ActionBackup extends ActionAsyncTask
 {
-    public ActionBackup() { super() ; }
+    public ActionBackup() { super("backup") ; }
     
     // Only POST
     @Override
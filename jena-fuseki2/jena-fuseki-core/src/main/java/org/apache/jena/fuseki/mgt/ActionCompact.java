@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.mgt;
+
+import static java.lang.String.format ;
+
+import javax.servlet.http.HttpServletRequest ;
+import javax.servlet.http.HttpServletResponse ;
+
+import org.apache.jena.fuseki.servlets.HttpAction ;
+import org.apache.jena.fuseki.servlets.ServletOps ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphWrapper ;
+import com.hp.hpl.jena.tdb.TDBCompact ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
+
+/** Compact a TDB dataset, while it stays in service. */
+public class ActionCompact extends ActionAsyncTask
+{
+    public ActionCompact() { super("compact") ; }
+    
+    // Only POST
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+        doCommon(request, response);
+    }
+
+    @Override
+    protected Runnable createRunnable(HttpAction action) {
+        String name = action.getDatasetName() ;
+        if ( name == null ) {
+            action.log.error("Null for dataset name in item request") ;  
+            ServletOps.errorOccurred("Null for dataset name in item request");
+            return null ;
+        }
+        if ( tdb(action.getDataset()) == null ) {
+            action.log.error(format("[%d] Not a TDB dataset: %s", action.id, name)) ;
+            ServletOps.errorBadRequest("Not a TDB dataset: "+name) ;
+            return null ;
+        }
+        
+        action.log.info(format("[%d] Compact dataset %s", action.id, name)) ;
+        return new CompactTask(action) ;
+    }
+    
+    private static DatasetGraphTransaction tdb(DatasetGraph dsg) {
+        while ( dsg instanceof DatasetGraphWrapper )
+            dsg = ((DatasetGraphWrapper)dsg).getWrapped() ;
+        if ( dsg instanceof DatasetGraphTransaction )
+            return (DatasetGraphTransaction)dsg ;
+        return null ;
+    }
+
+    static class CompactTask extends TaskBase {
+        static private Logger log = LoggerFactory.getLogger("Compact") ;
+        
+        public CompactTask(HttpAction action) {
+            super(action) ;
+        }
+
+        @Override
+        public void run() {
+            try {
+                DatasetGraphTransaction dsg = tdb(dataset) ;
+                log.info(format("[%d] >>>> Start compact %s", actionId, datasetName)) ;
+                TDBCompact.compact(dsg.getLocation()) ;
+                log.info(format("[%d] <<<< Finish compact %s", actionId, datasetName)) ;
+            } catch (Exception ex) {
+                log.info(format("[%d] **** Exception in compact", actionId), ex) ;
+            }
+        }
+    }
+}
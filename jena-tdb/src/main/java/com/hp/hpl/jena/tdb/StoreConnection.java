@@ -25,12 +25,16 @@ import java.util.Set ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.sparql.mgt.ARQMgt ;
+import com.hp.hpl.jena.sparql.util.Context ;
 import com.hp.hpl.jena.tdb.base.file.ChannelManager ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.base.file.LocationLock ;
+import com.hp.hpl.jena.tdb.mgt.CacheTuner ;
+import com.hp.hpl.jena.tdb.mgt.TDBCacheInfo ;
 import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.TripleTable ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 import com.hp.hpl.jena.tdb.transaction.* ;
 
@@ -40,10 +44,18 @@ import com.hp.hpl.jena.tdb.transaction.* ;
  */
 public class StoreConnection
 {
-    private final TransactionManager transactionManager ;
-    private final DatasetGraphTDB    baseDSG ;
+    // Replaced when the storage is switched after compaction,
+    // and read without the lock.
+    private volatile TransactionManager transactionManager ;
+    private volatile DatasetGraphTDB    baseDSG ;
+    private volatile CacheTuner         cacheTuner = null ;
+    private volatile TDBCacheInfo       cacheInfo = null ;
     private boolean                  isValid = true ;
     private volatile boolean         haveUsedInTransaction = false ;
+    // New transactions wait while suspended.
+    private boolean                  suspended = false ;
+    // Threads in the process of starting a transaction.
+    private int                      starting = 0 ;
 
     private StoreConnection(DatasetGraphTDB dsg)
     {
@@ -103,7 +115,9 @@ public class StoreConnection
         checkValid() ;
         checkTransactional() ;
         haveUsedInTransaction = true ;
-        return transactionManager.begin(mode) ;
+        TransactionManager txnMgr = enter() ;
+        try { return txnMgr.begin(mode) ; }
+        finally { leave() ; }
     }
 
 
@@ -116,7 +130,127 @@ public class StoreConnection
     {
         checkValid() ;
         checkTransactional() ;
-        return transactionManager.begin(mode, label) ;
+        TransactionManager txnMgr = enter() ;
+        try { return txnMgr.begin(mode, label) ; }
+        finally { leave() ; }
+    }
+
+    private synchronized TransactionManager enter()
+    {
+        while ( suspended )
+        {
+            try { wait() ; }
+            catch (InterruptedException ex)
+            { throw new TDBTransactionException("Interrupted waiting to start a transaction", ex) ; }
+        }
+        starting++ ;
+        return transactionManager ;
+    }
+    
+    private synchronized void leave()
+    {
+        starting-- ;
+        notifyAll() ;
+    }
+    
+    /** Stop new transactions from starting, and wait for the active ones to finish.
+     *  Returns false, and new transactions are not held back, if they do not finish within the timeout.
+     *  @see #resume
+     */
+    synchronized boolean suspend(long timeoutMillis)
+    {
+        checkValid() ;
+        suspended = true ;
+        long finish = System.currentTimeMillis() + timeoutMillis ;
+        // Transactions finishing do not notify this object.
+        while ( starting > 0 || transactionManager.activeTransactions() )
+        {
+            long remaining = finish - System.currentTimeMillis() ;
+            if ( remaining <= 0 )
+            {
+                resume() ;
+                return false ;
+            }
+            try { wait(Math.min(remaining, 50)) ; }
+            catch (InterruptedException ex)
+            { 
+                resume() ;
+                throw new TDBTransactionException("Interrupted waiting for transactions to finish", ex) ;
+            }
+        }
+        return true ;
+    }
+
+    /** Let transactions start again after {@link #suspend} */
+    synchronized void resume()
+    {
+        suspended = false ;
+        notifyAll() ;
+    }
+    
+    /** Close the storage, run {@code changeFiles}, then open the storage again.
+     *  Transactions must be suspended.
+     */
+    synchronized void replaceStorage(Runnable changeFiles)
+    {
+        checkValid() ;
+        if ( ! suspended )
+            throw new TDBTransactionException("Transactions not suspended: "+baseDSG.getLocation()) ;
+        Location location = baseDSG.getLocation() ;
+        StoreParams params = baseDSG.getConfig().params ;
+        // Settings made when the dataset was assembled (e.g. unionDefaultGraph).
+        Context context = baseDSG.getContext() ;
+        if ( cacheTuner != null )
+            cacheTuner.close() ;
+        transactionManager.closedown() ;
+        baseDSG.close() ;
+        ChannelManager.release(transactionManager.getJournal().getFilename()) ;
+        
+        changeFiles.run() ;
+        
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(location, params) ;
+        dsg.getContext().putAll(context) ;
+        baseDSG = dsg ;
+        transactionManager = new TransactionManager(baseDSG) ;
+        ARQMgt.register(TDB.PATH + ".system:type=Transactions", new TransactionInfo(transactionManager)) ;
+        registerCacheInfo() ;
+        startCacheTuner() ;
+    }
+
+    /** Expose the node cache statistics of the base dataset. */
+    private void registerCacheInfo()
+    {
+        cacheInfo = new TDBCacheInfo(baseDSG) ;
+        ARQMgt.register(TDB.PATH + ".system:type=NodeCache", cacheInfo) ;
+    }
+
+    /** The node cache statistics of the base dataset, or null if the StoreConnection is not managed. */
+    public TDBCacheInfo getCacheInfo()
+    {
+        checkValid() ;
+        return cacheInfo ;
+    }
+
+    /** Watch, and if there is a cache budget tune, the caches of the base dataset. */
+    private void startCacheTuner()
+    {
+        cacheTuner = CacheTuner.create(baseDSG) ;
+        cacheTuner.start() ;
+        ARQMgt.register(TDB.PATH + ".system:type=CacheTuning", cacheTuner) ;
+    }
+
+    /** The cache tuner of the base dataset, or null if the StoreConnection is not managed. */
+    public CacheTuner getCacheTuner()
+    {
+        checkValid() ;
+        return cacheTuner ;
+    }
+    
+    /** The transaction manager - do not use directly to start transactions. */ 
+    TransactionManager getTransactionManager()
+    {
+        checkValid() ;
+        return transactionManager ;
     }
 
     /**
@@ -200,6 +334,8 @@ public class StoreConnection
 
         // No transactions at this point (or we don't care and are clearing up
         // forcefully.)
+        if ( sConn.cacheTuner != null )
+            sConn.cacheTuner.close() ;
         sConn.transactionManager.closedown() ;
         sConn.baseDSG.close() ;
         sConn.isValid = false ;
@@ -225,6 +361,9 @@ public class StoreConnection
         StoreConnection sConn = cache.get(location) ;
         if (sConn != null) 
             return sConn ;
+        if ( TDBFreeze.isFrozen(location) )
+            throw new TDBException("Database is frozen (read-only): " + location.getDirectoryPath()) ;
+        TDBCompact.recover(location) ;
         DatasetGraphTDB dsg = DatasetBuilderStd.create(location, params) ;
         sConn = _makeAndCache(dsg) ;
         return sConn ;
@@ -271,6 +410,13 @@ public class StoreConnection
             }
             
             sConn.forceRecoverFromJournal() ;
+            // A union table newly added to an existing database, or not filled in by a loader
+            // that writes the index files itself.
+            TripleTable unionTable = dsg.getUnionTable() ;
+            if ( unionTable != null && unionTable.isEmpty() && ! dsg.getQuadTable().isEmpty() ) {
+                dsg.rebuildUnionTable() ;
+                dsg.sync() ;
+            }
 //            boolean actionTaken = JournalControl.recoverFromJournal(dsg.getConfig(), sConn.transactionManager.getJournal()) ;
 //            if ( false && actionTaken )
 //            {
@@ -288,6 +434,8 @@ public class StoreConnection
             String NS = TDB.PATH ;
             TransactionInfo txInfo = new TransactionInfo(sConn.transactionManager) ;
             ARQMgt.register(NS + ".system:type=Transactions", txInfo) ;
+            sConn.registerCacheInfo() ;
+            sConn.startCacheTuner() ;
         }
         return sConn ;
     }
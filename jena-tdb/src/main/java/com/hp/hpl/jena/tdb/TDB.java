@@ -89,6 +89,36 @@ public class TDB {
     /** Symbol to use the union of named graphs as the default graph of a query */
     public static final Symbol  symUnionDefaultGraph             = SystemTDB.allocSymbol("unionDefaultGraph") ;
 
+    /**
+     * Symbol to control merge joins of basic graph patterns: patterns that share
+     * a variable, and can each be read from an index sorted by that variable, are
+     * joined by merging the index ranges. Default: false.
+     */
+    public static final Symbol  symMergeJoin                     = SystemTDB.allocSymbol("mergeJoin") ;
+
+    /**
+     * Symbol to control filter range scans: a filter comparing a variable with an
+     * integer, decimal, date or dateTime constant restricts the index ranges read
+     * for the pattern that binds the variable, using the ordering of inline values.
+     * Default: true.
+     */
+    public static final Symbol  symFilterRange                   = SystemTDB.allocSymbol("filterRange") ;
+
+    /**
+     * Symbol to control packed pattern matching: index scans return batches of NodeId values
+     * and the solutions are kept column-wise, which creates far fewer objects per match.
+     * Not used when there is a quad filter. Default: true.
+     */
+    public static final Symbol  symPackedScan                    = SystemTDB.allocSymbol("packedScan") ;
+
+    /**
+     * Symbol to control online statistics: when the dataset uses characteristic sets
+     * statistics (file "charsets.opt"), keep them up to date as write transactions commit
+     * and save them when the dataset is closed. Set before the dataset is first used.
+     * Default: false.
+     */
+    public static final Symbol  symStatsOnline                   = SystemTDB.allocSymbol("statsOnline") ;
+
     /**
      * A String enum Symbol that specifies the type of temporary storage for
      * transaction journal write blocks.
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb;
+
+import java.io.File ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+import java.nio.file.Files ;
+import java.nio.file.StandardCopyOption ;
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.Pair ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.DatasetPrefixesTDB ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+
+/**
+ * Compact a database while it is in use.
+ * <p>
+ * TDB does not reuse the space of deleted data: the node table only grows and
+ * freed index blocks are not recycled. Compaction builds a new node table and
+ * new indexes from a read transaction, in a directory inside the database area,
+ * while transactions carry on as usual. The changes committed meanwhile are then
+ * applied to the new database, and the database is switched over to the new files.
+ * Only the switch holds back transactions: new ones wait while the active ones
+ * finish and the files are replaced.
+ * <p>
+ * The database must be used via transactions. Changes made while the copy is in
+ * progress are held in memory; if there are more than {@link #MaxChanges},
+ * the compaction is abandoned.
+ * <p>
+ * The new files are marked as complete before any file is replaced. If the process
+ * stops while the files are being replaced, {@link #recover}, called when the database
+ * is next opened, finishes the switch; an incomplete compaction is discarded.
+ */
+public class TDBCompact
+{
+    private static Logger log = LoggerFactory.getLogger(TDBCompact.class) ;
+    
+    /** Directory, within the database, where the new files are built */ 
+    public static final String dirCompact       = "compact" ;
+    /** Directory, within the database, for the old files while switching over */ 
+    public static final String dirCompactOld    = "compact-old" ;
+    
+    /** File, in {@link #dirCompact}, present once the new files are complete and the switch may start */ 
+    public static final String markerSwitch     = "switch" ;
+    
+    /** How long, in milliseconds, the switch over waits for active transactions to finish.
+     *  If they have not finished, the compaction is abandoned.
+     */
+    public static long SwitchTimeout = 60*1000 ;
+    
+    /** The most changes, committed during the copy and not yet applied, held in memory.
+     *  Also the most changes one transaction can make during the compaction.  
+     *  If there are more, the compaction is abandoned.
+     */
+    public static int MaxChanges = 1000*1000 ;
+    
+    // Apply the changes committed during the copy until there are at most this many left.
+    private static final int CatchUpThreshold = 10000 ;
+    
+    // Don't compact the same database twice at the same time.
+    private static Set<Location> active = new HashSet<>() ;
+    
+    /** Compact the database at a location */
+    public static void compact(Location location)
+    {
+        compact(StoreConnection.make(location)) ;
+    }
+    
+    /** Compact the database of a StoreConnection */
+    public static void compact(StoreConnection sConn)
+    {
+        Location location = sConn.getLocation() ;
+        if ( location.isMem() )
+            throw new TDBException("Can't compact an in-memory database") ;
+        synchronized(active)
+        {
+            if ( active.contains(location) )
+                throw new TDBException("Compaction already in progress: "+location.getDirectoryPath()) ;
+            active.add(location) ;
+        }
+        try { exec(sConn) ; }
+        finally
+        {
+            synchronized(active) { active.remove(location) ; }
+        }
+    }
+    
+    private static void exec(StoreConnection sConn)
+    {
+        final Location location = sConn.getLocation() ;
+        ChangeLog changes = new ChangeLog() ;
+        
+        // Start recording changes from the same point as the read transaction:
+        // no write transaction can be active.
+        DatasetGraphTxn reader = null ;
+        DatasetGraphTxn writer = sConn.begin(ReadWrite.WRITE, "compact") ;
+        try {
+            sConn.getTransactionManager().setCommitListener(changes, MaxChanges) ;
+            reader = sConn.begin(ReadWrite.READ, "compact") ;
+        } finally {
+            writer.abort() ;
+            writer.end() ;
+            if ( reader == null )
+                sConn.getTransactionManager().setCommitListener(null, 0) ;
+        }
+        
+        final Location newLocation = location.getSubLocation(dirCompact) ;
+        FileOps.clearDirectory(newLocation.getDirectoryPath()) ;
+        DatasetGraphTDB dsg = null ;
+        boolean switched = false ;
+        try {
+            dsg = DatasetBuilderStd.create(newLocation, sConn.getBaseDataset().getConfig().params) ;
+            long count = 0 ;
+            try {
+                log.info("Compact "+location.getDirectoryPath()) ;
+                Iterator<Quad> iter = reader.find() ;
+                for ( ; iter.hasNext() ; count++ )
+                    dsg.add(iter.next()) ;
+            } finally { reader.end() ; }
+            log.info("Compact: copied "+count+" quads") ;
+            
+            // Catch up with the changes committed meanwhile.
+            List<Pair<QuadAction, Quad>> x ;
+            do {
+                x = take(sConn, changes) ;
+                apply(x, dsg) ;
+            } while ( x.size() > CatchUpThreshold ) ;
+            
+            if ( ! sConn.suspend(SwitchTimeout) )
+                throw new TDBException("Compaction abandoned: active transactions did not finish in time") ;
+            try {
+                // No transactions: write back any committed ones and catch up with the last changes.
+                sConn.flush() ;
+                apply(take(sConn, changes), dsg) ;
+                copyPrefixes(sConn.getBaseDataset().getPrefixes(), dsg.getPrefixes()) ;
+                dsg.sync() ;
+                dsg.close() ;
+                dsg = null ;
+                markComplete(newLocation) ;
+                sConn.replaceStorage(new Runnable() {
+                    @Override
+                    public void run() { switchFiles(location, newLocation) ; }
+                }) ;
+                switched = true ;
+            } finally { sConn.resume() ; }
+            log.info("Compact: finished "+location.getDirectoryPath()) ;
+        } finally {
+            if ( ! switched )
+            {
+                sConn.getTransactionManager().setCommitListener(null, 0) ;
+                if ( dsg != null )
+                    dsg.close() ;
+                if ( new File(newLocation.getPath(markerSwitch)).exists() )
+                    // Some files may have been replaced: leave it to recover().
+                    log.error("Compact: switch to the new files failed; it will be finished when the database is next opened") ;
+                else
+                    remove(new File(newLocation.getDirectoryPath())) ;
+            }
+        }
+    }
+    
+    private static List<Pair<QuadAction, Quad>> take(StoreConnection sConn, ChangeLog changes)
+    {
+        // The transaction manager drops the listener if it could not pass on all the changes.
+        if ( sConn.getTransactionManager().getCommitListener() != changes || changes.overflowed() )
+            throw new TDBException("Compaction abandoned: could not record all the changes made during the copy (at most "+MaxChanges+")") ;
+        return changes.take() ;
+    }
+    
+    private static void apply(List<Pair<QuadAction, Quad>> changes, DatasetGraphTDB dsg)
+    {
+        for ( Pair<QuadAction, Quad> p : changes )
+        {
+            switch(p.getLeft())
+            {
+                case ADD :      dsg.add(p.getRight()) ; break ;
+                case DELETE :   dsg.delete(p.getRight()) ; break ;
+                default: break ;
+            }
+        }
+    }
+    
+    private static void copyPrefixes(DatasetPrefixesTDB src, DatasetPrefixesTDB dst)
+    {
+        for ( String graphName : src.graphNames() )
+        {
+            for ( Map.Entry<String, String> e : src.readPrefixMap(graphName).entrySet() )
+                dst.insertPrefix(graphName, e.getKey(), e.getValue()) ;
+        }
+    }
+    
+    // Record that the new files are complete: from now on, the switch is finished,
+    // not abandoned, if the process stops.
+    private static void markComplete(Location newLocation)
+    {
+        try ( FileOutputStream out = new FileOutputStream(newLocation.getPath(markerSwitch)) ) {
+            out.getFD().sync() ;
+        } catch (IOException ex) {
+            throw new TDBException("Failed to mark the compacted files as complete", ex) ;
+        }
+    }
+    
+    /** Finish, or discard, a compaction that was stopped part way through, for example
+     *  because the process stopped. If the new files were complete, the switch to them
+     *  is finished, else they are removed. The database must not be in use.
+     *  Called when a database is opened.
+     */
+    public static void recover(Location location)
+    {
+        if ( location.isMem() )
+            return ;
+        File newDir = new File(location.getPath(dirCompact)) ;
+        File oldDir = new File(location.getPath(dirCompactOld)) ;
+        if ( ! newDir.exists() && ! oldDir.exists() )
+            return ;
+        if ( new File(newDir, markerSwitch).exists() )
+        {
+            log.warn("Finishing an interrupted compaction: "+location.getDirectoryPath()) ;
+            switchFiles(location, location.getSubLocation(dirCompact)) ;
+            return ;
+        }
+        log.warn("Removing an incomplete compaction: "+location.getDirectoryPath()) ;
+        remove(newDir) ;
+        remove(oldDir) ;
+    }
+    
+    // Move the files being replaced to one side, move the new ones in, then remove the old ones.
+    // Other files (for example, statistics) are left in place.
+    // Each step can be repeated, so this also finishes a switch that was interrupted.
+    private static void switchFiles(Location location, Location newLocation)
+    {
+        File dir = new File(location.getDirectoryPath()) ;
+        File newDir = new File(newLocation.getDirectoryPath()) ;
+        File oldDir = new File(location.getSubDirectory(dirCompactOld)) ;
+        File marker = new File(newDir, markerSwitch) ;
+        try {
+            File[] files = newDir.listFiles() ;
+            for ( File f : files )
+            {
+                if ( f.equals(marker) )
+                    continue ;
+                File current = new File(dir, f.getName()) ;
+                if ( current.exists() )
+                    Files.move(current.toPath(), new File(oldDir, f.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING) ;
+                Files.move(f.toPath(), current.toPath()) ;
+            }
+        } catch (IOException ex) {
+            throw new TDBException("Failed to switch to the compacted files (old files are in "+oldDir+")", ex) ;
+        }
+        // Switch finished.
+        marker.delete() ;
+        remove(newDir) ;
+        remove(oldDir) ;
+    }
+    
+    private static void remove(File dir)
+    {
+        if ( ! dir.exists() )
+            return ;
+        FileOps.clearDirectory(dir.getPath()) ;
+        dir.delete() ;
+    }
+    
+    /** Changes committed while the compaction is in progress */
+    private static class ChangeLog implements DatasetChanges
+    {
+        private List<Pair<QuadAction, Quad>> changes = new ArrayList<>() ;
+        private boolean overflowed = false ;
+        
+        @Override
+        public void start()     {}
+
+        @Override
+        public synchronized void change(QuadAction qaction, Node g, Node s, Node p, Node o)
+        {
+            if ( overflowed )
+                return ;
+            if ( changes.size() >= MaxChanges )
+            {
+                // Give up: release the memory now.
+                overflowed = true ;
+                changes = new ArrayList<>() ;
+                return ;
+            }
+            changes.add(Pair.create(qaction, new Quad(g, s, p, o))) ;
+        }
+        
+        synchronized boolean overflowed()
+        {
+            return overflowed ;
+        }
+
+        @Override
+        public void finish()    {}
+        
+        synchronized List<Pair<QuadAction, Quad>> take()
+        {
+            List<Pair<QuadAction, Quad>> x = changes ;
+            changes = new ArrayList<>() ;
+            return x ;
+        }
+    }
+}
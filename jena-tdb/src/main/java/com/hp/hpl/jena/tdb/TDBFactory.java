@@ -93,6 +93,8 @@ public class TDBFactory
     }
 
     private static DatasetGraph _createDatasetGraph(Location location) {
+        if ( TDBFreeze.isFrozen(location) )
+            return TDBMaker.createDatasetGraphFrozen(location) ;
         return TDBMaker.createDatasetGraphTransaction(location) ;
     }
 
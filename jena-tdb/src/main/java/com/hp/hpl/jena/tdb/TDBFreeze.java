@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb;
+
+import java.io.File ;
+import java.io.IOException ;
+import java.nio.charset.StandardCharsets ;
+import java.nio.file.Files ;
+import java.util.Date ;
+
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.setup.StoreParamsCodec ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.TDBMaker ;
+
+/**
+ * Freeze a database: make it a read-only snapshot for query serving.
+ * <p>
+ * Freezing writes back all committed transactions, so the journal is empty,
+ * records the {@link StoreParams} of the database and marks the location as frozen.
+ * From then on, {@link TDBFactory} opens the location as a {@link com.hp.hpl.jena.tdb.store.DatasetGraphFrozen}:
+ * the index and node files are memory mapped read-only and are read without locks;
+ * there is no journal, no transaction manager and no location lock, so the same
+ * files can be used by several processes. Any attempt to update the database is an error.
+ * <p>
+ * A frozen database can not be opened for update (for example, by the bulk loader)
+ * until it is {@linkplain #thaw thawed}.
+ */
+public class TDBFreeze
+{
+    private static Logger log = LoggerFactory.getLogger(TDBFreeze.class) ;
+    
+    /** How long, in milliseconds, freezing waits for active transactions to finish. */
+    public static long FreezeTimeout = 60*1000 ;
+    
+    /** Is the database at a location frozen? */
+    public static boolean isFrozen(Location location)
+    {
+        if ( location.isMem() )
+            return false ;
+        return location.exists(Names.frozenMarker) ;
+    }
+    
+    /** Freeze the database at a location.
+     *  The database is released from TDB; it must not be in use by the application.
+     */
+    public static void freeze(Location location)
+    {
+        if ( location.isMem() )
+            throw new TDBException("Can't freeze an in-memory database") ;
+        if ( isFrozen(location) )
+            return ;
+        log.info("Freeze "+location.getDirectoryPath()) ;
+        StoreConnection sConn = StoreConnection.make(location) ;
+        if ( ! sConn.suspend(FreezeTimeout) )
+            throw new TDBException("Freeze abandoned: active transactions did not finish in time") ;
+        StoreParams params ;
+        try {
+            // Write back committed transactions.
+            sConn.flush() ;
+            DatasetGraphTDB dsg = sConn.getBaseDataset() ;
+            dsg.sync() ;
+            params = dsg.getConfig().params ;
+        } finally { sConn.resume() ; }
+        StoreConnection.release(location) ;
+        
+        File journal = new File(location.getPath(Names.journalFile)) ;
+        if ( journal.length() != 0 )
+            throw new TDBException("Freeze abandoned: the journal is not empty: "+journal) ;
+        if ( StoreParamsCodec.read(location) == null )
+            StoreParamsCodec.write(location, params) ;
+        try {
+            String marker = "Frozen: "+new Date()+"\n" ;
+            Files.write(new File(location.getPath(Names.frozenMarker)).toPath(), marker.getBytes(StandardCharsets.UTF_8)) ;
+        } catch (IOException ex) {
+            throw new TDBException("Failed to write "+Names.frozenMarker, ex) ;
+        }
+    }
+    
+    /** Make a frozen database updatable again.
+     *  The frozen dataset is released from TDB; it must not be in use by the application.
+     */
+    public static void thaw(Location location)
+    {
+        if ( ! isFrozen(location) )
+            return ;
+        TDBMaker.releaseLocation(location) ;
+        File marker = new File(location.getPath(Names.frozenMarker)) ;
+        if ( ! marker.delete() )
+            throw new TDBException("Failed to remove "+marker) ;
+    }
+}
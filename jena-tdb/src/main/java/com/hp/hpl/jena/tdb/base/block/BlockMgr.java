@@ -40,6 +40,10 @@ public interface BlockMgr extends Sync, Closeable /*UnitMgr<Block>*/
     /** Fetch a block, use for read only in an iterator */
     public Block getReadIterator(long id);
 
+    /** Hint that the block will be read soon, for example by an iterator
+     * scanning forwards. It may be ignored. */
+    public void prefetch(long id);
+
     /** Fetch a block, use for write and read - only inside "update" */
     public Block getWrite(long id);
 
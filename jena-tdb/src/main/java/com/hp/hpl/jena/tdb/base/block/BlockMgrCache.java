@@ -19,49 +19,75 @@
 package com.hp.hpl.jena.tdb.base.block;
 
 import java.util.Iterator ;
+import java.util.concurrent.atomic.AtomicLong ;
 
 import org.apache.jena.atlas.lib.ActionKeyValue ;
 import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.CacheResizable ;
+import org.apache.jena.atlas.lib.CacheStats ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
-/** Caching block manager - this is an LRU cache */
+/** Caching block manager - this is an LRU cache.
+ * <p>
+ * With {@link BlockCacheType#concurrent}, the read cache is segmented and uses
+ * the scan-resistant 2Q policy. Read hits then do not take the lock on this
+ * BlockMgr, and the I/O for a read miss is done outside the lock. The underlying
+ * file can be changed while there are readers (concurrent write-back), so a block
+ * read outside the lock only goes into the read cache if no write to the
+ * underlying BlockMgr happened meanwhile; otherwise the read is repeated holding the lock.
+ */
 public class BlockMgrCache extends BlockMgrSync
 {
     // Actually, this is two cache one on the read blocks and one on the write blocks.
     // The overridden public operations are sync'ed.
     // As sync is on "this", it also covers all the other operations via BlockMgrSync
+    // (except the read path in concurrent mode).
     
     private static Logger log = LoggerFactory.getLogger(BlockMgrCache.class) ;
-    // Read cache : always present.
-    private final Cache<Long, Block> readCache ;
+    // Read cache : always present. Thread-safe in concurrent mode.
+    private final CacheStats<Long, Block> readCache ;
+    private final BlockCacheType cacheType ;
+    private final boolean concurrent ;
 
     // Delayed dirty writes.  May be present, may not.
     private final Cache<Long, Block> writeCache ;
     
     public static boolean globalLogging = false ;           // Also enable the logging level. 
     private boolean logging = false ;                       // Also enable the logging level. 
-    // ---- stats
-    long cacheReadHits = 0 ;
-    long cacheMisses = 0 ;
-    long cacheWriteHits = 0 ;
+    // ---- stats (read hits are counted by the read cache)
+    private final AtomicLong cacheMisses = new AtomicLong(0) ;
+    private final AtomicLong cacheWriteHits = new AtomicLong(0) ;
+    // Count of changes to the underlying BlockMgr; changed holding the lock.
+    private final AtomicLong baseWrites = new AtomicLong(0) ;
     
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr)
+    {
+        return create(BlockCacheType.lru, readSlots, writeSlots, blockMgr) ;
+    }
+    
+    static BlockMgr create(BlockCacheType cacheType, int readSlots, int writeSlots, final BlockMgr blockMgr)
     {
         if ( readSlots < 0 && writeSlots < 0 )
             return blockMgr ;
-        return new BlockMgrCache(readSlots, writeSlots, blockMgr) ;
+        if ( cacheType == null )
+            cacheType = BlockCacheType.lru ;
+        return new BlockMgrCache(cacheType, readSlots, writeSlots, blockMgr) ;
     }
     
-    private BlockMgrCache(int readSlots, int writeSlots, final BlockMgr blockMgr)
+    private BlockMgrCache(BlockCacheType cacheType, int readSlots, int writeSlots, final BlockMgr blockMgr)
     {
         super(blockMgr) ;
+        this.cacheType = cacheType ;
+        this.concurrent = ( cacheType == BlockCacheType.concurrent ) ;
         // Caches are related so we can't use a Getter for cache management.
-        if ( readSlots < -1 )
-            readCache = CacheFactory.createNullCache() ;
+        if ( readSlots < -1 || ( concurrent && readSlots <= 0 ) )
+            readCache = CacheFactory.createStats(CacheFactory.<Long, Block>createNullCache()) ;
+        else if ( concurrent )
+            readCache = CacheFactory.createCacheConcurrent2Q(readSlots) ;
         else
-            readCache = CacheFactory.createCache(readSlots) ;
+            readCache = CacheFactory.createStats(CacheFactory.<Long, Block>createCache(readSlots)) ;
         if ( writeSlots <= 0 )
             writeCache = null ;
         else
@@ -81,6 +107,7 @@ public class BlockMgrCache extends BlockMgrSync
                     // Force the block to be writtern
                     // by sending it to the wrapped BlockMgr
                     BlockMgrCache.super.write(block) ;
+                    baseWrites.incrementAndGet() ;
                 }
             }) ;
         }
@@ -94,48 +121,149 @@ public class BlockMgrCache extends BlockMgrSync
 //    }
     
     @Override
-    synchronized
     public Block getRead(long id)
+    {
+        if ( ! concurrent )
+        {
+            synchronized (this)
+            {
+                return getRead$(id) ;
+            }
+        }
+
+        // Concurrent: the read cache is thread-safe.
+        Block blk = readCache.get(id) ;
+        if ( blk != null )
+        {
+            log("Hit(r->r) : %d", id) ;
+            return blk ;
+        }
+        blk = getReadWriteCache(id) ;
+        if ( blk != null )
+            return blk ;
+        // Read outside the lock. If the underlying BlockMgr was written
+        // meanwhile, the block may be stale or part written: read again, locked. 
+        long version = baseWrites.get() ;
+        cacheMisses.incrementAndGet() ;
+        log("Miss/r: %d", id) ;
+        blk = blockMgr.getRead(id) ;
+        synchronized (this)
+        {
+            if ( baseWrites.get() != version )
+            {
+                log("Changed/r: %d", id) ;
+                return getRead$(id) ;
+            }
+            readCache.put(id, blk) ;
+        }
+        return blk ;
+    }
+
+    // Lock held.
+    private Block getRead$(long id)
     {
         // A Block may be in the read cache or the write cache.
         // It can be just in the write cache because the read cache is finite.
         Block blk = readCache.get(id) ;
         if ( blk != null )
         {
-            cacheReadHits++ ;
             log("Hit(r->r) : %d", id) ;
             return blk ;
         }
         
+        blk = getReadWriteCache(id) ;
+        if ( blk != null )
+            return blk ;
+        
+        cacheMisses.incrementAndGet() ;
+        log("Miss/r: %d", id) ;
+        blk = super.getRead(id) ;
+        readCache.put(id, blk) ;
+        return blk ;
+    }
+
+    private synchronized Block getReadWriteCache(long id)
+    {
         // A requested block may be in the other cache.
         // Writable blocks are readable.
         // readable blocks are not writeable (see below).
-        if ( writeCache != null )
-            // Might still be in the dirty blocks.
-            // Leave in write cache
-            blk = writeCache.get(id) ;
+        if ( writeCache == null )
+            return null ;
+        // Might still be in the dirty blocks.
+        // Leave in write cache
+        Block blk = writeCache.get(id) ;
         if ( blk != null )
         {
-            cacheWriteHits++ ;
+            cacheWriteHits.incrementAndGet() ;
             log("Hit(r->w) : %d",id) ;
-            return blk ;
         }
-        
-        cacheMisses++ ;
-        log("Miss/r: %d", id) ;
-        blk = super.getRead(id) ;
-        readCache.put(id, blk) ;
         return blk ;
     }
     
     @Override
-    synchronized
     public Block getReadIterator(long id)
     {
         // And don't pass down "iterator" calls.
         return getRead(id) ; 
     }
 
+    @Override
+    public void prefetch(long id)
+    {
+        // Already here : nothing to do.
+        if ( readCache.containsKey(id) || getReadWriteCache(id) != null )
+            return ;
+        super.prefetch(id) ;
+    }
+
+    // In concurrent mode, the read-side bracketing operations are not serialized.
+    // The layers below a block cache do nothing for them.
+
+    @Override
+    public void release(Block block)
+    {
+        if ( concurrent )
+            blockMgr.release(block) ;
+        else
+            super.release(block) ;
+    }
+
+    @Override
+    public void beginRead()
+    {
+        if ( concurrent )
+            blockMgr.beginRead() ;
+        else
+            super.beginRead() ;
+    }
+
+    @Override
+    public void endRead()
+    {
+        if ( concurrent )
+            blockMgr.endRead() ;
+        else
+            super.endRead() ;
+    }
+
+    @Override
+    public void beginIterator(Iterator<?> iter)
+    {
+        if ( concurrent )
+            blockMgr.beginIterator(iter) ;
+        else
+            super.beginIterator(iter) ;
+    }
+
+    @Override
+    public void endIterator(Iterator<?> iter)
+    {
+        if ( concurrent )
+            blockMgr.endIterator(iter) ;
+        else
+            super.endIterator(iter) ;
+    }
+
 
     @Override
     synchronized
@@ -147,7 +275,7 @@ public class BlockMgrCache extends BlockMgrSync
             blk = writeCache.get(id) ;
         if ( blk != null )
         {
-            cacheWriteHits++ ;
+            cacheWriteHits.incrementAndGet() ;
             log("Hit(w->w) : %d", id) ;
             return blk ;
         }
@@ -158,14 +286,13 @@ public class BlockMgrCache extends BlockMgrSync
         if ( readCache.containsKey(id) )
         {
             blk = readCache.get(id) ;
-            cacheReadHits++ ;
             log("Hit(w->r) : %d", id) ;
             blk = promote(blk) ;
             return blk ;
         }
         
         // Did not find.
-        cacheMisses++ ;
+        cacheMisses.incrementAndGet() ;
         log("Miss/w: %d", id) ;
         // Pass operation to wrapper.
         blk = super.getWrite(id);
@@ -193,6 +320,7 @@ public class BlockMgrCache extends BlockMgrSync
     {
         writeCache(block) ;
         super.write(block) ;
+        baseWrites.incrementAndGet() ;
     }
     
     @Override
@@ -202,6 +330,7 @@ public class BlockMgrCache extends BlockMgrSync
         Long id = block.getId() ;
         // It can be a read block (by the transaction), now being written for real (enacting a transaction).
         super.overwrite(block) ;
+        baseWrites.incrementAndGet() ;
         // Keep read cache up-to-date. 
         // Must at least expel the read block (which is not the overwrite block).
         readCache.put(id, block) ;
@@ -235,6 +364,7 @@ public class BlockMgrCache extends BlockMgrSync
         if ( writeCache != null )
             writeCache.remove(id) ;
         super.free(block) ;
+        baseWrites.incrementAndGet() ;
     }
 
     @Override
@@ -261,6 +391,47 @@ public class BlockMgrCache extends BlockMgrSync
         super.close() ;
     }
     
+    /** The kind of read cache */
+    public BlockCacheType getCacheType()    { return cacheType ; }
+
+    /** Statistics of the read cache (hits, misses, entries, ejects) */
+    public CacheStats<Long, Block> getReadCacheStats() { return readCache ; }
+
+    /** Number of slots in the read cache; -1 if there is no read cache or it can not be resized. */
+    public int getReadCacheSize()
+    {
+        return ((CacheResizable)readCache).getMaxSize() ;
+    }
+
+    /** Change the number of slots in the read cache while in use.
+     *  Blocks dropped from a smaller read cache are clean; dirty blocks are in the write cache.
+     */
+    synchronized
+    public void setReadCacheSize(int readSlots)
+    {
+        log("Read cache resize: %d -> %d", getReadCacheSize(), readSlots) ;
+        ((CacheResizable)readCache).setMaxSize(readSlots) ;
+    }
+
+    /** Requests satisfied from the read cache */
+    public long getCacheReadHits()          { return readCache.getCacheHits() ; }
+
+    /** Requests satisfied from the write cache */
+    public long getCacheWriteHits()         { return cacheWriteHits.get() ; }
+
+    /** Requests that went to the underlying BlockMgr */
+    public long getCacheMisses()            { return cacheMisses.get() ; }
+
+    /** Proportion of requests satisfied by either cache; 0 if there have been no requests. */
+    public double getCacheHitRate()
+    {
+        long hits = getCacheReadHits()+getCacheWriteHits() ;
+        long total = hits+getCacheMisses() ;
+        if ( total == 0 )
+            return 0 ;
+        return ((double)hits)/total ;
+    }
+
     @Override
     public String toString()
     {
@@ -284,7 +455,7 @@ public class BlockMgrCache extends BlockMgrSync
             String x = "" ;
             if ( getLabel() != null )
                 x = getLabel()+" : ";
-            log("%sH=%d, M=%d, W=%d", x, cacheReadHits, cacheMisses, cacheWriteHits) ;
+            log("%sH=%d, M=%d, W=%d", x, getCacheReadHits(), getCacheMisses(), getCacheWriteHits()) ;
         }
         
         if ( writeCache != null )
@@ -352,6 +523,7 @@ public class BlockMgrCache extends BlockMgrSync
         log("Expel (write cache): %d", id) ;
         // This pushes the block to the BlockMgr being cached.
         super.write(block) ;
+        baseWrites.incrementAndGet() ;
         writeCache.remove(id) ;
 
         // Move it into the readCache because it's often read after writing
@@ -44,11 +44,10 @@ public class BlockMgrFactory {
     }
 
     public static BlockMgr create(FileSet fileSet, String ext, BlockParams params) {
-        return create(fileSet, ext,
-                      params.getFileMode(),
-                      params.getBlockSize(),
-                      params.getBlockReadCacheSize(),
-                      params.getBlockWriteCacheSize()) ;
+        if ( fileSet.isMem() )
+            return createMem(fileSet.filename(ext), params.getBlockSize()) ;
+        else
+            return createFile(fileSet.filename(ext), params) ;
     }
     
     public static BlockMgr create(FileSet fileSet, String ext, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
@@ -76,19 +75,26 @@ public class BlockMgrFactory {
     /** Create a BlockMgr backed by a real file */
     public static BlockMgr createFile(String filename, BlockParams params) {
         return createFile(filename, 
-                          params.getFileMode(), params.getBlockSize(),
+                          params.getFileMode(), params.getBlockCacheType(), params.getBlockSize(),
                           params.getBlockReadCacheSize(), params.getBlockWriteCacheSize()) ;
     }
 
         /** Create a BlockMgr backed by a real file */
     public static BlockMgr createFile(String filename, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createFile(filename, fileMode, BlockCacheType.lru, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+    }
+
+    /** Create a BlockMgr backed by a real file, with the given kind of block cache for direct mode */
+    public static BlockMgr createFile(String filename, FileMode fileMode, BlockCacheType cacheType, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         if ( fileMode == null )
             fileMode = SystemTDB.fileMode() ;
         switch (fileMode) {
             case mapped :
                 return createMMapFile(filename, blockSize) ;
             case direct :
-                return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+                return createStdFile(filename, cacheType, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+            case offheap :
+                return createOffHeapFile(filename, cacheType, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
         }
         throw new TDBException("Unknown file mode: " + fileMode) ;
     }
@@ -100,11 +106,41 @@ public class BlockMgrFactory {
         return track(blockMgr) ;
     }
 
+    /** Create a Block Manager for a file that does not change, memory mapped read-only.
+     *  There is no cache, free block chain or synchronization: reads take no locks.
+     */
+    public static BlockMgr createMMapFileReadOnly(String filename, int blockSize) {
+        BlockAccess file = new BlockAccessMappedReadOnly(filename, blockSize) ;
+        return new BlockMgrFileAccess(file, blockSize) ;
+    }
+
     /** Create a Block Manager using direct access (and a cache) */
     public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return createStdFile(filename, BlockCacheType.lru, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+    }
+
+    /** Create a Block Manager using direct access and the given kind of cache */
+    public static BlockMgr createStdFile(String filename, BlockCacheType cacheType, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         BlockAccess file = new BlockAccessDirect(filename, blockSize) ;
         BlockMgr blockMgr = wrapFileAccess(file, blockSize) ;
-        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize) ;
+        blockMgr = addCache(blockMgr, cacheType, readBlockCacheSize, writeBlockCacheSize) ;
+        return track(blockMgr) ;
+    }
+
+    /**
+     * Create a Block Manager using direct access, with the read cache held outside the Java heap.
+     * The off-heap cache has {@code readBlockCacheSize} blocks. The on-heap caches are
+     * a small read cache ({@link SystemTDB#BlockReadCacheSizeOffHeap}) and the write cache.
+     */
+    public static BlockMgr createOffHeapFile(String filename, BlockCacheType cacheType, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        BlockAccess file ;
+        if ( readBlockCacheSize > 0 )
+            file = new BlockAccessOffHeap(filename, blockSize, readBlockCacheSize) ;
+        else
+            file = new BlockAccessDirect(filename, blockSize) ;
+        BlockMgr blockMgr = wrapFileAccess(file, blockSize) ;
+        int heapReadBlockCacheSize = Math.min(readBlockCacheSize, SystemTDB.BlockReadCacheSizeOffHeap) ;
+        blockMgr = addCache(blockMgr, cacheType, heapReadBlockCacheSize, writeBlockCacheSize) ;
         return track(blockMgr) ;
     }
 
@@ -115,6 +151,21 @@ public class BlockMgrFactory {
         return blockMgr ;
     }
 
+    /** Find the {@link BlockMgrCache} in a stack of wrapped BlockMgrs, or return null */
+    public static BlockMgrCache findCache(BlockMgr blockMgr) {
+        while ( blockMgr != null ) {
+            if ( blockMgr instanceof BlockMgrCache )
+                return (BlockMgrCache)blockMgr ;
+            if ( blockMgr instanceof BlockMgrSync )
+                blockMgr = ((BlockMgrSync)blockMgr).getWrapped() ;
+            else if ( blockMgr instanceof BlockMgrWrapper )
+                blockMgr = ((BlockMgrWrapper)blockMgr).getWrapped() ;
+            else
+                return null ;
+        }
+        return null ;
+    }
+
     /**
      * Add a caching layer to a BlockMgr.
      * <p>
@@ -124,9 +175,18 @@ public class BlockMgrFactory {
      * @see #addCache(BlockMgr, FileSet, FileMode, int, int)
      */
     public static BlockMgr addCache(BlockMgr blockMgr, int readBlockCacheSize, int writeBlockCacheSize) {
+        return addCache(blockMgr, BlockCacheType.lru, readBlockCacheSize, writeBlockCacheSize) ;
+    }
+
+    /**
+     * Add a caching layer, of the given kind, to a BlockMgr.
+     * 
+     * @see #addCache(BlockMgr, int, int)
+     */
+    public static BlockMgr addCache(BlockMgr blockMgr, BlockCacheType cacheType, int readBlockCacheSize, int writeBlockCacheSize) {
         if ( blockMgr instanceof BlockMgrCache )
             Log.warn(BlockMgrFactory.class, "BlockMgr already has a cache: " + blockMgr.getLabel()) ;
-        return BlockMgrCache.create(readBlockCacheSize, writeBlockCacheSize, blockMgr) ;
+        return BlockMgrCache.create(cacheType, readBlockCacheSize, writeBlockCacheSize, blockMgr) ;
     }
 
     /**
@@ -63,6 +63,12 @@ public class BlockMgrFileAccess extends BlockMgrBase
         return getBlock(id) ;
     }
 
+    @Override
+    public void prefetch(long id)
+    {
+        file.prefetch(id) ;
+    }
+
     
     @Override
     public Block getRead(long id)
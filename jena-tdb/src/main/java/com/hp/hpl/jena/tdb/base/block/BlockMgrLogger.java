@@ -83,6 +83,13 @@ public class BlockMgrLogger implements BlockMgr //extends BlockMgrWrapper
         return blockMgr.getReadIterator(id) ;
     }
     
+    @Override
+    public void prefetch(long id)
+    {
+        info("prefetch("+id+")") ;
+        blockMgr.prefetch(id) ;
+    }
+    
     @Override
     public Block getWrite(long id)
     {
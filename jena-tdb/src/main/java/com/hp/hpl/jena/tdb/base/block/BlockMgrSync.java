@@ -55,6 +55,13 @@ public class BlockMgrSync implements BlockMgr
         return blockMgr.getReadIterator(id) ;
     }
 
+    @Override
+    synchronized
+    public void prefetch(long id)
+    {
+        blockMgr.prefetch(id) ;
+    }
+
     @Override
     synchronized
     public Block getWrite(long id)
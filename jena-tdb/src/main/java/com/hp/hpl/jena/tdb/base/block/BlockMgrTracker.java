@@ -150,6 +150,13 @@ public class BlockMgrTracker /*extends BlockMgrWrapper*/ implements BlockMgr
         return blockMgr.getReadIterator(id) ;
     }    
 
+    @Override
+    public void prefetch(long id)
+    {
+        // Not a block access - not tracked.
+        blockMgr.prefetch(id) ;
+    }
+
     @Override
     public Block getWrite(long id)
     {
@@ -58,6 +58,12 @@ public class BlockMgrWrapper implements BlockMgr
         return blockMgr.getReadIterator(id) ;
     }
 
+    @Override
+    public void prefetch(long id)
+    {
+        blockMgr.prefetch(id) ;
+    }
+
 
     @Override
     public Block getWrite(long id)
@@ -23,5 +23,6 @@ public interface BlockParams {
     public Integer getBlockSize() ;
     public Integer getBlockReadCacheSize() ;
     public Integer getBlockWriteCacheSize() ;
+    public BlockCacheType getBlockCacheType() ;
 }
 
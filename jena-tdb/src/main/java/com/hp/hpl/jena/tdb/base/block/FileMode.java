@@ -23,5 +23,7 @@ public enum FileMode
     /** Use memory mapped files */
     mapped,
     /** Use in-JVM caching */
-    direct ;
+    direct ,
+    /** Use in-JVM caching, with cached blocks kept outside the Java heap */
+    offheap ;
 }
@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.tdb.base.buffer;
 
+import static com.hp.hpl.jena.tdb.sys.SystemTDB.SizeOfLong ;
 import static java.lang.String.format;
 import static org.apache.jena.atlas.lib.Alg.encodeIndex ;
 
@@ -107,6 +108,22 @@ public class RecordBuffer extends BufferBase
         return factory.buildFrom(bb, idx) ;
     }
 
+    // No bounds checking : careful use only!
+    /** Copy the first num longs of the idx'th record into dst, from dstIdx, without creating a Record */
+    public void _getLongs(int idx, long[] dst, int dstIdx, int num)
+    {
+        int x = idx*slotLen ;
+        for ( int i = 0 ; i < num ; i++ )
+            dst[dstIdx+i] = bb.getLong(x+i*SizeOfLong) ;
+    }
+
+    // No bounds checking : careful use only!
+    /** Compare the key of the idx'th record with the key of a record, without creating a Record */
+    public int _compareKey(int idx, Record rec)
+    {
+        return compare(idx, rec.getKey()) ;
+    }
+
     // No bounds checking : careful use only!
     void _set(int idx, Record rec)
     {
@@ -49,5 +49,9 @@ public interface BlockAccess extends Sync, Closeable
     
     public boolean valid(long id) ;
 
+    /** Hint that the block will be read soon. The implementation may start
+     * reading it in the background, or may ignore the hint. */
+    public void prefetch(long id) ;
+
     public String getLabel() ;
 }
@@ -114,6 +114,10 @@ public class BlockAccessByteArray implements BlockAccess
         return ( id >= 0 && id < length ) ;
     }
 
+    @Override
+    public void prefetch(long id)
+    {}    // Already in memory.
+
     @Override
     public void sync()
     {}
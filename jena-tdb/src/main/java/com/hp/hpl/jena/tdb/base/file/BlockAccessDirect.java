@@ -22,6 +22,8 @@ import static java.lang.String.format ;
 
 import java.io.IOException ;
 import java.nio.ByteBuffer ;
+import java.util.Map ;
+import java.util.concurrent.ConcurrentHashMap ;
 
 import org.apache.jena.atlas.lib.FileOps ;
 import org.slf4j.Logger ;
@@ -35,6 +37,14 @@ public class BlockAccessDirect extends BlockAccessBase
     // but need separate for memory mapped files anyway.
 
     private static Logger log = LoggerFactory.getLogger(BlockAccessDirect.class) ;
+
+    // Blocks read by a background thread after a prefetch(), waiting for their read().
+    // Any write to the file invalidates them, and bumps the version so that a
+    // background read that overlaps with a write is thrown away.
+    private static final int MaxReadAhead = 256 ;
+    private final Map<Long, ByteBuffer> readAhead = new ConcurrentHashMap<>() ;
+    private final Map<Long, Boolean> readAheadPending = new ConcurrentHashMap<>() ;
+    private long readAheadVersion = 0 ;
     
     public BlockAccessDirect(String filename, int blockSize)
     {
@@ -57,13 +67,59 @@ public class BlockAccessDirect extends BlockAccessBase
     {
         check(id) ;
         checkIfClosed() ;
-        ByteBuffer bb = ByteBuffer.allocate(blockSize) ;
+        ByteBuffer bb = readAhead.isEmpty() ? null : readAhead.remove(id) ;
+        if ( bb != null )
+            return new Block(id, bb) ;
+        bb = ByteBuffer.allocate(blockSize) ;
         readByteBuffer(id, bb) ;
         bb.rewind() ;
         Block block = new Block(id, bb) ;
         return block ;
     }
     
+    @Override
+    public void prefetch(final long id)
+    {
+        if ( ! valid(id) || isClosed() )
+            return ;
+        if ( readAhead.size() >= MaxReadAhead || readAhead.containsKey(id) )
+            return ;
+        if ( readAheadPending.put(id, Boolean.TRUE) != null )
+            return ;
+        final long version ;
+        synchronized (readAhead) { version = readAheadVersion ; }
+        boolean queued = ReadAhead.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    if ( isClosed() )
+                        return ;
+                    ByteBuffer bb = ByteBuffer.allocate(blockSize) ;
+                    readByteBuffer(id, bb) ;
+                    bb.rewind() ;
+                    synchronized (readAhead)
+                    {
+                        if ( version == readAheadVersion )
+                            readAhead.put(id, bb) ;
+                    }
+                } catch (RuntimeException ex) {     // Only a hint.
+                } finally { readAheadPending.remove(id) ; }
+            }
+        }) ;
+        if ( ! queued )
+            readAheadPending.remove(id) ;
+    }
+
+    private void invalidateReadAhead(long id)
+    {
+        synchronized (readAhead)
+        {
+            readAheadVersion++ ;
+            readAhead.remove(id) ;
+        }
+    }
+
     private void readByteBuffer(long id, ByteBuffer dst)
     {
         try {
@@ -89,12 +145,14 @@ public class BlockAccessDirect extends BlockAccessBase
         // and the name does 
         bb.limit(bb.capacity()) ;   // It shouldn't have been changed.
         bb.rewind() ;
+        invalidateReadAhead(block.getId()) ;
         try {
             int len = file.channel().write(bb, filePosition(block.getId())) ;
             if ( len != blockSize )
                 throw new FileException(format("write: short write (%d, not %d)", len, blockSize)) ;   
         } catch (IOException ex)
         { throw new FileException("FileAccessDirect", ex) ; }
+        invalidateReadAhead(block.getId()) ;
         writeNotification(block) ;
     }
     
@@ -113,7 +171,10 @@ public class BlockAccessDirect extends BlockAccessBase
 
     @Override
     protected void _close()
-    { super.force() ; }
+    {
+        readAhead.clear() ;
+        super.force() ;
+    }
 
     @Override
     protected Logger getLog()
@@ -98,6 +98,29 @@ public class BlockAccessMapped extends BlockAccessBase
         return block ;
     }
 
+    /** There is no "madvise" for a mapped file so prefetching is done by touching
+     * each OS page of the block in a background thread. */
+    @Override
+    public void prefetch(final long id)
+    {
+        if ( ! valid(id) || isClosed() )
+            return ;
+        ReadAhead.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                if ( isClosed() )
+                    return ;
+                try {
+                    ByteBuffer bb = getByteBuffer(id) ;
+                    for ( int i = 0 ; i < blockSize ; i += OSPageSize )
+                        bb.get(i) ;
+                } catch (RuntimeException ex) {}   // Only a hint.
+            }
+        }) ;
+    }
+    private static final int OSPageSize = 4096 ;
+
     @Override
     public void write(Block block)
     {
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import static java.lang.String.format ;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.block.BlockException ;
+
+/** Block access to a file that does not change, memory mapped read-only.
+ *  Reading takes no locks. Any attempt to write is an error.
+ *  @see MappedFileReadOnly
+ */
+final
+public class BlockAccessMappedReadOnly implements BlockAccess
+{
+    private final MappedFileReadOnly file ;
+    private final int blockSize ;
+    private final long numFileBlocks ;
+    private final String label ;
+    
+    public BlockAccessMappedReadOnly(String filename, int blockSize)
+    {
+        this.file = new MappedFileReadOnly(filename, blockSize) ;
+        this.blockSize = blockSize ;
+        this.label = FileOps.basename(filename) ;
+        if ( file.length()%blockSize != 0 )
+            throw new BlockException(format("File size (%d) not a multiple of blocksize (%d)", file.length(), blockSize)) ;
+        this.numFileBlocks = file.length()/blockSize ;
+    }
+
+    @Override
+    public Block read(long id)
+    {
+        if ( ! valid(id) )
+            throw new BlockException(format("BlockAccessMappedReadOnly: Bounds exception: %s: (%d,%d)", label, id, numFileBlocks)) ;
+        ByteBuffer bb = file.read(id*blockSize, blockSize) ;
+        Block block = new Block(id, bb) ;
+        block.setReadOnly(true) ;
+        return block ;
+    }
+
+    @Override
+    public boolean valid(long id)
+    {
+        return id >= 0 && id < numFileBlocks ;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return numFileBlocks == 0 ;
+    }
+
+    /** The mapped file is paged in by the OS - nothing to do. */
+    @Override
+    public void prefetch(long id)
+    {}
+
+    @Override
+    public Block allocate(int size)
+    {
+        throw new BlockException("Read-only: "+label) ;
+    }
+
+    @Override
+    public void write(Block block)
+    {
+        throw new BlockException("Read-only: "+label) ;
+    }
+
+    @Override
+    public void overwrite(Block block)
+    {
+        throw new BlockException("Read-only: "+label) ;
+    }
+
+    @Override
+    public void sync()
+    {}
+
+    @Override
+    public void close()
+    {
+        file.close() ;
+    }
+
+    @Override
+    public String getLabel()
+    {
+        return label ;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return label ;
+    }
+}
@@ -114,6 +114,10 @@ public class BlockAccessMem implements BlockAccess
         return id >= 0 && id < blocks.size() ;
     }
 
+    @Override
+    public void prefetch(long id)
+    {}    // Already in memory.
+
     @Override
     public void close()
     {
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import java.nio.ByteBuffer ;
+import java.util.Arrays ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+
+/** Direct file access with a block cache held outside the Java heap, in a {@link BlockArena}.
+ * <p>
+ * Blocks returned by {@link #read} are on-heap copies, owned by the caller as for
+ * {@link BlockAccessDirect}. The cached contents stay in the arena, so the size of
+ * the cache does not add to the Java heap or to garbage collection work.
+ * Writes go to the file and update the cached copy.
+ * <p>
+ * Replacement is "clock" (second chance). The id-to-slot index uses
+ * fixed-size primitive arrays so its heap use is also fixed when created.
+ */
+public class BlockAccessOffHeap extends BlockAccessDirect
+{
+    private static Logger log = LoggerFactory.getLogger(BlockAccessOffHeap.class) ;
+
+    private final BlockArena arena ;
+    private final SlotIndex index ;
+    private final long[] slotToId ;
+    private final boolean[] referenced ;
+    private int clockHand = 0 ;
+    // Incremented by every write; a block read from the file is only cached
+    // if there were no writes while it was being read.
+    private long writes = 0 ;
+
+    // ---- stats
+    private long cacheHits = 0 ;
+    private long cacheMisses = 0 ;
+
+    public BlockAccessOffHeap(String filename, int blockSize, int cacheSlots)
+    {
+        super(filename, blockSize) ;
+        arena = new BlockArena(blockSize, cacheSlots) ;
+        index = new SlotIndex(cacheSlots) ;
+        slotToId = new long[cacheSlots] ;
+        Arrays.fill(slotToId, -1) ;
+        referenced = new boolean[cacheSlots] ;
+    }
+
+    @Override
+    public Block read(long id)
+    {
+        check(id) ;
+        checkIfClosed() ;
+        long writesBefore ;
+        synchronized (this)
+        {
+            writesBefore = writes ;
+            int slot = index.get(id) ;
+            if ( slot >= 0 )
+            {
+                cacheHits++ ;
+                referenced[slot] = true ;
+                ByteBuffer bb = ByteBuffer.allocate(blockSize) ;
+                arena.read(slot, bb) ;
+                return new Block(id, bb) ;
+            }
+            cacheMisses++ ;
+        }
+        // File read outside the lock (positional reads are thread-safe).
+        Block block = super.read(id) ;
+        synchronized (this)
+        {
+            // Else the block may have been written, and cached, after the file was read.
+            if ( writes == writesBefore )
+                cache(id, block.getByteBuffer(), false) ;
+        }
+        return block ;
+    }
+
+    @Override
+    public void write(Block block)
+    {
+        super.write(block) ;
+        synchronized (this)
+        {
+            writes++ ;
+            // Recently written blocks are often read again.
+            cache(block.getId(), block.getByteBuffer(), true) ;
+        }
+    }
+
+    // overwrite() is via write().
+
+    /** Put a block into the arena, replacing any earlier copy. Lock held. */
+    private void cache(long id, ByteBuffer bb, boolean touch)
+    {
+        int slot = index.get(id) ;
+        if ( slot < 0 )
+        {
+            slot = arena.allocate() ;
+            if ( slot < 0 )
+                slot = evict() ;
+            index.put(id, slot) ;
+            slotToId[slot] = id ;
+            referenced[slot] = false ;
+        }
+        if ( touch )
+            referenced[slot] = true ;
+        arena.write(slot, bb) ;
+    }
+
+    /** Choose a slot to reuse. Only called when every slot is in use. */
+    private int evict()
+    {
+        for (;;)
+        {
+            int slot = clockHand ;
+            clockHand = ( clockHand+1 == slotToId.length ) ? 0 : clockHand+1 ;
+            if ( referenced[slot] )
+            {
+                referenced[slot] = false ;
+                continue ;
+            }
+            index.remove(slotToId[slot]) ;
+            slotToId[slot] = -1 ;
+            return slot ;
+        }
+    }
+
+    public synchronized long getCacheHits()     { return cacheHits ; }
+    public synchronized long getCacheMisses()   { return cacheMisses ; }
+    public synchronized long getCacheEntries()  { return index.size() ; }
+
+    /** Off-heap memory in use, in bytes */
+    public synchronized long getOffHeapBytes()  { return arena.getAllocatedBytes() ; }
+
+    @Override
+    protected void _close()
+    {
+        super._close() ;
+        synchronized (this)
+        {
+            arena.close() ;
+            index.clear() ;
+        }
+    }
+
+    @Override
+    protected Logger getLog()
+    {
+        return log ;
+    }
+
+    @Override
+    public String toString() { return "OffHeap:"+FileOps.basename(file.filename) ; }
+
+    /** Block id to slot number map : open addressing, linear probing, fixed size. */
+    private static final class SlotIndex
+    {
+        private static final long NoKey = -1 ;
+        private final long[] keys ;
+        private final int[] slots ;
+        private final int mask ;
+        private int size = 0 ;
+
+        SlotIndex(int maxEntries)
+        {
+            // At most half full.
+            int n = Integer.highestOneBit(Math.max(2, maxEntries)*2-1)*2 ;
+            keys = new long[n] ;
+            slots = new int[n] ;
+            mask = n-1 ;
+            Arrays.fill(keys, NoKey) ;
+        }
+
+        private int home(long key)
+        {
+            int h = (int)(key ^ (key >>> 32)) * 0x9E3779B9 ;
+            return (h ^ (h >>> 16)) & mask ;
+        }
+
+        private int find(long key)
+        {
+            int i = home(key) ;
+            while ( keys[i] != NoKey )
+            {
+                if ( keys[i] == key )
+                    return i ;
+                i = (i+1) & mask ;
+            }
+            return -(i+1) ;
+        }
+
+        int get(long key)
+        {
+            int i = find(key) ;
+            return ( i >= 0 ) ? slots[i] : -1 ;
+        }
+
+        void put(long key, int slot)
+        {
+            int i = find(key) ;
+            if ( i < 0 )
+            {
+                i = -(i+1) ;
+                keys[i] = key ;
+                size++ ;
+            }
+            slots[i] = slot ;
+        }
+
+        void remove(long key)
+        {
+            int i = find(key) ;
+            if ( i < 0 )
+                return ;
+            size-- ;
+            // Shift back later entries of the probe sequence into the gap.
+            int gap = i ;
+            int j = i ;
+            for (;;)
+            {
+                j = (j+1) & mask ;
+                if ( keys[j] == NoKey )
+                    break ;
+                int h = home(keys[j]) ;
+                // Can the entry at j move to the gap? Yes, if its home is not in (gap, j].
+                boolean inRange = ( gap <= j ) ? ( gap < h && h <= j ) : ( gap < h || h <= j ) ;
+                if ( inRange )
+                    continue ;
+                keys[gap] = keys[j] ;
+                slots[gap] = slots[j] ;
+                gap = j ;
+            }
+            keys[gap] = NoKey ;
+        }
+
+        int size()
+        {
+            return size ;
+        }
+
+        void clear()
+        {
+            Arrays.fill(keys, NoKey) ;
+            size = 0 ;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import static java.lang.String.format ;
+
+import java.nio.ByteBuffer ;
+
+/** A fixed-size area of memory outside the Java heap, divided into block-sized slots.
+ * <p>
+ * Slots are allocated and freed explicitly by the user of the arena; the contents
+ * are copied in and out so no reference to the off-heap memory escapes.
+ * The memory is allocated (as direct ByteBuffers) when first needed, up to
+ * the fixed number of slots, and is not scanned or moved by the garbage collector.
+ * <p>
+ * Not thread-safe.
+ */
+public class BlockArena
+{
+    // Direct ByteBuffers are limited to 2G bytes so the arena is made of chunks.
+    private static final int ChunkBytes = 64*1024*1024 ;
+
+    private final int blockSize ;
+    private final int numSlots ;
+    private final int slotsPerChunk ;
+    private ByteBuffer[] chunks ;
+
+    // Stack of freed slots.
+    private final int[] freeSlots ;
+    private int freeCount = 0 ;
+    // Slots from here up have never been used.
+    private int highWater = 0 ;
+
+    public BlockArena(int blockSize, int numSlots)
+    {
+        if ( blockSize <= 0 || numSlots <= 0 )
+            throw new FileException(format("BlockArena: bad size: blockSize=%d slots=%d", blockSize, numSlots)) ;
+        this.blockSize = blockSize ;
+        this.numSlots = numSlots ;
+        this.slotsPerChunk = Math.max(1, ChunkBytes/blockSize) ;
+        this.chunks = new ByteBuffer[(numSlots+slotsPerChunk-1)/slotsPerChunk] ;
+        this.freeSlots = new int[numSlots] ;
+    }
+
+    /** Allocate a slot; return -1 if the arena is full. */
+    public int allocate()
+    {
+        checkOpen() ;
+        if ( freeCount > 0 )
+            return freeSlots[--freeCount] ;
+        if ( highWater >= numSlots )
+            return -1 ;
+        int slot = highWater++ ;
+        int c = slot/slotsPerChunk ;
+        if ( chunks[c] == null )
+        {
+            int n = Math.min(slotsPerChunk, numSlots-c*slotsPerChunk) ;
+            chunks[c] = ByteBuffer.allocateDirect(n*blockSize) ;
+        }
+        return slot ;
+    }
+
+    /** Return a slot to the arena. */
+    public void free(int slot)
+    {
+        checkSlot(slot) ;
+        freeSlots[freeCount++] = slot ;
+    }
+
+    /** Copy the contents of a slot into a (whole) block buffer. */
+    public void read(int slot, ByteBuffer dst)
+    {
+        checkSlot(slot) ;
+        ByteBuffer d = dst.duplicate() ;
+        d.clear() ;
+        d.put(region(slot)) ;
+    }
+
+    /** Copy a (whole) block buffer into a slot. */
+    public void write(int slot, ByteBuffer src)
+    {
+        checkSlot(slot) ;
+        ByteBuffer s = src.duplicate() ;
+        s.clear() ;
+        if ( s.remaining() != blockSize )
+            throw new FileException(format("BlockArena: wrong size block: %d, not %d", s.remaining(), blockSize)) ;
+        region(slot).put(s) ;
+    }
+
+    private ByteBuffer region(int slot)
+    {
+        ByteBuffer bb = chunks[slot/slotsPerChunk].duplicate() ;
+        int offset = (slot%slotsPerChunk)*blockSize ;
+        bb.limit(offset+blockSize) ;
+        bb.position(offset) ;
+        return bb ;
+    }
+
+    private void checkSlot(int slot)
+    {
+        checkOpen() ;
+        if ( slot < 0 || slot >= highWater )
+            throw new FileException(format("BlockArena: slot out of range: %d (%d)", slot, highWater)) ;
+    }
+
+    private void checkOpen()
+    {
+        if ( chunks == null )
+            throw new FileException("BlockArena: closed") ;
+    }
+
+    public int getBlockSize()       { return blockSize ; }
+
+    /** Maximum number of slots */
+    public int getNumSlots()        { return numSlots ; }
+
+    /** Number of slots allocated and not freed */
+    public int getAllocatedSlots()  { return highWater-freeCount ; }
+
+    /** Off-heap memory in use, in bytes */
+    public long getAllocatedBytes()
+    {
+        long x = 0 ;
+        if ( chunks != null )
+            for ( ByteBuffer bb : chunks )
+                if ( bb != null )
+                    x += bb.capacity() ;
+        return x ;
+    }
+
+    /** Release the arena. The memory is returned when the direct buffers are collected. */
+    public void close()
+    {
+        chunks = null ;
+    }
+}
@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.tdb.base.file;
 
 import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
+import com.hp.hpl.jena.tdb.base.objectfile.ObjectFileMappedReadOnly ;
 import com.hp.hpl.jena.tdb.base.objectfile.ObjectFileStorage ;
 import com.hp.hpl.jena.tdb.base.objectfile.StringFile ;
 
@@ -36,6 +37,10 @@ public class FileFactory
         return new ObjectFileStorage(file) ;
     }
 
+    /** An object file that does not change, memory mapped read-only */
+    public static ObjectFile createObjectFileReadOnly(String filename)
+    { return new ObjectFileMappedReadOnly(filename) ; }
+
     public static ObjectFile createObjectFileMem(String filename)
     { 
         BufferChannel file = BufferChannelMem.create(filename) ; 
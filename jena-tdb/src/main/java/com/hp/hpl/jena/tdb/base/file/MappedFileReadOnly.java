@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import java.io.IOException ;
+import java.nio.ByteBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel.MapMode ;
+import java.util.Arrays ;
+
+/**
+ * A file that is not going to change, memory mapped read-only when it is opened.
+ * <p>
+ * The whole file is mapped, in chunks, so reading does not need any locks:
+ * the mappings are never changed and each read works on its own view of a chunk.
+ * Reads are returned as read-only {@link ByteBuffer ByteBuffers} over the mapped
+ * file where possible; a read that crosses a chunk boundary is copied.
+ */
+public final class MappedFileReadOnly
+{
+    // Largest mapping - must fit a ByteBuffer.
+    private static final int MaxChunkSize = 1<<30 ;
+    
+    private final String filename ;
+    private final long length ;
+    private final int chunkSize ;
+    private final MappedByteBuffer[] chunks ;
+    private volatile boolean closed = false ;
+
+    /** Open and map a file.
+     * @param filename  The file
+     * @param align     Chunk boundaries are on a multiple of this (e.g. the block size).
+     */ 
+    public MappedFileReadOnly(String filename, int align)
+    {
+        this.filename = filename ;
+        this.chunkSize = MaxChunkSize - MaxChunkSize%align ;
+        FileBase file = FileBase.create(filename, "r") ;
+        try {
+            length = file.size() ;
+            int n = (int)((length+chunkSize-1)/chunkSize) ;
+            chunks = new MappedByteBuffer[n] ;
+            for ( int i = 0 ; i < n ; i++ )
+            {
+                long start = (long)i*chunkSize ;
+                long size = Math.min(chunkSize, length-start) ;
+                chunks[i] = file.channel().map(MapMode.READ_ONLY, start, size) ;
+            }
+        } catch (IOException ex) {
+            throw new FileException("Failed to map "+filename, ex) ;
+        } finally {
+            // Mappings remain valid after the channel is closed. 
+            file.close() ;
+        }
+    }
+
+    /** The bytes [posn, posn+len) of the file */
+    public ByteBuffer read(long posn, int len)
+    {
+        check(posn, len) ;
+        int idx = (int)(posn/chunkSize) ;
+        int offset = (int)(posn%chunkSize) ;
+        ByteBuffer chunk = chunks[idx].duplicate() ;
+        if ( offset+len <= chunk.capacity() )
+        {
+            chunk.position(offset) ;
+            chunk.limit(offset+len) ;
+            return chunk.slice() ;
+        }
+        // Spans chunks.
+        ByteBuffer bb = ByteBuffer.allocate(len) ;
+        while ( bb.hasRemaining() )
+        {
+            chunk.position(offset) ;
+            chunk.limit(Math.min(chunk.capacity(), offset+bb.remaining())) ;
+            bb.put(chunk) ;
+            idx++ ;
+            offset = 0 ;
+            if ( idx < chunks.length )
+                chunk = chunks[idx].duplicate() ;
+        }
+        bb.flip() ;
+        return bb.asReadOnlyBuffer() ;
+    }
+
+    /** The (network order) int at posn */
+    public int getInt(long posn)
+    {
+        check(posn, 4) ;
+        int idx = (int)(posn/chunkSize) ;
+        int offset = (int)(posn%chunkSize) ;
+        if ( offset+4 <= chunks[idx].capacity() )
+            // Absolute get - does not touch the shared buffer position.
+            return chunks[idx].getInt(offset) ;
+        return read(posn, 4).getInt(0) ;
+    }
+    
+    private void check(long posn, int len)
+    {
+        if ( closed )
+            throw new FileException("Closed: "+filename) ;
+        if ( posn < 0 || len < 0 || posn+len > length )
+            throw new FileException("Bad read of "+filename+" : ["+posn+", "+(posn+len)+") : length = "+length) ;
+    }
+
+    /** Length of the file, in bytes */
+    public long length()        { return length ; }
+    
+    public String getFilename() { return filename ; }
+
+    public boolean isClosed()   { return closed ; }
+    
+    public void close()
+    {
+        // There is no unmap operation; the mappings go when the buffers are garbage collected.
+        closed = true ;
+        Arrays.fill(chunks, null) ;
+    }
+}
@@ -42,8 +42,7 @@ public class PlainFilePersistent extends PlainFile
     PlainFilePersistent(String filename)
     {
         file = FileBase.create(filename) ;
-        //long filesize = file.out.length() ;
-        //if ( channel.size() == 0 ) {}
+        filesize = file.size() ;
         byteBuffer = allocateBuffer(filesize) ;
     }
     
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import java.util.concurrent.ArrayBlockingQueue ;
+import java.util.concurrent.RejectedExecutionException ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.ThreadPoolExecutor ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicInteger ;
+
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** Background threads, shared by all files, for block read ahead.
+ * <p>
+ * Read ahead is only a hint: when the queue of waiting requests is full,
+ * new requests are dropped, not queued, and the reader will read the block itself.
+ */
+public class ReadAhead
+{
+    private static final int QueueLength = 1024 ;
+
+    private static ThreadPoolExecutor executor = null ;
+
+    /** Is read ahead enabled? */
+    public static boolean isEnabled()
+    {
+        return SystemTDB.ReadAheadThreads > 0 ;
+    }
+
+    /** Request a background action. Returns false if the request was dropped. */
+    public static boolean submit(Runnable action)
+    {
+        if ( ! isEnabled() )
+            return false ;
+        try {
+            executor().execute(action) ;
+            return true ;
+        } catch (RejectedExecutionException ex) { return false ; }
+    }
+
+    private static synchronized ThreadPoolExecutor executor()
+    {
+        if ( executor == null )
+        {
+            final AtomicInteger counter = new AtomicInteger(0) ;
+            ThreadFactory factory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "TDB read ahead "+counter.incrementAndGet()) ;
+                    t.setDaemon(true) ;
+                    return t ;
+                }
+            } ;
+            int n = SystemTDB.ReadAheadThreads ;
+            executor = new ThreadPoolExecutor(n, n, 30, TimeUnit.SECONDS,
+                                              new ArrayBlockingQueue<Runnable>(QueueLength),
+                                              factory,
+                                              new ThreadPoolExecutor.AbortPolicy()) ;
+            executor.allowCoreThreadTimeOut(true) ;
+        }
+        return executor ;
+    }
+}
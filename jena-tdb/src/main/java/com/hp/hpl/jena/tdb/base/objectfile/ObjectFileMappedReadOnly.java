@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.objectfile;
+
+import static com.hp.hpl.jena.tdb.sys.SystemTDB.SizeOfInt ;
+
+import java.nio.ByteBuffer ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.Pair ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.file.FileException ;
+import com.hp.hpl.jena.tdb.base.file.MappedFileReadOnly ;
+
+/** An {@link ObjectFile} (in the format of {@link ObjectFileStorage}) over a file
+ *  that does not change, memory mapped read-only.
+ *  Reading takes no locks and does not copy the bytes of the object.
+ *  Any attempt to write is an error. 
+ */
+public class ObjectFileMappedReadOnly implements ObjectFile
+{
+    private final MappedFileReadOnly file ;
+    private final String label ;
+    
+    public ObjectFileMappedReadOnly(String filename)
+    {
+        this.file = new MappedFileReadOnly(filename, 1) ;
+        this.label = FileOps.basename(filename) ;
+    }
+    
+    @Override
+    public ByteBuffer read(long id)
+    {
+        if ( id < 0 || id+SizeOfInt > file.length() )
+            throw new IllegalArgumentException("ObjectFileMappedReadOnly.read["+label+"]: Bad read: location="+id+" : length="+file.length()) ;
+        int len = file.getInt(id) ;
+        if ( len < 0 || len > file.length()-(id+SizeOfInt) )
+            throw new FileException("ObjectFileMappedReadOnly.read["+label+"]("+id+"): Impossibly large object : "+len+" bytes") ;
+        return file.read(id+SizeOfInt, len) ;
+    }
+
+    @Override
+    public long length()                        { return file.length() ; }
+
+    @Override
+    public boolean isEmpty()                    { return file.length() == 0 ; }
+
+    @Override
+    public Block allocWrite(int bytesSpace)     { throw readOnly() ; }
+
+    @Override
+    public void completeWrite(Block buffer)     { throw readOnly() ; }
+
+    @Override
+    public void abortWrite(Block buffer)        { throw readOnly() ; }
+
+    @Override
+    public long write(ByteBuffer buffer)        { throw readOnly() ; }
+
+    @Override
+    public void reposition(long id)             { throw readOnly() ; }
+
+    @Override
+    public void truncate(long size)             { throw readOnly() ; }
+    
+    private FileException readOnly()
+    {
+        return new FileException("Read-only: "+label) ;
+    }
+
+    @Override
+    public Iterator<Pair<Long, ByteBuffer>> all()
+    {
+        return new Iterator<Pair<Long, ByteBuffer>>() {
+            private long current = 0 ;
+            
+            @Override
+            public boolean hasNext()
+            {
+                return current < file.length() ;
+            }
+
+            @Override
+            public Pair<Long, ByteBuffer> next()
+            {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException() ;
+                long x = current ;
+                ByteBuffer bb = read(current) ;
+                current = current + bb.limit() + SizeOfInt ;
+                return new Pair<>(x, bb) ;
+            }
+
+            @Override
+            public void remove()
+            { throw new UnsupportedOperationException() ; }
+        } ;
+    }
+    
+    @Override
+    public void sync()                          {}
+
+    @Override
+    public void close()                         { file.close() ; }
+
+    @Override
+    public String getLabel()                    { return label ; }
+
+    @Override
+    public String toString()                    { return label ; }
+}
@@ -359,7 +359,69 @@ public class ObjectFileStorage implements ObjectFile
             throw new FileException("ObjectFileStorage.read: Failed to read the object ("+len+" bytes) : got "+x+" bytes") ;
         return bb ;
     }
-    
+
+    // Batch reads: objects starting within BatchSpan bytes of the first object
+    // of a run are fetched with one file read.  BatchSlack is the extra read
+    // after the start of the last object, which is usually enough for all of it.
+    private static final int BatchSpan  = 64*1024 ;
+    private static final int BatchSlack = 1024 ;
+
+    /** Read several objects, given their locations in increasing order.
+     *  Objects that are close together in the file are fetched with a single
+     *  read of the file, rather than two reads (length and bytes) per object.
+     *  The results are in the same order as the locations.
+     */
+    public ByteBuffer[] read(long[] locs)
+    {
+        if ( inAllocWrite )
+            throw new FileException("In the middle of an alloc-write") ;
+        ByteBuffer[] results = new ByteBuffer[locs.length] ;
+        int i = 0 ;
+        while ( i < locs.length )
+        {
+            long start = locs[i] ;
+            // Find the run of locations that are on disk and close to start.
+            int j = i+1 ;
+            if ( start >= 0 && start < filesize )
+            {
+                while ( j < locs.length && locs[j] < filesize && locs[j]-start < BatchSpan )
+                    j++ ;
+            }
+            if ( j == i+1 )
+            {
+                // Not worth it - or in the write buffer, or a bad location.
+                results[i] = read(start) ;
+                i++ ;
+                continue ;
+            }
+
+            long finish = Math.min(filesize, locs[j-1]+BatchSlack) ;
+            ByteBuffer span = ByteBuffer.allocate((int)(finish-start)) ;
+            int x = file.read(span, start) ;
+            if ( x != span.capacity() )
+                throw new FileException("ObjectFileStorage.read["+file.getLabel()+"]("+start+")[filesize="+filesize+"]: Failed to read "+span.capacity()+" bytes : got "+x+" bytes") ;
+            for ( int k = i ; k < j ; k++ )
+                results[k] = slice(span, (int)(locs[k]-start), locs[k]) ;
+            i = j ;
+        }
+        return results ;
+    }
+
+    /** The object at offset in a buffer read from the file starting at loc-offset */
+    private ByteBuffer slice(ByteBuffer span, int offset, long loc)
+    {
+        if ( offset+SizeOfInt > span.capacity() )
+            return read(loc) ;
+        int len = span.getInt(offset) ;
+        if ( len < 0 || offset+SizeOfInt+len > span.capacity() )
+            // Object extends past the end of the span (or is bad - read(loc) checks).
+            return read(loc) ;
+        ByteBuffer bb = span.duplicate() ;
+        bb.position(offset+SizeOfInt) ;
+        bb.limit(offset+SizeOfInt+len) ;
+        return bb.slice() ;
+    }
+
     @Override
     public long length()
     {
@@ -27,6 +27,7 @@ import org.apache.jena.atlas.lib.Closeable ;
 
 import com.hp.hpl.jena.tdb.base.StorageException ;
 import com.hp.hpl.jena.tdb.base.block.BlockException ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBuffer ;
 import com.hp.hpl.jena.tdb.base.record.Record;
 
 final public
@@ -43,6 +44,29 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
         }
         return new RecordRangeIterator(pageId, fromRec, toRec, pageMgr) ;
     }
+
+    /** Iterate over a range of fromRec (inclusive) to toRec (exclusive),
+     *  asking for up to readAhead pages beyond the current one to be prefetched.
+     *  pageIds are the ids of the first pages of the range, in order, as far as they are known
+     *  (at least the starting page). After those, the link of each page is prefetched
+     *  as the page is reached.
+     */
+    public static RecordRangeIterator iterator(int[] pageIds, Record fromRec, Record toRec, RecordBufferPageMgr pageMgr, int readAhead)
+    {
+        if ( ! pageMgr.valid(pageIds[0]) )
+            throw new BlockException("RecordRangeIterator.iterator -- No such block (pageId="+pageIds[0]+", fromRec="+fromRec+", toRec="+toRec+ ")") ;
+        RecordRangeIterator iter = new RecordRangeIterator(pageIds[0], fromRec, toRec, pageMgr) ;
+        if ( readAhead > 0 && iter.currentPage != null )
+        {
+            iter.pageIds = pageIds ;
+            iter.readAhead = readAhead ;
+            for ( int i = 1 ; i <= readAhead && i < pageIds.length ; i++ )
+                pageMgr.getBlockMgr().prefetch(pageIds[i]) ;
+            if ( pageIds.length == 1 )
+                iter.prefetchLink() ;
+        }
+        return iter ;
+    }
     
     private RecordBufferPage currentPage ;      // Set null when finished.
     private int currentIdx ;
@@ -55,6 +79,11 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
     private long countRecords = 0 ;
     private long countBlocks = 0 ;
 
+    // Read ahead : the known page ids and the index of the current page in them.
+    private int[] pageIds = null ;
+    private int pageIdx = 0 ;
+    private int readAhead = 0 ;
+
     private RecordRangeIterator(int id, Record fromRec, Record toRec, RecordBufferPageMgr pageMgr)
     {
         currentIdx = 0 ;
@@ -115,6 +144,8 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
             currentPage = nextPage ;
             countBlocks++ ;
             currentIdx = 0 ;
+            if ( readAhead > 0 )
+                nextPageReadAhead(link) ;
         }
             
         slot = currentPage.getRecordBuffer().get(currentIdx) ;
@@ -134,6 +165,98 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
         return true ;
     }
 
+    /** Fill the array with the next records, returning the number of records placed in it.
+     *  Less than batch.length means the iteration has finished.
+     */
+    public int nextBatch(Record[] batch)
+    {
+        int n = 0 ;
+        while ( n < batch.length && hasNext() )
+        {
+            batch[n++] = slot ;
+            slot = null ;
+            // Copy the rest of this page directly.
+            RecordBuffer rBuff = currentPage.getRecordBuffer() ;
+            int count = currentPage.getCount() ;
+            while ( n < batch.length && currentIdx < count )
+            {
+                Record r = rBuff.get(currentIdx) ;
+                if ( maxRec != null && Record.keyGE(r, maxRec) )
+                {
+                    close() ;
+                    return n ;
+                }
+                currentIdx++ ;
+                countRecords++ ;
+                batch[n++] = r ;
+            }
+        }
+        return n ;
+    }
+
+    /** Fill the array with the keys of the next records, each key as {@code width} longs,
+     *  returning the number of records. Less than batch.length/width means the iteration has finished.
+     *  Keys are read directly from the pages; no Record objects are created.
+     */
+    public int nextBatchLongs(long[] batch, int width)
+    {
+        int max = batch.length/width ;
+        int n = 0 ;
+        while ( n < max && hasNext() )
+        {
+            // hasNext() has positioned on a page and consumed one record.
+            currentIdx-- ;
+            countRecords-- ;
+            slot = null ;
+            RecordBuffer rBuff = currentPage.getRecordBuffer() ;
+            int count = currentPage.getCount() ;
+            // Only the last page of the range needs to test the end.
+            boolean lastPage = ( maxRec != null && rBuff._compareKey(count-1, maxRec) >= 0 ) ;
+            for ( ; n < max && currentIdx < count ; currentIdx++ )
+            {
+                if ( lastPage && rBuff._compareKey(currentIdx, maxRec) >= 0 )
+                {
+                    close() ;
+                    return n ;
+                }
+                rBuff._getLongs(currentIdx, batch, n*width, width) ;
+                countRecords++ ;
+                n++ ;
+            }
+        }
+        return n ;
+    }
+
+    /** Moved to page "id" : keep the read ahead window full. */
+    private void nextPageReadAhead(int id)
+    {
+        if ( pageIds != null )
+        {
+            if ( pageIdx+1 < pageIds.length && pageIds[pageIdx+1] == id )
+            {
+                pageIdx++ ;
+                if ( pageIdx+readAhead < pageIds.length )
+                    pageMgr.getBlockMgr().prefetch(pageIds[pageIdx+readAhead]) ;
+                if ( pageIdx+1 < pageIds.length )
+                    return ;
+            }
+            // Past the known pages.
+            pageIds = null ;
+        }
+        prefetchLink() ;
+    }
+
+    /** Prefetch the page after the current one, if the range continues there. */ 
+    private void prefetchLink()
+    {
+        int link = currentPage.getLink() ;
+        if ( link < 0 )
+            return ;
+        if ( maxRec != null && currentPage.getCount() > 0 && Record.keyGE(currentPage.getRecordBuffer().getHigh(), maxRec) )
+            return ;
+        pageMgr.getBlockMgr().prefetch(link) ;
+    }
+
     @Override
     public void close()
     {
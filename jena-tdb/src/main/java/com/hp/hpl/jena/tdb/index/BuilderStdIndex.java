@@ -24,6 +24,7 @@ import com.hp.hpl.jena.tdb.base.file.FileSet ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.index.bplustree.BPlusTree ;
 import com.hp.hpl.jena.tdb.index.bplustree.BPlusTreeParams ;
+import com.hp.hpl.jena.tdb.index.ext.ExtHash ;
 import com.hp.hpl.jena.tdb.setup.BlockMgrBuilder ;
 import com.hp.hpl.jena.tdb.sys.Names ;
 
@@ -48,6 +49,25 @@ public class BuilderStdIndex {
         }
     }
 
+    /** Build an extensible hash table index ({@link ExtHash}) */
+    public static class IndexBuilderExtHash implements IndexBuilder
+    {
+        protected BlockMgrBuilder bMgrDictionary ;
+        protected BlockMgrBuilder bMgrBuckets ;
+    
+        public IndexBuilderExtHash(BlockMgrBuilder bMgrDictionary, BlockMgrBuilder bMgrBuckets) {
+            this.bMgrDictionary = bMgrDictionary ;
+            this.bMgrBuckets = bMgrBuckets ;
+        }
+
+        @Override
+        public Index buildIndex(FileSet fileSet, RecordFactory recordFactory, IndexParams indexParams) {
+            BlockMgr blkMgrDictionary = bMgrDictionary.buildBlockMgr(fileSet, Names.extHashExt, indexParams) ;
+            BlockMgr blkMgrBuckets = bMgrBuckets.buildBlockMgr(fileSet, Names.extHashBucketExt, indexParams) ;
+            return new ExtHash(blkMgrDictionary, recordFactory, blkMgrBuckets) ;
+        }
+    }
+
     public static class RangeIndexBuilderStd implements RangeIndexBuilder
     {
         private BlockMgrBuilder bMgrNodes ;
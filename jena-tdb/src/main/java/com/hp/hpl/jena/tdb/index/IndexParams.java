@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.tdb.index;
 
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.BlockParams ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
 
@@ -35,4 +36,7 @@ public interface IndexParams extends BlockParams {
     
     /** Block write cache size (mmap'ed files do not have a block cache)*/
     @Override public Integer getBlockWriteCacheSize() ;
+
+    /** Kind of block read cache (mmap'ed files do not have a block cache)*/
+    @Override public BlockCacheType getBlockCacheType() ;
 }
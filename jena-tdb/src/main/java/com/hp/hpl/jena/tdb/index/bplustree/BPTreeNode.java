@@ -294,6 +294,34 @@ public final class BPTreeNode extends BPTreePage
         return id ;
     }
 
+    /** Returns the ids of the records buffer pages for a range scan from fromRec (inclusive) to toRec (exclusive),
+     *  starting with the page for fromRec, as far as is known from one leaf-parent node and at most max ids.
+     *  Records Buffer Pages NOT read.
+     */ 
+    static int[] recordsPageIds(BPTreeNode node, Record fromRec, Record toRec, int max)
+    {
+        while ( !node.isLeaf() )
+        {
+            BPTreePage page = (fromRec == null ) ? node.get(0, READ) : node.findHere(fromRec) ;
+            BPTreeNode n = (BPTreeNode)page ;
+            if ( ! node.isRoot() )
+                node.release() ;
+            node = n ;
+        }
+        PtrBuffer ptrs = node.getPtrBuffer() ;
+        int start = ( fromRec == null ) ? 0 : convert(node.findSlot(fromRec)) ;
+        int finish = ( toRec == null ) ? ptrs.size()-1 : convert(node.findSlot(toRec)) ;
+        // toRec may be past the last key in this node (finish == count).
+        finish = Math.min(finish, ptrs.size()-1) ;
+        int len = Math.max(1, Math.min(max, finish-start+1)) ;
+        int[] ids = new int[len] ;
+        for ( int i = 0 ; i < len ; i++ )
+            ids[i] = ptrs.get(start+i) ;
+        if ( ! node.isRoot() )
+            node.release() ;
+        return ids ;
+    }
+
 
 
     @Override
@@ -37,6 +37,7 @@ import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPage ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPageMgr ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordRangeIterator ;
 import com.hp.hpl.jena.tdb.index.RangeIndex ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 /** B-Tree converted to B+Tree
  * 
@@ -373,11 +374,21 @@ public class BPlusTree implements Iterable<Record>, RangeIndex
     /** Iterate over a range of fromRec (inclusive) to toRec (exclusive) */ 
     private static Iterator<Record> iterator(BPTreeNode node, Record fromRec, Record toRec)
     { 
+        RecordBufferPageMgr pageMgr = node.getBPlusTree().getRecordsMgr().getRecordBufferPageMgr() ;
+        int readAhead = SystemTDB.RangeScanReadAhead ;
+        if ( readAhead > 0 )
+        {
+            // Starting RecordsBufferPage id and the ids of the following pages under the same
+            // leaf-parent node, for read ahead.
+            int[] ids = BPTreeNode.recordsPageIds(node, fromRec, toRec, Integer.MAX_VALUE) ;
+            if ( ids[0] < 0 )
+                return Iter.nullIter() ;
+            return RecordRangeIterator.iterator(ids, fromRec, toRec, pageMgr, readAhead) ;
+        }
         // Look for starting RecordsBufferPage id.
         int id = BPTreeNode.recordsPageId(node, fromRec) ; 
         if ( id < 0 )
             return Iter.nullIter() ;
-        RecordBufferPageMgr pageMgr = node.getBPlusTree().getRecordsMgr().getRecordBufferPageMgr() ;
         // No pages are active at this point.
         return RecordRangeIterator.iterator(id, fromRec, toRec, pageMgr) ;
     }
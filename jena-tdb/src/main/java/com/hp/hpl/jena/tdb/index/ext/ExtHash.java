@@ -22,6 +22,7 @@ package com.hp.hpl.jena.tdb.index.ext;
 
 import static java.lang.String.format;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 
 import com.hp.hpl.jena.sparql.util.Utils ;
 import com.hp.hpl.jena.tdb.base.StorageException;
+import com.hp.hpl.jena.tdb.base.block.Block;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr;
 import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory;
 import com.hp.hpl.jena.tdb.base.buffer.RecordBuffer;
@@ -49,6 +51,9 @@ import com.hp.hpl.jena.tdb.sys.SystemTDB;
 
 /** Extensible hashing
  * http://en.wikipedia.org/wiki/Extendible_hashing
+ * <p>
+ * The dictionary is either a {@link PlainFile} or is kept in blocks of a {@link BlockMgr}
+ * (see {@link #ExtHash(BlockMgr, RecordFactory, BlockMgr)}); the hash buckets are always blocks. 
  */
 
 public final class ExtHash implements Index
@@ -102,7 +107,12 @@ public final class ExtHash implements Index
     
     private final HashBucketMgr hashBucketMgr ;
     private final RecordFactory recordFactory ;
+    // One of these two holds the dictionary.
     private final PlainFile dictionaryFile ;
+    private final BlockMgr dictionaryBlockMgr ;
+    // Dictionary slots in each block of dictionaryBlockMgr, and the number of blocks.
+    private int slotsPerBlock = -1 ;
+    private int dictionaryBlocks = 0 ;
     
     /** Testing version - in-memory but inefficient as it uses a copy-in/copy-out block manager as a RAM disk*/
     static public ExtHash createMem(RecordFactory factory, int bucketSizeBytes )
@@ -114,20 +124,40 @@ public final class ExtHash implements Index
     
     public ExtHash(PlainFile dictionaryBackingFile,  
                    RecordFactory recordFactory, BlockMgr blockMgrHashBuckets)
+    {
+        this(dictionaryBackingFile, null, recordFactory, blockMgrHashBuckets) ;
+    }
+    
+    /** Extensible hash table with the dictionary kept in blocks, so that all the storage
+     * is managed by block managers (file mode, caching, journaling).
+     * The dictionary is read into memory when the table is opened and changes are written through.
+     * The bit length of the trie is the first int of block zero; dictionary slot i is the int after that. 
+     * This object must be the only one updating the storage while it is in use.
+     */
+    public ExtHash(BlockMgr blockMgrDictionary,  
+                   RecordFactory recordFactory, BlockMgr blockMgrHashBuckets)
+    {
+        this(null, blockMgrDictionary, recordFactory, blockMgrHashBuckets) ;
+    }
+    
+    private ExtHash(PlainFile dictionaryBackingFile, BlockMgr blockMgrDictionary,
+                    RecordFactory recordFactory, BlockMgr blockMgrHashBuckets)
     {
         this.dictionaryFile = dictionaryBackingFile ;
-        // Start bigger?
-        int dictionarySize = 1 ;
-        dictionary = dictionaryFile.ensure(SystemTDB.SizeOfInt).asIntBuffer() ;
+        this.dictionaryBlockMgr = blockMgrDictionary ;
+        if ( dictionaryFile != null )
+            dictionary = dictionaryFile.ensure(SystemTDB.SizeOfInt).asIntBuffer() ;
+        else
+            dictionary = readDictionary() ;
         this.recordFactory = recordFactory ; 
         
         hashBucketMgr = new HashBucketMgr(recordFactory, blockMgrHashBuckets) ;
-        hashBucketMgr.valid(0) ;
         
         // Did it exist?
         if ( hashBucketMgr.valid(0) )
         {
-            
+            // The dictionary size is always 1<<bitLen.
+            bitLen = Integer.numberOfTrailingZeros(dictionary.capacity()) ;
         }
         else
         {
@@ -137,6 +167,7 @@ public final class ExtHash implements Index
             HashBucket hb = hashBucketMgr.create(0, 0) ;
             dictionary.put(0, hb.getId()) ;    
             bitLen = 0 ;
+            writeDictionary(0, 1) ;
             hashBucketMgr.put(hb) ;
         }
     }
@@ -215,6 +246,84 @@ public final class ExtHash implements Index
     /** Size of the file, in bytes */
     private static long filesize(int dictionarySize) { return 4L*dictionarySize ; }  
 
+    // =====================
+    // Dictionary in blocks. 
+    // Position 0 is the bit length, position i+1 is dictionary slot i.  
+    
+    private IntBuffer readDictionary()
+    {
+        if ( ! dictionaryBlockMgr.valid(0) )
+        {
+            Block block = dictionaryBlockMgr.allocate(-1) ;
+            if ( block.getId() != 0 )
+                error("Dictionary: first block is not id zero: %d", block.getId()) ;
+            slotsPerBlock = block.getByteBuffer().capacity()/SystemTDB.SizeOfInt ;
+            dictionaryBlocks = 1 ;
+            block.getByteBuffer().putInt(0, 0) ;
+            dictionaryBlockMgr.write(block) ;
+            dictionaryBlockMgr.release(block) ;
+            return IntBuffer.allocate(1) ;
+        }
+
+        Block block0 = dictionaryBlockMgr.getRead(0) ;
+        slotsPerBlock = block0.getByteBuffer().capacity()/SystemTDB.SizeOfInt ;
+        int size = 1<<block0.getByteBuffer().getInt(0) ;
+        dictionaryBlockMgr.release(block0) ;
+        dictionaryBlocks = (size+1+slotsPerBlock-1)/slotsPerBlock ;
+        
+        IntBuffer buffer = IntBuffer.allocate(size) ;
+        for ( int id = 0 ; id*slotsPerBlock < size+1 ; id++ )
+        {
+            Block block = dictionaryBlockMgr.getRead(id) ;
+            ByteBuffer bb = block.getByteBuffer() ;
+            int start = Math.max(1, id*slotsPerBlock) ;
+            int finish = Math.min(size+1, (id+1)*slotsPerBlock) ;
+            for ( int posn = start ; posn < finish ; posn++ )
+                buffer.put(posn-1, bb.getInt((posn-id*slotsPerBlock)*SystemTDB.SizeOfInt)) ;
+            dictionaryBlockMgr.release(block) ;
+        }
+        return buffer ;
+    }
+    
+    /** Write dictionary slots [start, finish) through to the dictionary blocks */
+    private void writeDictionary(int start, int finish)
+    {
+        if ( dictionaryBlockMgr == null )
+            return ;
+        for ( int id = (start+1)/slotsPerBlock ; id*slotsPerBlock < finish+1 ; id++ )
+        {
+            Block block = getDictionaryBlock(id) ;
+            ByteBuffer bb = block.getByteBuffer() ;
+            int begin = Math.max(start+1, id*slotsPerBlock) ;
+            int end = Math.min(finish+1, (id+1)*slotsPerBlock) ;
+            for ( int posn = begin ; posn < end ; posn++ )
+                bb.putInt((posn-id*slotsPerBlock)*SystemTDB.SizeOfInt, dictionary.get(posn-1)) ;
+            dictionaryBlockMgr.write(block) ;
+            dictionaryBlockMgr.release(block) ;
+        }
+    }
+    
+    private void writeBitLen()
+    {
+        if ( dictionaryBlockMgr == null )
+            return ;
+        Block block = dictionaryBlockMgr.getWrite(0) ;
+        block.getByteBuffer().putInt(0, bitLen) ;
+        dictionaryBlockMgr.write(block) ;
+        dictionaryBlockMgr.release(block) ;
+    }
+    
+    private Block getDictionaryBlock(int id)
+    {
+        if ( id < dictionaryBlocks )
+            return dictionaryBlockMgr.getWrite(id) ;
+        Block block = dictionaryBlockMgr.allocate(-1) ;
+        if ( block.getId() != id )
+            error("Dictionary: block allocated out of order: %d, expected %d", block.getId(), id) ;
+        dictionaryBlocks++ ;
+        return block ;
+    }
+
     // =====================
     
     private void resizeDictionary()
@@ -228,7 +337,15 @@ public final class ExtHash implements Index
             log("resize: %d ==> %d", oldSize, newSize) ;
         }
         
-        IntBuffer newDictionary = dictionaryFile.ensure(newSize*SystemTDB.SizeOfInt).asIntBuffer() ;
+        IntBuffer newDictionary ;
+        if ( dictionaryFile != null )
+            newDictionary = dictionaryFile.ensure(newSize*SystemTDB.SizeOfInt).asIntBuffer() ;
+        else
+        {
+            newDictionary = IntBuffer.allocate(newSize) ;
+            for ( int i = 0 ; i < oldSize ; i++ )
+                newDictionary.put(i, dictionary.get(i)) ;
+        }
         if ( dictionary != null )
         {
             // Fill new dictionary
@@ -244,6 +361,8 @@ public final class ExtHash implements Index
         
         dictionary = newDictionary ;
         bitLen = newBitLen ;
+        writeDictionary(0, newSize) ;
+        writeBitLen() ;
 
         if ( logging() )
         {
@@ -265,7 +384,12 @@ public final class ExtHash implements Index
     
     final HashBucket getBucket(int blockId)
     {
-        return hashBucketMgr.get(blockId) ;
+        return hashBucketMgr.getRead(blockId) ;
+    }
+    
+    final void releaseBucket(HashBucket bucket)
+    {
+        hashBucketMgr.release(bucket) ;
     }
     
     public final int dictionarySize()
@@ -286,8 +410,9 @@ public final class ExtHash implements Index
     {
         if ( logging() ) log(">> get(%s)", key) ;
         int blockId = bucketId(key, bitLen) ;
-        HashBucket bucket = hashBucketMgr.get(blockId) ;
+        HashBucket bucket = hashBucketMgr.getRead(blockId) ;
         Record value = bucket.find(key) ;
+        hashBucketMgr.release(bucket) ;
         if ( logging() ) log("<< get(%s) -> %s", key.getKey(), value) ;
         return value ;
     }
@@ -337,8 +462,10 @@ public final class ExtHash implements Index
     { 
        if ( dictionary.limit() == 1 )
        {
-           HashBucket b = hashBucketMgr.get(1) ;
-           return b.isEmpty() ;
+           HashBucket b = hashBucketMgr.getRead(dictionary.get(0)) ;
+           boolean isEmpty = b.isEmpty() ;
+           hashBucketMgr.release(b) ;
+           return isEmpty ;
        }
        // No idea.
        return false ;
@@ -363,8 +490,9 @@ public final class ExtHash implements Index
             if ( seen.contains(id) )
                 continue ;
             seen.add(id) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             count += bucket.getCount() ;
+            hashBucketMgr.release(bucket) ;
         }
         return count ;
     }
@@ -373,14 +501,20 @@ public final class ExtHash implements Index
     public void sync()
     { 
         hashBucketMgr.getBlockMgr().sync() ;
-        dictionaryFile.sync() ;
+        if ( dictionaryFile != null )
+            dictionaryFile.sync() ;
+        else
+            dictionaryBlockMgr.sync() ;
     }
 
     @Override
     public void close()
     {
         hashBucketMgr.getBlockMgr().close() ;
-        dictionaryFile.close() ;
+        if ( dictionaryFile != null )
+            dictionaryFile.close() ;
+        else
+            dictionaryBlockMgr.close() ;
     }
 
     // =====================
@@ -517,6 +651,7 @@ public final class ExtHash implements Index
             
             dictionary.put(k, bucket2.getId()) ;
         }
+        writeDictionary(trieUpperRoot, trieUpperRoot+trieUpperRange) ;
         if ( logging() )
         {
             log("Reorg complete") ;
@@ -630,8 +765,9 @@ public final class ExtHash implements Index
         {
             out.ensureStartOfLine() ;
             int id = dictionary.get(i) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             out.printf("[%d] %02d %s", i, id, bucket) ;
+            hashBucketMgr.release(bucket) ;
         }
         out.decIndent(4) ;
     }
@@ -665,8 +801,9 @@ public final class ExtHash implements Index
                 continue ;
             
             seen.add(id) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             performCheck(i, bucket) ;
+            hashBucketMgr.release(bucket) ;
             
         }
     }
@@ -33,6 +33,7 @@ public class ExtHashIterator implements Iterator<Record>
     private ExtHash extHash ;
     private int dictionaryIdx ;
     private Iterator<Record> rBuffIterator ;
+    private HashBucket bucket ;
     private Set<Integer> blockIds = new HashSet<>() ;
     
     public ExtHashIterator(ExtHash extHash)
@@ -50,6 +51,7 @@ public class ExtHashIterator implements Iterator<Record>
         while ( rBuffIterator == null || ! rBuffIterator.hasNext() )
         {
             rBuffIterator = null ;
+            releaseBucket() ;
             if ( dictionaryIdx >= extHash.dictionarySize() )
                 break ;
             int blockId = extHash.getBucketId(dictionaryIdx) ;
@@ -57,9 +59,9 @@ public class ExtHashIterator implements Iterator<Record>
             dictionaryIdx++ ;
             if ( blockIds.contains(blockId) )
                 continue ;
-            HashBucket b = extHash.getBucket(blockId) ;
+            bucket = extHash.getBucket(blockId) ;
             blockIds.add(blockId) ;
-            rBuffIterator = b.getRecordBuffer().iterator() ;
+            rBuffIterator = bucket.getRecordBuffer().iterator() ;
         }
         
         if ( rBuffIterator == null  )
@@ -70,6 +72,13 @@ public class ExtHashIterator implements Iterator<Record>
         return true ;
     }
 
+    private void releaseBucket()
+    {
+        if ( bucket != null )
+            extHash.releaseBucket(bucket) ;
+        bucket = null ;
+    }
+
     private void finish()
     {
         blockIds = null ;
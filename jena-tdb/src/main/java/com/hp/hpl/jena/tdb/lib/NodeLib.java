@@ -57,6 +57,11 @@ public class NodeLib
     final private static char[] invalidIRIChars = { MarkerChar , ' ' } ; 
     
     public static long encodeStore(Node node, ObjectFile file)
+    {
+        return encodeStore(node, file, nodec) ;
+    }
+
+    public static long encodeStore(Node node, ObjectFile file, Nodec nodec)
     {
         // Buffer pool?
         
@@ -76,11 +81,16 @@ public class NodeLib
     }
     
     public static Node fetchDecode(long id, ObjectFile file)
+    {
+        return fetchDecode(id, file, nodec) ;
+    }
+
+    public static Node fetchDecode(long id, ObjectFile file, Nodec nodec)
     {
         ByteBuffer bb = file.read(id) ;
         if ( bb == null )
             return null ;
-        return decode(bb) ;
+        return decode(bb, nodec) ;
     }
     
     /**
@@ -88,6 +98,11 @@ public class NodeLib
      * anadditional copy in getting the node into the ObjectFile
      */
     public static ByteBuffer encode(Node node)
+    {
+        return encode(node, nodec) ;
+    }
+
+    public static ByteBuffer encode(Node node, Nodec nodec)
     {
         int maxSize = nodec.maxSize(node) ;
         ByteBuffer bb = ByteBuffer.allocate(maxSize) ;
@@ -102,6 +117,11 @@ public class NodeLib
      * additional copy in getting the node from the ObjectFile.
      */
     public static Node decode(ByteBuffer bb)
+    {
+        return decode(bb, nodec) ;
+    }
+
+    public static Node decode(ByteBuffer bb, Nodec nodec)
     {
         bb.position(0) ;
         Node n = nodec.decode(bb, null) ;
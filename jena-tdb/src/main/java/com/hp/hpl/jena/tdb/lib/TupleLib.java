@@ -20,11 +20,16 @@ package com.hp.hpl.jena.tdb.lib;
 
 import static com.hp.hpl.jena.tdb.sys.SystemTDB.SizeOfLong;
 
+import java.util.ArrayList ;
+import java.util.Arrays ;
 import java.util.Iterator;
+import java.util.List ;
+import java.util.NoSuchElementException ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.Transform ;
 import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.ColumnMap ;
 import org.apache.jena.atlas.lib.InternalErrorException ;
 import org.apache.jena.atlas.lib.Tuple ;
@@ -191,6 +196,78 @@ public class TupleLib
         return factory.create(b) ;
     }
 
+    // ---- Packed tuples : NodeId values in long[], one tuple after another.
+
+    /** Pack an iterator of tuples into batches of up to batchSize tuples, each tuple as N longs */
+    public static Iterator<long[]> packIds(Iterator<Tuple<NodeId>> iter, int N, int batchSize)
+    {
+        return new IterPack(iter, N, batchSize) ;
+    }
+
+    /** Unpack batches of tuples of length N */
+    public static Iterator<Tuple<NodeId>> unpackIds(Iterator<long[]> iter, final int N)
+    {
+        Transform<long[], Iterator<Tuple<NodeId>>> action = new Transform<long[], Iterator<Tuple<NodeId>>>(){
+            @Override
+            public Iterator<Tuple<NodeId>> convert(long[] batch)
+            {
+                List<Tuple<NodeId>> x = new ArrayList<>(batch.length/N) ;
+                for ( int i = 0 ; i < batch.length ; i += N )
+                {
+                    NodeId[] ids = new NodeId[N] ;
+                    for ( int j = 0 ; j < N ; j++ )
+                        ids[j] = NodeId.create(batch[i+j]) ;
+                    x.add(Tuple.create(ids)) ;
+                }
+                return x.iterator() ;
+            }} ;
+        return Iter.mapMany(iter, action) ;
+    }
+
+    private static class IterPack implements Iterator<long[]>, Closeable
+    {
+        private static final int InitialRows = 8 ;
+        private final Iterator<Tuple<NodeId>> input ;
+        private final int N ;
+        private final int max ;
+        private long[] buffer ;
+
+        IterPack(Iterator<Tuple<NodeId>> input, int N, int batchSize)
+        {
+            this.input = input ;
+            this.N = N ;
+            this.max = Math.max(1, batchSize)*N ;
+            // Start small, grow as needed : most lookups match few tuples.
+            this.buffer = new long[Math.min(InitialRows*N, max)] ;
+        }
+
+        @Override
+        public boolean hasNext()    { return input.hasNext() ; }
+
+        @Override
+        public long[] next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            int n = 0 ;
+            while ( n < max && input.hasNext() )
+            {
+                if ( n == buffer.length )
+                    buffer = Arrays.copyOf(buffer, Math.min(2*buffer.length, max)) ;
+                Tuple<NodeId> t = input.next() ;
+                for ( int j = 0 ; j < N ; j++ )
+                    buffer[n++] = t.get(j).getId() ;
+            }
+            return Arrays.copyOf(buffer, n) ;
+        }
+
+        @Override
+        public void remove()        { throw new UnsupportedOperationException() ; }
+
+        @Override
+        public void close()         { Iter.close(input) ; }
+    }
+
 
 
 }
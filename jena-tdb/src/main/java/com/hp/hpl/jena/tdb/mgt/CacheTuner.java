@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import java.util.* ;
+import java.util.concurrent.ScheduledFuture ;
+import java.util.concurrent.ScheduledThreadPoolExecutor ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.atlas.lib.CacheStats ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrCache ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.StorageConfig ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableCache ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableLib ;
+import com.hp.hpl.jena.tdb.sys.FileRef ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** Watch the caches of a database and, within a budget, move capacity from
+ * caches that do not need it to caches that do.
+ * <p>
+ * At each rebalance, the tuner records, for each cache, the hits, misses and
+ * ejections since the last rebalance, and estimates its working set: the number of
+ * entries if nothing was ejected, otherwise the capacity plus the number of
+ * ejections.
+ * <p>
+ * The block read caches share the cache budget (a number of blocks, see
+ * {@link com.hp.hpl.jena.tdb.setup.StoreParamsDynamic#getCacheBudget}). The node
+ * caches share the total of their initial sizes. A cache that is ejecting entries
+ * gets more slots, up to its working set estimate: first any slots not allocated,
+ * then slots taken from caches that have far fewer misses per slot. No cache is
+ * made smaller than a quarter of an even share of its budget, and no cache changes
+ * by more than an eighth of the budget in one rebalance.
+ * <p>
+ * Memory mapped files do not have a block cache and are not tuned.
+ */
+public class CacheTuner implements CacheTunerMBean
+{
+    private static Logger log = LoggerFactory.getLogger(CacheTuner.class) ;
+
+    // A cache keeps at least 1/MinShare of an even share of the budget.
+    private static final int MinShare = 4 ;
+    // A cache changes by at most 1/MaxStep of the budget in one rebalance.
+    private static final int MaxStep = 8 ;
+    // Slots are only taken from a cache with at most 1/DonorRatio of the misses per slot.
+    private static final int DonorRatio = 2 ;
+    private static final int MaxDecisions = 20 ;
+
+    /** A cache that is watched and resized. */
+    static abstract class Tuned
+    {
+        final String name ;
+        // Counters at the last rebalance.
+        private long lastHits = 0 ;
+        private long lastMisses = 0 ;
+        private long lastEjects = 0 ;
+        // Activity between the last two rebalances.
+        long hits = 0 ;
+        long misses = 0 ;
+        long ejects = 0 ;
+        // Smoothed estimate; -1 for not yet observed.
+        double workingSet = -1 ;
+
+        Tuned(String name) { this.name = name ; }
+
+        abstract long totalHits() ;
+        abstract long totalMisses() ;
+        abstract long totalEjects() ;
+        abstract long entries() ;
+        abstract int getSize() ;
+        abstract void setSize(int size) ;
+
+        void observe()
+        {
+            long h = totalHits() ;
+            long m = totalMisses() ;
+            long e = totalEjects() ;
+            hits = h - lastHits ;
+            misses = m - lastMisses ;
+            ejects = e - lastEjects ;
+            lastHits = h ;
+            lastMisses = m ;
+            lastEjects = e ;
+            double ws = ( ejects == 0 ) ? entries() : getSize()+ejects ;
+            workingSet = ( workingSet < 0 ) ? ws : (workingSet+ws)/2 ;
+        }
+
+        /** Entries being lost while still being asked for. */
+        boolean underPressure()     { return ejects > 0 && misses > 0 ; }
+
+        /** Misses per slot between the last two rebalances. */
+        double missDensity()
+        {
+            int size = getSize() ;
+            return size <= 0 ? 0 : ((double)misses)/size ;
+        }
+
+        @Override
+        public String toString()
+        {
+            long h = totalHits() ;
+            long total = h+totalMisses() ;
+            double hitRate = ( total == 0 ) ? 0 : ((double)h)/total ;
+            return String.format("%s size=%d entries=%d hitRate=%.3f hits=%d misses=%d ejects=%d workingSet=%.0f",
+                                 name, getSize(), entries(), hitRate, hits, misses, ejects, Math.max(0, workingSet)) ;
+        }
+    }
+
+    /** Caches sharing a budget. */
+    static class Pool
+    {
+        final List<Tuned> caches = new ArrayList<>() ;
+        int budget ;
+
+        Pool(int budget) { this.budget = budget ; }
+
+        int total()
+        {
+            int x = 0 ;
+            for ( Tuned t : caches )
+                x += t.getSize() ;
+            return x ;
+        }
+    }
+
+    private final Pool blockCaches ;
+    private final Pool nodeCaches = new Pool(0) ;
+    private final long interval ;
+    private final Deque<String> decisions = new ArrayDeque<>() ;
+    private long rebalanceCount = 0 ;
+    private long slotsMoved = 0 ;
+    private ScheduledFuture<?> task = null ;
+    private boolean closed = false ;
+
+    /** Tuner for the caches of a database, using the cache budget of the database */
+    public static CacheTuner create(DatasetGraphTDB dsg)
+    {
+        StorageConfig config = dsg.getConfig() ;
+        CacheTuner tuner = new CacheTuner(config.params.getCacheBudget(), SystemTDB.CacheTuningInterval) ;
+        for ( Map.Entry<FileRef, BlockMgr> e : config.blockMgrs.entrySet() )
+        {
+            BlockMgrCache cache = BlockMgrFactory.findCache(e.getValue()) ;
+            if ( cache != null )
+                tuner.addBlockCache(e.getKey().getFilename(), cache) ;
+        }
+        for ( Map.Entry<FileRef, NodeTable> e : config.nodeTables.entrySet() )
+        {
+            NodeTableCache cache = NodeTableLib.findCache(e.getValue()) ;
+            if ( cache != null )
+                tuner.addNodeCaches(e.getKey().getFilename(), cache) ;
+        }
+        return tuner ;
+    }
+
+    /** Tuner with no caches.
+     * @param cacheBudget   Block read cache slots shared by the block caches; 0 or less for no tuning.
+     * @param interval      Milliseconds between automatic rebalances; 0 or less for none.
+     */
+    public CacheTuner(int cacheBudget, long interval)
+    {
+        this.blockCaches = new Pool(cacheBudget) ;
+        this.interval = interval ;
+    }
+
+    /** Watch, and tune, the read cache of a BlockMgr. */
+    public synchronized void addBlockCache(String name, final BlockMgrCache cache)
+    {
+        if ( cache.getReadCacheSize() <= 0 )
+            return ;
+        blockCaches.caches.add(new Tuned(name) {
+            @Override long totalHits()      { return cache.getCacheReadHits()+cache.getCacheWriteHits() ; }
+            @Override long totalMisses()    { return cache.getCacheMisses() ; }
+            @Override long totalEjects()    { return cache.getReadCacheStats().getCacheEjects() ; }
+            @Override long entries()        { return cache.getReadCacheStats().size() ; }
+            @Override int getSize()         { return cache.getReadCacheSize() ; }
+            @Override void setSize(int size){ cache.setReadCacheSize(size) ; }
+        }) ;
+    }
+
+    /** Watch, and tune, the Node to NodeId and NodeId to Node caches of a node table. */
+    public synchronized void addNodeCaches(String name, final NodeTableCache cache)
+    {
+        if ( cache.getNode2NodeIdCacheSize() > 0 )
+        {
+            final CacheStats<?,?> stats = cache.getNode2NodeIdCacheStats() ;
+            nodeCaches.budget += cache.getNode2NodeIdCacheSize() ;
+            nodeCaches.caches.add(new TunedNodeCache(name+"/node2id", stats) {
+                @Override int getSize()         { return cache.getNode2NodeIdCacheSize() ; }
+                @Override void setSize(int size){ cache.setNode2NodeIdCacheSize(size) ; }
+            }) ;
+        }
+        if ( cache.getNodeId2NodeCacheSize() > 0 )
+        {
+            final CacheStats<?,?> stats = cache.getNodeId2NodeCacheStats() ;
+            nodeCaches.budget += cache.getNodeId2NodeCacheSize() ;
+            nodeCaches.caches.add(new TunedNodeCache(name+"/id2node", stats) {
+                @Override int getSize()         { return cache.getNodeId2NodeCacheSize() ; }
+                @Override void setSize(int size){ cache.setNodeId2NodeCacheSize(size) ; }
+            }) ;
+        }
+    }
+
+    private static abstract class TunedNodeCache extends Tuned
+    {
+        private final CacheStats<?,?> stats ;
+
+        TunedNodeCache(String name, CacheStats<?,?> stats)
+        {
+            super(name) ;
+            this.stats = stats ;
+        }
+
+        @Override long totalHits()      { return stats.getCacheHits() ; }
+        @Override long totalMisses()    { return stats.getCacheMisses() ; }
+        @Override long totalEjects()    { return stats.getCacheEjects() ; }
+        @Override long entries()        { return stats.size() ; }
+    }
+
+    /** Start rebalancing periodically (if there is a budget and an interval). */
+    public synchronized void start()
+    {
+        if ( closed || task != null || interval <= 0 || blockCaches.budget <= 0 )
+            return ;
+        task = executor().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run()
+            {
+                try { rebalance() ; }
+                catch (Throwable th) { log.warn("Cache tuning", th) ; }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS) ;
+    }
+
+    /** Stop watching the caches. */
+    public synchronized void close()
+    {
+        stop() ;
+        closed = true ;
+    }
+
+    private void stop()
+    {
+        if ( task == null )
+            return ;
+        task.cancel(false) ;
+        task = null ;
+    }
+
+    @Override
+    public synchronized int getCacheBudget()
+    {
+        return blockCaches.budget ;
+    }
+
+    @Override
+    public synchronized void setCacheBudget(int budget)
+    {
+        blockCaches.budget = budget ;
+        if ( budget > 0 )
+            start() ;
+        else
+            stop() ;
+    }
+
+    @Override
+    public long getInterval()                       { return Math.max(0, interval) ; }
+
+    @Override
+    public synchronized long getRebalanceCount()    { return rebalanceCount ; }
+
+    @Override
+    public synchronized long getSlotsMoved()        { return slotsMoved ; }
+
+    @Override
+    public synchronized String[] getCaches()
+    {
+        List<String> x = new ArrayList<>() ;
+        for ( Tuned t : blockCaches.caches )
+            x.add(t.toString()) ;
+        for ( Tuned t : nodeCaches.caches )
+            x.add(t.toString()) ;
+        return x.toArray(new String[x.size()]) ;
+    }
+
+    @Override
+    public synchronized String[] getDecisions()
+    {
+        return decisions.toArray(new String[decisions.size()]) ;
+    }
+
+    @Override
+    public synchronized void rebalance()
+    {
+        if ( closed )
+            return ;
+        rebalanceCount++ ;
+        for ( Tuned t : blockCaches.caches )
+            t.observe() ;
+        for ( Tuned t : nodeCaches.caches )
+            t.observe() ;
+        // The node caches are only tuned when tuning is enabled.
+        if ( blockCaches.budget <= 0 )
+            return ;
+        rebalance(blockCaches) ;
+        rebalance(nodeCaches) ;
+    }
+
+    private void rebalance(Pool pool)
+    {
+        int n = pool.caches.size() ;
+        if ( pool.budget <= 0 || n == 0 )
+            return ;
+        int minSize = Math.max(1, pool.budget/(MinShare*n)) ;
+        int maxStep = Math.max(1, pool.budget/MaxStep) ;
+        int free = pool.budget - pool.total() ;
+
+        // Coldest first.
+        List<Tuned> donors = new ArrayList<>(pool.caches) ;
+        Collections.sort(donors, new Comparator<Tuned>() {
+            @Override
+            public int compare(Tuned t1, Tuned t2) { return Double.compare(t1.missDensity(), t2.missDensity()) ; }
+        }) ;
+
+        // More caches in use than the budget allows (a new or reduced budget).
+        for ( Tuned t : donors )
+        {
+            if ( free >= 0 )
+                break ;
+            int give = Math.min(-free, t.getSize()-minSize) ;
+            if ( give <= 0 )
+                continue ;
+            resize(t, t.getSize()-give, "over budget") ;
+            free += give ;
+        }
+
+        // Most misses first.
+        List<Tuned> needy = new ArrayList<>() ;
+        for ( Tuned t : pool.caches )
+            if ( t.underPressure() )
+                needy.add(t) ;
+        Collections.sort(needy, new Comparator<Tuned>() {
+            @Override
+            public int compare(Tuned t1, Tuned t2) { return Long.compare(t2.misses, t1.misses) ; }
+        }) ;
+
+        for ( Tuned t : needy )
+        {
+            int want = Math.min(maxStep, (int)Math.ceil(t.workingSet) - t.getSize()) ;
+            if ( want <= 0 )
+                continue ;
+            int got = Math.max(0, Math.min(want, free)) ;
+            free -= got ;
+            for ( Tuned d : donors )
+            {
+                if ( got >= want )
+                    break ;
+                if ( d == t || d.missDensity()*DonorRatio >= t.missDensity() )
+                    continue ;
+                int give = Math.min(want-got, d.getSize()-minSize) ;
+                if ( give <= 0 )
+                    continue ;
+                resize(d, d.getSize()-give, "to "+t.name) ;
+                got += give ;
+            }
+            if ( got > 0 )
+                resize(t, t.getSize()+got, String.format("misses=%d ejects=%d", t.misses, t.ejects)) ;
+        }
+    }
+
+    private void resize(Tuned t, int size, String reason)
+    {
+        int oldSize = t.getSize() ;
+        t.setSize(size) ;
+        if ( size > oldSize )
+            slotsMoved += size - oldSize ;
+        String decision = String.format("[%d] %s: %d -> %d (%s)", rebalanceCount, t.name, oldSize, size, reason) ;
+        log.debug(decision) ;
+        decisions.addLast(decision) ;
+        while ( decisions.size() > MaxDecisions )
+            decisions.removeFirst() ;
+    }
+
+    // One thread for all tuners.
+    private static ScheduledThreadPoolExecutor executor = null ;
+
+    private static synchronized ScheduledThreadPoolExecutor executor()
+    {
+        if ( executor == null )
+        {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "TDB cache tuner") ;
+                    t.setDaemon(true) ;
+                    return t ;
+                }
+            }) ;
+            executor.setRemoveOnCancelPolicy(true) ;
+        }
+        return executor ;
+    }
+}
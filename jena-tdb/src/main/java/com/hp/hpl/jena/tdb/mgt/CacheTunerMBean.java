@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+public interface CacheTunerMBean
+{
+    /** Total block read cache slots shared by the files of the database; 0 or less if cache sizes are fixed */
+    public int getCacheBudget() ;
+
+    /** Change the block read cache budget. Caches are adjusted at the next rebalance.
+     *  0 or less stops the tuning; caches keep their current sizes. */
+    public void setCacheBudget(int budget) ;
+
+    /** Milliseconds between automatic rebalances; 0 if only on request */
+    public long getInterval() ;
+
+    /** Number of rebalances done */
+    public long getRebalanceCount() ;
+
+    /** Total number of slots moved between caches */
+    public long getSlotsMoved() ;
+
+    /** Each cache: capacity, entries, hit rate, and the activity and working set estimate at the last rebalance */
+    public String[] getCaches() ;
+
+    /** The most recent changes of cache size, oldest first */
+    public String[] getDecisions() ;
+
+    /** Look at the caches now and move capacity between them if necessary */
+    public void rebalance() ;
+}
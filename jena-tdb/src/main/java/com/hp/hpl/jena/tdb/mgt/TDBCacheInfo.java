@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import org.apache.jena.atlas.lib.CacheStats ;
+
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableCache ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableLib ;
+
+/** Node cache statistics for one TDB dataset.
+ * The triple and quad tables of a dataset share a node table, so there is one set of node caches.
+ * Each {@link com.hp.hpl.jena.tdb.StoreConnection} registers one with {@code ARQMgt}, as "type=NodeCache".
+ */
+public class TDBCacheInfo implements TDBCacheInfoMBean
+{
+    private final NodeTableCache nodeTableCache ;
+
+    public TDBCacheInfo(DatasetGraphTDB dsg)
+    {
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        this.nodeTableCache = NodeTableLib.findCache(nodeTable) ;
+    }
+
+    @Override
+    public String getNodeCacheType()
+    {
+        if ( nodeTableCache == null )
+            return null ;
+        return nodeTableCache.getCacheType().name() ;
+    }
+
+    @Override
+    public long getNode2NodeIdCacheEntries()    { return entries(node2id()) ; }
+    @Override
+    public long getNode2NodeIdCacheHits()       { return hits(node2id()) ; }
+    @Override
+    public long getNode2NodeIdCacheMisses()     { return misses(node2id()) ; }
+    @Override
+    public long getNode2NodeIdCacheEjects()     { return ejects(node2id()) ; }
+
+    @Override
+    public long getNodeId2NodeCacheEntries()    { return entries(id2node()) ; }
+    @Override
+    public long getNodeId2NodeCacheHits()       { return hits(id2node()) ; }
+    @Override
+    public long getNodeId2NodeCacheMisses()     { return misses(id2node()) ; }
+    @Override
+    public long getNodeId2NodeCacheEjects()     { return ejects(id2node()) ; }
+
+    private CacheStats<?,?> node2id()
+    { return nodeTableCache == null ? null : nodeTableCache.getNode2NodeIdCacheStats() ; }
+
+    private CacheStats<?,?> id2node()
+    { return nodeTableCache == null ? null : nodeTableCache.getNodeId2NodeCacheStats() ; }
+
+    private static long entries(CacheStats<?,?> stats) { return stats == null ? 0 : stats.getCacheEntries() ; }
+    private static long hits(CacheStats<?,?> stats)    { return stats == null ? 0 : stats.getCacheHits() ; }
+    private static long misses(CacheStats<?,?> stats)  { return stats == null ? 0 : stats.getCacheMisses() ; }
+    private static long ejects(CacheStats<?,?> stats)  { return stats == null ? 0 : stats.getCacheEjects() ; }
+}
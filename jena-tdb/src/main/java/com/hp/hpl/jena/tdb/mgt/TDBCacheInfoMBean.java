@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+/** Node cache statistics for one TDB dataset */
+public interface TDBCacheInfoMBean
+{
+    /** Kind of node cache ("lru" or "concurrent"), or null if the node table is not cached */
+    public String getNodeCacheType() ;
+
+    /** Number of entries in the Node to NodeId cache */
+    public long getNode2NodeIdCacheEntries() ;
+    /** Lookups in the Node to NodeId cache that found an entry */
+    public long getNode2NodeIdCacheHits() ;
+    /** Lookups in the Node to NodeId cache that did not find an entry */
+    public long getNode2NodeIdCacheMisses() ;
+    /** Entries ejected from the Node to NodeId cache to make space */
+    public long getNode2NodeIdCacheEjects() ;
+
+    /** Number of entries in the NodeId to Node cache */
+    public long getNodeId2NodeCacheEntries() ;
+    /** Lookups in the NodeId to Node cache that found an entry */
+    public long getNodeId2NodeCacheHits() ;
+    /** Lookups in the NodeId to Node cache that did not find an entry */
+    public long getNodeId2NodeCacheMisses() ;
+    /** Entries ejected from the NodeId to Node cache to make space */
+    public long getNodeId2NodeCacheEjects() ;
+}
@@ -19,15 +19,19 @@
 package com.hp.hpl.jena.tdb.setup;
 
 import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.FileOps ;
 
+import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.base.file.FileFactory ;
 import com.hp.hpl.jena.tdb.base.file.FileSet ;
 import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.index.BuilderStdIndex ;
 import com.hp.hpl.jena.tdb.index.Index ;
 import com.hp.hpl.jena.tdb.index.IndexBuilder ;
 import com.hp.hpl.jena.tdb.index.RangeIndex ;
 import com.hp.hpl.jena.tdb.index.RangeIndexBuilder ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeIndexType ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableCache ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableInline ;
@@ -60,26 +64,49 @@ public class BuilderStdDB {
     public static class NodeTableBuilderStd implements NodeTableBuilder
     {
         private final IndexBuilder indexBuilder ;
+        private final IndexBuilder hashIndexBuilder ;
         private final ObjectFileBuilder objectFileBuilder ;
         
         public NodeTableBuilderStd(IndexBuilder indexBuilder, ObjectFileBuilder objectFileBuilder) {
+            this(indexBuilder, 
+                 new BuilderStdIndex.IndexBuilderExtHash(new BuilderStdIndex.BlockMgrBuilderStd(), new BuilderStdIndex.BlockMgrBuilderStd()),
+                 objectFileBuilder) ;
+        }
+        
+        /** Node table builder; the node to NodeId index is built by {@code indexBuilder}
+         * or, if {@link StoreParams#getNode2IdIndexType()} is {@link NodeIndexType#exthash}, by {@code hashIndexBuilder}.
+         */
+        public NodeTableBuilderStd(IndexBuilder indexBuilder, IndexBuilder hashIndexBuilder, ObjectFileBuilder objectFileBuilder) {
             this.indexBuilder = indexBuilder ;
+            this.hashIndexBuilder = hashIndexBuilder ;
             this.objectFileBuilder = objectFileBuilder ;
         }
     
         @Override
         public NodeTable buildNodeTable(FileSet fsIndex, FileSet fsObjectFile, StoreParams params) {
             RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId) ;
-            Index idx = indexBuilder.buildIndex(fsIndex, recordFactory, params) ;
+            Index idx = buildNodeIndex(fsIndex, recordFactory, params) ;
             ObjectFile objectFile = objectFileBuilder.buildObjectFile(fsObjectFile, Names.extNodeData) ;
-            NodeTable nodeTable = new NodeTableNative(idx, objectFile) ;
-            nodeTable = NodeTableCache.create(nodeTable, 
-                                              params.getNode2NodeIdCacheSize(),
-                                              params.getNodeId2NodeCacheSize(),
-                                              params.getNodeMissCacheSize()) ;
+            NodeTable nodeTable = new NodeTableNative(idx, objectFile, params.getNodeEncoding().create(params.getNodeNamespaces())) ;
+            nodeTable = NodeTableCache.create(nodeTable, params) ;
             nodeTable = NodeTableInline.create(nodeTable) ;
             return nodeTable ;
         }
+        
+        private Index buildNodeIndex(FileSet fsIndex, RecordFactory recordFactory, StoreParams params) {
+            NodeIndexType indexType = params.getNode2IdIndexType() ;
+            // Do not build one kind of index over the files of the other kind.
+            if ( ! fsIndex.isMem() ) {
+                String other = ( indexType == NodeIndexType.exthash ) ? Names.bptExtTree : Names.extHashExt ;
+                if ( FileOps.exists(fsIndex.filename(other)) )
+                    throw new TDBException("Node table index "+fsIndex.filename(other)+" exists but the index type is "+indexType) ;
+            }
+            switch(indexType) {
+                case exthash:   return hashIndexBuilder.buildIndex(fsIndex, recordFactory, params) ;
+                case bptree:
+                default:        return indexBuilder.buildIndex(fsIndex, recordFactory, params) ;
+            }
+        }
     }
 
     public static class ObjectFileBuilderStd implements ObjectFileBuilder
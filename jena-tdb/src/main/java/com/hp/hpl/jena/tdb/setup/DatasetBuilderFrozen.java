@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.setup ;
+
+import java.io.File ;
+
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.base.file.FileFactory ;
+import com.hp.hpl.jena.tdb.base.file.FileSet ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.index.BuilderStdIndex ;
+import com.hp.hpl.jena.tdb.index.Index ;
+import com.hp.hpl.jena.tdb.index.IndexBuilder ;
+import com.hp.hpl.jena.tdb.index.IndexParams ;
+import com.hp.hpl.jena.tdb.store.* ;
+import com.hp.hpl.jena.tdb.store.nodetable.* ;
+import com.hp.hpl.jena.tdb.sys.DatasetControl ;
+import com.hp.hpl.jena.tdb.sys.DatasetControlReadOnly ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/**
+ * Build a {@link DatasetGraphFrozen}: a read-only dataset over the files of a
+ * frozen database. The indexes and node tables are memory mapped read-only;
+ * there are no block caches, no locks around the storage and the node table caches
+ * are the concurrent ones.
+ * 
+ * @see com.hp.hpl.jena.tdb.TDBFreeze
+ */
+public class DatasetBuilderFrozen extends DatasetBuilderStd {
+
+    /** Open the frozen database at a location, with the {@link StoreParams} it was built with. */
+    public static DatasetGraphTDB create(Location location) {
+        if ( location.isMem() )
+            throw new TDBException("An in-memory database can not be frozen") ;
+        StoreParams params = StoreParamsCodec.read(location) ;
+        if ( params == null )
+            params = StoreParams.getDftStoreParams() ;
+        params = StoreParams.builder(params).nodeCacheType(NodeCacheType.concurrent).build() ;
+        DatasetBuilderFrozen x = new DatasetBuilderFrozen() ;
+        return x.build(location, params) ;
+    }
+
+    private DatasetBuilderFrozen() {
+        BlockMgrBuilder blockMgrBuilder = new BlockMgrBuilderFrozen() ;
+        IndexBuilder indexBuilder = new BuilderStdIndex.IndexBuilderStd(blockMgrBuilder, blockMgrBuilder) ;
+        IndexBuilder hashIndexBuilder = new BuilderStdIndex.IndexBuilderExtHash(blockMgrBuilder, blockMgrBuilder) ;
+        set(blockMgrBuilder, new NodeTableBuilderFrozen(indexBuilder, hashIndexBuilder)) ;
+    }
+
+    @Override
+    public DatasetGraphTDB build(Location location, StoreParams params) {
+        // The directory need not be writable.
+        File dir = new File(location.getDirectoryPath()) ;
+        if ( ! dir.isDirectory() || ! dir.canRead() )
+            throw new TDBException("Not a readable directory: "+location.getDirectoryPath()) ;
+        return _build(location, params, false, null) ;
+    }
+
+    @Override
+    protected DatasetControl createConcurrencyPolicy() {
+        return new DatasetControlReadOnly() ;
+    }
+
+    @Override
+    protected DatasetGraphTDB createDatasetGraph(TripleTable tripleTable, QuadTable quadTable, TripleTable unionTable,
+                                                 DatasetPrefixesTDB prefixes,
+                                                 ReorderTransformation transform, StorageConfig storageConfig) {
+        return new DatasetGraphFrozen(tripleTable, quadTable, unionTable, prefixes, transform, storageConfig) ;
+    }
+
+    /** Block managers over files memory mapped read-only */
+    public static class BlockMgrBuilderFrozen implements BlockMgrBuilder
+    {
+        @Override
+        public BlockMgr buildBlockMgr(FileSet fileSet, String ext, IndexParams indexParams) {
+            return BlockMgrFactory.createMMapFileReadOnly(fileSet.filename(ext), indexParams.getBlockSize()) ;
+        }
+    }
+
+    /** Node tables over files memory mapped read-only */
+    public static class NodeTableBuilderFrozen implements NodeTableBuilder
+    {
+        private final IndexBuilder indexBuilder ;
+        private final IndexBuilder hashIndexBuilder ;
+
+        public NodeTableBuilderFrozen(IndexBuilder indexBuilder, IndexBuilder hashIndexBuilder) {
+            this.indexBuilder = indexBuilder ;
+            this.hashIndexBuilder = hashIndexBuilder ;
+        }
+
+        @Override
+        public NodeTable buildNodeTable(FileSet fsIndex, FileSet fsObjectFile, StoreParams params) {
+            RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId) ;
+            IndexBuilder builder = ( params.getNode2IdIndexType() == NodeIndexType.exthash ) ? hashIndexBuilder : indexBuilder ;
+            Index idx = builder.buildIndex(fsIndex, recordFactory, params) ;
+            ObjectFile objectFile = FileFactory.createObjectFileReadOnly(fsObjectFile.filename(Names.extNodeData)) ;
+            NodeTable nodeTable = NodeTableNative.createReadOnly(idx, objectFile, params.getNodeEncoding().create(params.getNodeNamespaces())) ;
+            nodeTable = NodeTableCache.create(nodeTable, params) ;
+            nodeTable = NodeTableInline.create(nodeTable) ;
+            return nodeTable ;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.engine.main.QC ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderLib ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.sparql.sse.ItemException ;
 import com.hp.hpl.jena.sparql.sse.SSEParseException ;
 import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBException ;
@@ -44,6 +45,8 @@ import com.hp.hpl.jena.tdb.index.IndexBuilder ;
 import com.hp.hpl.jena.tdb.index.IndexParams ;
 import com.hp.hpl.jena.tdb.index.RangeIndexBuilder ;
 import com.hp.hpl.jena.tdb.solver.OpExecutorTDB1 ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSets ;
+import com.hp.hpl.jena.tdb.solver.stats.ReorderCharacteristicSets ;
 import com.hp.hpl.jena.tdb.store.* ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
@@ -180,7 +183,8 @@ public class DatasetBuilderStd implements DatasetBuilder {
         ObjectFileBuilder objectFileBuilder = new BuilderStdDB.ObjectFileBuilderStd() ;
         BlockMgrBuilder blockMgrBuilder = new BuilderStdIndex.BlockMgrBuilderStd() ;
         IndexBuilder indexBuilderNT = new BuilderStdIndex.IndexBuilderStd(blockMgrBuilder, blockMgrBuilder) ;
-        NodeTableBuilder nodeTableBuilder = new BuilderStdDB.NodeTableBuilderStd(indexBuilderNT, objectFileBuilder) ;
+        IndexBuilder hashIndexBuilderNT = new BuilderStdIndex.IndexBuilderExtHash(blockMgrBuilder, blockMgrBuilder) ;
+        NodeTableBuilder nodeTableBuilder = new BuilderStdDB.NodeTableBuilderStd(indexBuilderNT, hashIndexBuilderNT, objectFileBuilder) ;
         set(blockMgrBuilder, nodeTableBuilder) ;
     }
 
@@ -210,6 +214,7 @@ public class DatasetBuilderStd implements DatasetBuilder {
         NodeTable nodeTable = makeNodeTable(location, params) ;
         TripleTable tripleTable = makeTripleTable(location, nodeTable, policy, params) ;
         QuadTable quadTable = makeQuadTable(location, nodeTable, policy, params) ;
+        TripleTable unionTable = makeUnionTable(location, nodeTable, policy, params) ;
         DatasetPrefixesTDB prefixes = makePrefixTable(location, policy, params) ;
 
         ReorderTransformation transform = (_transform == null) ? chooseReorderTransformation(location) : _transform ;
@@ -219,7 +224,7 @@ public class DatasetBuilderStd implements DatasetBuilder {
         
         recorder.finish() ;
         
-        DatasetGraphTDB dsg = new DatasetGraphTDB(tripleTable, quadTable, prefixes, transform, storageConfig) ;
+        DatasetGraphTDB dsg = createDatasetGraph(tripleTable, quadTable, unionTable, prefixes, transform, storageConfig) ;
         // TDB does filter placement on BGPs itself.
         dsg.getContext().set(ARQ.optFilterPlacementBGP, false) ;
         QC.setFactory(dsg.getContext(), OpExecutorTDB1.OpExecFactoryTDB) ;
@@ -230,6 +235,12 @@ public class DatasetBuilderStd implements DatasetBuilder {
         return Collections.unmodifiableMap(new HashMap<>(map)) ;  
     }
 
+    protected DatasetGraphTDB createDatasetGraph(TripleTable tripleTable, QuadTable quadTable, TripleTable unionTable,
+                                                 DatasetPrefixesTDB prefixes,
+                                                 ReorderTransformation transform, StorageConfig storageConfig) {
+        return new DatasetGraphTDB(tripleTable, quadTable, unionTable, prefixes, transform, storageConfig) ;
+    }
+
     protected DatasetControl createConcurrencyPolicy() {
         return new DatasetControlMRSW() ;
     }
@@ -272,6 +283,26 @@ public class DatasetBuilderStd implements DatasetBuilder {
         return quadTable ;
     }
 
+    /** The graph-agnostic union triple table, or null if {@link StoreParams#getUnionIndexes()} is empty.
+     *  It shares the node table of the triple and quad tables.
+     */
+    protected TripleTable makeUnionTable(Location location, NodeTable nodeTable, DatasetControl policy, StoreParams params) {
+        String primary = params.getPrimaryIndexTriples() ;
+        String[] indexes = params.getUnionIndexes() ;
+        if ( indexes == null || indexes.length == 0 )
+            return null ;
+
+        String[] filenames = new String[indexes.length] ;
+        for ( int i = 0 ; i < indexes.length ; i++ )
+            filenames[i] = Names.unionIndexFilePrefix + indexes[i] ;
+        log.debug("Union table: " + primary + " :: " + StrUtils.strjoin(",", filenames)) ;
+
+        TupleIndex unionIndexes[] = makeTupleIndexes(location, primary, indexes, filenames, params) ;
+        if ( unionIndexes.length != indexes.length )
+            error(log, "Wrong number of union table tuples indexes: " + unionIndexes.length) ;
+        return new TripleTable(unionIndexes, nodeTable, policy) ;
+    }
+
     protected DatasetPrefixesTDB makePrefixTable(Location location, DatasetControl policy, StoreParams params) {
         String primary = params.getPrimaryIndexPrefix() ;
         String[] indexes = params.getPrefixIndexes() ;
@@ -376,7 +407,18 @@ public class DatasetBuilderStd implements DatasetBuilder {
             return ReorderLib.identity() ;
 
         ReorderTransformation reorder = null ;
-        if ( location.exists(Names.optStats) ) {
+        if ( location.exists(Names.optCharSets) ) {
+            try {
+                reorder = new ReorderCharacteristicSets(CharacteristicSets.read(location.getPath(Names.optCharSets))) ;
+                log.debug("Characteristic sets BGP optimizer") ;
+            }
+            catch (SSEParseException | ItemException ex) {
+                log.warn("Error in characteristic sets file: " + ex.getMessage()) ;
+                reorder = null ;
+            }
+        }
+
+        if ( reorder == null && location.exists(Names.optStats) ) {
             try {
                 reorder = ReorderLib.weighted(location.getPath(Names.optStats)) ;
                 log.debug("Statistics-based BGP optimizer") ;
@@ -22,9 +22,13 @@ import java.util.Objects ;
 
 import org.apache.jena.atlas.lib.StrUtils ;
 
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
 import com.hp.hpl.jena.tdb.index.IndexParams ;
 import com.hp.hpl.jena.tdb.setup.StoreParamsBuilder.Item ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeEncoding ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeIndexType ;
 
 /** System parameters for a TDB database instance. 
  * <p>
@@ -49,9 +53,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<FileMode>           fileMode ;
     /*package*/ final Item<Integer>            blockReadCacheSize ;
     /*package*/ final Item<Integer>            blockWriteCacheSize ;
+    /*package*/ final Item<BlockCacheType>     blockCacheType ;
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize ;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize ;
     /*package*/ final Item<Integer>            NodeMissCacheSize ;
+    /*package*/ final Item<NodeCacheType>      nodeCacheType ;
+    /*package*/ final Item<Integer>            cacheBudget ;
 
     /* These are items affect database layout and
      * only can be applied when a database is created.
@@ -63,10 +70,14 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            blockSize ;
     /*package*/ final Item<String>             indexNode2Id ;
     /*package*/ final Item<String>             indexId2Node ;
+    /*package*/ final Item<NodeIndexType>      node2IdIndexType ;
+    /*package*/ final Item<NodeEncoding>       nodeEncoding ;
+    /*package*/ final Item<String[]>           nodeNamespaces ;
     /*package*/ final Item<String>             primaryIndexTriples ;
     /*package*/ final Item<String[]>           tripleIndexes ;
     /*package*/ final Item<String>             primaryIndexQuads ;
     /*package*/ final Item<String[]>           quadIndexes ;
+    /*package*/ final Item<String[]>           unionIndexes ;
     /*package*/ final Item<String>             primaryIndexPrefix ;
     /*package*/ final Item<String[]>           prefixIndexes ;
     /*package*/ final Item<String>             indexPrefix ;
@@ -87,27 +98,39 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     
     /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize,
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
+                            Item<BlockCacheType> blockCacheType,
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
-                            Item<Integer> nodeMissCacheSize,
-                            Item<String> indexNode2Id, Item<String> indexId2Node, 
+                            Item<Integer> nodeMissCacheSize, Item<NodeCacheType> nodeCacheType,
+                            Item<Integer> cacheBudget,
+                            Item<String> indexNode2Id, Item<String> indexId2Node,
+                            Item<NodeIndexType> node2IdIndexType, Item<NodeEncoding> nodeEncoding,
+                            Item<String[]> nodeNamespaces,
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
+                            Item<String[]> unionIndexes,
                             Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
                             Item<String> indexPrefix, Item<String> prefixNode2Id, Item<String> prefixId2Node) {
         this.fileMode               = fileMode ;
         this.blockSize              = blockSize ;
         this.blockReadCacheSize     = blockReadCacheSize ;
         this.blockWriteCacheSize    = blockWriteCacheSize ;
+        this.blockCacheType         = blockCacheType ;
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize ;
         this.NodeId2NodeCacheSize   = nodeId2NodeCacheSize ;
         this.NodeMissCacheSize      = nodeMissCacheSize ;
+        this.nodeCacheType          = nodeCacheType ;
+        this.cacheBudget            = cacheBudget ;
 
         this.indexNode2Id           = indexNode2Id ;
         this.indexId2Node           = indexId2Node ;
+        this.node2IdIndexType       = node2IdIndexType ;
+        this.nodeEncoding           = nodeEncoding ;
+        this.nodeNamespaces         = nodeNamespaces ;
         this.primaryIndexTriples    = primaryIndexTriples ;
         this.tripleIndexes          = tripleIndexes ;
         this.primaryIndexQuads      = primaryIndexQuads ;
         this.quadIndexes            = quadIndexes ;
+        this.unionIndexes           = unionIndexes ;
         this.primaryIndexPrefix     = primaryIndexPrefix ;
         this.prefixIndexes          = prefixIndexes ;
         this.indexPrefix            = indexPrefix ;
@@ -171,6 +194,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return blockWriteCacheSize.isSet ;
     }
 
+    @Override
+    public BlockCacheType getBlockCacheType() {
+        return blockCacheType.value ;
+    }
+
+    @Override
+    public boolean isSetBlockCacheType() {
+        return blockCacheType.isSet ;
+    }
+
     @Override
     public Integer getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value ;
@@ -201,6 +234,26 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return NodeMissCacheSize.isSet ;
     }
 
+    @Override
+    public NodeCacheType getNodeCacheType() {
+        return nodeCacheType.value ;
+    }
+
+    @Override
+    public boolean isSetNodeCacheType() {
+        return nodeCacheType.isSet ;
+    }
+
+    @Override
+    public Integer getCacheBudget() {
+        return cacheBudget.value ;
+    }
+
+    @Override
+    public boolean isSetCacheBudget() {
+        return cacheBudget.isSet ;
+    }
+
     public String getIndexNode2Id() {
         return indexNode2Id.value ;
     }
@@ -209,6 +262,21 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return indexId2Node.value ;
     }
 
+    public NodeIndexType getNode2IdIndexType() {
+        return node2IdIndexType.value ;
+    }
+
+    public NodeEncoding getNodeEncoding() {
+        return nodeEncoding.value ;
+    }
+
+    /** Namespaces of this database, coded by the compressed node encoding as well as
+     * the built-in ones. Part of the database format: fixed when the database is created. 
+     */
+    public String[] getNodeNamespaces() {
+        return nodeNamespaces.value ;
+    }
+
     public String getPrimaryIndexTriples() {
         return primaryIndexTriples.value ;
     }
@@ -225,6 +293,14 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return quadIndexes.value ;
     }
 
+    /** Index orders, over the primary triple index order, of the graph-agnostic
+     * union triple table. An empty array (the default) means there is no union table
+     * and the union graph is computed from the quad indexes.
+     */
+    public String[] getUnionIndexes() {
+        return unionIndexes.value ;
+    }
+
     public String getPrimaryIndexPrefix() {
         return primaryIndexPrefix.value ;
     }
@@ -252,16 +328,23 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "blockSize", getBlockSize(), blockSize.isSet) ;
         fmt(buff, "readCacheSize", getBlockReadCacheSize(), blockReadCacheSize.isSet) ;
         fmt(buff, "writeCacheSize", getBlockWriteCacheSize(), blockWriteCacheSize.isSet) ;
+        fmt(buff, "blockCacheType", getBlockCacheType().toString(), blockCacheType.isSet) ;
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet) ;
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet) ;
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet) ;
+        fmt(buff, "nodeCacheType", getNodeCacheType().toString(), nodeCacheType.isSet) ;
+        fmt(buff, "cacheBudget", getCacheBudget(), cacheBudget.isSet) ;
 
         fmt(buff, "indexNode2Id", getIndexNode2Id(), indexNode2Id.isSet) ;
         fmt(buff, "indexId2Node", getIndexId2Node(), indexId2Node.isSet) ;
+        fmt(buff, "node2IdIndexType", getNode2IdIndexType().toString(), node2IdIndexType.isSet) ;
+        fmt(buff, "nodeEncoding", getNodeEncoding().toString(), nodeEncoding.isSet) ;
+        fmt(buff, "nodeNamespaces", getNodeNamespaces(), nodeNamespaces.isSet) ;
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet) ;
         fmt(buff, "tripleIndexes", getTripleIndexes(), tripleIndexes.isSet) ;
         fmt(buff, "primaryIndexQuads", getPrimaryIndexQuads(), primaryIndexQuads.isSet) ;
         fmt(buff, "quadIndexes", getQuadIndexes(), quadIndexes.isSet) ;
+        fmt(buff, "unionIndexes", getUnionIndexes(), unionIndexes.isSet) ;
         fmt(buff, "primaryIndexPrefix", getPrimaryIndexPrefix(), primaryIndexPrefix.isSet) ;
         fmt(buff, "prefixIndexes", getPrefixIndexes(), prefixIndexes.isSet) ;
         fmt(buff, "indexPrefix", getIndexPrefix(), indexPrefix.isSet) ;
@@ -300,11 +383,17 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((Node2NodeIdCacheSize == null) ? 0 : Node2NodeIdCacheSize.hashCode()) ;
         result = prime * result + ((NodeId2NodeCacheSize == null) ? 0 : NodeId2NodeCacheSize.hashCode()) ;
         result = prime * result + ((NodeMissCacheSize == null) ? 0 : NodeMissCacheSize.hashCode()) ;
+        result = prime * result + ((nodeCacheType == null) ? 0 : nodeCacheType.hashCode()) ;
+        result = prime * result + ((cacheBudget == null) ? 0 : cacheBudget.hashCode()) ;
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode()) ;
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode()) ;
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode()) ;
+        result = prime * result + ((blockCacheType == null) ? 0 : blockCacheType.hashCode()) ;
         result = prime * result + ((fileMode == null) ? 0 : fileMode.hashCode()) ;
         result = prime * result + ((indexId2Node == null) ? 0 : indexId2Node.hashCode()) ;
+        result = prime * result + ((node2IdIndexType == null) ? 0 : node2IdIndexType.hashCode()) ;
+        result = prime * result + ((nodeEncoding == null) ? 0 : nodeEncoding.hashCode()) ;
+        result = prime * result + ((nodeNamespaces == null) ? 0 : nodeNamespaces.hashCode()) ;
         result = prime * result + ((indexNode2Id == null) ? 0 : indexNode2Id.hashCode()) ;
         result = prime * result + ((indexPrefix == null) ? 0 : indexPrefix.hashCode()) ;
         result = prime * result + ((prefixId2Node == null) ? 0 : prefixId2Node.hashCode()) ;
@@ -315,6 +404,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((primaryIndexTriples == null) ? 0 : primaryIndexTriples.hashCode()) ;
         result = prime * result + ((quadIndexes == null) ? 0 : quadIndexes.hashCode()) ;
         result = prime * result + ((tripleIndexes == null) ? 0 : tripleIndexes.hashCode()) ;
+        result = prime * result + ((unionIndexes == null) ? 0 : unionIndexes.hashCode()) ;
         return result ;
     }
     
@@ -332,18 +422,30 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.blockWriteCacheSize, params2.blockWriteCacheSize) )
             return false ;
+        if ( !sameValues(params1.blockCacheType, params2.blockCacheType) )
+            return false ;
         if ( !sameValues(params1.Node2NodeIdCacheSize, params2.Node2NodeIdCacheSize) )
             return false ;
         if ( !sameValues(params1.NodeId2NodeCacheSize, params2.NodeId2NodeCacheSize) )
             return false ;
         if ( !sameValues(params1.NodeMissCacheSize, params2.NodeMissCacheSize) )
             return false ;
+        if ( !sameValues(params1.nodeCacheType, params2.nodeCacheType) )
+            return false ;
+        if ( !sameValues(params1.cacheBudget, params2.cacheBudget) )
+            return false ;
         if ( !sameValues(params1.blockSize, params2.blockSize) )
             return false ;
         if ( !sameValues(params1.indexNode2Id, params2.indexNode2Id) )
             return false ;
         if ( !sameValues(params1.indexId2Node, params2.indexId2Node) )
             return false ;
+        if ( !sameValues(params1.node2IdIndexType, params2.node2IdIndexType) )
+            return false ;
+        if ( !sameValues(params1.nodeEncoding, params2.nodeEncoding) )
+            return false ;
+        if ( !sameValues(params1.nodeNamespaces, params2.nodeNamespaces) )
+            return false ;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
             return false ;
         if ( !sameValues(params1.tripleIndexes, params2.tripleIndexes) )
@@ -352,6 +454,8 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.quadIndexes, params2.quadIndexes) )
             return false ;
+        if ( !sameValues(params1.unionIndexes, params2.unionIndexes) )
+            return false ;
         if ( !sameValues(params1.primaryIndexPrefix, params2.primaryIndexPrefix) )
             return false ;
         if ( !sameValues(params1.prefixIndexes, params2.prefixIndexes) )
@@ -393,6 +497,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !NodeMissCacheSize.equals(other.NodeMissCacheSize) )
             return false ;
+        if ( nodeCacheType == null ) {
+            if ( other.nodeCacheType != null )
+                return false ;
+        } else if ( !nodeCacheType.equals(other.nodeCacheType) )
+            return false ;
+        if ( cacheBudget == null ) {
+            if ( other.cacheBudget != null )
+                return false ;
+        } else if ( !cacheBudget.equals(other.cacheBudget) )
+            return false ;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false ;
@@ -408,6 +522,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !blockWriteCacheSize.equals(other.blockWriteCacheSize) )
             return false ;
+        if ( blockCacheType == null ) {
+            if ( other.blockCacheType != null )
+                return false ;
+        } else if ( !blockCacheType.equals(other.blockCacheType) )
+            return false ;
         if ( fileMode == null ) {
             if ( other.fileMode != null )
                 return false ;
@@ -418,6 +537,21 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !indexId2Node.equals(other.indexId2Node) )
             return false ;
+        if ( node2IdIndexType == null ) {
+            if ( other.node2IdIndexType != null )
+                return false ;
+        } else if ( !node2IdIndexType.equals(other.node2IdIndexType) )
+            return false ;
+        if ( nodeEncoding == null ) {
+            if ( other.nodeEncoding != null )
+                return false ;
+        } else if ( !nodeEncoding.equals(other.nodeEncoding) )
+            return false ;
+        if ( nodeNamespaces == null ) {
+            if ( other.nodeNamespaces != null )
+                return false ;
+        } else if ( !nodeNamespaces.equals(other.nodeNamespaces) )
+            return false ;
         if ( indexNode2Id == null ) {
             if ( other.indexNode2Id != null )
                 return false ;
@@ -468,6 +602,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !tripleIndexes.equals(other.tripleIndexes) )
             return false ;
+        if ( unionIndexes == null ) {
+            if ( other.unionIndexes != null )
+                return false ;
+        } else if ( !unionIndexes.equals(other.unionIndexes) )
+            return false ;
         return true ;
     }
 
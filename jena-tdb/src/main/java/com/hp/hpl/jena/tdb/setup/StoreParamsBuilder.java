@@ -18,7 +18,11 @@
 
 package com.hp.hpl.jena.tdb.setup;
 
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeEncoding ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeIndexType ;
 
 public class StoreParamsBuilder {
     // Immutable.
@@ -68,12 +72,17 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            blockWriteCacheSize   = new Item<>(StoreParamsConst.blockWriteCacheSize, false) ;
 
+    private Item<BlockCacheType>     blockCacheType        = new Item<>(StoreParamsConst.blockCacheType, false) ;
+
     private Item<Integer>            Node2NodeIdCacheSize  = new Item<>(StoreParamsConst.Node2NodeIdCacheSize, false) ;
 
     private Item<Integer>            NodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false) ;
 
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false) ;
 
+    private Item<NodeCacheType>      nodeCacheType         = new Item<>(StoreParamsConst.nodeCacheType, false) ;
+    private Item<Integer>            cacheBudget           = new Item<>(StoreParamsConst.cacheBudget, false) ;
+
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false) ;
@@ -82,6 +91,12 @@ public class StoreParamsBuilder {
 
     private Item<String>             indexId2Node          = new Item<>(StoreParamsConst.indexId2Node, false) ;
 
+    private Item<NodeIndexType>      node2IdIndexType      = new Item<>(StoreParamsConst.node2IdIndexType, false) ;
+
+    private Item<NodeEncoding>       nodeEncoding          = new Item<>(StoreParamsConst.nodeEncoding, false) ;
+
+    private Item<String[]>           nodeNamespaces        = new Item<>(StoreParamsConst.nodeNamespaces, false) ;
+
     private Item<String>             primaryIndexTriples   = new Item<>(StoreParamsConst.primaryIndexTriples, false) ;
 
     private Item<String[]>           tripleIndexes         = new Item<>(StoreParamsConst.tripleIndexes, false) ;
@@ -90,6 +105,8 @@ public class StoreParamsBuilder {
 
     private Item<String[]>           quadIndexes           = new Item<>(StoreParamsConst.quadIndexes, false) ;
 
+    private Item<String[]>           unionIndexes          = new Item<>(StoreParamsConst.unionIndexes, false) ;
+
     private Item<String>             primaryIndexPrefix    = new Item<>(StoreParamsConst.primaryIndexPrefix, false) ;
 
     private Item<String[]>           prefixIndexes         = new Item<>(StoreParamsConst.prefixIndexes, false) ;
@@ -126,6 +143,9 @@ public class StoreParamsBuilder {
 
         if ( additionalParams.isSetBlockWriteCacheSize() )
             b.blockWriteCacheSize(additionalParams.getBlockWriteCacheSize()) ;
+
+        if ( additionalParams.isSetBlockCacheType() )
+            b.blockCacheType(additionalParams.getBlockCacheType()) ;
         
         if ( additionalParams.isSetNode2NodeIdCacheSize() )            
             b.node2NodeIdCacheSize(additionalParams.getNode2NodeIdCacheSize()) ;
@@ -136,6 +156,12 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize()) ;
 
+        if ( additionalParams.isSetNodeCacheType() )
+            b.nodeCacheType(additionalParams.getNodeCacheType()) ;
+
+        if ( additionalParams.isSetCacheBudget() )
+            b.cacheBudget(additionalParams.getCacheBudget()) ;
+
         return b.build();
     }
     
@@ -148,18 +174,25 @@ public class StoreParamsBuilder {
         this.blockSize              = other.blockSize ;
         this.blockReadCacheSize     = other.blockReadCacheSize ; 
         this.blockWriteCacheSize    = other.blockWriteCacheSize ; 
+        this.blockCacheType         = other.blockCacheType ;
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize ; 
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize ; 
         this.NodeMissCacheSize      = other.NodeMissCacheSize ; 
+        this.nodeCacheType          = other.nodeCacheType ;
+        this.cacheBudget            = other.cacheBudget ;
 
         this.indexNode2Id           = other.indexNode2Id ; 
         this.indexId2Node           = other.indexId2Node ; 
+        this.node2IdIndexType       = other.node2IdIndexType ;
+        this.nodeEncoding           = other.nodeEncoding ;
+        this.nodeNamespaces         = other.nodeNamespaces ;
         
         this.primaryIndexTriples    = other.primaryIndexTriples ; 
         this.tripleIndexes          = other.tripleIndexes ; 
         
         this.primaryIndexQuads      = other.primaryIndexQuads ; 
         this.quadIndexes            = other.quadIndexes ; 
+        this.unionIndexes           = other.unionIndexes ; 
 
         this.primaryIndexPrefix     = other.primaryIndexPrefix ; 
         this.prefixIndexes          = other.prefixIndexes ; 
@@ -171,10 +204,10 @@ public class StoreParamsBuilder {
     
     public StoreParams build() {
         return new StoreParams(
-                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, 
-                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
-                 indexNode2Id, indexId2Node, primaryIndexTriples, tripleIndexes,
-                 primaryIndexQuads, quadIndexes, primaryIndexPrefix,
+                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, blockCacheType, 
+                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize, nodeCacheType, cacheBudget,
+                 indexNode2Id, indexId2Node, node2IdIndexType, nodeEncoding, nodeNamespaces, primaryIndexTriples, tripleIndexes,
+                 primaryIndexQuads, quadIndexes, unionIndexes, primaryIndexPrefix,
                  prefixIndexes, indexPrefix,
                  prefixNode2Id, prefixId2Node) ;
     }
@@ -215,6 +248,15 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public BlockCacheType getBlockCacheType() {
+        return blockCacheType.value ;
+    }
+
+    public StoreParamsBuilder blockCacheType(BlockCacheType blockCacheType) {
+        this.blockCacheType = new Item<>(blockCacheType, true) ;
+        return this ;
+    }
+
     public int getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value ;
     }
@@ -242,6 +284,24 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public NodeCacheType getNodeCacheType() {
+        return nodeCacheType.value ;
+    }
+
+    public StoreParamsBuilder nodeCacheType(NodeCacheType nodeCacheType) {
+        this.nodeCacheType = new Item<>(nodeCacheType, true) ;
+        return this ;
+    }
+
+    public int getCacheBudget() {
+        return cacheBudget.value ;
+    }
+
+    public StoreParamsBuilder cacheBudget(int cacheBudget) {
+        this.cacheBudget = new Item<>(cacheBudget, true) ;
+        return this ;
+    }
+
     public String getIndexNode2Id() {
         return indexNode2Id.value ;
     }
@@ -260,6 +320,33 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public NodeIndexType getNode2IdIndexType() {
+        return node2IdIndexType.value ;
+    }
+
+    public StoreParamsBuilder node2IdIndexType(NodeIndexType node2IdIndexType) {
+        this.node2IdIndexType = new Item<>(node2IdIndexType, true) ;
+        return this ;
+    }
+
+    public NodeEncoding getNodeEncoding() {
+        return nodeEncoding.value ;
+    }
+
+    public StoreParamsBuilder nodeEncoding(NodeEncoding nodeEncoding) {
+        this.nodeEncoding = new Item<>(nodeEncoding, true) ;
+        return this ;
+    }
+
+    public String[] getNodeNamespaces() {
+        return nodeNamespaces.value ;
+    }
+
+    public StoreParamsBuilder nodeNamespaces(String[] nodeNamespaces) {
+        this.nodeNamespaces = new Item<>(nodeNamespaces, true) ;
+        return this ;
+    }
+
     public String getPrimaryIndexTriples() {
         return primaryIndexTriples.value ;
     }
@@ -296,6 +383,15 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public String[] getUnionIndexes() {
+        return unionIndexes.value ;
+    }
+
+   public StoreParamsBuilder unionIndexes(String[] unionIndexes) {
+       this.unionIndexes = new Item<>(unionIndexes, true) ;
+       return this ;
+   }
+
     public String getPrimaryIndexPrefix() {
         return primaryIndexPrefix.value ;
     }
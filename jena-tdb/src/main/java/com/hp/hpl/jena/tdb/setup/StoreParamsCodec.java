@@ -19,14 +19,20 @@
 package com.hp.hpl.jena.tdb.setup;
 
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.TDB_CONFIG_FILE ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fBlockCacheType ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fBlockReadCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fBlockSize ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fCacheBudget ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fBlockWriteCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fFileMode ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexId2Node ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexNode2Id ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexPrefix ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNode2IdIndexType ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNode2NodeIdCacheSize ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeCacheType ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeEncoding ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeNamespaces ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeId2NodeCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeMissCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fPrefixId2Node ;
@@ -37,6 +43,7 @@ import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fPrimaryIndexQuads ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fPrimaryIndexTriples ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fQuadIndexes ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fTripleIndexes ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fUnionIndexes ;
 
 import java.io.BufferedOutputStream ;
 import java.io.FileOutputStream ;
@@ -53,8 +60,12 @@ import org.apache.jena.atlas.json.JsonObject ;
 
 import com.hp.hpl.jena.sparql.util.Utils ;
 import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeEncoding ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeIndexType ;
 
 /** Encode and decode {@link StoreParams} */ 
 public class StoreParamsCodec {
@@ -98,15 +109,22 @@ public class StoreParamsCodec {
         encode(builder, key(fBlockSize),                params.getBlockSize()) ;
         encode(builder, key(fBlockReadCacheSize),       params.getBlockReadCacheSize()) ;
         encode(builder, key(fBlockWriteCacheSize),      params.getBlockWriteCacheSize()) ;
+        encode(builder, key(fBlockCacheType),           params.getBlockCacheType().name()) ;
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize()) ;
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize()) ;
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize()) ;
+        encode(builder, key(fNodeCacheType),            params.getNodeCacheType().name()) ;
+        encode(builder, key(fCacheBudget),              params.getCacheBudget()) ;
         encode(builder, key(fIndexNode2Id),             params.getIndexNode2Id()) ;
         encode(builder, key(fIndexId2Node),             params.getIndexId2Node()) ;
+        encode(builder, key(fNode2IdIndexType),         params.getNode2IdIndexType().name()) ;
+        encode(builder, key(fNodeEncoding),             params.getNodeEncoding().name()) ;
+        encode(builder, key(fNodeNamespaces),           params.getNodeNamespaces()) ;
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples()) ;
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes()) ;
         encode(builder, key(fPrimaryIndexQuads),        params.getPrimaryIndexQuads()) ;
         encode(builder, key(fQuadIndexes),              params.getQuadIndexes()) ;
+        encode(builder, key(fUnionIndexes),             params.getUnionIndexes()) ;
         encode(builder, key(fPrimaryIndexPrefix),       params.getPrimaryIndexPrefix()) ;
         encode(builder, key(fPrefixIndexes),            params.getPrefixIndexes()) ;
         encode(builder, key(fIndexPrefix),              params.getIndexPrefix()) ;
@@ -141,15 +159,22 @@ public class StoreParamsCodec {
                 case fBlockSize:               builder.blockSize(getInt(json, key)) ;                       break ;
                 case fBlockReadCacheSize:      builder.blockReadCacheSize(getInt(json, key)) ;              break ;
                 case fBlockWriteCacheSize:     builder.blockWriteCacheSize(getInt(json, key)) ;             break ;
+                case fBlockCacheType:          builder.blockCacheType(BlockCacheType.valueOf(getString(json, key))) ; break ;
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key)) ;            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key)) ;            break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key)) ;               break ;
+                case fNodeCacheType:           builder.nodeCacheType(NodeCacheType.valueOf(getString(json, key))) ; break ;
+                case fCacheBudget:             builder.cacheBudget(getInt(json, key)) ;                     break ;
                 case fIndexNode2Id:            builder.indexNode2Id(getString(json, key)) ;                 break ;
                 case fIndexId2Node:            builder.indexId2Node(getString(json, key)) ;                 break ;
+                case fNode2IdIndexType:        builder.node2IdIndexType(NodeIndexType.valueOf(getString(json, key))) ; break ;
+                case fNodeEncoding:            builder.nodeEncoding(NodeEncoding.valueOf(getString(json, key))) ; break ;
+                case fNodeNamespaces:          builder.nodeNamespaces(getStringArray(json, key)) ;          break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key)) ;          break ;
                 case fTripleIndexes:           builder.tripleIndexes(getStringArray(json, key)) ;           break ;
                 case fPrimaryIndexQuads:       builder.primaryIndexQuads(getString(json, key)) ;            break ;
                 case fQuadIndexes:             builder.quadIndexes(getStringArray(json, key)) ;             break ;
+                case fUnionIndexes:            builder.unionIndexes(getStringArray(json, key)) ;            break ;
                 case fPrimaryIndexPrefix:      builder.primaryIndexPrefix(getString(json, key)) ;           break ;
                 case fPrefixIndexes:           builder.prefixIndexes(getStringArray(json, key)) ;           break ;
                 case fIndexPrefix:             builder.indexPrefix(getString(json, key)) ;                  break ;
@@ -18,7 +18,11 @@
 
 package com.hp.hpl.jena.tdb.setup;
 
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeEncoding ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeIndexType ;
 import com.hp.hpl.jena.tdb.sys.Names ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
@@ -42,6 +46,9 @@ public class StoreParamsConst {
     public static final String   fBlockWriteCacheSize  = "block_write_cache_size" ;
     public static final int      blockWriteCacheSize   = SystemTDB.BlockWriteCacheSize ;
     
+    public static final String   fBlockCacheType       = "block_cache_type" ;
+    public static final BlockCacheType blockCacheType  = BlockCacheType.lru ;
+    
     public static final String   fNode2NodeIdCacheSize = "node2nodeid_cache_size" ;
     public static final int      Node2NodeIdCacheSize  = SystemTDB.Node2NodeIdCacheSize ;
     
@@ -51,6 +58,12 @@ public class StoreParamsConst {
     public static final String   fNodeMissCacheSize    = "node_miss_cache_size" ;
     public static final int      NodeMissCacheSize     = SystemTDB.NodeMissCacheSize ;
     
+    public static final String   fNodeCacheType        = "node_cache_type" ;
+    public static final NodeCacheType nodeCacheType = NodeCacheType.lru ;
+    
+    public static final String   fCacheBudget          = "cache_budget" ;
+    public static final int      cacheBudget           = -1 ;
+    
     /** Database layout - ignored after a database is created */
     public static final String   fBlockSize            = "block_size" ;
     public static final int      blockSize             = SystemTDB.BlockSize ;
@@ -61,6 +74,15 @@ public class StoreParamsConst {
     public static final String   fIndexId2Node         = "index_id2node" ;
     public static final String   indexId2Node          = Names.indexId2Node ;
     
+    public static final String   fNode2IdIndexType     = "index_node2id_type" ;
+    public static final NodeIndexType node2IdIndexType = NodeIndexType.bptree ;
+    
+    public static final String   fNodeEncoding         = "node_encoding" ;
+    public static final NodeEncoding nodeEncoding      = NodeEncoding.sse ;
+    
+    public static final String   fNodeNamespaces       = "node_namespaces" ;
+    public static final String[] nodeNamespaces        = new String[0] ;
+    
     public static final String   fPrimaryIndexTriples  = "triple_index_primary" ;
     public static final String   primaryIndexTriples   = Names.primaryIndexTriples ;
     
@@ -73,6 +95,9 @@ public class StoreParamsConst {
     public static final String   fQuadIndexes          = "quad_indexes" ;
     public static final String[] quadIndexes           = Names.quadIndexes ;
     
+    public static final String   fUnionIndexes         = "union_indexes" ;
+    public static final String[] unionIndexes          = Names.unionIndexes ;
+    
     public static final String   fPrimaryIndexPrefix   = "prefix_index_primary" ;
     public static final String   primaryIndexPrefix    = Names.primaryIndexPrefix ;
     
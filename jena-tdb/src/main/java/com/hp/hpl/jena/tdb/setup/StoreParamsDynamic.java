@@ -18,7 +18,9 @@
 
 package com.hp.hpl.jena.tdb.setup;
 
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
 
 /** Store parameters that can be adjusted after a store has been created,
  *  and given different values when the JVM attachs to a store area. 
@@ -38,6 +40,10 @@ public interface StoreParamsDynamic {
     /** Block write cache (note: mapped files do not have a block cache) */
     public Integer getBlockWriteCacheSize() ;
     public boolean isSetBlockWriteCacheSize() ;
+
+    /** Kind of block read cache: single-lock LRU or segmented 2Q for concurrent access */
+    public BlockCacheType getBlockCacheType() ;
+    public boolean isSetBlockCacheType() ;
     
     /** Node cache for Node->NodeId. */
     public Integer getNode2NodeIdCacheSize() ;
@@ -50,5 +56,16 @@ public interface StoreParamsDynamic {
     /** Node cache for recording known misses */
     public Integer getNodeMissCacheSize() ;
     public boolean isSetNodeMissCacheSize() ;
-}
 
+    /** Kind of node cache: single-lock LRU or segmented for concurrent access */
+    public NodeCacheType getNodeCacheType() ;
+    public boolean isSetNodeCacheType() ;
+
+    /** Total number of block read cache slots shared by all the files of a database.
+     *  When set (greater than 0), slots are moved between files while in use, to follow
+     *  the workload, and capacity is also moved between the two node caches.
+     *  0 or less means caches keep the sizes they are created with.
+     */
+    public Integer getCacheBudget() ;
+    public boolean isSetCacheBudget() ;
+}
@@ -53,6 +53,12 @@ public class BindingNodeId extends Map2<Var, NodeId>
         this(new HashMap<Var, NodeId>(), other, other.getParentBinding()) ;
     }
     
+    // Extend an existing BindingNodeId with the entries of a map (e.g. a row of a BindingNodeIdBatch).
+    /*package*/ BindingNodeId(BindingNodeId other, Map<Var, NodeId> map)
+    {
+        this(map, other, other.getParentBinding()) ;
+    }
+    
     // Make from an existing Binding 
     public BindingNodeId(Binding binding)
     {
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.AbstractMap ;
+import java.util.AbstractSet ;
+import java.util.Arrays ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+import java.util.NoSuchElementException ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+
+/** A batch of {@link BindingNodeId}s that all extend the same parent binding with the same
+ * new variables, held column-wise: one vector of NodeId values (as longs) for each variable.
+ * <p>
+ * A row becomes a BindingNodeId only when it is asked for, and a NodeId object
+ * is only created when a variable of the row is read.
+ */
+public class BindingNodeIdBatch
+{
+    private final BindingNodeId parent ;
+    private final Var[] vars ;
+    private final long[][] columns ;
+    private int size = 0 ;
+
+    public BindingNodeIdBatch(BindingNodeId parent, Var[] vars, int capacity)
+    {
+        this.parent = parent ;
+        this.vars = vars ;
+        this.columns = new long[vars.length][capacity] ;
+    }
+
+    /** Add a row: the value of the j'th variable is {@code values[start+slots[j]]} */
+    public void add(long[] values, int start, int[] slots)
+    {
+        for ( int j = 0 ; j < vars.length ; j++ )
+            columns[j][size] = values[start+slots[j]] ;
+        size++ ;
+    }
+
+    public int size()                   { return size ; }
+
+    public BindingNodeId getParent()    { return parent ; }
+
+    public Var[] getVars()              { return vars ; }
+
+    /** The NodeId value of the j'th variable in a row */
+    public long getId(int row, int j)   { return columns[j][row] ; }
+
+    /** The BindingNodeId for a row */
+    public BindingNodeId get(int row)
+    {
+        if ( row < 0 || row >= size )
+            throw new NoSuchElementException("BindingNodeIdBatch: row "+row+" of "+size) ;
+        return new BindingNodeId(parent, new Row(row)) ;
+    }
+
+    /** One row as a Map. Additions to the row are kept separately. */
+    private class Row extends AbstractMap<Var, NodeId>
+    {
+        private final int row ;
+        private Map<Var, NodeId> extra = null ;
+
+        Row(int row) { this.row = row ; }
+
+        private int column(Object key)
+        {
+            for ( int j = 0 ; j < vars.length ; j++ )
+                if ( vars[j].equals(key) )
+                    return j ;
+            return -1 ;
+        }
+
+        @Override
+        public NodeId get(Object key)
+        {
+            int j = column(key) ;
+            if ( j >= 0 )
+                return NodeId.create(columns[j][row]) ;
+            return ( extra == null ) ? null : extra.get(key) ;
+        }
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            if ( column(key) >= 0 )
+                return true ;
+            return extra != null && extra.containsKey(key) ;
+        }
+
+        @Override
+        public NodeId put(Var key, NodeId value)
+        {
+            if ( column(key) >= 0 )
+                throw new UnsupportedOperationException("BindingNodeIdBatch: variable already set: "+key) ;
+            if ( extra == null )
+                extra = new HashMap<>() ;
+            return extra.put(key, value) ;
+        }
+
+        @Override
+        public int size()               { return vars.length + ( extra == null ? 0 : extra.size() ) ; }
+
+        @Override
+        public boolean isEmpty()        { return size() == 0 ; }
+
+        @Override
+        public Set<Var> keySet()
+        {
+            return new AbstractSet<Var>() {
+                @Override
+                public Iterator<Var> iterator()
+                {
+                    Iterator<Var> iter = Arrays.asList(vars).iterator() ;
+                    if ( extra == null )
+                        return iter ;
+                    return Iter.append(iter, extra.keySet().iterator()) ;
+                }
+
+                @Override
+                public int size()       { return Row.this.size() ; }
+            } ;
+        }
+
+        @Override
+        public Set<Map.Entry<Var, NodeId>> entrySet()
+        {
+            Map<Var, NodeId> x = new LinkedHashMap<>() ;
+            for ( Var v : keySet() )
+                x.put(v, get(v)) ;
+            return x.entrySet() ;
+        }
+    }
+}
@@ -36,17 +36,28 @@ public class BindingTDB extends BindingBase
 {
     private final NodeTable nodeTable ;
     private final BindingNodeId idBinding ;
+    // If not null, the window of bindings this one is converted with, and its row in the window. 
+    private final BindingTDBBatch batch ;
+    private final int row ;
     
     private static final boolean caching = false ;
     // Whether the cache is worthwhile is unclear - the NodeTable keeps a cache. 
     private final Map<Var,Node> cache = ( caching ? new HashMap<Var, Node>() : null ) ;
 
     public BindingTDB(BindingNodeId idBinding, NodeTable nodeTable)
+    {
+        this(idBinding, nodeTable, null, -1) ;
+    }
+
+    /** A binding whose NodeIds are converted along with the rest of a batch */
+    public BindingTDB(BindingNodeId idBinding, NodeTable nodeTable, BindingTDBBatch batch, int row)
     {
         // BindingNodeId contains the bindings actually used  copied down when created. 
         super(idBinding.getParentBinding()) ;
         this.idBinding = idBinding ;
         this.nodeTable = nodeTable ;
+        this.batch = batch ;
+        this.row = row ;
     }
 
     @Override
@@ -120,7 +131,10 @@ public class BindingTDB extends BindingBase
             NodeId id = idBinding.get(var) ;
             if ( id == null )
                 return null ; 
-            n = nodeTable.getNodeForNodeId(id) ;
+            if ( batch != null )
+                n = batch.get(row, var) ;
+            else
+                n = nodeTable.getNodeForNodeId(id) ;
             // Update cache.
             cachePut(var, n) ;
             return n ;
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+
+/** A window of {@link BindingNodeId}s whose NodeIds are turned into Nodes together.
+ * <p>
+ * Conversion is per variable and only when needed: the first time any binding
+ * of the window is asked for a variable, the NodeIds for that variable in all the
+ * bindings of the window are converted with one call of
+ * {@link NodeTable#getNodesForNodeIds}, which can read the node storage in file order.
+ * Variables that are never asked for (e.g. projected away) are never converted.
+ */
+public class BindingTDBBatch
+{
+    private final NodeTable nodeTable ;
+    private final List<BindingNodeId> rows ;
+    private final Map<Var, Node[]> columns = new HashMap<>() ;
+
+    public BindingTDBBatch(List<BindingNodeId> rows, NodeTable nodeTable)
+    {
+        this.rows = rows ;
+        this.nodeTable = nodeTable ;
+    }
+
+    public int size()                   { return rows.size() ; }
+
+    /** The binding for the i'th row of the window */
+    public Binding binding(int i)       { return new BindingTDB(rows.get(i), nodeTable, this, i) ; }
+
+    /** The Node for a variable in a row, or null if it is not bound by the row's BindingNodeId */ 
+    /*package*/ synchronized Node get(int row, Var var)
+    {
+        Node[] column = columns.get(var) ;
+        if ( column == null )
+        {
+            column = convert(var) ;
+            columns.put(var, column) ;
+        }
+        return column[row] ;
+    }
+
+    private Node[] convert(Var var)
+    {
+        List<NodeId> ids = new ArrayList<>(rows.size()) ;
+        for ( BindingNodeId b : rows )
+        {
+            NodeId id = b.get(var) ;
+            if ( id != null )
+                ids.add(id) ;
+        }
+        List<Node> nodes = nodeTable.getNodesForNodeIds(ids) ;
+        Node[] column = new Node[rows.size()] ;
+        int j = 0 ;
+        for ( int i = 0 ; i < rows.size() ; i++ )
+        {
+            if ( rows.get(i).get(var) != null )
+                column[i] = nodes.get(j++) ;
+        }
+        return column ;
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.math.BigDecimal ;
+import java.math.BigInteger ;
+import java.math.RoundingMode ;
+import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.lib.BitsLong ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.expr.* ;
+import com.hp.hpl.jena.tdb.store.DateTimeNode ;
+import com.hp.hpl.jena.tdb.store.IntegerNode ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+
+/** Ranges of NodeIds, for a variable, outside of which a filter is known to be false.
+ * <p>
+ * Integers, dates and dateTimes are inlined into NodeIds (see {@link NodeId#inline})
+ * in an order that follows the value within each kind of inline value. A comparison
+ * of a variable with an integer, decimal, double or float constant, or with a date
+ * or dateTime constant, rules out the inline values of that kind that fail the comparison.
+ * Everything else (values held in the node table, other inline types, values
+ * where the comparison is an error) is kept, so scanning the ranges returns a
+ * superset of the solutions and the filter must still be applied to the results.
+ * <p>
+ * The ranges are sorted, in unsigned order, as NodeIds are in indexes. The end of
+ * each range is exclusive.
+ */
+public class FilterRange
+{
+    // Exclusive end of all stored NodeIds: type SPECIAL is never stored.
+    private static final long End = ((long)NodeId.SPECIAL) << 56 ;
+    
+    // Values with a timezone are up to 14 hours either side of a value without.
+    // Two days covers the difference between any two timezones, and the time of day.
+    private static final int DateSlack = 2 ;
+    
+    private final long[] starts ;
+    private final long[] finishes ;
+
+    private FilterRange(List<long[]> ranges)
+    {
+        starts = new long[ranges.size()] ;
+        finishes = new long[ranges.size()] ;
+        for ( int i = 0 ; i < ranges.size() ; i++ )
+        {
+            starts[i] = ranges.get(i)[0] ;
+            finishes[i] = ranges.get(i)[1] ;
+        }
+    }
+
+    /** Number of ranges */
+    public int size()               { return starts.length ; }
+
+    /** Start of the i'th range (inclusive) */
+    public NodeId start(int i)      { return NodeId.create(starts[i]) ; }
+
+    /** Finish of the i'th range (exclusive) */
+    public NodeId finish(int i)     { return NodeId.create(finishes[i]) ; }
+
+    /** Whether a NodeId is in the i'th range */
+    public boolean contains(int i, NodeId id)
+    {
+        long v = id.getId() ;
+        return ! lessThan(v, starts[i]) && lessThan(v, finishes[i]) ;
+    }
+
+    /** The first range that finishes after the NodeId, or {@link #size()} if there is none.
+     *  The NodeId is either in that range or in the gap before it. */
+    public int next(NodeId id)
+    {
+        long v = id.getId() ;
+        int lo = 0 ;
+        int hi = finishes.length ;
+        while ( lo < hi )
+        {
+            int mid = (lo+hi) >>> 1 ;
+            if ( lessThan(v, finishes[mid]) )
+                hi = mid ;
+            else
+                lo = mid+1 ;
+        }
+        return lo ;
+    }
+
+    // Unsigned, as NodeIds in an index.
+    private static boolean lessThan(long x, long y)
+    {
+        return x+Long.MIN_VALUE < y+Long.MIN_VALUE ;
+    }
+
+    /** Return the ranges for the variables that have range restrictions in a list of filter expressions
+     *  (which are all true for a solution). Variables with no usable restriction are not in the map.
+     */
+    public static Map<Var, FilterRange> create(ExprList exprs)
+    {
+        Map<Var, Bounds> bounds = new LinkedHashMap<>() ;
+        for ( Expr expr : exprs )
+            collect(expr, bounds) ;
+        Map<Var, FilterRange> ranges = new HashMap<>() ;
+        for ( Map.Entry<Var, Bounds> e : bounds.entrySet() )
+        {
+            FilterRange r = e.getValue().toRange() ;
+            if ( r != null )
+                ranges.put(e.getKey(), r) ;
+        }
+        return ranges ;
+    }
+
+    private enum Op { LT, LE, EQ, GE, GT }
+
+    private static void collect(Expr expr, Map<Var, Bounds> bounds)
+    {
+        if ( expr instanceof E_LogicalAnd )
+        {
+            collect(((E_LogicalAnd)expr).getArg1(), bounds) ;
+            collect(((E_LogicalAnd)expr).getArg2(), bounds) ;
+            return ;
+        }
+        Op op = null ;
+        if ( expr instanceof E_LessThan )               op = Op.LT ;
+        else if ( expr instanceof E_LessThanOrEqual )   op = Op.LE ;
+        else if ( expr instanceof E_Equals )            op = Op.EQ ;
+        else if ( expr instanceof E_GreaterThanOrEqual ) op = Op.GE ;
+        else if ( expr instanceof E_GreaterThan )       op = Op.GT ;
+        if ( op == null )
+            return ;
+        Expr arg1 = ((ExprFunction2)expr).getArg1() ;
+        Expr arg2 = ((ExprFunction2)expr).getArg2() ;
+        if ( arg1.isVariable() && arg2.isConstant() )
+            bounds(bounds, arg1.asVar()).add(op, arg2.getConstant()) ;
+        else if ( arg2.isVariable() && arg1.isConstant() )
+            bounds(bounds, arg2.asVar()).add(reverse(op), arg1.getConstant()) ;
+    }
+
+    private static Bounds bounds(Map<Var, Bounds> bounds, Var var)
+    {
+        Bounds b = bounds.get(var) ;
+        if ( b == null )
+        {
+            b = new Bounds() ;
+            bounds.put(var, b) ;
+        }
+        return b ;
+    }
+
+    // "constant op ?x" as "?x op' constant" 
+    private static Op reverse(Op op)
+    {
+        switch (op)
+        {
+            case LT: return Op.GT ;
+            case LE: return Op.GE ;
+            case GE: return Op.LE ;
+            case GT: return Op.LT ;
+            default: return op ;
+        }
+    }
+
+    /** The restrictions on one variable */
+    private static class Bounds
+    {
+        // Integer values: inclusive, null for unbounded.
+        boolean numeric = false ;
+        BigInteger intLo = null ;
+        BigInteger intHi = null ;
+        
+        // Dates or dateTimes: packed date fields, start inclusive, finish exclusive, -1 for unbounded.
+        int dateType = NodeId.NONE ;
+        long dateStart = -1 ;
+        long dateFinish = -1 ;
+
+        void add(Op op, NodeValue nv)
+        {
+            if ( nv.isNumber() )
+                addNumber(op, nv) ;
+            else if ( nv.isDateTime() || nv.isDate() )
+                addDate(op, nv) ;
+        }
+
+        private void addNumber(Op op, NodeValue nv)
+        {
+            BigDecimal c ;
+            if ( nv.isInteger() )
+                c = new BigDecimal(nv.getInteger()) ;
+            else if ( nv.isDecimal() )
+                c = nv.getDecimal() ;
+            else if ( nv.isDouble() )
+            {
+                double d = nv.getDouble() ;
+                if ( Double.isNaN(d) || Double.isInfinite(d) )
+                    return ;
+                c = new BigDecimal(d) ;
+            }
+            else
+                return ;
+            numeric = true ;
+            BigInteger floor = c.setScale(0, RoundingMode.FLOOR).toBigInteger() ;
+            BigInteger ceiling = c.setScale(0, RoundingMode.CEILING).toBigInteger() ;
+            switch (op)
+            {
+                case LT: intHi = min(intHi, ceiling.subtract(BigInteger.ONE)) ; break ;
+                case LE: intHi = min(intHi, floor) ; break ;
+                case EQ: intLo = max(intLo, ceiling) ; intHi = min(intHi, floor) ; break ;
+                case GE: intLo = max(intLo, ceiling) ; break ;
+                case GT: intLo = max(intLo, floor.add(BigInteger.ONE)) ; break ;
+            }
+        }
+
+        private void addDate(Op op, NodeValue nv)
+        {
+            NodeId id = NodeId.inline(nv.asNode()) ;
+            if ( id == null )
+                return ;
+            int type = id.type() ;
+            if ( type != NodeId.DATE && type != NodeId.DATETIME )
+                return ;
+            // One kind only.
+            if ( dateType != NodeId.NONE && dateType != type )
+                return ;
+            dateType = type ;
+            long v = BitsLong.clear(id.getId(), 56, 64) ;
+            if ( op != Op.LT && op != Op.LE )
+            {
+                long x = DateTimeNode.shiftDate(v, -DateSlack) ;
+                if ( x != -1 && ( dateStart == -1 || x > dateStart ) )
+                    dateStart = x ;
+            }
+            if ( op != Op.GT && op != Op.GE )
+            {
+                long x = DateTimeNode.shiftDate(v, DateSlack+1) ;
+                if ( x != -1 && ( dateFinish == -1 || x < dateFinish ) )
+                    dateFinish = x ;
+            }
+        }
+
+        FilterRange toRange()
+        {
+            if ( numeric )
+                return integerRange() ;
+            if ( dateType != NodeId.NONE )
+                return dateRange() ;
+            return null ;
+        }
+
+        private FilterRange integerRange()
+        {
+            if ( intLo == null && intHi == null )
+                return null ;
+            BigInteger a = max(intLo, BigInteger.valueOf(IntegerNode.MIN)) ;
+            BigInteger b = min(intHi, BigInteger.valueOf(IntegerNode.MAX)) ;
+            List<long[]> x = new ArrayList<>() ;
+            if ( a.compareTo(b) <= 0 )
+            {
+                long lo = a.longValue() ;
+                long hi = b.longValue() ;
+                // Negative values are stored after the positive values (two's complement).
+                if ( hi >= 0 )
+                    x.add(new long[]{ IntegerNode.pack(Math.max(lo, 0)), IntegerNode.pack(hi)+1 }) ;
+                if ( lo < 0 )
+                    x.add(new long[]{ IntegerNode.pack(lo), IntegerNode.pack(Math.min(hi, -1))+1 }) ;
+            }
+            return build(NodeId.INTEGER, x) ;
+        }
+
+        private FilterRange dateRange()
+        {
+            if ( dateStart == -1 && dateFinish == -1 )
+                return null ;
+            List<long[]> x = new ArrayList<>() ;
+            if ( dateFinish == -1 || dateStart == -1 || dateStart < dateFinish )
+            {
+                long base = ((long)dateType) << 56 ;
+                // The timezone is the leading field so there is a range for each timezone.
+                // Most are empty in any one index; StageMatchRange reads on across ranges
+                // and only seeks over a gap that holds values, so they cost nothing.
+                for ( int tz = 0 ; tz < DateTimeNode.TimezoneCodes ; tz++ )
+                {
+                    long start = base | DateTimeNode.setTimezone(dateStart == -1 ? 0 : dateStart, tz) ;
+                    long finish ;
+                    if ( dateFinish != -1 )
+                        finish = base | DateTimeNode.setTimezone(dateFinish, tz) ;
+                    else if ( tz+1 < DateTimeNode.TimezoneCodes )
+                        finish = base | DateTimeNode.setTimezone(0, tz+1) ;
+                    else
+                        finish = ((long)(dateType+1)) << 56 ;
+                    x.add(new long[]{ start, finish }) ;
+                }
+            }
+            return build(dateType, x) ;
+        }
+    }
+
+    /** Everything except the values of an inline type that are outside the given ranges */  
+    private static FilterRange build(int type, List<long[]> inType)
+    {
+        List<long[]> x = new ArrayList<>() ;
+        add(x, 0, ((long)type) << 56) ;
+        for ( long[] r : inType )
+            add(x, r[0], r[1]) ;
+        add(x, ((long)(type+1)) << 56, End) ;
+        return new FilterRange(x) ;
+    }
+
+    // Add a range, merging it with the previous one if they touch.
+    private static void add(List<long[]> ranges, long start, long finish)
+    {
+        if ( start == finish )
+            return ;
+        if ( ! ranges.isEmpty() )
+        {
+            long[] last = ranges.get(ranges.size()-1) ;
+            if ( last[1] == start )
+            {
+                last[1] = finish ;
+                return ;
+            }
+        }
+        ranges.add(new long[]{ start, finish }) ;
+    }
+
+    private static BigInteger min(BigInteger x, BigInteger y)
+    {
+        if ( x == null ) return y ;
+        if ( y == null ) return x ;
+        return x.min(y) ;
+    }
+
+    private static BigInteger max(BigInteger x, BigInteger y)
+    {
+        if ( x == null ) return y ;
+        if ( y == null ) return x ;
+        return x.max(y) ;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < size() ; i++ )
+            sb.append(String.format("[%016X,%016X)", starts[i], finishes[i])) ;
+        return sb.toString() ;
+    }
+}
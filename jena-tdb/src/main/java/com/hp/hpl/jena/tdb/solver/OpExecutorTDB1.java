@@ -36,6 +36,7 @@ import com.hp.hpl.jena.sparql.core.Substitute ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterFilterExpr ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPeek ;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutor ;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
@@ -43,6 +44,7 @@ import com.hp.hpl.jena.sparql.engine.main.QC ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprList ;
 import com.hp.hpl.jena.sparql.mgt.Explain ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
@@ -423,6 +425,40 @@ public class OpExecutorTDB1 extends OpExecutor
             Log.warn(this, "Non-DatasetGraphTDB passed to OpExecutorPlainTDB") ;
             return super.execute(opQuadPattern, input) ;
         }
+        
+        @Override
+        public QueryIterator execute(OpFilter opFilter, QueryIterator input)
+        {
+            // A filter directly over a pattern (the result of filter placement) may
+            // restrict the index ranges read, using the ordering of inline NodeIds.
+            // The filter expressions are still applied to the results.
+            QueryIterator qIter = null ;
+            Op sub = opFilter.getSubOp() ;
+            ExprList exprs = opFilter.getExprs() ;
+            
+            if ( OpBGP.isBGP(sub) && execCxt.getActiveGraph() instanceof GraphTDB )
+            {
+                BasicPattern bgp = ((OpBGP)sub).getPattern() ;
+                Explain.explain("Execute", bgp, execCxt.getContext()) ;
+                GraphTDB gtdb = (GraphTDB)execCxt.getActiveGraph() ;
+                Node gn = decideGraphNode(gtdb.getGraphName(), execCxt) ;
+                qIter = SolverLib.execute(gtdb.getDSG(), gn, bgp, input, filter, exprs, execCxt) ;
+            }
+            else if ( sub instanceof OpQuadPattern && execCxt.getDataset() instanceof DatasetGraphTDB )
+            {
+                OpQuadPattern opQuadPattern = (OpQuadPattern)sub ;
+                Explain.explain("Execute", opQuadPattern.getPattern(), execCxt.getContext()) ;
+                DatasetGraphTDB ds = (DatasetGraphTDB)execCxt.getDataset() ;
+                Node gn = decideGraphNode(opQuadPattern.getGraphNode(), execCxt) ;
+                qIter = SolverLib.execute(ds, gn, opQuadPattern.getBasicPattern(), input, filter, exprs, execCxt) ;
+            }
+            else
+                return super.execute(opFilter, input) ;
+            
+            for ( Expr expr : exprs )
+                qIter = new QueryIterFilterExpr(qIter, expr, execCxt) ;
+            return qIter ;
+        }
 
     }
 }
@@ -23,6 +23,7 @@ import static com.hp.hpl.jena.tdb.lib.Lib2.printAbbrev ;
 import java.util.* ;
 
 import org.apache.jena.atlas.iterator.* ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Tuple ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -39,6 +40,8 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterNullIterator ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
@@ -46,6 +49,7 @@ import com.hp.hpl.jena.tdb.store.GraphTDB ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 import com.hp.hpl.jena.tdb.sys.TDBInternal ;
 
 /** Utilities used within the TDB BGP solver : local TDB store */
@@ -59,8 +63,10 @@ public class SolverLib
                                         ExecutionContext execCxt)
     {
         // Maybe default graph or named graph.
+        if ( useUnionTable(graph.getDSG(), graph.getGraphName(), filter) )
+            return execute(graph.getDSG().getUnionTable().getNodeTupleTable(), null, pattern, input, filter, null, execCxt) ;
         NodeTupleTable ntt = graph.getNodeTupleTable() ;
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt) ;
+        return execute(ntt, graph.getGraphName(), pattern, input, filter, null, execCxt) ;
     }
     
     /** Non-reordering execution of a quad pattern, given a iterator of bindings as input.
@@ -71,8 +77,33 @@ public class SolverLib
                                         QueryIterator input, Filter<Tuple<NodeId>> filter,
                                         ExecutionContext execCxt)
     {
+        return execute(ds, graphNode, pattern, input, filter, null, execCxt) ;
+    }
+
+    /** Non-reordering execution of a quad pattern, as {@link #execute(DatasetGraphTDB, Node, BasicPattern, QueryIterator, Filter, ExecutionContext)},
+     *  where the solutions will be filtered by the given expressions.
+     *  The expressions are used to limit the index ranges read (see {@link FilterRange})
+     *  but they are not applied by this operation.
+     */ 
+    public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
+                                        QueryIterator input, Filter<Tuple<NodeId>> filter,
+                                        ExprList exprs, ExecutionContext execCxt)
+    {
+        if ( useUnionTable(ds, graphNode, filter) )
+            // Match the stored distinct triples as for the default graph.
+            return execute(ds.getUnionTable().getNodeTupleTable(), null, pattern, input, filter, exprs, execCxt) ;
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode) ;
-        return execute(ntt, graphNode, pattern, input, filter, execCxt) ;
+        return execute(ntt, graphNode, pattern, input, filter, exprs, execCxt) ;
+    }
+
+    /** Whether to match the union of the named graphs with the dataset's union table.
+     *  Not when there is a quad filter, which needs to see the graph of each quad.
+     */
+    private static boolean useUnionTable(DatasetGraphTDB ds, Node graphNode, Filter<Tuple<NodeId>> filter)
+    {
+        if ( filter != null || graphNode == null || ds.getUnionTable() == null )
+            return false ;
+        return Node.ANY.equals(graphNode) || Quad.isUnionGraph(graphNode) ;
     }
     
     public static Iterator<BindingNodeId> convertToIds(Iterator<Binding> iterBindings, NodeTable nodeTable)
@@ -80,9 +111,14 @@ public class SolverLib
     
     /** Convert from Iterator<BindingNodeId> to Iterator<Binding>, conversion "on demand" 
      * (in convToBinding(BindingNodeId, NodeTable)
+     * Bindings are converted in batches of {@link SystemTDB#NodeIdBatchSize}.
      */
     public static Iterator<Binding> convertToNodes(Iterator<BindingNodeId> iterBindingIds, NodeTable nodeTable)
-    { return Iter.map(iterBindingIds, convToBinding(nodeTable)) ; }
+    {
+        if ( SystemTDB.NodeIdBatchSize > 1 )
+            return new IterConvertBatch(iterBindingIds, nodeTable, SystemTDB.NodeIdBatchSize) ;
+        return Iter.map(iterBindingIds, convToBinding(nodeTable)) ;
+    }
     
     // The worker.  Callers choose the NodeTupleTable.  
     //     graphNode may be Node.ANY, meaning we should make triples unique.
@@ -90,7 +126,7 @@ public class SolverLib
 
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern, 
                                          QueryIterator input, Filter<Tuple<NodeId>> filter,
-                                         ExecutionContext execCxt)
+                                         ExprList exprs, ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
             graphNode = Node.ANY ;
@@ -115,6 +151,7 @@ public class SolverLib
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLib.convFromBinding(nodeTable)) ;
         List<Abortable> killList = new ArrayList<>() ;
         
+        List<Tuple<Node>> tuples = new ArrayList<>(triples.size()) ;
         for ( Triple triple : triples )
         {
             Tuple<Node> tuple = null ;
@@ -124,8 +161,50 @@ public class SolverLib
             else
                 // 4-tuples.
                 tuple = Tuple.createTuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt) ;
+            tuples.add(tuple) ;
+        }
+        
+        // Leading patterns sharing a variable : merge join if the indexes allow.
+        // Not for the union graph, where quads are reduced to distinct triples.
+        int start = 0 ;
+        if ( ! anyGraph && execCxt.getContext().isTrue(TDB.symMergeJoin) )
+        {
+            Var[] joinVar = new Var[1] ;
+            int n = StageMergeJoin.leadingGroup(tuples, joinVar) ;
+            if ( n >= 2 )
+            {
+                chain = new StageMergeJoin(nodeTupleTable, chain, tuples.subList(0, n), joinVar[0], filter, execCxt) ;
+                chain = makeAbortable(chain, killList) ;
+                start = n ;
+            }
+        }
+        
+        // Range filters on variables : read only the index ranges that may pass the filter
+        // for the pattern where the variable is first bound.
+        Map<Var, FilterRange> ranges = Collections.emptyMap() ;
+        if ( exprs != null && ! anyGraph && execCxt.getContext().isTrueOrUndef(TDB.symFilterRange) )
+            ranges = FilterRange.create(exprs) ;
+        Set<Var> bound = new HashSet<>() ;
+        for ( Tuple<Node> tuple : tuples.subList(0, start) )
+            addVars(bound, tuple) ;
+        
+        for ( Tuple<Node> tuple : tuples.subList(start, tuples.size()) )
+        {
+            Var rangeVar = null ;
+            for ( Node n : tuple.tuple() )
+            {
+                if ( Var.isVar(n) && ranges.containsKey(Var.alloc(n)) && ! bound.contains(Var.alloc(n)) )
+                {
+                    rangeVar = Var.alloc(n) ;
+                    break ;
+                }
+            }
+            if ( rangeVar != null )
+                chain = new StageMatchRange(nodeTupleTable, chain, tuple, rangeVar, ranges.get(rangeVar), filter, execCxt) ;
+            else
+                chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt) ;
             chain = makeAbortable(chain, killList) ; 
+            addVars(bound, tuple) ;
         }
         
         // DEBUG POINT
@@ -152,6 +231,15 @@ public class SolverLib
         return new QueryIterTDB(iterBinding, killList, input, execCxt) ;
     }
     
+    private static void addVars(Set<Var> vars, Tuple<Node> tuple)
+    {
+        for ( Node n : tuple.tuple() )
+        {
+            if ( Var.isVar(n) )
+                vars.add(Var.alloc(n)) ;
+        }
+    }
+    
     /** Create an abortable iterator, storing it in the killList.
      *  Just return the input iterator if kilList is null. 
      */
@@ -200,13 +288,66 @@ public class SolverLib
         }
     }
     
+    /** Iterator that reads ahead a window of BindingNodeIds and returns
+     *  bindings that convert their NodeIds for the window as a whole.
+     *  @see BindingTDBBatch
+     */
+    static class IterConvertBatch implements Iterator<Binding>, Closeable
+    {
+        private final Iterator<BindingNodeId> input ;
+        private final NodeTable nodeTable ;
+        private final int batchSize ;
+        private BindingTDBBatch batch = null ;
+        private int idx = 0 ;
+        
+        IterConvertBatch(Iterator<BindingNodeId> input, NodeTable nodeTable, int batchSize)
+        {
+            this.input = input ;
+            this.nodeTable = nodeTable ;
+            this.batchSize = batchSize ;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            if ( batch != null && idx < batch.size() )
+                return true ;
+            if ( ! input.hasNext() )
+                return false ;
+            List<BindingNodeId> rows = new ArrayList<>(batchSize) ;
+            while ( rows.size() < batchSize && input.hasNext() )
+                rows.add(input.next()) ;
+            batch = new BindingTDBBatch(rows, nodeTable) ;
+            idx = 0 ;
+            return true ;
+        }
+        
+        @Override
+        public Binding next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return batch.binding(idx++) ;
+        }
+        
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+        
+        @Override
+        public void close()
+        { Iter.close(input) ; }
+    }
+    
     public static Iterator<BindingNodeId> solve(NodeTupleTable nodeTupleTable, 
                                                 Tuple<Node> tuple,
                                                 boolean anyGraph,
                                                 Iterator<BindingNodeId> chain, Filter<Tuple<NodeId>> filter,
                                                 ExecutionContext execCxt)
     {
-        return new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, execCxt) ;
+        // Packed matching does not apply a Tuple<NodeId> filter.
+        boolean packed = ( filter == null && execCxt.getContext().isTrueOrUndef(TDB.symPackedScan) ) ;
+        return new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, packed, execCxt) ;
     }
     
     // Transform : BindingNodeId ==> Binding
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.iterator.* ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndexRecord ;
+import com.hp.hpl.jena.tdb.sys.DatasetControl ;
+
+/** Match a pattern where a variable has a {@link FilterRange}: only the index ranges
+ * for that variable are read, from an index whose leading columns are the bound slots
+ * of the pattern followed by the variable.
+ * <p>
+ * If the variable is already bound, or there is no such index, the pattern is
+ * matched by {@link StageMatchTuple}. The filter itself is not applied here.
+ */
+public class StageMatchRange extends RepeatApplyIterator<BindingNodeId>
+{
+    private final NodeTupleTable nodeTupleTable ;
+    private final Tuple<Node> patternTuple ;
+    private final Var var ;
+    private final FilterRange range ;
+    private final Filter<Tuple<NodeId>> filter ;
+    private final ExecutionContext execCxt ;
+
+    public StageMatchRange(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                           Tuple<Node> tuple, Var var, FilterRange range,
+                           Filter<Tuple<NodeId>> filter,
+                           ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.patternTuple = tuple ;
+        this.var = var ;
+        this.range = range ;
+        this.filter = filter ;
+        this.execCxt = execCxt ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(final BindingNodeId input)
+    {
+        NodeId ids[] = new NodeId[patternTuple.size()] ;
+        final Var[] vars = new Var[patternTuple.size()] ;
+        StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, vars) ;
+        
+        int slot = -1 ;
+        for ( int i = 0 ; i < ids.length ; i++ )
+        {
+            if ( NodeId.isDoesNotExist(ids[i]) )
+                return new NullIterator<>() ;
+            if ( slot < 0 && var.equals(vars[i]) )
+                slot = i ;
+        }
+        TupleIndexRecord index = ( slot < 0 ) ? null : StageMergeJoin.chooseIndex(nodeTupleTable, ids, slot) ;
+        if ( index == null )
+            return new StageMatchTuple(nodeTupleTable, new SingletonIterator<>(input), patternTuple, false, filter, execCxt) ;
+        
+        Iterator<Tuple<NodeId>> iterMatches = new RangeScan(index, Tuple.create(ids), slot) ;
+        if ( filter != null )
+            iterMatches = Iter.filter(iterMatches, filter) ;
+        
+        Transform<Tuple<NodeId>, BindingNodeId> binder = new Transform<Tuple<NodeId>, BindingNodeId>()
+        {
+            @Override
+            public BindingNodeId convert(Tuple<NodeId> tuple)
+            {
+                BindingNodeId output = new BindingNodeId(input) ;
+                for ( int i = 0 ; i < vars.length ; i++ )
+                {
+                    Var v = vars[i] ;
+                    if ( v == null )
+                        continue ;
+                    NodeId id = tuple.get(i) ;
+                    if ( output.containsKey(v) && ! output.get(v).equals(id) )
+                        return null ;
+                    output.put(v, id) ;
+                }
+                return output ;
+            }
+        } ;
+        return Iter.iter(iterMatches).map(binder).removeNulls() ;
+    }
+
+    /** The tuples in each of the ranges in turn. One index iterator reads on from the start
+     * of a range to the end of all the ranges, so ranges with no tuples are passed over without
+     * a seek. A new iterator is only opened when a tuple is found in a gap between ranges,
+     * to skip to the start of the next range.
+     */
+    private class RangeScan implements Iterator<Tuple<NodeId>>, Closeable
+    {
+        private final TupleIndexRecord index ;
+        private final Tuple<NodeId> pattern ;
+        private final int slot ;
+        private int idx = 0 ;
+        private Iterator<Tuple<NodeId>> current = null ;
+        private Tuple<NodeId> pending = null ;
+
+        RangeScan(TupleIndexRecord index, Tuple<NodeId> pattern, int slot)
+        {
+            this.index = index ;
+            this.pattern = pattern ;
+            this.slot = slot ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( pending == null )
+            {
+                if ( idx >= range.size() )
+                    return false ;
+                if ( current == null )
+                {
+                    DatasetControl policy = nodeTupleTable.getPolicy() ;
+                    try {
+                        policy.startRead() ;
+                        current = index.findRange(pattern, range.start(idx), range.finish(range.size()-1)) ;
+                        current = policy.iteratorControl(current) ;
+                    } finally { policy.finishRead() ; }
+                }
+                if ( ! current.hasNext() )
+                {
+                    close() ;
+                    return false ;
+                }
+                Tuple<NodeId> tuple = current.next() ;
+                NodeId id = tuple.get(slot) ;
+                if ( ! range.contains(idx, id) )
+                {
+                    idx = range.next(id) ;
+                    if ( idx >= range.size() || ! range.contains(idx, id) )
+                    {
+                        // In the gap before range idx : skip to its start.
+                        Iter.close(current) ;
+                        current = null ;
+                        continue ;
+                    }
+                }
+                pending = tuple ;
+            }
+            return true ;
+        }
+
+        @Override
+        public Tuple<NodeId> next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Tuple<NodeId> tuple = pending ;
+            pending = null ;
+            return tuple ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+
+        @Override
+        public void close()
+        {
+            if ( current != null )
+                Iter.close(current) ;
+            current = null ;
+            pending = null ;
+            idx = range.size() ;
+        }
+    }
+}
@@ -19,10 +19,13 @@
 package com.hp.hpl.jena.tdb.solver;
 
 
+import java.util.ArrayList ;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException ;
 
 import org.apache.jena.atlas.iterator.* ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Tuple ;
 
 import com.hp.hpl.jena.graph.Node;
@@ -40,11 +43,24 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
     private final ExecutionContext execCxt ;
     private boolean anyGraphs ;
     private Filter<Tuple<NodeId>> filter ;
+    private final boolean packed ;
 
     public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
                             Tuple<Node> tuple, boolean anyGraphs, 
                             Filter<Tuple<NodeId>> filter, 
                             ExecutionContext execCxt)
+    {
+        this(nodeTupleTable, input, tuple, anyGraphs, filter, false, execCxt) ;
+    }
+
+    /** As the other constructor; if "packed", matches are read from the indexes as
+     *  packed NodeId values and the results are rows of {@link BindingNodeIdBatch}es.
+     *  The filter must be null for packed matching. 
+     */
+    public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
+                            Tuple<Node> tuple, boolean anyGraphs, 
+                            Filter<Tuple<NodeId>> filter, boolean packed,
+                            ExecutionContext execCxt)
     {
         super(input) ;
         this.filter = filter ;
@@ -52,6 +68,7 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         this.patternTuple = tuple ;
         this.execCxt = execCxt ;
         this.anyGraphs = anyGraphs ; 
+        this.packed = packed && filter == null ;
     }
 
     /** Prepare a pattern (tuple of nodes), and an existing binding of NodeId, into NodeIds and Variables. 
@@ -86,6 +103,9 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
 
         prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, var) ;
         
+        if ( packed )
+            return new IterPackedBindings(input, nodeTupleTable.findPacked(Tuple.create(ids)), var, anyGraphs) ;
+        
         Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(Tuple.create(ids)) ;  
         
         // ** Allow a triple or quad filter here.
@@ -142,6 +162,112 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
     }
     
    
+    /** Bindings from batches of packed tuples, via column-wise {@link BindingNodeIdBatch}es */
+    private static class IterPackedBindings implements Iterator<BindingNodeId>, Closeable
+    {
+        private final BindingNodeId input ;
+        private final Iterator<long[]> iter ;
+        private final int N ;
+        private final Var[] vars ;          // Distinct variables.
+        private final int[] slots ;         // First slot for each variable.
+        private final int[] repeatSlot ;    // Slot i must equal slot repeatSlot[i] (or -1).
+        private final boolean anyGraphs ;
+        private long[] prev = null ;        // Last row, for union graph distinct.
+        private BindingNodeIdBatch batch = null ;
+        private int idx = 0 ;
+
+        IterPackedBindings(BindingNodeId input, Iterator<long[]> iter, Var[] var, boolean anyGraphs)
+        {
+            this.input = input ;
+            this.iter = iter ;
+            this.N = var.length ;
+            this.anyGraphs = anyGraphs ;
+            List<Var> x = new ArrayList<>(N) ;
+            List<Integer> s = new ArrayList<>(N) ;
+            repeatSlot = new int[N] ;
+            for ( int i = 0 ; i < N ; i++ )
+            {
+                repeatSlot[i] = -1 ;
+                if ( var[i] == null )
+                    continue ;
+                int j = x.indexOf(var[i]) ;
+                if ( j >= 0 )
+                    repeatSlot[i] = s.get(j) ;
+                else
+                {
+                    x.add(var[i]) ;
+                    s.add(i) ;
+                }
+            }
+            vars = x.toArray(new Var[x.size()]) ;
+            slots = new int[s.size()] ;
+            for ( int j = 0 ; j < slots.length ; j++ )
+                slots[j] = s.get(j) ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( batch == null || idx >= batch.size() )
+            {
+                if ( ! iter.hasNext() )
+                    return false ;
+                long[] rows = iter.next() ;
+                batch = new BindingNodeIdBatch(input, vars, rows.length/N) ;
+                idx = 0 ;
+                for ( int x = 0 ; x < rows.length ; x += N )
+                {
+                    if ( ! accept(rows, x) )
+                        continue ;
+                    batch.add(rows, x, slots) ;
+                }
+            }
+            return true ;
+        }
+
+        private boolean accept(long[] rows, int x)
+        {
+            for ( int i = 0 ; i < N ; i++ )
+            {
+                if ( repeatSlot[i] >= 0 && rows[x+i] != rows[x+repeatSlot[i]] )
+                    return false ;
+            }
+            if ( anyGraphs )
+            {
+                // Quads to distinct triples : as quadsToAnyTriples and distinctAdjacent.
+                // Assumes quads are GSPO and the index ends in G.
+                if ( prev == null )
+                    prev = new long[N] ;
+                else
+                {
+                    boolean same = true ;
+                    for ( int i = 1 ; same && i < N ; i++ )
+                        same = ( prev[i] == rows[x+i] ) ;
+                    if ( same )
+                        return false ;
+                }
+                System.arraycopy(rows, x, prev, 0, N) ;
+            }
+            return true ;
+        }
+
+        @Override
+        public BindingNodeId next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return batch.get(idx++) ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException("remove") ; }
+
+        @Override
+        public void close()
+        { Iter.close(iter) ; }
+    }
+    
     // -- Copying
     private static Transform<Tuple<NodeId>,Tuple<NodeId>> projectToTriples = new Transform<Tuple<NodeId>,Tuple<NodeId>>(){
         @Override
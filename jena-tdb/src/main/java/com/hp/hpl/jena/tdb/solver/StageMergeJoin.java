@@ -0,0 +1,476 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.iterator.* ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndexRecord ;
+import com.hp.hpl.jena.tdb.sys.DatasetControl ;
+
+/** Evaluate a group of patterns that share a variable by a merge join.
+ * <p>
+ * If, for each pattern, there is an index whose leading columns are the
+ * bound slots of the pattern followed by the join variable, the index
+ * ranges for the patterns are all sorted by the NodeId of the join variable,
+ * and the group is solved by stepping through the ranges together, instead
+ * of one index probe per pattern per partial solution. A range that falls
+ * a long way behind is repositioned with a new index lookup.
+ * <p>
+ * If the patterns, after substituting the input binding, do not suit a merge
+ * join, they are solved by {@link StageMatchTuple} as usual.
+ * <p>
+ * For each value of the join variable, the matching tuples of all but the last
+ * pattern are held in memory and the tuples of the last pattern are streamed.
+ * If one of the held runs is longer than {@link #MaxRunSize}, that value of the
+ * join variable is solved by {@link StageMatchTuple} instead.
+ */
+public class StageMergeJoin extends RepeatApplyIterator<BindingNodeId>
+{
+    // Steps forward before repositioning a lagging range by an index lookup.
+    private static final int SeekSteps = 8 ;
+    
+    /** The most tuples held for one pattern and one value of the join variable. */
+    public static int MaxRunSize = 1000 ;
+    
+    private final NodeTupleTable nodeTupleTable ;
+    private final List<Tuple<Node>> patterns ;
+    private final Var joinVar ;
+    private final Filter<Tuple<NodeId>> filter ;
+    private final ExecutionContext execCxt ;
+
+    public StageMergeJoin(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                          List<Tuple<Node>> patterns, Var joinVar,
+                          Filter<Tuple<NodeId>> filter,
+                          ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.patterns = patterns ;
+        this.joinVar = joinVar ;
+        this.filter = filter ;
+        this.execCxt = execCxt ;
+    }
+
+    /** Return the length of the group of leading patterns that share a variable
+     *  (at least two patterns), or 0 if there is no such group.
+     *  The shared variable is placed in {@code joinVar[0]}.
+     */
+    public static int leadingGroup(List<Tuple<Node>> patterns, Var[] joinVar)
+    {
+        if ( patterns.size() < 2 )
+            return 0 ;
+        Tuple<Node> first = patterns.get(0) ;
+        for ( Node n : first.tuple() )
+        {
+            if ( ! Var.isVar(n) || count(first, n) != 1 || count(patterns.get(1), n) != 1 )
+                continue ;
+            int len = 2 ;
+            while ( len < patterns.size() && count(patterns.get(len), n) == 1 )
+                len++ ;
+            joinVar[0] = Var.alloc(n) ;
+            return len ;
+        }
+        return 0 ;
+    }
+    
+    private static int count(Tuple<Node> tuple, Node n)
+    {
+        int x = 0 ;
+        for ( Node n2 : tuple.tuple() )
+        {
+            if ( n.equals(n2) )
+                x++ ;
+        }
+        return x ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(BindingNodeId input)
+    {
+        int N = patterns.size() ;
+        Cursor[] cursors = new Cursor[N] ;
+        Var[][] vars = new Var[N][] ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Tuple<Node> pattern = patterns.get(i) ;
+            NodeId[] ids = new NodeId[pattern.size()] ;
+            vars[i] = new Var[pattern.size()] ;
+            StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), pattern, input, ids, vars[i]) ;
+            int slot = -1 ;
+            for ( int j = 0 ; j < ids.length ; j++ )
+            {
+                if ( NodeId.isDoesNotExist(ids[j]) )
+                    return new NullIterator<>() ;
+                if ( joinVar.equals(vars[i][j]) )
+                    slot = j ;
+            }
+            if ( slot < 0 )
+                // Join variable bound by the input.
+                return nestedLoop(input) ;
+            TupleIndexRecord index = chooseIndex(nodeTupleTable, ids, slot) ;
+            if ( index == null )
+                return nestedLoop(input) ;
+            cursors[i] = new Cursor(index, Tuple.create(ids), slot) ;
+        }
+        return new MergeJoin(input, cursors, vars) ;
+    }
+
+    private Iterator<BindingNodeId> nestedLoop(BindingNodeId input, NodeId key)
+    {
+        BindingNodeId b = new BindingNodeId(input) ;
+        b.put(joinVar, key) ;
+        return nestedLoop(b) ;
+    }
+
+    private Iterator<BindingNodeId> nestedLoop(BindingNodeId input)
+    {
+        Iterator<BindingNodeId> chain = new SingletonIterator<>(input) ;
+        for ( Tuple<Node> pattern : patterns )
+            chain = new StageMatchTuple(nodeTupleTable, chain, pattern, false, filter, execCxt) ;
+        return chain ;
+    }
+    
+    /** Find an index with the bound slots as leading columns, then the slot of the join variable */
+    static TupleIndexRecord chooseIndex(NodeTupleTable nodeTupleTable, NodeId[] ids, int slot)
+    {
+        int numBound = 0 ;
+        for ( NodeId id : ids )
+        {
+            if ( ! NodeId.isAny(id) )
+                numBound++ ;
+        }
+        
+        for ( TupleIndex index : nodeTupleTable.getTupleTable().getIndexes() )
+        {
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                continue ;
+            ColumnMap colMap = index.getColumnMap() ;
+            boolean ok = ( colMap.fetchSlotIdx(numBound) == slot ) ;
+            for ( int k = 0 ; ok && k < numBound ; k++ )
+            {
+                if ( NodeId.isAny(ids[colMap.fetchSlotIdx(k)]) )
+                    ok = false ;
+            }
+            if ( ok )
+                return (TupleIndexRecord)index ;
+        }
+        return null ;
+    }
+
+    /** NodeIds are stored (and sorted) as unsigned longs */ 
+    private static int compare(NodeId id1, NodeId id2)
+    {
+        long x1 = id1.getId() + Long.MIN_VALUE ;
+        long x2 = id2.getId() + Long.MIN_VALUE ;
+        return ( x1 < x2 ) ? -1 : ( x1 == x2 ? 0 : 1 ) ;
+    }
+
+    /** A position in an index range, for one pattern */ 
+    private class Cursor
+    {
+        final TupleIndexRecord index ;
+        final Tuple<NodeId> pattern ;
+        final int slot ;
+        Iterator<Tuple<NodeId>> iter = null ;
+        Tuple<NodeId> current = null ;
+
+        Cursor(TupleIndexRecord index, Tuple<NodeId> pattern, int slot)
+        {
+            this.index = index ;
+            this.pattern = pattern ;
+            this.slot = slot ;
+        }
+
+        NodeId key()    { return current.get(slot) ; }
+
+        void open(NodeId start)
+        {
+            close() ;
+            DatasetControl policy = nodeTupleTable.getPolicy() ;
+            try {
+                policy.startRead() ;
+                iter = index.findFrom(pattern, start) ;
+                if ( filter != null )
+                    iter = Iter.filter(iter, filter) ;
+                iter = policy.iteratorControl(iter) ;
+            } finally { policy.finishRead() ; }
+            advance() ;
+        }
+
+        /** Move past the tuples with key target */
+        void skip(NodeId target)
+        {
+            while ( current != null && compare(key(), target) == 0 )
+                advance() ;
+        }
+
+        void advance()
+        {
+            current = iter.hasNext() ? iter.next() : null ;
+        }
+
+        /** Move to the first tuple with key at least target */
+        void seek(NodeId target)
+        {
+            for ( int i = 0 ; i < SeekSteps ; i++ )
+            {
+                if ( current == null || compare(key(), target) >= 0 )
+                    return ;
+                advance() ;
+            }
+            if ( current != null && compare(key(), target) < 0 )
+                open(target) ;
+        }
+
+        void close()
+        {
+            if ( iter != null )
+                Iter.close(iter) ;
+            iter = null ;
+        }
+    }
+
+    private class MergeJoin implements Iterator<BindingNodeId>, Closeable
+    {
+        private final BindingNodeId input ;
+        private final Cursor[] cursors ;
+        private final Var[][] vars ;
+        // Solutions for a join key with a run over MaxRunSize.
+        private Iterator<BindingNodeId> pending = null ;
+        private BindingNodeId nextBinding = null ;
+        private boolean finished = false ;
+        private boolean started = false ;
+        
+        // The join key being matched, or null.
+        private NodeId key = null ;
+        // Tuples with the join key for each pattern but the last.
+        private final List<List<Tuple<NodeId>>> runs ;
+        // Position in each run, and the tuple of the last pattern.
+        private final int[] pos ;
+        private Tuple<NodeId> lastTuple = null ;
+
+        MergeJoin(BindingNodeId input, Cursor[] cursors, Var[][] vars)
+        {
+            this.input = input ;
+            this.cursors = cursors ;
+            this.vars = vars ;
+            this.runs = new ArrayList<>(cursors.length-1) ;
+            for ( int i = 0 ; i < cursors.length-1 ; i++ )
+                runs.add(new ArrayList<Tuple<NodeId>>()) ;
+            this.pos = new int[cursors.length-1] ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( nextBinding != null )
+                return true ;
+            if ( finished )
+                return false ;
+            if ( ! started )
+            {
+                started = true ;
+                for ( Cursor c : cursors )
+                    c.open(null) ;
+            }
+            for ( ;; )
+            {
+                if ( pending != null )
+                {
+                    if ( pending.hasNext() )
+                    {
+                        nextBinding = pending.next() ;
+                        return true ;
+                    }
+                    Iter.close(pending) ;
+                    pending = null ;
+                }
+                if ( key != null )
+                {
+                    nextBinding = nextMatch() ;
+                    if ( nextBinding != null )
+                        return true ;
+                    key = null ;
+                }
+                if ( ! align() )
+                {
+                    close() ;
+                    return false ;
+                }
+            }
+        }
+
+        // Move all the cursors to the next join key they have in common
+        // and set up the runs for it. Returns false if there is none.
+        private boolean align()
+        {
+            for ( ;; )
+            {
+                for ( Cursor c : cursors )
+                {
+                    if ( c.current == null )
+                        return false ;
+                }
+                NodeId max = cursors[0].key() ;
+                for ( Cursor c : cursors )
+                {
+                    if ( compare(c.key(), max) > 0 )
+                        max = c.key() ;
+                }
+                boolean aligned = true ;
+                for ( Cursor c : cursors )
+                {
+                    c.seek(max) ;
+                    if ( c.current == null || compare(c.key(), max) != 0 )
+                    {
+                        aligned = false ;
+                        break ;
+                    }
+                }
+                if ( ! aligned )
+                    continue ;
+                
+                // All the cursors are at max: take the tuples with that key from
+                // each range but the last, which is read as the solutions are produced.
+                boolean tooLong = false ;
+                for ( int i = 0 ; i < runs.size() ; i++ )
+                {
+                    List<Tuple<NodeId>> run = runs.get(i) ;
+                    run.clear() ;
+                    Cursor c = cursors[i] ;
+                    while ( ! tooLong && c.current != null && compare(c.key(), max) == 0 )
+                    {
+                        run.add(c.current) ;
+                        c.advance() ;
+                        tooLong = ( run.size() > MaxRunSize ) ;
+                    }
+                }
+                if ( tooLong )
+                {
+                    for ( List<Tuple<NodeId>> run : runs )
+                        run.clear() ;
+                    for ( Cursor c : cursors )
+                        c.skip(max) ;
+                    pending = nestedLoop(input, max) ;
+                    return true ;
+                }
+                key = max ;
+                lastTuple = null ;
+                return true ;
+            }
+        }
+
+        // The next solution for the join key, or null if there are no more.
+        // Steps through the runs for each tuple of the last pattern.
+        private BindingNodeId nextMatch()
+        {
+            for ( ;; )
+            {
+                if ( lastTuple != null && ! nextCombination() )
+                    lastTuple = null ;
+                if ( lastTuple == null )
+                {
+                    Cursor c = cursors[cursors.length-1] ;
+                    if ( c.current == null || compare(c.key(), key) != 0 )
+                        return null ;
+                    lastTuple = c.current ;
+                    c.advance() ;
+                    Arrays.fill(pos, 0) ;
+                }
+                BindingNodeId b = new BindingNodeId(input) ;
+                boolean ok = true ;
+                for ( int i = 0 ; ok && i < runs.size() ; i++ )
+                    ok = bind(b, vars[i], runs.get(i).get(pos[i])) ;
+                if ( ok && bind(b, vars[cursors.length-1], lastTuple) )
+                    return b ;
+            }
+        }
+
+        private boolean nextCombination()
+        {
+            for ( int i = pos.length-1 ; i >= 0 ; i-- )
+            {
+                pos[i]++ ;
+                if ( pos[i] < runs.get(i).size() )
+                    return true ;
+                pos[i] = 0 ;
+            }
+            return false ;
+        }
+
+        private boolean bind(BindingNodeId b, Var[] var, Tuple<NodeId> tuple)
+        {
+            for ( int j = 0 ; j < var.length ; j++ )
+            {
+                Var v = var[j] ;
+                if ( v == null )
+                    continue ;
+                NodeId id = tuple.get(j) ;
+                if ( b.containsKey(v) )
+                {
+                    if ( ! b.get(v).equals(id) )
+                        return false ;
+                }
+                else
+                    b.put(v, id) ;
+            }
+            return true ;
+        }
+
+        @Override
+        public BindingNodeId next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            BindingNodeId b = nextBinding ;
+            nextBinding = null ;
+            return b ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+
+        @Override
+        public void close()
+        {
+            finished = true ;
+            if ( pending != null )
+                Iter.close(pending) ;
+            pending = null ;
+            for ( Cursor c : cursors )
+                c.close() ;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import java.io.BufferedOutputStream ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.util.* ;
+import java.util.Map.Entry ;
+
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.sparql.sse.ItemException ;
+import com.hp.hpl.jena.sparql.sse.ItemList ;
+import com.hp.hpl.jena.sparql.sse.ItemWriter ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+
+/** Statistics for join cardinality estimation.
+ * <ul>
+ * <li>Characteristic sets: the sets of predicates that occur together on a subject,
+ *     with the number of subjects having exactly that set and the number of triples
+ *     for each predicate over those subjects.</li>
+ * <li>Per predicate: the number of triples, distinct subjects and distinct objects,
+ *     and the "heavy hitter" objects that occur much more often than the average.</li>
+ * </ul>
+ * The statistics can be changed incrementally, subject by subject
+ * (see {@link CharacteristicSetsTracker}), so all operations are synchronized.
+ * <p>
+ * The file form is an SSE expression:
+ * <pre>
+ * (charsets
+ *   (meta (count 100) (subjects 20))
+ *   (predicate :p  60 20 30 (:o1 12) (:o2 8))    # triples, subjects, objects, heavy hitters
+ *   (cs 20 (:p 60) (:q 20))                       # subjects, triples per predicate
+ * )
+ * </pre>
+ */
+public class CharacteristicSets
+{
+    public static final String TAG          = "charsets" ;
+    public static final String META         = "meta" ;
+    public static final String COUNT        = "count" ;
+    public static final String SUBJECTS     = "subjects" ;
+    public static final String PREDICATE    = "predicate" ;
+    public static final String CS           = "cs" ;
+
+    /** The subjects with exactly one set of predicates. */
+    public static final class CharSet
+    {
+        private final Set<Node> predicates ;
+        private long subjects = 0 ;
+        private final Map<Node, Long> occurrences = new HashMap<>() ;
+
+        private CharSet(Set<Node> predicates)
+        {
+            this.predicates = Collections.unmodifiableSet(new HashSet<>(predicates)) ;
+        }
+
+        public Set<Node> getPredicates()        { return predicates ; }
+        public long getSubjects()               { return subjects ; }
+
+        /** Number of triples with predicate p over the subjects of this set */
+        public long getOccurrences(Node p)
+        {
+            Long x = occurrences.get(p) ;
+            return x == null ? 0 : x ;
+        }
+    }
+
+    /** Statistics for one predicate */
+    public static final class PredicateStats
+    {
+        private long triples = 0 ;
+        private long subjects = 0 ;
+        private long objects = 0 ;
+        private final Map<Node, Long> heavyHitters = new HashMap<>() ;
+
+        public long getTriples()                { return triples ; }
+        public long getSubjects()               { return subjects ; }
+        public long getObjects()                { return objects ; }
+        public Map<Node, Long> getHeavyHitters() { return Collections.unmodifiableMap(heavyHitters) ; }
+    }
+
+    private final Map<Set<Node>, CharSet> charSets = new HashMap<>() ;
+    // The characteristic sets containing each predicate.
+    private final Map<Node, Set<CharSet>> byPredicate = new HashMap<>() ;
+    private final Map<Node, PredicateStats> predicates = new HashMap<>() ;
+    private long count = 0 ;
+    private long subjects = 0 ;
+    private boolean changed = false ;
+
+    public CharacteristicSets() {}
+
+    // ---- Changes
+    
+    /** Add a subject, given the number of triples for each of its predicates. */ 
+    public synchronized void addSubject(Map<Node, Long> predicateCounts)
+    {
+        addSubject(predicateCounts, 1) ;
+    }
+
+    /** Remove a subject previously added with the same predicate counts. */ 
+    public synchronized void removeSubject(Map<Node, Long> predicateCounts)
+    {
+        addSubject(predicateCounts, -1) ;
+    }
+
+    private void addSubject(Map<Node, Long> predicateCounts, int sign)
+    {
+        if ( predicateCounts.isEmpty() )
+            return ;
+        changed = true ;
+        CharSet cs = charSets.get(predicateCounts.keySet()) ;
+        if ( cs == null )
+        {
+            // Not known (statistics that are older than the data): ignore.
+            if ( sign < 0 )
+                return ;
+            cs = new CharSet(predicateCounts.keySet()) ;
+            charSets.put(cs.predicates, cs) ;
+            for ( Node p : cs.predicates )
+                byPredicate(p).add(cs) ;
+        }
+        cs.subjects += sign ;
+        subjects += sign ;
+        for ( Entry<Node, Long> e : predicateCounts.entrySet() )
+        {
+            long n = sign*e.getValue() ;
+            increment(cs.occurrences, e.getKey(), n) ;
+            PredicateStats ps = predicate(e.getKey()) ;
+            ps.triples += n ;
+            ps.subjects += sign ;
+            count += n ;
+        }
+        if ( cs.subjects <= 0 )
+        {
+            charSets.remove(cs.predicates) ;
+            for ( Node p : cs.predicates )
+                byPredicate(p).remove(cs) ;
+        }
+    }
+
+    /** Change the number of distinct objects of a predicate. */ 
+    public synchronized void addObjects(Node p, long delta)
+    {
+        changed = true ;
+        predicate(p).objects += delta ;
+    }
+
+    /** Record the number of triples for a heavy hitter object of a predicate. */ 
+    public synchronized void setHeavyHitter(Node p, Node o, long n)
+    {
+        changed = true ;
+        if ( n <= 0 )
+            predicate(p).heavyHitters.remove(o) ;
+        else
+            predicate(p).heavyHitters.put(o, n) ;
+    }
+
+    /** Adjust the number of triples of a heavy hitter object, if it is one (heavy hitters are only found by a full scan). */ 
+    public synchronized void adjustHeavyHitter(Node p, Node o, long delta)
+    {
+        PredicateStats ps = predicates.get(p) ;
+        if ( ps == null )
+            return ;
+        Long n = ps.heavyHitters.get(o) ;
+        if ( n != null )
+            setHeavyHitter(p, o, n+delta) ;
+    }
+
+    /** Whether there have been changes since the last call of this operation. */ 
+    public synchronized boolean resetChanged()
+    {
+        boolean b = changed ;
+        changed = false ;
+        return b ;
+    }
+
+    // ---- Access
+
+    public synchronized long getCount()             { return count ; }
+    public synchronized long getSubjects()          { return subjects ; }
+    public synchronized int getNumCharSets()        { return charSets.size() ; }
+
+    /** The statistics for a predicate or null if it does not occur. */
+    public synchronized PredicateStats getPredicateStats(Node p)
+    {
+        return predicates.get(p) ;
+    }
+
+    /** The characteristic set for exactly these predicates, or null. */
+    public synchronized CharSet getCharSet(Set<Node> predicateSet)
+    {
+        return charSets.get(predicateSet) ;
+    }
+
+    /** Estimate of the number of subjects with (at least) all the predicates */
+    public synchronized double estimateSubjects(Collection<Node> star)
+    {
+        double n = 0 ;
+        for ( CharSet cs : candidates(star) )
+            n += cs.subjects ;
+        return n ;
+    }
+
+    /** Estimate of the number of solutions of a star pattern: one subject variable with
+     *  one triple pattern for each of the predicates (which may be repeated) and variable objects. 
+     */
+    public synchronized double estimateStar(Collection<Node> star)
+    {
+        double n = 0 ;
+        for ( CharSet cs : candidates(star) )
+        {
+            double x = cs.subjects ;
+            // Each subject has, on average, occurrences/subjects triples for each predicate.
+            for ( Node p : star )
+                x = x * cs.getOccurrences(p) / cs.subjects ;
+            n += x ;
+        }
+        return n ;
+    }
+
+    /** The characteristic sets that contain all the predicates */
+    private Collection<CharSet> candidates(Collection<Node> star)
+    {
+        if ( star.isEmpty() )
+            return charSets.values() ;
+        // Start from the predicate with the fewest characteristic sets.
+        Set<CharSet> smallest = null ;
+        for ( Node p : star )
+        {
+            Set<CharSet> x = byPredicate.get(p) ;
+            if ( x == null )
+                return Collections.emptyList() ;
+            if ( smallest == null || x.size() < smallest.size() )
+                smallest = x ;
+        }
+        List<CharSet> results = new ArrayList<>() ;
+        for ( CharSet cs : smallest )
+        {
+            if ( cs.predicates.containsAll(star) )
+                results.add(cs) ;
+        }
+        return results ;
+    }
+
+    private Set<CharSet> byPredicate(Node p)
+    {
+        Set<CharSet> x = byPredicate.get(p) ;
+        if ( x == null )
+        {
+            x = new HashSet<>() ;
+            byPredicate.put(p, x) ;
+        }
+        return x ;
+    }
+
+    private PredicateStats predicate(Node p)
+    {
+        PredicateStats ps = predicates.get(p) ;
+        if ( ps == null )
+        {
+            ps = new PredicateStats() ;
+            predicates.put(p, ps) ;
+        }
+        return ps ;
+    }
+
+    private static void increment(Map<Node, Long> map, Node key, long n)
+    {
+        Long x = map.get(key) ;
+        long v = ( x == null ) ? n : x+n ;
+        if ( v == 0 )
+            map.remove(key) ;
+        else
+            map.put(key, v) ;
+    }
+
+    // ---- Input and output
+
+    /** Write the statistics to a file */
+    public void write(String filename)
+    {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+            write(out) ;
+        } catch (IOException ex)
+        { Log.warn(CharacteristicSets.class, "Problem when writing characteristic sets file", ex) ; }
+    }
+
+    /** Write the statistics */
+    public void write(OutputStream output)
+    {
+        ItemWriter.write(output, format()) ;
+    }
+
+    /** Statistics as an SSE item */
+    public synchronized Item format()
+    {
+        Item item = Item.createTagged(TAG) ;
+        ItemList list = item.getList() ;
+
+        Item meta = Item.createTagged(META) ;
+        Item.addPair(meta.getList(), COUNT, NodeFactoryExtra.intToNode(count)) ;
+        Item.addPair(meta.getList(), SUBJECTS, NodeFactoryExtra.intToNode(subjects)) ;
+        list.add(meta) ;
+
+        for ( Entry<Node, PredicateStats> e : predicates.entrySet() )
+        {
+            PredicateStats ps = e.getValue() ;
+            if ( ps.triples <= 0 )
+                continue ;
+            Item x = Item.createTagged(PREDICATE) ;
+            x.getList().add(e.getKey()) ;
+            x.getList().add(NodeFactoryExtra.intToNode(ps.triples)) ;
+            x.getList().add(NodeFactoryExtra.intToNode(ps.subjects)) ;
+            x.getList().add(NodeFactoryExtra.intToNode(ps.objects)) ;
+            for ( Entry<Node, Long> hh : ps.heavyHitters.entrySet() )
+                Item.addPair(x.getList(), hh.getKey(), NodeFactoryExtra.intToNode(hh.getValue())) ;
+            list.add(x) ;
+        }
+
+        for ( CharSet cs : charSets.values() )
+        {
+            Item x = Item.createTagged(CS) ;
+            x.getList().add(NodeFactoryExtra.intToNode(cs.subjects)) ;
+            for ( Entry<Node, Long> occ : cs.occurrences.entrySet() )
+                Item.addPair(x.getList(), occ.getKey(), NodeFactoryExtra.intToNode(occ.getValue())) ;
+            list.add(x) ;
+        }
+        return item ;
+    }
+
+    /** Read statistics from a file */
+    public static CharacteristicSets read(String filename)
+    {
+        return parse(SSE.readFile(filename)) ;
+    }
+
+    /** Statistics from an SSE item */
+    public static CharacteristicSets parse(Item item)
+    {
+        if ( ! item.isTagged(TAG) )
+            throw new ItemException("Not a characteristic sets item: "+item.shortString()) ;
+        CharacteristicSets stats = new CharacteristicSets() ;
+        ItemList list = item.getList() ;
+        for ( int i = 1 ; i < list.size() ; i++ )
+        {
+            Item x = list.get(i) ;
+            ItemList elts = x.getList() ;
+            if ( x.isTagged(PREDICATE) )
+            {
+                // Triples and subjects come from the characteristic sets.
+                Node p = elts.get(1).getNode() ;
+                PredicateStats ps = stats.predicate(p) ;
+                ps.objects = elts.get(4).getInteger() ;
+                for ( int j = 5 ; j < elts.size() ; j++ )
+                {
+                    ItemList pair = elts.get(j).getList() ;
+                    ps.heavyHitters.put(pair.get(0).getNode(), pair.get(1).getInteger()) ;
+                }
+            }
+            else if ( x.isTagged(CS) )
+            {
+                long n = elts.get(1).getInteger() ;
+                Map<Node, Long> occurrences = new HashMap<>() ;
+                for ( int j = 2 ; j < elts.size() ; j++ )
+                {
+                    ItemList pair = elts.get(j).getList() ;
+                    occurrences.put(pair.get(0).getNode(), pair.get(1).getInteger()) ;
+                }
+                stats.addCharSet(occurrences, n) ;
+            }
+            // Anything else (meta) is informational.
+        }
+        stats.changed = false ;
+        return stats ;
+    }
+
+    // Add a number of subjects with the same characteristic set.
+    private void addCharSet(Map<Node, Long> occurrences, long n)
+    {
+        if ( n <= 0 || occurrences.isEmpty() )
+            return ;
+        CharSet cs = charSets.get(occurrences.keySet()) ;
+        if ( cs == null )
+        {
+            cs = new CharSet(occurrences.keySet()) ;
+            charSets.put(cs.predicates, cs) ;
+            for ( Node p : cs.predicates )
+                byPredicate(p).add(cs) ;
+        }
+        cs.subjects += n ;
+        subjects += n ;
+        for ( Entry<Node, Long> e : occurrences.entrySet() )
+        {
+            increment(cs.occurrences, e.getKey(), e.getValue()) ;
+            PredicateStats ps = predicate(e.getKey()) ;
+            ps.triples += e.getValue() ;
+            ps.subjects += n ;
+            count += e.getValue() ;
+        }
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("CharacteristicSets[triples=%d, subjects=%d, sets=%d, predicates=%d]",
+                             count, subjects, charSets.size(), predicates.size()) ;
+    }
+}
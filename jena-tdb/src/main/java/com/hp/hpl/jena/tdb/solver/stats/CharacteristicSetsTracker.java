@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+import java.util.Map.Entry ;
+
+import org.apache.jena.atlas.lib.Pair ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+
+/** Maintain {@link CharacteristicSets} for the default graph as it changes.
+ * <p>
+ * The tracker is attached to the storage of one write transaction (see
+ * {@link DatasetGraphTDB#setMonitor}) and is told of each change before it is made.
+ * It records the subjects and predicate-object pairs touched, with their state before
+ * the first change. {@link #apply} is called when the transaction commits, and
+ * replaces the old contribution of each subject with the new one.
+ * Aborted transactions are simply dropped.
+ */
+public class CharacteristicSetsTracker implements DatasetChanges
+{
+    private final CharacteristicSets stats ;
+    private final DatasetGraphTDB dsg ;
+    // Subject -> predicate counts before the first change to the subject.
+    private final Map<Node, Map<Node, Long>> subjects = new HashMap<>() ;
+    // (predicate, object) -> { present before the first change (0/1), net change in triples }
+    private final Map<Pair<Node, Node>, long[]> objects = new HashMap<>() ;
+
+    public CharacteristicSetsTracker(CharacteristicSets stats, DatasetGraphTDB dsg)
+    {
+        this.stats = stats ;
+        this.dsg = dsg ;
+    }
+
+    @Override
+    public void start()     {}
+
+    @Override
+    public void finish()    {}
+
+    @Override
+    public void change(QuadAction qaction, Node g, Node s, Node p, Node o)
+    {
+        if ( g != null && ! Quad.isDefaultGraph(g) )
+            return ;
+        boolean add ;
+        switch (qaction)
+        {
+            case ADD:       add = true ; break ;
+            case DELETE:    add = false ; break ;
+            default:        return ;
+        }
+        // Only real changes count. 
+        if ( contains(s, p, o) == add )
+            return ;
+        if ( ! subjects.containsKey(s) )
+            subjects.put(s, predicateCounts(s)) ;
+        Pair<Node, Node> key = Pair.create(p, o) ;
+        long[] x = objects.get(key) ;
+        if ( x == null )
+        {
+            x = new long[]{ contains(null, p, o) ? 1 : 0, 0 } ;
+            objects.put(key, x) ;
+        }
+        x[1] += ( add ? 1 : -1 ) ;
+    }
+
+    /** Apply the changes to the statistics.
+     *  This must be called after the last change and while the storage of the transaction is still usable.
+     */
+    public void apply()
+    {
+        for ( Entry<Node, Map<Node, Long>> e : subjects.entrySet() )
+        {
+            stats.removeSubject(e.getValue()) ;
+            stats.addSubject(predicateCounts(e.getKey())) ;
+        }
+        for ( Entry<Pair<Node, Node>, long[]> e : objects.entrySet() )
+        {
+            Node p = e.getKey().getLeft() ;
+            Node o = e.getKey().getRight() ;
+            boolean before = ( e.getValue()[0] != 0 ) ;
+            boolean after = contains(null, p, o) ;
+            if ( before && ! after )
+                stats.addObjects(p, -1) ;
+            else if ( ! before && after )
+                stats.addObjects(p, 1) ;
+            stats.adjustHeavyHitter(p, o, e.getValue()[1]) ;
+        }
+        subjects.clear() ;
+        objects.clear() ;
+    }
+
+    private boolean contains(Node s, Node p, Node o)
+    {
+        Iterator<Tuple<NodeId>> iter = triples().findAsNodeIds(s, p, o) ;
+        return iter != null && iter.hasNext() ;
+    }
+
+    private Map<Node, Long> predicateCounts(Node s)
+    {
+        Map<NodeId, Long> x = new HashMap<>() ;
+        Iterator<Tuple<NodeId>> iter = triples().findAsNodeIds(s, null, null) ;
+        if ( iter != null )
+        {
+            while ( iter.hasNext() )
+            {
+                NodeId p = iter.next().get(1) ;
+                Long n = x.get(p) ;
+                x.put(p, n == null ? 1 : n+1) ;
+            }
+        }
+        NodeTable nodeTable = triples().getNodeTable() ;
+        Map<Node, Long> counts = new HashMap<>() ;
+        for ( Entry<NodeId, Long> e : x.entrySet() )
+            counts.put(nodeTable.getNodeForNodeId(e.getKey()), e.getValue()) ;
+        return counts ;
+    }
+
+    private NodeTupleTable triples()
+    {
+        return dsg.getTripleTable().getNodeTupleTable() ;
+    }
+}
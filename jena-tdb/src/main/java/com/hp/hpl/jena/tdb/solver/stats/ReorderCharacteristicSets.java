@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import java.util.* ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.BasicPattern ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderLib ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProc ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProcIndexes ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSets.PredicateStats ;
+
+/** Reorder the triple patterns of a basic graph pattern using estimates of the
+ *  join cardinality from {@link CharacteristicSets}.
+ *  <p>
+ *  This is a greedy ordering for execution by substitution (index joins): at each step,
+ *  choose the pattern connected to the patterns already chosen that gives the smallest
+ *  estimated number of intermediate results. Patterns on the same subject variable
+ *  (a star) are estimated together from the characteristic sets, so correlated predicates
+ *  are not treated as independent.
+ */
+public class ReorderCharacteristicSets implements ReorderTransformation
+{
+    private final CharacteristicSets stats ;
+
+    public ReorderCharacteristicSets(CharacteristicSets stats)
+    {
+        this.stats = stats ;
+    }
+
+    public CharacteristicSets getStats()    { return stats ; }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern)
+    {
+        return reorderIndexes(pattern).reorder(pattern) ;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern)
+    {
+        int N = pattern.size() ;
+        if ( N <= 1 )
+            return ReorderLib.identityProc() ;
+        List<Triple> triples = pattern.getList() ;
+        boolean[] done = new boolean[N] ;
+        int[] indexes = new int[N] ;
+        Set<Node> bound = new HashSet<>() ;
+        // Subject variable -> predicates of the chosen patterns for that subject. 
+        Map<Node, List<Node>> stars = new HashMap<>() ;
+        double card = 1 ;
+
+        for ( int idx = 0 ; idx < N ; idx++ )
+        {
+            int best = -1 ;
+            boolean bestConnected = false ;
+            double bestCard = Double.MAX_VALUE ;
+            for ( int j = 0 ; j < N ; j++ )
+            {
+                if ( done[j] )
+                    continue ;
+                Triple t = triples.get(j) ;
+                boolean connected = isConnected(t, bound) ;
+                double c = estimate(t, bound, stars, card) ;
+                // Avoid cross products if possible.
+                if ( best == -1 || ( connected && ! bestConnected ) || ( connected == bestConnected && c < bestCard ) )
+                {
+                    best = j ;
+                    bestConnected = connected ;
+                    bestCard = c ;
+                }
+            }
+            done[best] = true ;
+            indexes[idx] = best ;
+            card = bestCard ;
+            Triple t = triples.get(best) ;
+            if ( Var.isVar(t.getSubject()) && t.getPredicate().isConcrete() )
+            {
+                List<Node> star = stars.get(t.getSubject()) ;
+                if ( star == null )
+                {
+                    star = new ArrayList<>() ;
+                    stars.put(t.getSubject(), star) ;
+                }
+                star.add(t.getPredicate()) ;
+            }
+            addVars(bound, t) ;
+        }
+        return new ReorderProcIndexes(indexes) ;
+    }
+
+    /** Estimate the number of results after adding a triple pattern
+     *  to a sequence of patterns with an estimated number of results. 
+     */
+    protected double estimate(Triple t, Set<Node> bound, Map<Node, List<Node>> stars, double card)
+    {
+        Node s = t.getSubject() ;
+        Node p = t.getPredicate() ;
+        Node o = t.getObject() ;
+        boolean sBound = isBound(s, bound) ;
+        boolean oBound = isBound(o, bound) ;
+
+        double triples, subjects, objects ;
+        if ( p.isConcrete() )
+        {
+            PredicateStats ps = stats.getPredicateStats(p) ;
+            if ( ps == null || ps.getTriples() <= 0 )
+                // No matches.
+                return 0 ;
+            triples = ps.getTriples() ;
+            subjects = Math.max(1, ps.getSubjects()) ;
+            objects = ps.getObjects() > 0 ? ps.getObjects() : triples ;
+        }
+        else
+        {
+            triples = stats.getCount() ;
+            subjects = Math.max(1, stats.getSubjects()) ;
+            objects = triples ;
+        }
+        triples = Math.max(1, triples) ;
+
+        // Probability a triple with a bound subject has this object.
+        double objectSelectivity = 1 ;
+        if ( oBound )
+        {
+            objectSelectivity = 1/objects ;
+            if ( o.isConcrete() && p.isConcrete() )
+            {
+                Long n = stats.getPredicateStats(p).getHeavyHitters().get(o) ;
+                if ( n != null )
+                    objectSelectivity = n/triples ;
+            }
+        }
+
+        if ( s.isConcrete() )
+            return card * (triples/subjects) * objectSelectivity ;
+
+        if ( sBound )
+        {
+            List<Node> star = stars.get(s) ;
+            if ( star != null && p.isConcrete() )
+            {
+                // Correlated: the change to the star estimate.
+                double before = stats.estimateStar(star) ;
+                if ( before <= 0 )
+                    return 0 ;
+                List<Node> star2 = new ArrayList<>(star) ;
+                star2.add(p) ;
+                return card * (stats.estimateStar(star2)/before) * objectSelectivity ;
+            }
+            return card * (triples/subjects) * objectSelectivity ;
+        }
+
+        // Subject not bound.
+        if ( oBound )
+            return card * triples * objectSelectivity ;
+        return card * triples ;
+    }
+
+    private static boolean isConnected(Triple t, Set<Node> bound)
+    {
+        if ( bound.isEmpty() )
+            return true ;
+        return bound.contains(t.getSubject()) || bound.contains(t.getPredicate()) || bound.contains(t.getObject()) ;
+    }
+
+    private static boolean isBound(Node n, Set<Node> bound)
+    {
+        return n.isConcrete() || bound.contains(n) ;
+    }
+
+    private static void addVars(Set<Node> bound, Triple t)
+    {
+        if ( Var.isVar(t.getSubject()) )    bound.add(t.getSubject()) ;
+        if ( Var.isVar(t.getPredicate()) )  bound.add(t.getPredicate()) ;
+        if ( Var.isVar(t.getObject()) )     bound.add(t.getObject()) ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReorderCharacteristicSets["+stats+"]" ;
+    }
+}
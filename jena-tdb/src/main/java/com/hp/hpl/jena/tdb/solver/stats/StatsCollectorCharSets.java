@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import java.util.* ;
+import java.util.Map.Entry ;
+
+import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleTable ;
+
+/** Gather {@link CharacteristicSets} for a triple table by scanning the indexes.
+ * <p>
+ * The characteristic sets come from a scan in subject order, grouping the triples by subject.
+ * Distinct objects and heavy hitters come from a scan in predicate-object order;
+ * without such an index, the object statistics are not recorded.
+ * Only the NodeIds of predicates and heavy hitter objects are turned into Nodes. 
+ */
+public class StatsCollectorCharSets
+{
+    /** Maximum number of heavy hitter objects recorded for each predicate */
+    public static int MaxHeavyHitters = 10 ;
+    /** A heavy hitter object has at least this many times the average number of triples per object */
+    public static int HeavyHitterFactor = 10 ;
+    
+    private final NodeTupleTable triples ;
+    private final NodeTable nodeTable ;
+    private final Map<NodeId, Node> nodeCache = new HashMap<>() ;
+
+    public StatsCollectorCharSets(NodeTupleTable triples)
+    {
+        if ( triples.getTupleTable().getTupleLen() != 3 )
+            throw new IllegalArgumentException("Not a triple table") ;
+        this.triples = triples ;
+        this.nodeTable = triples.getNodeTable() ;
+    }
+
+    /** Gather statistics for a triple table. */
+    public static CharacteristicSets gather(NodeTupleTable triples)
+    {
+        return new StatsCollectorCharSets(triples).results() ;
+    }
+
+    public CharacteristicSets results()
+    {
+        CharacteristicSets stats = new CharacteristicSets() ;
+        collectSubjects(stats) ;
+        collectObjects(stats) ;
+        stats.resetChanged() ;
+        return stats ;
+    }
+
+    private void collectSubjects(CharacteristicSets stats)
+    {
+        TupleIndex index = findIndex(triples.getTupleTable(), 0, 1) ;
+        if ( index == null )
+            throw new IllegalStateException("No subject-predicate index") ;
+        Iterator<Tuple<NodeId>> iter = index.all() ;
+        NodeId subject = null ;
+        Map<NodeId, Long> predicates = new HashMap<>() ;
+        while ( iter.hasNext() )
+        {
+            Tuple<NodeId> t = iter.next() ;
+            if ( ! t.get(0).equals(subject) )
+            {
+                addSubject(stats, predicates) ;
+                subject = t.get(0) ;
+            }
+            increment(predicates, t.get(1)) ;
+        }
+        addSubject(stats, predicates) ;
+    }
+
+    private void addSubject(CharacteristicSets stats, Map<NodeId, Long> predicates)
+    {
+        if ( predicates.isEmpty() )
+            return ;
+        Map<Node, Long> x = new HashMap<>() ;
+        for ( Entry<NodeId, Long> e : predicates.entrySet() )
+            x.put(node(e.getKey()), e.getValue()) ;
+        stats.addSubject(x) ;
+        predicates.clear() ;
+    }
+
+    private void collectObjects(CharacteristicSets stats)
+    {
+        TupleIndex index = findIndex(triples.getTupleTable(), 1, 2) ;
+        if ( index == null )
+            return ;
+        Iterator<Tuple<NodeId>> iter = index.all() ;
+        NodeId predicate = null ;
+        NodeId object = null ;
+        long objects = 0 ;
+        long triplesForPredicate = 0 ;
+        long run = 0 ;
+        // The objects with the most triples (least at the head).
+        PriorityQueue<ObjectCount> top = new PriorityQueue<>() ;
+        while ( iter.hasNext() )
+        {
+            Tuple<NodeId> t = iter.next() ;
+            NodeId p = t.get(1) ;
+            NodeId o = t.get(2) ;
+            if ( p.equals(predicate) && o.equals(object) )
+            {
+                run++ ;
+                triplesForPredicate++ ;
+                continue ;
+            }
+            if ( object != null )
+                endRun(top, object, run) ;
+            if ( ! p.equals(predicate) )
+            {
+                if ( predicate != null )
+                    endPredicate(stats, predicate, objects, triplesForPredicate, top) ;
+                predicate = p ;
+                objects = 0 ;
+                triplesForPredicate = 0 ;
+            }
+            object = o ;
+            objects++ ;
+            triplesForPredicate++ ;
+            run = 1 ;
+        }
+        if ( object != null )
+        {
+            endRun(top, object, run) ;
+            endPredicate(stats, predicate, objects, triplesForPredicate, top) ;
+        }
+    }
+
+    private static void endRun(PriorityQueue<ObjectCount> top, NodeId object, long run)
+    {
+        if ( run < 2 )
+            return ;
+        if ( top.size() < MaxHeavyHitters )
+            top.add(new ObjectCount(object, run)) ;
+        else if ( top.peek().count < run )
+        {
+            top.poll() ;
+            top.add(new ObjectCount(object, run)) ;
+        }
+    }
+
+    private void endPredicate(CharacteristicSets stats, NodeId predicate, long objects, long count, PriorityQueue<ObjectCount> top)
+    {
+        Node p = node(predicate) ;
+        stats.addObjects(p, objects) ;
+        double threshold = HeavyHitterFactor * ((double)count / objects) ;
+        for ( ObjectCount x : top )
+        {
+            if ( x.count >= threshold )
+                stats.setHeavyHitter(p, nodeTable.getNodeForNodeId(x.object), x.count) ;
+        }
+        top.clear() ;
+    }
+
+    private static class ObjectCount implements Comparable<ObjectCount>
+    {
+        final NodeId object ;
+        final long count ;
+        ObjectCount(NodeId object, long count) { this.object = object ; this.count = count ; }
+
+        @Override
+        public int compareTo(ObjectCount other)
+        {
+            return Long.compare(count, other.count) ;
+        }
+    }
+
+    /** Find an index with the given columns (of S, P, O) as the leading columns. */
+    static TupleIndex findIndex(TupleTable table, int col1, int col2)
+    {
+        for ( TupleIndex index : table.getIndexes() )
+        {
+            ColumnMap colMap = index.getColumnMap() ;
+            if ( colMap.fetchSlotIdx(0) == col1 && colMap.fetchSlotIdx(1) == col2 )
+                return index ;
+        }
+        return null ;
+    }
+
+    private Node node(NodeId id)
+    {
+        Node n = nodeCache.get(id) ;
+        if ( n == null )
+        {
+            n = nodeTable.getNodeForNodeId(id) ;
+            nodeCache.put(id, n) ;
+        }
+        return n ;
+    }
+
+    private static void increment(Map<NodeId, Long> map, NodeId key)
+    {
+        Long x = map.get(key) ;
+        map.put(key, x == null ? 1 : x+1) ;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Transactional ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.tdb.transaction.TDBTransactionException ;
+
+/** A {@link DatasetGraphTDB} over a frozen database: the files do not change.
+ *  <p>
+ *  There is no journal and there are no transaction objects. Read transactions are
+ *  accepted, so code written for transactional TDB datasets works unchanged, but
+ *  they only record, for the calling thread, that it is in a transaction.
+ *  Write transactions, and any other attempt to change the dataset, are errors.
+ *  
+ *  @see com.hp.hpl.jena.tdb.TDBFreeze
+ */
+public class DatasetGraphFrozen extends DatasetGraphTDB implements Transactional
+{
+    private final ThreadLocal<Boolean> inTransaction = new ThreadLocal<>() ;
+    
+    public DatasetGraphFrozen(TripleTable tripleTable, QuadTable quadTable, TripleTable unionTable,
+                              DatasetPrefixesTDB prefixes, ReorderTransformation transform, StorageConfig config)
+    {
+        super(tripleTable, quadTable, unionTable, prefixes, transform, config) ;
+    }
+
+    @Override
+    public void begin(ReadWrite readWrite)
+    {
+        if ( readWrite == ReadWrite.WRITE )
+            throw new TDBTransactionException("Frozen database: write transactions are not possible: "+getLocation().getDirectoryPath()) ;
+        if ( isInTransaction() )
+            throw new TDBTransactionException("Already in a transaction") ;
+        inTransaction.set(Boolean.TRUE) ;
+    }
+
+    @Override
+    public void commit()
+    {
+        checkInTransaction() ;
+        inTransaction.remove() ;
+    }
+
+    @Override
+    public void abort()
+    {
+        checkInTransaction() ;
+        inTransaction.remove() ;
+    }
+
+    @Override
+    public boolean isInTransaction()
+    {
+        return inTransaction.get() != null ;
+    }
+
+    @Override
+    public void end()
+    {
+        inTransaction.remove() ;
+    }
+    
+    private void checkInTransaction()
+    {
+        if ( ! isInTransaction() )
+            throw new TDBTransactionException("Not in a transaction") ;
+    }
+}
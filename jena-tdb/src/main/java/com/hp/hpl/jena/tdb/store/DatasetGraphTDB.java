@@ -31,13 +31,19 @@ import com.hp.hpl.jena.graph.Graph ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.Triple ;
 import com.hp.hpl.jena.query.Dataset ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
 import com.hp.hpl.jena.sparql.core.DatasetGraphCaching ;
 import com.hp.hpl.jena.sparql.core.DatasetImpl ;
 import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
+import com.hp.hpl.jena.tdb.lib.TupleLib ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleTable ;
 import com.hp.hpl.jena.tdb.sys.Session ;
 import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
 import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
@@ -45,30 +51,44 @@ import com.hp.hpl.jena.update.GraphStore ;
 
 /** This is the class that creates a dataset over the storage via
  *  TripleTable, QuadTable and prefixes. These may be transactional.
+ *  <p>
+ *  Optionally, there is also a "union table": a TripleTable of the distinct triples
+ *  of all the named graphs, kept in step with the quad table, so that the union graph
+ *  can be matched without removing duplicates (see {@link StoreParams#getUnionIndexes()}).
  *  
  *  See also:
  *  <ul>
  *  <li>{@link DatasetGraphTxn} &ndash; the sublcass that provides a single tranasaction</li>
  *  <li>{@link DatasetGraphTransaction} &ndash; class that provides the application with the right DatasetGraphTDB (base or transaction).</li>
+ *  <li>{@link DatasetGraphFrozen} &ndash; the subclass for a frozen, read-only database.</li>
  *  </ul>
  */
-final
 public class DatasetGraphTDB extends DatasetGraphCaching
                              implements /*DatasetGraph,*/ Sync, Closeable, GraphStore, Session
 {
     private TripleTable tripleTable ;
     private QuadTable quadTable ;
+    private TripleTable unionTable ;
     private DatasetPrefixesTDB prefixes ;
     private final ReorderTransformation transform ;
     private final StorageConfig config ;
     
     private GraphTDB effectiveDefaultGraph ;
     private boolean closed = false ;
+    // Told of changes before they happen.
+    private DatasetChanges monitor = null ;
 
     public DatasetGraphTDB(TripleTable tripleTable, QuadTable quadTable, DatasetPrefixesTDB prefixes, 
                            ReorderTransformation transform, StorageConfig config) {
+        this(tripleTable, quadTable, null, prefixes, transform, config) ;
+    }
+
+    /** Dataset with a union table (which may be null) */ 
+    public DatasetGraphTDB(TripleTable tripleTable, QuadTable quadTable, TripleTable unionTable, DatasetPrefixesTDB prefixes, 
+                           ReorderTransformation transform, StorageConfig config) {
         this.tripleTable = tripleTable ;
         this.quadTable = quadTable ;
+        this.unionTable = unionTable ;
         this.prefixes = prefixes ;
         this.transform = transform ;
         this.config = config ;
@@ -77,6 +97,8 @@ public class DatasetGraphTDB extends DatasetGraphCaching
 
     public QuadTable getQuadTable()         { return quadTable ; }
     public TripleTable getTripleTable()     { return tripleTable ; }
+    /** The distinct triples of the named graphs, or null if this dataset does not keep them */
+    public TripleTable getUnionTable()      { return unionTable ; }
     
     @Override
     protected Iterator<Quad> findInDftGraph(Node s, Node p, Node o) {
@@ -96,19 +118,75 @@ public class DatasetGraphTDB extends DatasetGraphCaching
  
     @Override
     protected void addToDftGraph(Node s, Node p, Node o)
-    { getTripleTable().add(s,p,o) ; }
+    { 
+        if ( monitor != null )
+            monitor.change(QuadAction.ADD, Quad.defaultGraphIRI, s, p, o) ;
+        getTripleTable().add(s,p,o) ;
+    }
 
     @Override
     protected void addToNamedGraph(Node g, Node s, Node p, Node o)
-    { getQuadTable().add(g, s, p, o) ; }
+    { 
+        if ( monitor != null )
+            monitor.change(QuadAction.ADD, g, s, p, o) ;
+        if ( getQuadTable().add(g, s, p, o) && unionTable != null )
+            unionTable.add(s, p, o) ;
+    }
 
     @Override
     protected void deleteFromDftGraph(Node s, Node p, Node o)
-    { getTripleTable().delete(s,p,o) ; }
+    { 
+        if ( monitor != null )
+            monitor.change(QuadAction.DELETE, Quad.defaultGraphIRI, s, p, o) ;
+        getTripleTable().delete(s,p,o) ;
+    }
 
     @Override
     protected void deleteFromNamedGraph(Node g, Node s, Node p, Node o)
-    { getQuadTable().delete(g, s, p, o) ; }
+    { 
+        if ( monitor != null )
+            monitor.change(QuadAction.DELETE, g, s, p, o) ;
+        if ( getQuadTable().delete(g, s, p, o) && unionTable != null ) {
+            NodeTable nodeTable = quadTable.getNodeTupleTable().getNodeTable() ;
+            unionDelete(nodeTable.getNodeIdForNode(s), nodeTable.getNodeIdForNode(p), nodeTable.getNodeIdForNode(o)) ;
+        }
+    }
+
+    /** A triple leaves the union graph when the last quad for it is deleted.
+     *  The SPOG index makes the check a single probe.
+     */
+    private void unionDelete(NodeId s, NodeId p, NodeId o) {
+        Iterator<Tuple<NodeId>> iter = quadTable.getNodeTupleTable().getTupleTable().find(Tuple.createTuple(NodeId.NodeIdAny, s, p, o)) ;
+        boolean inOtherGraph = iter.hasNext() ;
+        Iter.close(iter) ;
+        if ( ! inOtherGraph )
+            unionTable.getNodeTupleTable().getTupleTable().delete(Tuple.createTuple(s, p, o)) ;
+    }
+
+    /** Recreate the union table from the quad table.
+     *  Needed after the quad table has been changed directly, such as by the bulk loader.
+     *  Does nothing if this dataset has no union table.
+     */
+    public void rebuildUnionTable() {
+        if ( unionTable == null )
+            return ;
+        unionTable.clearTriples() ;
+        TupleTable union = unionTable.getNodeTupleTable().getTupleTable() ;
+        Iterator<Tuple<NodeId>> iter = quadTable.getNodeTupleTable().getTupleTable().find(Tuple.createTuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny)) ;
+        for ( ; iter.hasNext() ; ) {
+            Tuple<NodeId> quad = iter.next() ;
+            union.add(Tuple.createTuple(quad.get(1), quad.get(2), quad.get(3))) ;
+        }
+        Iter.close(iter) ;
+    }
+    
+    /** Set the monitor to be told of each change to the dataset before it is made (or null for none).
+     *  Changes made directly to the triple and quad tables are not seen; the bulk loader
+     *  does not load the tables directly while there is a monitor.
+     */
+    public void setMonitor(DatasetChanges monitor)  { this.monitor = monitor ; }
+
+    public DatasetChanges getMonitor()              { return monitor ; }
     
     public GraphTDB getDefaultGraphTDB() 
     { return (GraphTDB)getDefaultGraph() ; }
@@ -124,10 +202,13 @@ public class DatasetGraphTDB extends DatasetGraphCaching
         
         tripleTable.close() ;
         quadTable.close() ;
+        if ( unionTable != null )
+            unionTable.close() ;
         prefixes.close();
         // Which will cause reuse to throw exceptions early.
         tripleTable = null ;
         quadTable = null ;
+        unionTable = null ;
         prefixes = null ;
     }
     
@@ -199,9 +280,18 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     @Override
     public void clear()
     {
+        if ( monitor != null )
+        {
+            // Quad by quad, so the monitor is told of each one.
+            deleteAny(null, Node.ANY, Node.ANY, Node.ANY) ;
+            deleteAny(Node.ANY, Node.ANY, Node.ANY, Node.ANY) ;
+            return ;
+        }
         // Leave the node table alone.
         getTripleTable().clearTriples() ;
         getQuadTable().clearQuads() ;
+        if ( unionTable != null )
+            unionTable.clearTriples() ;
     }
     
     public NodeTupleTable chooseNodeTupleTable(Node graphNode)
@@ -248,7 +338,10 @@ public class DatasetGraphTDB extends DatasetGraphCaching
 
             // Delete them.
             for (int i = 0; i < len; i++) {
-                t.getTupleTable().delete(array[i]) ;
+                if ( monitor != null )
+                    notifyDelete(t, array[i]) ;
+                if ( t.getTupleTable().delete(array[i]) && unionTable != null && t == quadTable.getNodeTupleTable() )
+                    unionDelete(array[i].get(1), array[i].get(2), array[i].get(3)) ;
                 array[i] = null ;
             }
             // Finished?
@@ -259,6 +352,14 @@ public class DatasetGraphTDB extends DatasetGraphCaching
         finishUpdate() ;
     }
     
+    private void notifyDelete(NodeTupleTable t, Tuple<NodeId> tuple) {
+        Tuple<Node> x = TupleLib.tupleNodes(t.getNodeTable(), tuple) ;
+        if ( x.size() == 3 )
+            monitor.change(QuadAction.DELETE, Quad.defaultGraphIRI, x.get(0), x.get(1), x.get(2)) ;
+        else
+            monitor.change(QuadAction.DELETE, x.get(0), x.get(1), x.get(2), x.get(3)) ;
+    }
+    
     public Location getLocation()       { return config.location ; }
 
     @Override
@@ -266,6 +367,8 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     {
         tripleTable.sync() ;
         quadTable.sync() ;
+        if ( unionTable != null )
+            unionTable.sync() ;
         prefixes.sync() ;
     }
     
@@ -112,6 +112,53 @@ public class DateTimeNode
         return v ;
     }
 
+    /** Number of timezone codes: the timezone is the most significant field of a packed value. */
+    public static final int TimezoneCodes = 1 << TZ_LEN ;
+    
+    /** Set the timezone code (0 to {@link #TimezoneCodes}-1) of a packed value. */
+    public static long setTimezone(long v, int tzCode)
+    {
+        return tz(v, tzCode) ;
+    }
+    
+    /** The date of a packed date or dateTime moved by a number of days,
+     * with the time of day and timezone cleared. Returns -1 if the result is
+     * outside the years that can be packed.
+     * Within one timezone code, packed values sort in date order.
+     */
+    public static long shiftDate(long v, int days)
+    {
+        int year = (int)BitsLong.unpack(v, YEAR, YEAR+YEAR_LEN) ;
+        int month = (int)BitsLong.unpack(v, MONTH, MONTH+MONTH_LEN) ;
+        int day = (int)BitsLong.unpack(v, DAY, DAY+DAY_LEN) ;
+        
+        // Proleptic Gregorian calendar, via a day count from 0000-03-01.
+        int y = ( month <= 2 ) ? year-1 : year ;
+        int m = ( month <= 2 ) ? month+9 : month-3 ;
+        long z = 365L*y + floorDiv(y, 4) - floorDiv(y, 100) + floorDiv(y, 400) + (153*m+2)/5 + day-1 ;
+        z += days ;
+        
+        long era = floorDiv(z, 146097) ;
+        long doe = z - era*146097 ;
+        long yoe = (doe - doe/1460 + doe/36524 - doe/146096) / 365 ;
+        long doy = doe - (365*yoe + yoe/4 - yoe/100) ;
+        long mp = (5*doy + 2)/153 ;
+        day = (int)(doy - (153*mp+2)/5 + 1) ;
+        month = (int)( mp < 10 ? mp+3 : mp-9 ) ;
+        long yr = yoe + era*400 + ( month <= 2 ? 1 : 0 ) ;
+        if ( yr < 0 || yr >= 8000 )
+            return -1 ;
+        return date(0, (int)yr, month, day) ;
+    }
+    
+    private static long floorDiv(long x, long y)
+    {
+        long q = x / y ;
+        if ( (x % y != 0) && ((x < 0) != (y < 0)) )
+            q-- ;
+        return q ;
+    }
+
     // From string.  Assumed legal.  Retains all info this way.
     // returns -1 for unpackable. 
     public static long packDate(String lex)
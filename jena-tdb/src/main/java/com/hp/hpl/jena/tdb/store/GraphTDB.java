@@ -120,6 +120,10 @@ public class GraphTDB extends GraphView implements Closeable, Sync {
         // Explicitly named union graph.
         if ( isUnionGraph(gn) )
             gn = Node.ANY ;
+        if ( gn == Node.ANY && dataset.getUnionTable() != null )
+            // Stored distinct triples.
+            return WrappedIterator.createNoRemove(dataset.getUnionTable().find(m.getMatchSubject(), m.getMatchPredicate(),
+                                                                               m.getMatchObject())) ;
 
         Iterator<Quad> iter = dataset.getQuadTable().find(gn, m.getMatchSubject(), m.getMatchPredicate(),
                                                           m.getMatchObject()) ;
@@ -135,6 +139,9 @@ public class GraphTDB extends GraphView implements Closeable, Sync {
 
     @Override
     protected ExtendedIterator<Triple> graphUnionFind(Node s, Node p, Node o) {
+        TripleTable unionTable = getDSG().getUnionTable() ;
+        if ( unionTable != null )
+            return WrappedIterator.createNoRemove(unionTable.find(s, p, o)) ;
         Node g = Quad.unionGraph ;
         Iterator<Quad> iterQuads = getDSG().find(g, s, p, o) ;
         Iterator<Triple> iter = GLib.quads2triples(iterQuads) ;
@@ -168,6 +175,8 @@ public class GraphTDB extends GraphView implements Closeable, Sync {
 
         Node gn = getGraphName() ;
         boolean unionGraph = isUnionGraph(gn) ;
+        if ( unionGraph && getDSG().getUnionTable() != null )
+            return (int)getDSG().getUnionTable().getNodeTupleTable().size() ;
         gn = unionGraph ? Node.ANY : gn ;
         Iterator<Tuple<NodeId>> iter = getDSG().getQuadTable().getNodeTupleTable().findAsNodeIds(gn, null, null, null) ;
         if ( unionGraph ) {
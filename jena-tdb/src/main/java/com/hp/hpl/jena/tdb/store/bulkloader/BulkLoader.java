@@ -37,6 +37,7 @@ import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.solver.stats.Stats ;
 import com.hp.hpl.jena.tdb.solver.stats.StatsCollector ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.TripleTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTableView ;
 import com.hp.hpl.jena.tdb.sys.Names ;
@@ -53,6 +54,11 @@ public class BulkLoader {
     /** Number of ticks per super tick */
     public static int       superTick             = 10 ;
 
+    /** Load all indexes during the data phase, with a pipeline of threads
+     * (see {@link LoaderPipeline}), instead of loading the primary index
+     * and then building the secondary indexes from it. */
+    public static boolean   pipelined             = false ;
+
     // Events.
     // private static String baseNameGeneral = "http://openjena.org/TDB/event#"
     // ;
@@ -171,11 +177,48 @@ public class BulkLoader {
             return new LoadMonitor(dsg, null, itemName, DataTickPoint, IndexTickPoint) ;
     }
 
+    // The triples of the loaded quads go into the union table as they are loaded, so the
+    // work is proportional to the load, not the dataset. If the union table has not been
+    // filled in for the quads already in the dataset, it is rebuilt instead (rebuildUnion).
+    private static LoaderNodeTupleTable createUnionLoader(DatasetGraphTDB dsg, boolean rebuildUnion) {
+        if ( dsg.getUnionTable() == null || rebuildUnion )
+            return null ;
+        LoadMonitor monitor = createLoadMonitor(dsg, "union triples", false) ;
+        return new LoaderNodeTupleTable(dsg.getUnionTable().getNodeTupleTable(), "union triples", monitor) ;
+    }
+
+    private static boolean unionNeedsRebuild(DatasetGraphTDB dsg) {
+        TripleTable unionTable = dsg.getUnionTable() ;
+        return unionTable != null && unionTable.isEmpty() && ! dsg.getQuadTable().isEmpty() ;
+    }
+
+    private static void loadStart(LoaderNodeTupleTable loader) {
+        if ( loader == null )
+            return ;
+        loader.loadStart() ;
+        loader.loadDataStart() ;
+    }
+
+    private static void loadFinish(LoaderNodeTupleTable loader) {
+        if ( loader == null )
+            return ;
+        loader.loadDataFinish() ;
+        loader.loadIndexStart() ;
+        loader.loadIndexFinish() ;
+        loader.loadFinish() ;
+    }
+
+    // While a monitor is watching the changes (see DatasetGraphTDB.setMonitor),
+    // load through the dataset, not directly into the tables, so it sees each one.
     private static BulkStreamRDF destinationDataset(DatasetGraphTDB dsg, boolean showProgress) {
+        if ( dsg.getMonitor() != null )
+            return new DestinationMonitored(dsg, true, null, showProgress) ;
         return new DestinationDSG(dsg, showProgress) ;
     }
 
     private static BulkStreamRDF destinationGraph(DatasetGraphTDB dsg, Node graphNode, boolean showProgress) {
+        if ( dsg.getMonitor() != null )
+            return new DestinationMonitored(dsg, false, graphNode, showProgress) ;
         return new DestinationGraph(dsg, graphNode, showProgress) ;
     }
 
@@ -187,6 +230,8 @@ public class BulkLoader {
         final private LoadMonitor          monitor2 ;
         final private LoaderNodeTupleTable loaderTriples ;
         final private LoaderNodeTupleTable loaderQuads ;
+        final private LoaderNodeTupleTable loaderUnion ;
+        final private boolean              rebuildUnion ;
         final private boolean              showProgress ;
         private long                       count = 0 ;
         private StatsCollector             stats ;
@@ -199,6 +244,8 @@ public class BulkLoader {
 
             loaderTriples = new LoaderNodeTupleTable(dsg.getTripleTable().getNodeTupleTable(), "triples", monitor1) ;
             loaderQuads = new LoaderNodeTupleTable(dsg.getQuadTable().getNodeTupleTable(), "quads", monitor2) ;
+            rebuildUnion = unionNeedsRebuild(dsg) ;
+            loaderUnion = createUnionLoader(dsg, rebuildUnion) ;
             this.showProgress = showProgress ;
         }
 
@@ -209,6 +256,7 @@ public class BulkLoader {
 
             loaderTriples.loadDataStart() ;
             loaderQuads.loadDataStart() ;
+            loadStart(loaderUnion) ;
             this.stats = new StatsCollector() ;
         }
 
@@ -235,8 +283,11 @@ public class BulkLoader {
         private void process(Node g, Node s, Node p, Node o) {
             if ( g == null )
                 loaderTriples.load(s, p, o) ;
-            else
+            else {
                 loaderQuads.load(g, s, p, o) ;
+                if ( loaderUnion != null )
+                    loaderUnion.load(s, p, o) ;
+            }
             count++ ;
             stats.record(g, s, p, o) ;
         }
@@ -254,6 +305,9 @@ public class BulkLoader {
 
             loaderTriples.loadFinish() ;
             loaderQuads.loadFinish() ;
+            loadFinish(loaderUnion) ;
+            if ( rebuildUnion )
+                dsg.rebuildUnionTable() ;
             if ( !dsg.getLocation().isMem() && startedEmpty ) {
                 String filename = dsg.getLocation().getPath(Names.optStats) ;
                 Stats.write(filename, stats.results()) ;
@@ -282,6 +336,8 @@ public class BulkLoader {
         final private Node                 graphName ;
         final private LoadMonitor          monitor ;
         final private LoaderNodeTupleTable loaderTriples ;
+        final private LoaderNodeTupleTable loaderUnion ;
+        final private boolean              rebuildUnion ;
         final private boolean              startedEmpty ;
         private long                       count = 0 ;
         private StatsCollector             stats ;
@@ -302,12 +358,16 @@ public class BulkLoader {
             startedEmpty = dsg.isEmpty() ;
             monitor = createLoadMonitor(dsg, "triples", showProgress) ;
             loaderTriples = new LoaderNodeTupleTable(nodeTupleTable, "triples", monitor) ;
+            boolean namedGraph = ( graphNode != null && !Quad.isDefaultGraph(graphNode) ) ;
+            rebuildUnion = namedGraph && unionNeedsRebuild(dsg) ;
+            loaderUnion = namedGraph ? createUnionLoader(dsg, rebuildUnion) : null ;
         }
 
         @Override
         final public void startBulk() {
             loaderTriples.loadStart() ;
             loaderTriples.loadDataStart() ;
+            loadStart(loaderUnion) ;
 
             this.stats = new StatsCollector() ;
         }
@@ -319,6 +379,8 @@ public class BulkLoader {
             Node o = triple.getObject() ;
 
             loaderTriples.load(s, p, o) ;
+            if ( loaderUnion != null )
+                loaderUnion.load(s, p, o) ;
             stats.record(null, s, p, o) ;
             count++ ;
         }
@@ -329,6 +391,9 @@ public class BulkLoader {
             loaderTriples.loadIndexStart() ;
             loaderTriples.loadIndexFinish() ;
             loaderTriples.loadFinish() ;
+            loadFinish(loaderUnion) ;
+            if ( rebuildUnion )
+                dsg.rebuildUnionTable() ;
 
             if ( !dsg.getLocation().isMem() && startedEmpty ) {
                 String filename = dsg.getLocation().getPath(Names.optStats) ;
@@ -365,6 +430,71 @@ public class BulkLoader {
         public void finish() {}
     }
 
+    // Load by adding to the dataset, one quad at a time.
+    private static final class DestinationMonitored implements BulkStreamRDF {
+        final private DatasetGraphTDB      dsg ;
+        final private boolean              quads ;
+        // Where triples go; null for the default graph.
+        final private Node                 graphName ;
+        final private LoadMonitor          monitor ;
+
+        DestinationMonitored(DatasetGraphTDB dsg, boolean quads, Node graphName, boolean showProgress) {
+            this.dsg = dsg ;
+            this.quads = quads ;
+            this.graphName = ( graphName == null ) ? Quad.defaultGraphIRI : graphName ;
+            monitor = createLoadMonitor(dsg, quads ? "quads" : "triples", showProgress) ;
+        }
+
+        @Override
+        public void startBulk() {
+            monitor.startLoad() ;
+            monitor.startDataPhase() ;
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            dsg.add(graphName, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+            monitor.dataItem() ;
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            if ( ! quads )
+                throw new TDBException("Quad encountered while loading a single graph") ;
+            Node g = quad.isTriple() ? Quad.defaultGraphIRI : quad.getGraph() ;
+            dsg.add(g, quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+            monitor.dataItem() ;
+        }
+
+        @Override
+        public void finishBulk() {
+            monitor.finishDataPhase() ;
+            monitor.finishLoad() ;
+        }
+
+        @Override
+        public void start() {}
+
+        @Override
+        public void base(String base) {}
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            if ( quads || Quad.isDefaultGraph(graphName) ) {
+                dsg.getPrefixes().getPrefixMapping().setNsPrefix(prefix, iri) ;
+                return ;
+            }
+            if ( graphName.isBlank() ) {
+                loadLogger.warn("Prefixes for blank node graphs not stored") ;
+                return ;
+            }
+            dsg.getPrefixes().getPrefixMapping(graphName.getURI()).setNsPrefix(prefix, iri) ;
+        }
+
+        @Override
+        public void finish() {}
+    }
+
     static void forceSync(DatasetGraphTDB dsg) {
         // Force sync - we have been bypassing DSG tables.
         // THIS DOES NOT WORK IF modules check for SYNC necessity.
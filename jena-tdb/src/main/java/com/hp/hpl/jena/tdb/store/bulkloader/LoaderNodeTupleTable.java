@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTableView ;
 import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
 
 /** 
@@ -48,6 +49,7 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     private NodeTupleTable nodeTupleTable ;
     
     private boolean dropAndRebuildIndexes ;
+    private LoaderPipeline pipeline = null ;
     //private Timer timer ;
     private long count = 0 ;
     private String itemsName ;
@@ -96,15 +98,33 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     public void loadDataStart()
     {
         monitor.startDataPhase() ;
+        if ( usePipeline() )
+        {
+            // All indexes are loaded during the data phase.
+            dropAndRebuildIndexes = false ;
+            monitor.print("** Pipelined load into %s table", itemsName) ;
+            pipeline = new LoaderPipeline(nodeTupleTable.getNodeTable(), nodeTupleTable.getTupleTable().getIndexes()) ;
+            pipeline.start() ;
+            return ;
+        }
         loadPrepare() ;
     }
+
+    private boolean usePipeline()
+    {
+        // A view adds a prefix (e.g. the graph name) to each row; it loads a row at a time.
+        return BulkLoader.pipelined && ! ( nodeTupleTable instanceof NodeTupleTableView ) ;
+    }
     
     /** Stream in items to load ... */
     public void load(Node... nodes)
     {
         count++ ;           // Not zero the first time.
         monitor.dataItem() ;
-        nodeTupleTable.addRow(nodes) ;  
+        if ( pipeline != null )
+            pipeline.add(nodes) ;
+        else
+            nodeTupleTable.addRow(nodes) ;  
     }
     
     /** Notify End of data to load - this operation may 
@@ -112,6 +132,11 @@ public class LoaderNodeTupleTable implements Closeable, Sync
      */
     public void loadDataFinish()
     {
+        if ( pipeline != null )
+        {
+            pipeline.finish() ;
+            pipeline = null ;
+        }
         monitor.finishDataPhase() ;
     }
     
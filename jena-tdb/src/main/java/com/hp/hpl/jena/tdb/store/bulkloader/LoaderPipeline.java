@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.bulkloader;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.Comparator ;
+import java.util.List ;
+import java.util.concurrent.ArrayBlockingQueue ;
+import java.util.concurrent.BlockingQueue ;
+import java.util.concurrent.atomic.AtomicInteger ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableCache ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableLib ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+
+/**
+ * Load tuples into all the indexes of a tuple table at the same time.
+ * <p>
+ * The caller (usually the parser) adds tuples of Nodes. These are passed on, in
+ * batches and over bounded queues, to
+ * <ul>
+ * <li>node allocation threads, which turn the Nodes into NodeIds, then to</li>
+ * <li>one thread per tuple index, which sorts each batch into the order of its
+ * index before adding it.</li>
+ * </ul>
+ * Because the queues are bounded, a parser that runs ahead of the indexes waits
+ * rather than buffering the input in memory.
+ * <p>
+ * The node table must be safe for concurrent use (it is when accessed through
+ * {@link NodeTableCache} or {@link com.hp.hpl.jena.tdb.store.nodetable.NodeTableNative}).
+ * Several allocation threads are only used when the node cache is
+ * {@link NodeCacheType#concurrent}; otherwise they would contend on a single lock.
+ */
+public class LoaderPipeline
+{
+    /** Number of tuples passed between the stages as one unit */
+    public static int BatchSize     = 10*1000 ;
+    /** Number of batches that may be waiting for each stage */
+    public static int QueueLength   = 8 ;
+
+    // End of data markers - compared by identity.
+    private static final List<Node[]>        EndNodes  = new ArrayList<>(0) ;
+    private static final List<Tuple<NodeId>> EndTuples = new ArrayList<>(0) ;
+
+    private final NodeTable nodeTable ;
+    private final TupleIndex[] indexes ;
+    private final int numAllocators ;
+
+    private final BlockingQueue<List<Node[]>> nodeQueue ;
+    private final List<BlockingQueue<List<Tuple<NodeId>>>> indexQueues = new ArrayList<>() ;
+    private final List<Thread> threads = new ArrayList<>() ;
+    private final AtomicInteger activeAllocators = new AtomicInteger(0) ;
+    // First error from any stage.
+    private final AtomicReference<Throwable> error = new AtomicReference<>(null) ;
+
+    private List<Node[]> batch = null ;
+    private boolean started = false ;
+    private boolean finished = false ;
+
+    /** Pipeline for loading into the indexes (null entries are skipped), allocating NodeIds from the node table */
+    public LoaderPipeline(NodeTable nodeTable, TupleIndex[] indexes)
+    {
+        this(nodeTable, indexes, allocationThreads(nodeTable)) ;
+    }
+
+    public LoaderPipeline(NodeTable nodeTable, TupleIndex[] indexes, int numAllocators)
+    {
+        if ( numAllocators < 1 )
+            throw new IllegalArgumentException("LoaderPipeline: numAllocators must be at least one: "+numAllocators) ;
+        this.nodeTable = nodeTable ;
+        this.indexes = indexes ;
+        this.numAllocators = numAllocators ;
+        this.nodeQueue = new ArrayBlockingQueue<>(QueueLength) ;
+    }
+
+    /** Number of node allocation threads worth running against this node table */
+    public static int allocationThreads(NodeTable nodeTable)
+    {
+        NodeTableCache cache = NodeTableLib.findCache(nodeTable) ;
+        if ( cache == null || cache.getCacheType() != NodeCacheType.concurrent )
+            return 1 ;
+        // Cache misses are serialized in the node table itself.
+        return Math.max(1, Runtime.getRuntime().availableProcessors()/2) ;
+    }
+
+    /** Start the worker threads */
+    public void start()
+    {
+        if ( started )
+            throw new TDBException("LoaderPipeline: already started") ;
+        started = true ;
+
+        for ( final TupleIndex index : indexes )
+        {
+            if ( index == null )
+                continue ;
+            final BlockingQueue<List<Tuple<NodeId>>> queue = new ArrayBlockingQueue<>(QueueLength) ;
+            indexQueues.add(queue) ;
+            Runnable r = new Runnable() {
+                @Override
+                public void run() { indexWorker(queue, index) ; }
+            } ;
+            thread(r, "TDB loader: "+index.getName()) ;
+        }
+
+        activeAllocators.set(numAllocators) ;
+        for ( int i = 0 ; i < numAllocators ; i++ )
+        {
+            Runnable r = new Runnable() {
+                @Override
+                public void run() { allocationWorker() ; }
+            } ;
+            thread(r, "TDB loader: nodes-"+(i+1)) ;
+        }
+        batch = new ArrayList<>(BatchSize) ;
+    }
+
+    private void thread(Runnable r, String name)
+    {
+        Thread t = new Thread(r, name) ;
+        // Do not hold up JVM exit if the caller abandons the load.
+        t.setDaemon(true) ;
+        threads.add(t) ;
+        t.start() ;
+    }
+
+    /** Add a tuple. The nodes array must not be changed afterwards by the caller. */
+    public void add(Node... nodes)
+    {
+        if ( ! started || finished )
+            throw new TDBException("LoaderPipeline: not active") ;
+        if ( error.get() != null )
+            // Stop the pipeline and report the problem.
+            finish() ;
+        batch.add(nodes) ;
+        if ( batch.size() >= BatchSize )
+        {
+            put(nodeQueue, batch) ;
+            batch = new ArrayList<>(BatchSize) ;
+        }
+    }
+
+    /** Pass any remaining tuples on and wait for all the indexes to be written.
+     * Throws a {@link TDBException} if any stage of the pipeline failed.
+     */
+    public void finish()
+    {
+        if ( ! started )
+            throw new TDBException("LoaderPipeline: not started") ;
+        if ( finished )
+            return ;
+        finished = true ;
+        if ( ! batch.isEmpty() )
+            put(nodeQueue, batch) ;
+        batch = null ;
+        for ( int i = 0 ; i < numAllocators ; i++ )
+            put(nodeQueue, EndNodes) ;
+        for ( Thread t : threads )
+        {
+            try { t.join() ; }
+            catch (InterruptedException ex) { setError(ex) ; }
+        }
+        Throwable th = error.get() ;
+        if ( th != null )
+            throw new TDBException("LoaderPipeline: load failed", th) ;
+    }
+
+    // After an error, workers carry on taking batches, and discarding them,
+    // until the end of data so that earlier stages do not block.
+
+    private void allocationWorker()
+    {
+        try {
+            for ( ;; )
+            {
+                List<Node[]> nodesBatch = nodeQueue.take() ;
+                if ( nodesBatch == EndNodes )
+                    return ;
+                if ( error.get() != null )
+                    continue ;
+                try {
+                    List<Tuple<NodeId>> tuples = new ArrayList<>(nodesBatch.size()) ;
+                    for ( Node[] nodes : nodesBatch )
+                    {
+                        NodeId n[] = new NodeId[nodes.length] ;
+                        for ( int i = 0 ; i < nodes.length ; i++ )
+                            n[i] = nodeTable.getAllocateNodeId(nodes[i]) ;
+                        tuples.add(Tuple.create(n)) ;
+                    }
+                    // Shared by the index workers - they do not modify it.
+                    List<Tuple<NodeId>> x = Collections.unmodifiableList(tuples) ;
+                    for ( BlockingQueue<List<Tuple<NodeId>>> queue : indexQueues )
+                        queue.put(x) ;
+                } catch (RuntimeException | Error ex) { setError(ex) ; }
+            }
+        }
+        catch (InterruptedException ex) { setError(ex) ; }
+        finally
+        {
+            // The last allocator to finish ends the index stage.
+            if ( activeAllocators.decrementAndGet() == 0 )
+            {
+                for ( BlockingQueue<List<Tuple<NodeId>>> queue : indexQueues )
+                    put(queue, EndTuples) ;
+            }
+        }
+    }
+
+    private void indexWorker(BlockingQueue<List<Tuple<NodeId>>> queue, TupleIndex index)
+    {
+        Comparator<Tuple<NodeId>> order = indexOrder(index.getColumnMap()) ;
+        try {
+            for ( ;; )
+            {
+                List<Tuple<NodeId>> tuples = queue.take() ;
+                if ( tuples == EndTuples )
+                    return ;
+                if ( error.get() != null )
+                    continue ;
+                try {
+                    // Adding in index order means consecutive inserts go to the same B+Tree leaf.
+                    List<Tuple<NodeId>> sorted = new ArrayList<>(tuples) ;
+                    Collections.sort(sorted, order) ;
+                    for ( Tuple<NodeId> t : sorted )
+                        index.add(t) ;
+                } catch (RuntimeException | Error ex) { setError(ex) ; }
+            }
+        }
+        catch (InterruptedException ex) { setError(ex) ; }
+    }
+
+    private void setError(Throwable th)
+    {
+        error.compareAndSet(null, th) ;
+    }
+
+    private <T> void put(BlockingQueue<T> queue, T item)
+    {
+        try { queue.put(item) ; }
+        catch (InterruptedException ex) { throw new TDBException("LoaderPipeline: interrupted", ex) ; }
+    }
+
+    /** Order of tuples (in natural order) in an index with the given column map */
+    private static Comparator<Tuple<NodeId>> indexOrder(final ColumnMap colMap)
+    {
+        return new Comparator<Tuple<NodeId>>() {
+            @Override
+            public int compare(Tuple<NodeId> t1, Tuple<NodeId> t2)
+            {
+                for ( int i = 0 ; i < colMap.length() ; i++ )
+                {
+                    int x = compareId(colMap.fetchSlot(i, t1), colMap.fetchSlot(i, t2)) ;
+                    if ( x != 0 )
+                        return x ;
+                }
+                return 0 ;
+            }
+        } ;
+    }
+
+    /** NodeIds are stored (and sorted) as unsigned longs */ 
+    private static int compareId(NodeId id1, NodeId id2)
+    {
+        long x1 = id1.getId() + Long.MIN_VALUE ;
+        long x2 = id2.getId() + Long.MIN_VALUE ;
+        return ( x1 < x2 ) ? -1 : ( x1 == x2 ? 0 : 1 ) ;
+    }
+}
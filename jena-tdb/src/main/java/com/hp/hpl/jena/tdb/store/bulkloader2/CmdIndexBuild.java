@@ -18,7 +18,9 @@
 
 package com.hp.hpl.jena.tdb.store.bulkloader2;
 
+import java.io.File ;
 import java.io.InputStream ;
+import java.util.Arrays ;
 import java.util.Iterator ;
 
 import org.apache.jena.atlas.AtlasException ;
@@ -48,10 +50,18 @@ public class CmdIndexBuild
     {
         CmdTDB.init() ;
         // DATA IN S/P/O columns but sorted by index order.
+        // With --sort, the data need not be sorted.
+        
+        boolean sort = false ;
+        if ( argv.length > 0 && argv[0].equals("--sort") )
+        {
+            sort = true ;
+            argv = Arrays.copyOfRange(argv, 1, argv.length) ;
+        }
         
         if ( argv.length != 3 )
         {
-            System.err.println("Usage: Location Index dataFile") ;
+            System.err.println("Usage: [--sort] Location Index dataFile") ;
             System.exit(1) ;
         }
         
@@ -73,7 +83,17 @@ public class CmdIndexBuild
         
         //InputStream input = System.in ;
         InputStream input = IO.openFile(dataFile) ;
-        
+        build(location, indexName, input, sort) ;
+        IO.close(input) ;
+    }
+    
+    /** Build an index from the rows of the input.
+     * If {@code sort} is true, the rows are sorted (and duplicates removed) in this JVM,
+     * using files in the location directory; otherwise the rows must already be sorted
+     * in index order, without duplicates.
+     */
+    public static void build(Location location, String indexName, InputStream input, boolean sort)
+    {
         int keyLength = SystemTDB.SizeOfNodeId * indexName.length() ;
         int valueLength = 0 ;
         
@@ -130,6 +150,8 @@ public class CmdIndexBuild
         
         int rowBlock = 1000 ;
         Iterator<Record> iter = new RecordsFromInput(input, tupleLength, colMap, rowBlock) ;
+        if ( sort )
+            iter = new ExternalSort(recordFactory, new File(location.getDirectoryPath())).sort(iter) ;
         BPlusTree bpt2 = BPlusTreeRewriter.packIntoBPlusTree(iter, bptParams, recordFactory, blkMgrNodes, blkMgrRecords) ;
         bpt2.close() ;
     }
@@ -20,8 +20,10 @@ package com.hp.hpl.jena.tdb.store.bulkloader2;
 
 import static com.hp.hpl.jena.sparql.util.Utils.nowAsString ;
 
+import java.io.File ;
 import java.io.FileNotFoundException ;
 import java.io.FileOutputStream ;
+import java.io.InputStream ;
 import java.io.OutputStream ;
 import java.util.Arrays ;
 import java.util.List ;
@@ -67,10 +69,15 @@ public class CmdNodeTableBuilder extends CmdGeneral
     private static ArgDecl argLocation = new ArgDecl(ArgDecl.HasValue, "loc", "location") ;
     private static ArgDecl argTriplesOut = new ArgDecl(ArgDecl.HasValue, "triples") ;
     private static ArgDecl argQuadsOut = new ArgDecl(ArgDecl.HasValue, "quads") ;
+    private static ArgDecl argBuildIndexes = new ArgDecl(ArgDecl.NoValue, "index", "build-indexes") ;
     private String locationString ;
     private String dataFileTriples ;
     private String dataFileQuads ;
     private List<String> datafiles ;
+    private boolean buildIndexes ;
+    // Work files named by the user are kept.
+    private boolean keepTriples ;
+    private boolean keepQuads ;
     private Location location ;
     
     public static void main(String...argv)
@@ -86,6 +93,7 @@ public class CmdNodeTableBuilder extends CmdGeneral
         super.add(argLocation,      "--loc",        "Location") ;
         super.add(argTriplesOut,    "--triples",    "Output file for triples") ;
         super.add(argQuadsOut,      "--quads",      "Output file for quads") ;
+        super.add(argBuildIndexes,  "--build-indexes", "Then sort the output files and build the indexes (no external sort); files given by --triples and --quads are kept") ;
     }
         
     @Override
@@ -99,16 +107,20 @@ public class CmdNodeTableBuilder extends CmdGeneral
         location = Location.create(locationString) ;
 
         dataFileTriples  = super.getValue(argTriplesOut) ;
+        keepTriples = ( dataFileTriples != null ) ;
         if ( dataFileTriples == null )
             dataFileTriples = location.getPath("triples", "tmp") ;
         
         dataFileQuads    = super.getValue(argQuadsOut) ;
+        keepQuads = ( dataFileQuads != null ) ;
         if ( dataFileQuads == null )
             dataFileQuads = location.getPath("quads", "tmp") ;
         
         if ( Lib.equal(dataFileTriples, dataFileQuads) )
             cmdError("Triples and Quads work files are the same") ;
         
+        buildIndexes = super.contains(argBuildIndexes) ;
+        
         //datafiles  = getPositionalOrStdin() ;
         datafiles  = getPositional() ;
         if ( datafiles.isEmpty() )
@@ -179,6 +191,33 @@ public class CmdNodeTableBuilder extends CmdGeneral
         float rate = (elapsedSecs!=0) ? total/elapsedSecs : 0 ;
         String str =  String.format("Total: %,d tuples : %,.2f seconds : %,.2f tuples/sec [%s]", total, elapsedSecs, rate, nowAsString()) ;
         cmdLog.info(str) ;
+        
+        if ( buildIndexes )
+        {
+            buildIndexes(dataFileTriples, Names.tripleIndexes, keepTriples) ;
+            buildIndexes(dataFileQuads, Names.quadIndexes, keepQuads) ;
+        }
+    }
+
+    // As the tdbloader2 script, but sorting in this JVM.
+    // The data file is deleted afterwards unless the user named it.
+    private void buildIndexes(String dataFile, String[] indexNames, boolean keep)
+    {
+        if ( new File(dataFile).length() > 0 )
+        {
+            for ( String indexName : indexNames )
+            {
+                cmdLog.info("Index "+indexName) ;
+                // Replace the empty index created when the location was formatted.
+                FileOps.deleteSilent(location.getPath(indexName, Names.bptExtTree)) ;
+                FileOps.deleteSilent(location.getPath(indexName, Names.bptExtRecords)) ;
+                InputStream input = IO.openFile(dataFile) ;
+                try { CmdIndexBuild.build(location, indexName, input, true) ; }
+                finally { IO.close(input) ; }
+            }
+        }
+        if ( ! keep )
+            FileOps.deleteSilent(dataFile) ;
     }
 
     static class NodeTableBuilder implements BulkStreamRDF
@@ -285,7 +324,7 @@ public class CmdNodeTableBuilder extends CmdGeneral
     @Override
     protected String getSummary()
     {
-        return getCommandName()+" --loc=DIR [--triples=tmpFile1] [--quads=tmpFile2] FILE ..." ;
+        return getCommandName()+" --loc=DIR [--triples=tmpFile1] [--quads=tmpFile2] [--build-indexes] FILE ..." ;
     }
 
     @Override
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.bulkloader2;
+
+import java.io.File ;
+import java.io.IOException ;
+import java.io.RandomAccessFile ;
+import java.nio.ByteBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.channels.FileChannel.MapMode ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Comparator ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.PriorityQueue ;
+import java.util.concurrent.Callable ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.Semaphore ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.Closeable ;
+
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+
+/**
+ * External merge sort of fixed length records, by key, as unsigned bytes.
+ * Duplicate keys are removed (as "sort -u").
+ * <p>
+ * The input is read into runs of up to {@code runLength} records. Each run is
+ * sorted, by a pool of threads, and written to a file in the work directory.
+ * The sorted output is a k-way merge of the memory-mapped run files.
+ * At most one run per thread, and the one being read, is held in memory.
+ * <p>
+ * The run files are deleted when the output iterator is exhausted or closed,
+ * or if the sort fails.
+ */
+public final class ExternalSort
+{
+    /** Default number of records in a run */
+    public static int DftRunLength = 1000*1000 ;
+
+    private static final Comparator<Record> keyOrder = new Comparator<Record>() {
+        @Override
+        public int compare(Record r1, Record r2) { return Bytes.compare(r1.getKey(), r2.getKey()) ; }
+    } ;
+
+    private final RecordFactory recordFactory ;
+    private final File workDir ;
+    private final int runLength ;
+    private final int numThreads ;
+
+    public ExternalSort(RecordFactory recordFactory, File workDir)
+    {
+        this(recordFactory, workDir, DftRunLength, Runtime.getRuntime().availableProcessors()) ;
+    }
+
+    public ExternalSort(RecordFactory recordFactory, File workDir, int runLength, int numThreads)
+    {
+        if ( runLength < 1 || numThreads < 1 )
+            throw new IllegalArgumentException("ExternalSort: runLength="+runLength+" numThreads="+numThreads) ;
+        // Each run file is mapped as a whole.
+        if ( (long)runLength*recordFactory.recordLength() > Integer.MAX_VALUE )
+            throw new IllegalArgumentException("ExternalSort: run too large: "+runLength) ;
+        this.recordFactory = recordFactory ;
+        this.workDir = workDir ;
+        this.runLength = runLength ;
+        this.numThreads = numThreads ;
+    }
+
+    /** Sort the records of the input.
+     * All the input is consumed before this returns.
+     */
+    public Iterator<Record> sort(Iterator<Record> input)
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads) ;
+        // Limit the runs waiting to be sorted or being sorted.
+        final Semaphore inProgress = new Semaphore(numThreads) ;
+        List<Future<File>> pending = new ArrayList<>() ;
+        List<File> runs = new ArrayList<>() ;
+        boolean done = false ;
+        try {
+            while ( input.hasNext() )
+            {
+                final Record[] run = new Record[runLength] ;
+                int n = 0 ;
+                while ( n < runLength && input.hasNext() )
+                    run[n++] = input.next() ;
+                final int len = n ;
+                inProgress.acquire() ;
+                Callable<File> task = new Callable<File>() {
+                    @Override
+                    public File call() throws IOException
+                    {
+                        try { return writeRun(run, len) ; }
+                        finally { inProgress.release() ; }
+                    }
+                } ;
+                pending.add(executor.submit(task)) ;
+            }
+            for ( Future<File> f : pending )
+                runs.add(f.get()) ;
+            done = true ;
+        }
+        catch (InterruptedException ex) { throw new AtlasException("ExternalSort: interrupted", ex) ; }
+        catch (ExecutionException ex)   { throw new AtlasException("ExternalSort: failed to write a run", ex.getCause()) ; }
+        finally {
+            executor.shutdown() ;
+            if ( ! done )
+                discard(pending) ;
+        }
+        return new MergeIterator(runs) ;
+    }
+
+    /** After a failure : wait for the runs already started and delete all the run files. */
+    private static void discard(List<Future<File>> runs)
+    {
+        // Wait even if this thread was interrupted, then restore the interrupt.
+        boolean interrupted = Thread.interrupted() ;
+        for ( Future<File> f : runs )
+        {
+            if ( f.cancel(false) )
+                continue ;
+            while ( true )
+            {
+                try {
+                    f.get().delete() ;
+                    break ;
+                }
+                catch (InterruptedException ex) { interrupted = true ; }
+                catch (ExecutionException ex)   { break ; }     // No file : writeRun cleans up.
+            }
+        }
+        if ( interrupted )
+            Thread.currentThread().interrupt() ;
+    }
+
+    private File writeRun(Record[] run, int len) throws IOException
+    {
+        Arrays.sort(run, 0, len, keyOrder) ;
+        File file = File.createTempFile("sort-", ".run", workDir) ;
+        file.deleteOnExit() ;
+        int recLen = recordFactory.recordLength() ;
+        ByteBuffer bb = ByteBuffer.allocate(64*1024/recLen*recLen) ;
+        int slots = bb.capacity()/recLen ;
+        boolean written = false ;
+        try(RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = out.getChannel() ;
+            int idx = 0 ;
+            Record last = null ;
+            for ( int i = 0 ; i < len ; i++ )
+            {
+                Record r = run[i] ;
+                run[i] = null ;
+                if ( last != null && keyOrder.compare(last, r) == 0 )
+                    continue ;
+                last = r ;
+                recordFactory.insertInto(r, bb, idx++) ;
+                if ( idx == slots )
+                {
+                    write(channel, bb, idx*recLen) ;
+                    idx = 0 ;
+                }
+            }
+            if ( idx > 0 )
+                write(channel, bb, idx*recLen) ;
+            written = true ;
+        }
+        finally {
+            if ( ! written )
+                file.delete() ;
+        }
+        return file ;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer bb, int len) throws IOException
+    {
+        bb.position(0) ;
+        bb.limit(len) ;
+        while ( bb.hasRemaining() )
+            channel.write(bb) ;
+        bb.clear() ;
+    }
+
+    /** One sorted run */
+    private final class RunCursor
+    {
+        private final File file ;
+        private final MappedByteBuffer buffer ;
+        private final int size ;
+        private int idx = 0 ;
+        Record current = null ;
+
+        RunCursor(File file) throws IOException
+        {
+            this.file = file ;
+            try(RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                FileChannel channel = in.getChannel() ;
+                // The mapping remains valid after the channel is closed.
+                buffer = channel.map(MapMode.READ_ONLY, 0, channel.size()) ;
+                size = (int)(channel.size()/recordFactory.recordLength()) ;
+            }
+            advance() ;
+        }
+
+        void advance()
+        {
+            current = ( idx < size ) ? recordFactory.buildFrom(buffer, idx++) : null ;
+        }
+    }
+
+    private final class MergeIterator implements Iterator<Record>, Closeable
+    {
+        private final List<File> files ;
+        private final PriorityQueue<RunCursor> queue ;
+        private Record slot = null ;
+        private Record last = null ;
+        private boolean finished = false ;
+
+        MergeIterator(List<File> files)
+        {
+            this.files = files ;
+            this.queue = new PriorityQueue<>(Math.max(1, files.size()), new Comparator<RunCursor>() {
+                @Override
+                public int compare(RunCursor c1, RunCursor c2) { return keyOrder.compare(c1.current, c2.current) ; }
+            }) ;
+            try {
+                for ( File f : files )
+                {
+                    RunCursor c = new RunCursor(f) ;
+                    if ( c.current != null )
+                        queue.add(c) ;
+                }
+            } catch (IOException ex) { close() ; throw new AtlasException(ex) ; }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( finished )
+                return false ;
+            if ( slot != null )
+                return true ;
+            while ( ! queue.isEmpty() )
+            {
+                RunCursor c = queue.poll() ;
+                Record r = c.current ;
+                c.advance() ;
+                if ( c.current != null )
+                    queue.add(c) ;
+                // Runs are each without duplicates, but may duplicate each other.
+                if ( last != null && keyOrder.compare(last, r) == 0 )
+                    continue ;
+                last = r ;
+                slot = r ;
+                return true ;
+            }
+            close() ;
+            return false ;
+        }
+
+        @Override
+        public Record next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Record r = slot ;
+            slot = null ;
+            return r ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+
+        @Override
+        public void close()
+        {
+            if ( finished )
+                return ;
+            finished = true ;
+            queue.clear() ;
+            // If the platform does not allow mapped files to be deleted, deleteOnExit applies.
+            for ( File f : files )
+                f.delete() ;
+        }
+    }
+}
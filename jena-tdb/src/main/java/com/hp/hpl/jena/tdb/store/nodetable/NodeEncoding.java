@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.nodetable;
+
+/** The encoding of nodes in the node table object file */
+public enum NodeEncoding
+{
+    /** Turtle-like term strings ({@link NodecSSE}) */
+    sse,
+    /** Namespace-coded IRIs and deflated long literals ({@link NodecCompressed}) */
+    compressed ;
+
+    public Nodec create()
+    {
+        return create(null) ;
+    }
+
+    /** Create the Nodec, given the database's own namespaces (see {@link NodecCompressed}), if any */
+    public Nodec create(String[] namespaces)
+    {
+        switch (this)
+        {
+            case compressed:    return new NodecCompressed(namespaces) ;
+            case sse:
+            default:            return new NodecSSE() ;
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.tdb.store.nodetable;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Pair ;
@@ -43,6 +44,13 @@ public interface NodeTable extends Sync, Closeable
     /** Look up node id and return the Node - return null if not found */
     public Node getNodeForNodeId(NodeId id) ;
     
+    /** Look up a number of node ids and return the Nodes, in the same order,
+     *  with null where {@link #getNodeForNodeId} would return null.
+     *  This can be faster than looking up each NodeId in turn
+     *  (e.g. by reading the node storage in file order).
+     */
+    public List<Node> getNodesForNodeIds(List<NodeId> ids) ;
+    
     /** Test whether the node table contains an entry for node */
     public boolean containsNode(Node node) ;
 
@@ -18,12 +18,15 @@
 
 package com.hp.hpl.jena.tdb.store.nodetable;
 
+import java.util.ArrayList ;
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.iterator.Iter ;
-import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
 import org.apache.jena.atlas.lib.CacheSet ;
+import org.apache.jena.atlas.lib.CacheResizable ;
+import org.apache.jena.atlas.lib.CacheStats ;
 import org.apache.jena.atlas.lib.Pair ;
 import org.apache.jena.atlas.logging.Log ;
 
@@ -35,44 +38,73 @@ import com.hp.hpl.jena.tdb.store.NodeId ;
 /** Cache wrapper around a NodeTable.  
  * Assumes all access goes through this wrapper.
  * Read-cache - write caching is done via the object file used by the base NodeTable. 
+ * <p>
+ * With {@link NodeCacheType#lru}, the caches are guarded by one lock.
+ * With {@link NodeCacheType#concurrent}, the caches are segmented and individually
+ * thread-safe, and there is no table-wide lock; the base table provides its own
+ * synchronization and any two racing updates of the caches put the same mapping.
  */ 
 public class NodeTableCache implements NodeTable
 {
     // These caches are updated together.
     // See synchronization in _retrieveNodeByNodeId and _idForNode
-    private Cache<Node, NodeId> node2id_Cache = null ;
-    private Cache<NodeId, Node> id2node_Cache = null ;
+    private CacheStats<Node, NodeId> node2id_Cache = null ;
+    private CacheStats<NodeId, Node> id2node_Cache = null ;
     
     // A small cache of "known unknowns" to speed up searching for impossible things.   
     // Cache update needed on NodeTable changes because a node may become "known"
     private CacheSet<Node> notPresent = null ;
     private NodeTable baseTable ;
-    private Object lock = new Object() ;
+    // null for the concurrent caches.
+    private final Object lock ;
+    private final NodeCacheType cacheType ;
 
     public static NodeTable create(NodeTable nodeTable, StoreParams params) {
-        int nodeToIdCacheSize = params.getNode2NodeIdCacheSize() ;
-        int idToNodeCacheSize = params.getNodeId2NodeCacheSize() ;
-        if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
-            return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize()) ;
+        return create(nodeTable, params.getNode2NodeIdCacheSize(), params.getNodeId2NodeCacheSize(),
+                      params.getNodeMissCacheSize(), params.getNodeCacheType()) ;
     }
 
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize)
+    {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, NodeCacheType.lru) ;
+    }
+
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                                   NodeCacheType cacheType)
     {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, cacheType) ;
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize)
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                           NodeCacheType cacheType)
     {
         this.baseTable = baseTable ;
-        if ( nodeToIdCacheSize > 0) 
-            node2id_Cache = CacheFactory.createCache(nodeToIdCacheSize) ;
-        if ( idToNodeCacheSize > 0)
-            id2node_Cache = CacheFactory.createCache(idToNodeCacheSize) ;
-        if ( nodeMissesCacheSize > 0 )
-            notPresent = CacheFactory.createCacheSet(nodeMissesCacheSize) ;
+        this.cacheType = cacheType ;
+        switch (cacheType)
+        {
+            case lru:
+                lock = new Object() ;
+                if ( nodeToIdCacheSize > 0) 
+                    node2id_Cache = CacheFactory.createStats(CacheFactory.<Node, NodeId>createCache(nodeToIdCacheSize)) ;
+                if ( idToNodeCacheSize > 0)
+                    id2node_Cache = CacheFactory.createStats(CacheFactory.<NodeId, Node>createCache(idToNodeCacheSize)) ;
+                if ( nodeMissesCacheSize > 0 )
+                    notPresent = CacheFactory.createCacheSet(nodeMissesCacheSize) ;
+                break ;
+            case concurrent:
+                lock = null ;
+                if ( nodeToIdCacheSize > 0) 
+                    node2id_Cache = CacheFactory.createCacheConcurrent(nodeToIdCacheSize) ;
+                if ( idToNodeCacheSize > 0)
+                    id2node_Cache = CacheFactory.createCacheConcurrent(idToNodeCacheSize) ;
+                if ( nodeMissesCacheSize > 0 )
+                    notPresent = CacheFactory.createSync(CacheFactory.<Node>createCacheSet(nodeMissesCacheSize)) ;
+                break ;
+            default:
+                throw new TDBException("Unrecognized node cache type: "+cacheType) ;
+        }
     }
 
     @Override
@@ -85,6 +117,18 @@ public class NodeTableCache implements NodeTable
         return _retrieveNodeByNodeId(id) ;
     }
 
+    /** Get the Nodes for these NodeIds; only cache misses are passed to the base table, in one call */
+    @Override
+    public List<Node> getNodesForNodeIds(List<NodeId> ids)
+    {
+        if ( lock == null )
+            return retrieveNodesByNodeIds$(ids) ;
+        synchronized (lock)
+        {
+            return retrieveNodesByNodeIds$(ids) ;
+        }
+    }
+
     /** Find the NodeId for a node, or return NodeId.NodeDoesNotExist */ 
     @Override
     public NodeId getNodeIdForNode(Node node)  { return _idForNode(node, false) ; }
@@ -114,19 +158,69 @@ public class NodeTableCache implements NodeTable
         if ( NodeId.isAny(id) )
             return null ;
 
+        if ( lock == null )
+            return retrieveNodeByNodeId$(id) ;
         synchronized (lock)
         {
-            Node n = cacheLookup(id) ;
-            if ( n != null )
-                return n ; 
+            return retrieveNodeByNodeId$(id) ;
+        }
+    }
 
-            if ( baseTable == null )
-                System.err.println(""+this) ;
-            
-            n = baseTable.getNodeForNodeId(id) ;
-            cacheUpdate(n, id) ;
-            return n ;
+    // Called with the lock held, if there is a lock.
+    private Node retrieveNodeByNodeId$(NodeId id)
+    {
+        Node n = cacheLookup(id) ;
+        if ( n != null )
+            return n ; 
+
+        if ( baseTable == null )
+            System.err.println(""+this) ;
+
+        n = baseTable.getNodeForNodeId(id) ;
+        cacheUpdate(n, id) ;
+        return n ;
+    }
+
+    // Called with the lock held, if there is a lock.
+    private List<Node> retrieveNodesByNodeIds$(List<NodeId> ids)
+    {
+        List<Node> nodes = new ArrayList<>(ids.size()) ;
+        // Indexes (into ids) of the cache misses.
+        int[] missIdx = null ;
+        List<NodeId> misses = null ;
+        for ( int i = 0 ; i < ids.size() ; i++ )
+        {
+            NodeId id = ids.get(i) ;
+            Node n = null ;
+            if ( ! NodeId.isDoesNotExist(id) && ! NodeId.isAny(id) )
+            {
+                n = cacheLookup(id) ;
+                if ( n == null )
+                {
+                    if ( misses == null )
+                    {
+                        missIdx = new int[ids.size()] ;
+                        misses = new ArrayList<>() ;
+                    }
+                    missIdx[misses.size()] = i ;
+                    misses.add(id) ;
+                }
+            }
+            nodes.add(n) ;
         }
+        if ( misses == null )
+            return nodes ;
+
+        List<Node> found = baseTable.getNodesForNodeIds(misses) ;
+        for ( int j = 0 ; j < misses.size() ; j++ )
+        {
+            Node n = found.get(j) ;
+            if ( n == null )
+                continue ;
+            nodes.set(missIdx[j], n) ;
+            cacheUpdate(n, misses.get(j)) ;
+        }
+        return nodes ;
     }
 
     // Node ==> NodeId
@@ -135,24 +229,32 @@ public class NodeTableCache implements NodeTable
         if ( node == Node.ANY )
             return NodeId.NodeIdAny ;
         
+        if ( lock == null )
+            return idForNode$(node, allocate) ;
         synchronized (lock)
         {
-            // Check caches.
-            NodeId nodeId = cacheLookup(node) ;
-            if ( nodeId != null )
-                return nodeId ; 
-
-            if ( allocate )
-                nodeId = baseTable.getAllocateNodeId(node) ;
-            else
-                nodeId = baseTable.getNodeIdForNode(node) ;
-
-            // Ensure caches have it.  Includes recording "no such node"
-            cacheUpdate(node, nodeId) ;
-            return nodeId ;
+            return idForNode$(node, allocate) ;
         }
     }
 
+    // Called with the lock held, if there is a lock.
+    private NodeId idForNode$(Node node, boolean allocate)
+    {
+        // Check caches.
+        NodeId nodeId = cacheLookup(node) ;
+        if ( nodeId != null )
+            return nodeId ; 
+
+        if ( allocate )
+            nodeId = baseTable.getAllocateNodeId(node) ;
+        else
+            nodeId = baseTable.getNodeIdForNode(node) ;
+
+        // Ensure caches have it.  Includes recording "no such node"
+        cacheUpdate(node, nodeId) ;
+        return nodeId ;
+    }
+
     // ----------------
     // ---- Only places that the caches are touched
     
@@ -177,7 +279,7 @@ public class NodeTableCache implements NodeTable
     /** Update the Node->NodeId caches */
     private void cacheUpdate(Node node, NodeId id)
     {
-        // synchronized is further out.
+        // synchronized is further out, or the caches are thread-safe.
         // The "notPresent" cache is used to note whether a node
         // is known not to exist.
         // This must be specially handled later if the node is added. 
@@ -213,14 +315,65 @@ public class NodeTableCache implements NodeTable
     @Override
     public boolean isEmpty()
     {
+        if ( lock == null )
+            return isEmpty$() ;
+        synchronized (lock)
+        {
+            return isEmpty$() ;
+        }
+    }
+
+    private boolean isEmpty$()
+    {
+        if ( node2id_Cache != null )
+            return node2id_Cache.isEmpty() ;
+        if ( id2node_Cache != null )
+            id2node_Cache.isEmpty() ;
+        // Write through.
+        return baseTable.isEmpty() ;
+    }
+
+    /** The kind of caches in use */
+    public NodeCacheType getCacheType()                 { return cacheType ; }
+
+    /** Statistics for the Node to NodeId cache, or null if there is no such cache */
+    public CacheStats<Node, NodeId> getNode2NodeIdCacheStats()  { return node2id_Cache ; }
+
+    /** Statistics for the NodeId to Node cache, or null if there is no such cache */
+    public CacheStats<NodeId, Node> getNodeId2NodeCacheStats()  { return id2node_Cache ; }
+
+    /** Capacity of the Node to NodeId cache; -1 if there is no such cache */
+    public int getNode2NodeIdCacheSize()                { return cacheSize(node2id_Cache) ; }
+
+    /** Capacity of the NodeId to Node cache; -1 if there is no such cache */
+    public int getNodeId2NodeCacheSize()                { return cacheSize(id2node_Cache) ; }
+
+    /** Change the capacity of the Node to NodeId cache while in use (ignored if there is no such cache) */
+    public void setNode2NodeIdCacheSize(int size)       { resize(node2id_Cache, size) ; }
+
+    /** Change the capacity of the NodeId to Node cache while in use (ignored if there is no such cache) */
+    public void setNodeId2NodeCacheSize(int size)       { resize(id2node_Cache, size) ; }
+
+    private static int cacheSize(CacheStats<?,?> cache)
+    {
+        if ( cache == null )
+            return -1 ;
+        return ((CacheResizable)cache).getMaxSize() ;
+    }
+
+    private void resize(CacheStats<?,?> cache, int size)
+    {
+        if ( cache == null )
+            return ;
+        if ( lock == null )
+        {
+            // Concurrent caches are thread-safe.
+            ((CacheResizable)cache).setMaxSize(size) ;
+            return ;
+        }
         synchronized (lock)
         {
-            if ( node2id_Cache != null )
-                return node2id_Cache.isEmpty() ;
-            if ( id2node_Cache != null )
-                id2node_Cache.isEmpty() ;
-            // Write through.
-            return baseTable.isEmpty() ;
+            ((CacheResizable)cache).setMaxSize(size) ;
         }
     }
 
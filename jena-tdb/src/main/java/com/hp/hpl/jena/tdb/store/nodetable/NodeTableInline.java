@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.tdb.store.nodetable;
 
+import java.util.ArrayList ;
+import java.util.List ;
 
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
@@ -66,6 +68,35 @@ public class NodeTableInline extends NodeTableWrapper
             return n ;
         return super.getNodeForNodeId(id) ;
     }
+
+    @Override
+    public final List<Node> getNodesForNodeIds(List<NodeId> ids)
+    {
+        List<Node> nodes = new ArrayList<>(ids.size()) ;
+        List<NodeId> others = null ;
+        for ( NodeId id : ids )
+        {
+            Node n = NodeId.extract(id) ;
+            nodes.add(n) ;
+            if ( n == null )
+            {
+                if ( others == null )
+                    others = new ArrayList<>() ;
+                others.add(id) ;
+            }
+        }
+        if ( others == null )
+            return nodes ;
+        // Fill in the non-inline nodes, in order.
+        List<Node> found = super.getNodesForNodeIds(others) ;
+        int j = 0 ;
+        for ( int i = 0 ; i < nodes.size() ; i++ )
+        {
+            if ( nodes.get(i) == null )
+                nodes.set(i, found.get(j++)) ;
+        }
+        return nodes ;
+    }
     
     @Override
     public String toString() { return "Inline("+nodeTable.toString()+")" ; }
@@ -40,4 +40,26 @@ public class NodeTableLib
             System.out.println(nodeId+" "+node) ;
         }
     }
+
+    /** Find the {@link NodeTableCache} in a stack of wrapped node tables, or return null */
+    public static NodeTableCache findCache(NodeTable nodeTable)
+    {
+        for ( NodeTable nt = nodeTable ; nt != null ; nt = nt.wrapped() )
+        {
+            if ( nt instanceof NodeTableCache )
+                return (NodeTableCache)nt ;
+        }
+        return null ;
+    }
+
+    /** Find the {@link NodeTableNative} at the bottom of a stack of wrapped node tables, or return null */
+    public static NodeTableNative findNative(NodeTable nodeTable)
+    {
+        for ( NodeTable nt = nodeTable ; nt != null ; nt = nt.wrapped() )
+        {
+            if ( nt instanceof NodeTableNative )
+                return (NodeTableNative)nt ;
+        }
+        return null ;
+    }
 }
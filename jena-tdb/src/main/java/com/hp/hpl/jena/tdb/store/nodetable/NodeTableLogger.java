@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.tdb.store.nodetable;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.Pair ;
 import org.slf4j.Logger ;
@@ -68,6 +69,14 @@ public class NodeTableLogger implements NodeTable
         info("getNodeForNodeId("+id+") => "+n) ;
         return n ;
     }
+
+    @Override
+    public List<Node> getNodesForNodeIds(List<NodeId> ids)
+    {
+        List<Node> nodes = nodeTable.getNodesForNodeIds(ids) ;
+        info("getNodesForNodeIds("+ids+") => "+nodes) ;
+        return nodes ;
+    }
     
     @Override
     public boolean containsNode(Node node) {
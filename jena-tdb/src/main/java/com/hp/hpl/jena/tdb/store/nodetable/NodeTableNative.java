@@ -21,7 +21,12 @@ package com.hp.hpl.jena.tdb.store.nodetable;
 import static com.hp.hpl.jena.tdb.lib.NodeLib.setHash ;
 
 import java.nio.ByteBuffer ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.HashMap ;
 import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.Transform ;
@@ -30,6 +35,7 @@ import org.apache.jena.atlas.lib.Pair ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
+import com.hp.hpl.jena.tdb.base.objectfile.ObjectFileStorage ;
 import com.hp.hpl.jena.tdb.base.record.Record ;
 import com.hp.hpl.jena.tdb.index.Index ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
@@ -44,24 +50,51 @@ public class NodeTableNative implements NodeTable
     
     protected ObjectFile objects ;
     protected Index nodeHashToId ;        // hash -> int
+    protected Nodec nodec ;
     private boolean syncNeeded = false ;
+    // Over storage that does not change: no locking, no allocation.
+    private boolean readOnly = false ;
     
     // Delayed construction - must call init explicitly.
     protected NodeTableNative() {}
     
+    /** A node table over storage that does not change.
+     *  Reads are not synchronized; allocating a new NodeId is an error.
+     */
+    public static NodeTableNative createReadOnly(Index nodeToId, ObjectFile objectFile, Nodec nodec)
+    {
+        NodeTableNative nt = new NodeTableNative(nodeToId, objectFile, nodec) ;
+        nt.readOnly = true ;
+        return nt ;
+    }
+    
     // Combined into one constructor.
     public NodeTableNative(Index nodeToId, ObjectFile objectFile)
+    {
+        this(nodeToId, objectFile, NodeEncoding.sse.create()) ;
+    }
+    
+    public NodeTableNative(Index nodeToId, ObjectFile objectFile, Nodec nodec)
     {
         this() ;
-        init(nodeToId, objectFile) ;
+        init(nodeToId, objectFile, nodec) ;
     }
     
     protected void init(Index nodeToId, ObjectFile objectFile)
+    {
+        init(nodeToId, objectFile, NodeEncoding.sse.create()) ;
+    }
+    
+    protected void init(Index nodeToId, ObjectFile objectFile, Nodec nodec)
     {
         this.nodeHashToId = nodeToId ;
         this.objects = objectFile;
+        this.nodec = nodec ;
     }
 
+    /** The encoder/decoder for nodes in the object file */
+    public Nodec getNodec()     { return nodec ; }
+
     // ---- Public interface for Node <==> NodeId
 
     /** Get the Node for this NodeId, or null if none */
@@ -71,6 +104,13 @@ public class NodeTableNative implements NodeTable
         return _retrieveNodeByNodeId(id) ;
     }
 
+    /** Get the Nodes for these NodeIds, reading the object file in location order */
+    @Override
+    public List<Node> getNodesForNodeIds(List<NodeId> ids)
+    {
+        return _retrieveNodesByNodeIds(ids) ;
+    }
+
     /** Find the NodeId for a node, or return NodeId.NodeDoesNotExist */ 
     @Override
     public NodeId getNodeIdForNode(Node node)  { return _idForNode(node, false) ; }
@@ -113,6 +153,38 @@ public class NodeTableNative implements NodeTable
         return n ;
     }
 
+    // NodeIds to Nodes worker.
+    private List<Node> _retrieveNodesByNodeIds(List<NodeId> ids)
+    {
+        // Distinct locations, sorted so the object file is read in file order.
+        long[] locs = new long[ids.size()] ;
+        int n = 0 ;
+        for ( NodeId id : ids )
+        {
+            if ( NodeId.isDoesNotExist(id) || NodeId.isAny(id) )
+                continue ;
+            locs[n++] = id.getId() ;
+        }
+        Arrays.sort(locs, 0, n) ;
+        int distinct = 0 ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            if ( distinct == 0 || locs[i] != locs[distinct-1] )
+                locs[distinct++] = locs[i] ;
+        }
+
+        Map<Long, Node> found = readNodesFromTable(Arrays.copyOf(locs, distinct)) ;
+        List<Node> nodes = new ArrayList<>(ids.size()) ;
+        for ( NodeId id : ids )
+        {
+            if ( NodeId.isDoesNotExist(id) || NodeId.isAny(id) )
+                nodes.add(null) ;
+            else
+                nodes.add(found.get(id.getId())) ;
+        }
+        return nodes ;
+    }
+
     // ----------------
     
     // Node to NodeId worker
@@ -135,32 +207,41 @@ public class NodeTableNative implements NodeTable
         // Key only.
         Record r = nodeHashToId.getRecordFactory().create(k) ;
         
+        if ( readOnly )
+            return accessIndex$(r, node, create) ;
         synchronized (this)  // Pair to readNodeFromTable.
         {
-            // Key and value, or null
-            Record r2 = nodeHashToId.find(r) ;
-            if ( r2 != null )
-            {
-                // Found.  Get the NodeId.
-                NodeId id = NodeId.create(r2.getValue(), 0) ;
-                return id ;
-            }
+            return accessIndex$(r, node, create) ;
+        }
+    }
+    
+    private final NodeId accessIndex$(Record r, Node node, boolean create)
+    {
+        // Key and value, or null
+        Record r2 = nodeHashToId.find(r) ;
+        if ( r2 != null )
+        {
+            // Found.  Get the NodeId.
+            NodeId id = NodeId.create(r2.getValue(), 0) ;
+            return id ;
+        }
 
-            // Not found.
-            if ( ! create )
-                return NodeId.NodeDoesNotExist ;
-            // Write the node, which allocates an id for it.
-            NodeId id = writeNodeToTable(node) ;
+        // Not found.
+        if ( ! create )
+            return NodeId.NodeDoesNotExist ;
+        if ( readOnly )
+            throw new TDBException("NodeTableNative: read-only: can't allocate a NodeId for "+node) ;
+        // Write the node, which allocates an id for it.
+        NodeId id = writeNodeToTable(node) ;
 
-            // Update the r record with the new id.
-            // r.value := id bytes ; 
-            id.toBytes(r.getValue(), 0) ;
+        // Update the r record with the new id.
+        // r.value := id bytes ; 
+        id.toBytes(r.getValue(), 0) ;
 
-            // Put in index - may appear because of concurrency
-            if ( ! nodeHashToId.add(r) )
-                throw new TDBException("NodeTableBase::nodeToId - record mysteriously appeared") ;
-            return id ;
-        }
+        // Put in index - may appear because of concurrency
+        if ( ! nodeHashToId.add(r) )
+            throw new TDBException("NodeTableBase::nodeToId - record mysteriously appeared") ;
+        return id ;
     }
     
     // -------- NodeId<->Node
@@ -173,19 +254,60 @@ public class NodeTableNative implements NodeTable
     {
         syncNeeded = true ;
         // Synchronized in accessIndex
-        long x = NodeLib.encodeStore(node, getObjects()) ;
+        long x = NodeLib.encodeStore(node, getObjects(), nodec) ;
         return NodeId.create(x);
     }
     
 
     private final Node readNodeFromTable(NodeId id)
     {
+        if ( readOnly )
+            return readNodeFromTable$(id) ;
+        synchronized (this) // Pair to accessIndex
+        {
+            return readNodeFromTable$(id) ;
+        }
+    }
+    
+    private final Node readNodeFromTable$(NodeId id)
+    {
+        if ( id.getId() >= getObjects().length() )
+            return null ;
+        return NodeLib.fetchDecode(id.getId(), getObjects(), nodec) ;
+    }
+
+    // Locations must be distinct and in increasing order.
+    private final Map<Long, Node> readNodesFromTable(long[] locs)
+    {
+        if ( readOnly )
+            return readNodesFromTable$(locs) ;
         synchronized (this) // Pair to accessIndex
         {
-            if ( id.getId() >= getObjects().length() )
-                return null ;
-            return NodeLib.fetchDecode(id.getId(), getObjects()) ;
+            return readNodesFromTable$(locs) ;
+        }
+    }
+    
+    private final Map<Long, Node> readNodesFromTable$(long[] locs)
+    {
+        Map<Long, Node> nodes = new HashMap<>(2*locs.length) ;
+        long limit = getObjects().length() ;
+        int n = 0 ;
+        while ( n < locs.length && locs[n] < limit )
+            n++ ;
+        if ( n < locs.length )
+            locs = Arrays.copyOf(locs, n) ;
+        if ( getObjects() instanceof ObjectFileStorage )
+        {
+            ByteBuffer[] bbs = ((ObjectFileStorage)getObjects()).read(locs) ;
+            for ( int i = 0 ; i < locs.length ; i++ )
+                nodes.put(locs[i], NodeLib.decode(bbs[i], nodec)) ;
+        }
+        else
+        {
+            for ( long loc : locs )
+                nodes.put(loc, NodeLib.fetchDecode(loc, getObjects(), nodec)) ;
         }
+        return nodes ;
     }
     // -------- NodeId<->Node
 
@@ -226,7 +348,7 @@ public class NodeTableNative implements NodeTable
             public Pair<NodeId, Node> convert(Record item)
             {
                 NodeId id = NodeId.create(item.getValue(), 0) ;
-                Node n = NodeLib.fetchDecode(id.getId(), getObjects()) ;
+                Node n = NodeLib.fetchDecode(id.getId(), getObjects(), nodec) ;
                 return new Pair<>(id, n) ;
             }};
         return Iter.map(iter, transform) ;
@@ -242,7 +364,7 @@ public class NodeTableNative implements NodeTable
             {
                 NodeId id = NodeId.create(item.car().longValue()) ;
                 ByteBuffer bb = item.cdr();
-                Node n = NodeLib.decode(bb) ;
+                Node n = NodeLib.decode(bb, nodec) ;
                 return new Pair<>(id, n) ;
             }
         };
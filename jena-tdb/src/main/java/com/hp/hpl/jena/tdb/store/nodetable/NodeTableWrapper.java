@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.tdb.store.nodetable;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.Pair ;
 
@@ -54,6 +55,12 @@ public class NodeTableWrapper implements NodeTable
     {
         return nodeTable.getNodeForNodeId(id) ;
     }
+
+    @Override
+    public List<Node> getNodesForNodeIds(List<NodeId> ids)
+    {
+        return nodeTable.getNodesForNodeIds(ids) ;
+    }
     
     @Override
     public boolean containsNode(Node node) {
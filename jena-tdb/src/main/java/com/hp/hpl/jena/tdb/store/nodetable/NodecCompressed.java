@@ -0,0 +1,468 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.nodetable;
+
+import java.nio.ByteBuffer ;
+import java.nio.charset.StandardCharsets ;
+import java.util.concurrent.ArrayBlockingQueue ;
+import java.util.concurrent.BlockingQueue ;
+import java.util.zip.DataFormatException ;
+import java.util.zip.Deflater ;
+import java.util.zip.Inflater ;
+
+import org.apache.jena.atlas.io.BlockUTF8 ;
+import org.apache.jena.riot.web.LangTag ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.shared.PrefixMapping ;
+import com.hp.hpl.jena.tdb.TDBException ;
+
+/** Node encoder/decoder that compresses IRIs and long literals.
+ * <p>
+ * IRIs, and the datatype IRIs of literals, are written as a one byte code
+ * for a namespace followed by the rest of the IRI. The namespaces are a built-in
+ * list followed by the database's own ({@link com.hp.hpl.jena.tdb.setup.StoreParams#getNodeNamespaces}).
+ * Long lexical forms are deflated, with the namespaces as a preset dictionary
+ * so that short texts compress too. Each node is compressed on its own so a
+ * node can still be read directly by its NodeId.
+ * <p>
+ * Any other node (blank nodes, and anything that does not fit the compact
+ * forms) is written by {@link NodecSSE}. The SSE encoding never starts with
+ * one of the tag bytes used here so both forms can be read back, and a node
+ * file written by {@link NodecSSE} can be read by this class.
+ * <p>
+ * The namespaces are part of the on-disk format: built-in entries can be
+ * added at the end but must never be changed, reordered or removed, and
+ * the database's own are fixed when it is created.
+ */
+public class NodecCompressed implements Nodec
+{
+    /** Lexical forms with at least this many characters are deflated (if it makes them smaller). */
+    public static int CompressThreshold = 32 ;
+
+    // Tag bytes. The SSE encoding starts with a printable character. 
+    private static final byte TagIRI        = 1 ;
+    private static final byte TagLiteral    = 2 ;
+
+    // Kinds of literal.
+    private static final byte LitSimple     = 0 ;
+    private static final byte LitLang       = 1 ;
+    private static final byte LitDatatype   = 2 ;
+
+    // How the lexical form is stored.
+    private static final byte LexPlain      = 0 ;
+    // Raw deflate, with the namespaces as the dictionary.
+    private static final byte LexDeflateDict = 2 ;
+
+    // Codes are one byte; code 0 means "no namespace".
+    private static final int MaxNamespaces  = 0xFF ;
+
+    // Code n, up to the number of built-in namespaces, is builtinNamespaces[n-1].
+    // Append only - see the class comment.
+    private static final String[] builtinNamespaces = {
+        "http://www.w3.org/1999/02/22-rdf-syntax-ns#" ,
+        "http://www.w3.org/2000/01/rdf-schema#" ,
+        "http://www.w3.org/2001/XMLSchema#" ,
+        "http://www.w3.org/2002/07/owl#" ,
+        "http://purl.org/dc/elements/1.1/" ,
+        "http://purl.org/dc/terms/" ,
+        "http://xmlns.com/foaf/0.1/" ,
+        "http://www.w3.org/2004/02/skos/core#" ,
+        "http://schema.org/" ,
+        "https://schema.org/" ,
+        "http://www.w3.org/ns/prov#" ,
+        "http://rdfs.org/ns/void#" ,
+        "http://www.w3.org/ns/dcat#" ,
+        "http://www.w3.org/2006/time#" ,
+        "http://www.w3.org/ns/org#" ,
+        "http://purl.org/linked-data/cube#" ,
+        "http://www.w3.org/2003/01/geo/wgs84_pos#" ,
+        "http://www.opengis.net/ont/geosparql#" ,
+        "http://www.w3.org/ns/shacl#" ,
+        "http://dbpedia.org/resource/" ,
+        "http://dbpedia.org/property/" ,
+        "http://dbpedia.org/ontology/" ,
+        "http://www.wikidata.org/entity/" ,
+        "http://www.wikidata.org/prop/direct/" ,
+        "http://www.geonames.org/ontology#" ,
+        "http://sws.geonames.org/" ,
+        // Catch-alls.
+        "http://www." ,
+        "https://www." ,
+        "http://" ,
+        "https://" ,
+        "urn:" ,
+    } ;
+
+    // Deflaters and Inflaters hold native memory until end() is called, so only
+    // a few idle ones are kept for reuse; the rest are ended when given back.
+    private static final int MaxIdleCodecs = 4 ;
+    private static final BlockingQueue<Deflater> idleDeflaters = new ArrayBlockingQueue<>(MaxIdleCodecs) ;
+    private static final BlockingQueue<Inflater> idleInflaters = new ArrayBlockingQueue<>(MaxIdleCodecs) ;
+
+    private final Nodec other = new NodecSSE() ;
+    // Code n is namespaces[n-1]: the built-in ones, then the database's own.
+    private final String[] namespaces ;
+    private final byte[] deflateDictionary ;
+
+    /** With the built-in namespaces only */
+    public NodecCompressed()
+    {
+        this(null) ;
+    }
+
+    /** With the database's own namespaces, after the built-in ones (null for none) */
+    public NodecCompressed(String[] dbNamespaces)
+    {
+        int n = ( dbNamespaces == null ) ? 0 : dbNamespaces.length ;
+        if ( builtinNamespaces.length+n > MaxNamespaces )
+            throw new TDBException("Too many namespaces for the node table: at most "+(MaxNamespaces-builtinNamespaces.length)) ;
+        namespaces = new String[builtinNamespaces.length+n] ;
+        System.arraycopy(builtinNamespaces, 0, namespaces, 0, builtinNamespaces.length) ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            if ( dbNamespaces[i] == null || dbNamespaces[i].isEmpty() )
+                throw new TDBException("Empty namespace for the node table") ;
+            namespaces[builtinNamespaces.length+i] = dbNamespaces[i] ;
+        }
+        // Deflate finds matches nearer the end of the dictionary more cheaply:
+        // the database's own namespaces go last.
+        StringBuilder sb = new StringBuilder() ;
+        for ( String ns : namespaces )
+            sb.append(ns).append(' ') ;
+        deflateDictionary = sb.toString().getBytes(StandardCharsets.UTF_8) ;
+    }
+
+    @Override
+    public int maxSize(Node node)
+    {
+        int len = other.maxSize(node) ;
+        if ( node.isURI() )
+            len = Math.max(len, 2+maxLength(node.getURI())) ;
+        else if ( node.isLiteral() )
+        {
+            // Tag, kind, lexical form flag, raw length (if deflated) and the language tag or datatype.
+            int x = 3+4+maxLength(node.getLiteralLexicalForm()) ;
+            String dt = node.getLiteralDatatypeURI() ;
+            x += 3+Math.max(node.getLiteralLanguage().length(), dt == null ? 0 : maxLength(dt)) ;
+            len = Math.max(len, x) ;
+        }
+        return len ;
+    }
+
+    @Override
+    public int encode(Node node, ByteBuffer bb, PrefixMapping pmap)
+    {
+        if ( node.isURI() )
+        {
+            bb.put(TagIRI) ;
+            putIRI(node.getURI(), bb) ;
+            bb.flip() ;
+            return bb.limit() ;
+        }
+        if ( node.isLiteral() && encodeLiteral(node, bb) )
+        {
+            bb.flip() ;
+            return bb.limit() ;
+        }
+        return other.encode(node, bb, pmap) ;
+    }
+
+    private boolean encodeLiteral(Node node, ByteBuffer bb)
+    {
+        String lang = node.getLiteralLanguage() ;
+        String dt = node.getLiteralDatatypeURI() ;
+        int start = bb.position() ;
+        bb.put(TagLiteral) ;
+        if ( lang != null && ! lang.isEmpty() )
+        {
+            if ( ! LangTag.check(lang) )
+                throw new TDBException("bad language tag: "+node) ;
+            if ( lang.length() > 0xFF )
+            {
+                // Use the SSE form.
+                bb.position(start) ;
+                return false ;
+            }
+            bb.put(LitLang) ;
+            bb.put((byte)lang.length()) ;
+            BlockUTF8.fromChars(lang, bb) ;
+        }
+        else if ( dt != null )
+        {
+            bb.put(LitDatatype) ;
+            int code = namespace(dt) ;
+            String local = ( code == 0 ) ? dt : dt.substring(namespaces[code-1].length()) ;
+            bb.put((byte)code) ;
+            // Length of the UTF-8 bytes, filled in afterwards.
+            int lenIdx = bb.position() ;
+            bb.putShort((short)0) ;
+            BlockUTF8.fromChars(local, bb) ;
+            int len = bb.position()-lenIdx-2 ;
+            if ( len > 0xFFFF )
+            {
+                bb.position(start) ;
+                return false ;
+            }
+            bb.putShort(lenIdx, (short)len) ;
+        }
+        else
+            bb.put(LitSimple) ;
+        putLexical(node.getLiteralLexicalForm(), bb) ;
+        return true ;
+    }
+
+    private void putIRI(String iri, ByteBuffer bb)
+    {
+        int code = namespace(iri) ;
+        bb.put((byte)code) ;
+        String local = ( code == 0 ) ? iri : iri.substring(namespaces[code-1].length()) ;
+        BlockUTF8.fromChars(local, bb) ;
+    }
+
+    private void putLexical(String lex, ByteBuffer bb)
+    {
+        if ( lex.length() >= CompressThreshold )
+        {
+            ByteBuffer raw = ByteBuffer.allocate(maxLength(lex)) ;
+            BlockUTF8.fromChars(lex, raw) ;
+            int rawLen = raw.position() ;
+            // Only keep the deflated form if it is smaller, allowing for the length.
+            byte[] out = new byte[rawLen] ;
+            int len = 0 ;
+            boolean finished ;
+            Deflater deflater = takeDeflater() ;
+            try {
+                deflater.setDictionary(deflateDictionary) ;
+                deflater.setInput(raw.array(), 0, rawLen) ;
+                deflater.finish() ;
+                while ( ! deflater.finished() && len < out.length )
+                    len += deflater.deflate(out, len, out.length-len) ;
+                finished = deflater.finished() ;
+            } finally { giveBack(deflater) ; }
+            if ( finished && len+varIntLength(rawLen) < rawLen )
+            {
+                bb.put(LexDeflateDict) ;
+                putVarInt(rawLen, bb) ;
+                bb.put(out, 0, len) ;
+                return ;
+            }
+        }
+        bb.put(LexPlain) ;
+        BlockUTF8.fromChars(lex, bb) ;
+    }
+
+    @Override
+    public Node decode(ByteBuffer bb, PrefixMapping pmap)
+    {
+        int start = bb.position() ;
+        byte tag = bb.get(start) ;
+        switch (tag)
+        {
+            case TagIRI:
+            {
+                bb.position(start+1) ;
+                return NodeFactory.createURI(getIRI(bb)) ;
+            }
+            case TagLiteral:
+            {
+                bb.position(start+1) ;
+                return decodeLiteral(bb) ;
+            }
+            default:
+                return other.decode(bb, pmap) ;
+        }
+    }
+
+    private Node decodeLiteral(ByteBuffer bb)
+    {
+        byte kind = bb.get() ;
+        switch (kind)
+        {
+            case LitSimple:
+                return NodeFactory.createLiteral(getLexical(bb)) ;
+            case LitLang:
+            {
+                int len = bb.get() & 0xFF ;
+                String lang = getString(bb, len) ;
+                return NodeFactory.createLiteral(getLexical(bb), lang, false) ;
+            }
+            case LitDatatype:
+            {
+                int code = bb.get() & 0xFF ;
+                int len = bb.getShort() & 0xFFFF ;
+                String dt = expand(code, getString(bb, len)) ;
+                return NodeFactory.createLiteral(getLexical(bb), null, NodeFactory.getType(dt)) ;
+            }
+            default:
+                throw new TDBException("Unrecognized literal encoding: "+kind) ;
+        }
+    }
+
+    private String getIRI(ByteBuffer bb)
+    {
+        int code = bb.get() & 0xFF ;
+        return expand(code, BlockUTF8.toString(bb)) ;
+    }
+
+    private String getLexical(ByteBuffer bb)
+    {
+        byte how = bb.get() ;
+        switch (how)
+        {
+            case LexPlain:
+                return BlockUTF8.toString(bb) ;
+            case LexDeflateDict:
+            {
+                int rawLen = getVarInt(bb) ;
+                Inflater inflater = takeInflater() ;
+                try {
+                    inflater.setDictionary(deflateDictionary) ;
+                    return inflate(inflater, bb, rawLen) ;
+                } finally { giveBack(inflater) ; }
+            }
+            default:
+                throw new TDBException("Unrecognized lexical form encoding: "+how) ;
+        }
+    }
+
+    private static String inflate(Inflater inflater, ByteBuffer bb, int rawLen)
+    {
+        // One extra byte: raw ("nowrap") inflation may need it.
+        byte[] input = new byte[bb.remaining()+1] ;
+        bb.get(input, 0, input.length-1) ;
+        byte[] raw = new byte[rawLen] ;
+        inflater.setInput(input) ;
+        try {
+            int len = 0 ;
+            while ( len < rawLen && ! inflater.finished() )
+            {
+                int n = inflater.inflate(raw, len, rawLen-len) ;
+                if ( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                    break ;
+                len += n ;
+            }
+            if ( len != rawLen )
+                throw new TDBException("Compressed lexical form is truncated: "+len+"/"+rawLen) ;
+        } catch (DataFormatException ex) {
+            throw new TDBException("Compressed lexical form is corrupt", ex) ;
+        }
+        return BlockUTF8.toString(ByteBuffer.wrap(raw)) ;
+    }
+
+    private static Deflater takeDeflater()
+    {
+        Deflater deflater = idleDeflaters.poll() ;
+        return ( deflater != null ) ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, true) ;
+    }
+
+    private static void giveBack(Deflater deflater)
+    {
+        deflater.reset() ;
+        if ( ! idleDeflaters.offer(deflater) )
+            deflater.end() ;
+    }
+
+    private static Inflater takeInflater()
+    {
+        Inflater inflater = idleInflaters.poll() ;
+        return ( inflater != null ) ? inflater : new Inflater(true) ;
+    }
+
+    private static void giveBack(Inflater inflater)
+    {
+        inflater.reset() ;
+        if ( ! idleInflaters.offer(inflater) )
+            inflater.end() ;
+    }
+
+    // Unsigned, 7 bits a byte, low bits first.
+    private static void putVarInt(int x, ByteBuffer bb)
+    {
+        while ( ( x & ~0x7F ) != 0 )
+        {
+            bb.put((byte)( ( x & 0x7F ) | 0x80 )) ;
+            x >>>= 7 ;
+        }
+        bb.put((byte)x) ;
+    }
+
+    private static int getVarInt(ByteBuffer bb)
+    {
+        int x = 0 ;
+        for ( int shift = 0 ; ; shift += 7 )
+        {
+            byte b = bb.get() ;
+            x |= ( b & 0x7F ) << shift ;
+            if ( ( b & 0x80 ) == 0 )
+                return x ;
+        }
+    }
+
+    private static int varIntLength(int x)
+    {
+        int n = 1 ;
+        while ( ( x >>>= 7 ) != 0 )
+            n++ ;
+        return n ;
+    }
+
+    // Read len bytes as UTF-8 and move the position past them.
+    private static String getString(ByteBuffer bb, int len)
+    {
+        ByteBuffer x = bb.duplicate() ;
+        x.limit(bb.position()+len) ;
+        String s = BlockUTF8.toString(x) ;
+        bb.position(bb.position()+len) ;
+        return s ;
+    }
+
+    private String expand(int code, String local)
+    {
+        if ( code == 0 )
+            return local ;
+        if ( code > namespaces.length )
+            throw new TDBException("Unrecognized namespace code: "+code) ;
+        return namespaces[code-1]+local ;
+    }
+
+    /** The code for the longest namespace that starts the IRI, or 0 */
+    private int namespace(String iri)
+    {
+        int code = 0 ;
+        int len = 0 ;
+        for ( int i = 0 ; i < namespaces.length ; i++ )
+        {
+            String ns = namespaces[i] ;
+            if ( ns.length() > len && iri.startsWith(ns) )
+            {
+                code = i+1 ;
+                len = ns.length() ;
+            }
+        }
+        return code ;
+    }
+
+    private static int maxLength(String string)
+    {
+        // Worse case for UTF-8 (see NodecSSE).
+        return string.length()*3 ;
+    }
+}
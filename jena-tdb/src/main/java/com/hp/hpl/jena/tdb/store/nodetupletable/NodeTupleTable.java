@@ -48,6 +48,9 @@ public interface NodeTupleTable extends Sync, Closeable
     /** Find by NodeId. */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids) ;
 
+    /** Find by NodeId, returning batches of tuples packed as NodeId values, one tuple after another. */
+    public Iterator<long[]> findPacked(Tuple<NodeId> ids) ;
+
     /** Find all tuples */ 
     public Iterator<Tuple<NodeId>> findAll() ;
 
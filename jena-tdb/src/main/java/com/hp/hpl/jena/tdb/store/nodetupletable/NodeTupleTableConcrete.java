@@ -169,6 +169,17 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         } finally { finishRead() ; }
     }
 
+    /** Find by NodeId, in batches of packed NodeId values. */
+    @Override
+    public Iterator<long[]> findPacked(Tuple<NodeId> tuple)
+    {
+        try {
+            startRead() ;
+            Iterator<long[]> iter = tupleTable.findPacked(tuple) ;
+            return iteratorControl(iter) ;
+        } finally { finishRead() ; }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAll()
     {
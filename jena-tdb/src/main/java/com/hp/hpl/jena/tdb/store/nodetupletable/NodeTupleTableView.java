@@ -86,6 +86,13 @@ public class NodeTupleTableView extends NodeTupleTableWrapper
         return nodeTupleTable.find(ids2) ;
     }
 
+    @Override
+    public Iterator<long[]> findPacked(Tuple<NodeId> ids)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids.tuple()) ;
+        return nodeTupleTable.findPacked(Tuple.create(ids2)) ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     {
@@ -63,6 +63,10 @@ public class NodeTupleTableWrapper implements NodeTupleTable
     @Override
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple)
     { return nodeTupleTable.find(tuple) ; }
+
+    @Override
+    public Iterator<long[]> findPacked(Tuple<NodeId> tuple)
+    { return nodeTupleTable.findPacked(tuple) ; }
     
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
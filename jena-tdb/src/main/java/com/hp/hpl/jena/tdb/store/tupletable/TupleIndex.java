@@ -49,6 +49,11 @@ public interface TupleIndex extends Sync, Closeable
 
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) ;
     
+    /** Find all matching tuples, as for {@link #find}, returned in batches:
+     *  each long[] holds a number of tuples, as NodeId values, one tuple after another, natural order.
+     */
+    public Iterator<long[]> findPacked(Tuple<NodeId> pattern) ;
+    
     /** return an iterator of everything */
     public Iterator<Tuple<NodeId>> all() ;
     
@@ -25,7 +25,9 @@ import org.apache.jena.atlas.lib.Tuple ;
 
 
 import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.lib.TupleLib ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 public abstract class TupleIndexBase implements TupleIndex
 {
@@ -91,6 +93,15 @@ public abstract class TupleIndexBase implements TupleIndex
         return performFind(pattern) ;
     }
     
+    /** Find all matching tuples, in batches of packed NodeId values.
+     *  This default implementation packs the tuples from {@link #find}. 
+     */
+    @Override
+    public Iterator<long[]> findPacked(Tuple<NodeId> pattern)
+    {
+        return TupleLib.packIds(find(pattern), tupleLength, SystemTDB.TupleBatchSize) ;
+    }
+    
     @Override
     public final int weight(Tuple<NodeId> pattern)
     {
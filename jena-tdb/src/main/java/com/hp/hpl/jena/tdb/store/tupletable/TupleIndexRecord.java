@@ -21,10 +21,13 @@ package com.hp.hpl.jena.tdb.store.tupletable;
 import static com.hp.hpl.jena.tdb.sys.SystemTDB.SizeOfNodeId;
 import static java.lang.String.format;
 
+import java.util.Arrays ;
 import java.util.Iterator;
+import java.util.NoSuchElementException ;
 
 import org.apache.jena.atlas.iterator.* ;
 import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.ColumnMap ;
 import org.apache.jena.atlas.lib.Tuple ;
 
@@ -34,9 +37,11 @@ import org.apache.jena.atlas.lib.Tuple ;
 import com.hp.hpl.jena.tdb.TDBException;
 import com.hp.hpl.jena.tdb.base.record.Record;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
+import com.hp.hpl.jena.tdb.base.recordbuffer.RecordRangeIterator ;
 import com.hp.hpl.jena.tdb.index.RangeIndex ;
 import com.hp.hpl.jena.tdb.lib.TupleLib;
 import com.hp.hpl.jena.tdb.store.NodeId;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 public class TupleIndexRecord extends TupleIndexBase
 {
@@ -181,6 +186,210 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples ;
     }
     
+    /** Find the tuples matching a pattern that binds exactly a leading set of the index columns,
+     *  starting at the tuples whose value in the next index column is at least {@code start}
+     *  (null means from the beginning). Tuples are returned in index order, so sorted by that column.
+     *  Returns null if the pattern does not bind a leading set of columns of this index.
+     */
+    public Iterator<Tuple<NodeId>> findFrom(Tuple<NodeId> patternNaturalOrder, NodeId start)
+    {
+        return findRange(patternNaturalOrder, start, null) ;
+    }
+    
+    /** Find the tuples matching a pattern that binds exactly a leading set of the index columns,
+     *  and whose value in the next index column is at least {@code start} and less than {@code finish}
+     *  (as unsigned longs). A null {@code start} or {@code finish} means that end of the range is open.
+     *  Tuples are returned in index order, so sorted by that column.
+     *  Returns null if the pattern does not bind a leading set of columns of this index.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> patternNaturalOrder, NodeId start, NodeId finish)
+    {
+        // Convert to index order.
+        Tuple<NodeId> pattern = colMap.map(patternNaturalOrder) ;
+        Record minRec = factory.createKeyOnly() ;
+        int leading = 0 ;
+        while ( leading < pattern.size() && ! NodeId.isAny(pattern.get(leading)) )
+        {
+            Bytes.setLong(pattern.get(leading).getId(), minRec.getKey(), leading*SizeOfNodeId) ;
+            leading++ ;
+        }
+        if ( leading == pattern.size() )
+            return null ;
+        for ( int i = leading ; i < pattern.size() ; i++ )
+        {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return null ;
+        }
+        
+        Record maxRec = null ;
+        if ( finish != null )
+        {
+            maxRec = factory.createKeyOnly() ;
+            System.arraycopy(minRec.getKey(), 0, maxRec.getKey(), 0, leading*SizeOfNodeId) ;
+            Bytes.setLong(finish.getId(), maxRec.getKey(), leading*SizeOfNodeId) ;
+        }
+        else if ( leading > 0 )
+        {
+            // Leading NodeIds, +1, as findWorker.
+            maxRec = factory.createKeyOnly() ;
+            System.arraycopy(minRec.getKey(), 0, maxRec.getKey(), 0, leading*SizeOfNodeId) ;
+            NodeId X = pattern.get(leading-1) ;
+            Bytes.setLong(X.getId()+1, maxRec.getKey(), (leading-1)*SizeOfNodeId) ;
+        }
+        if ( start != null )
+            Bytes.setLong(start.getId(), minRec.getKey(), leading*SizeOfNodeId) ;
+        Iterator<Record> iter = index.iterator(minRec, maxRec) ;
+        return Iter.map(iter, transformToTuple) ;
+    }
+    
+    /** Find all matching tuples, in batches of packed NodeId values.
+     *  Records are decoded directly from the index pages, without creating
+     *  Record, Tuple or NodeId objects for each match.
+     */
+    @Override
+    public Iterator<long[]> findPacked(Tuple<NodeId> patternNaturalOrder)
+    {
+        Tuple<NodeId> pattern = colMap.map(patternNaturalOrder) ;
+        int leading = 0 ;
+        while ( leading < pattern.size() && ! NodeId.isAny(pattern.get(leading)) )
+            leading++ ;
+        // Simple existence test : as find().
+        if ( leading == pattern.size() )
+            return super.findPacked(patternNaturalOrder) ;
+        
+        Record minRec = null ;
+        Record maxRec = null ;
+        if ( leading > 0 )
+        {
+            minRec = factory.createKeyOnly() ;
+            maxRec = factory.createKeyOnly() ;
+            for ( int i = 0 ; i < leading ; i++ )
+            {
+                Bytes.setLong(pattern.get(i).getId(), minRec.getKey(), i*SizeOfNodeId) ;
+                Bytes.setLong(pattern.get(i).getId(), maxRec.getKey(), i*SizeOfNodeId) ;
+            }
+            // Leading NodeIds, +1, as findWorker.
+            Bytes.setLong(pattern.get(leading-1).getId()+1, maxRec.getKey(), (leading-1)*SizeOfNodeId) ;
+        }
+        Iterator<Record> iter = ( leading == 0 ) ? index.iterator() : index.iterator(minRec, maxRec) ;
+        
+        // Index order to natural order, and any slots after the leading ones that must match.
+        int[] natural = new int[tupleLength] ;
+        long[] match = new long[tupleLength] ;
+        boolean needsScan = false ;
+        for ( int i = 0 ; i < tupleLength ; i++ )
+        {
+            natural[i] = colMap.fetchSlotIdx(i) ;
+            NodeId X = pattern.get(i) ;
+            match[i] = ( i < leading || NodeId.isAny(X) ) ? NodeId.NodeIdAny.getId() : X.getId() ;
+            if ( i >= leading && ! NodeId.isAny(X) )
+                needsScan = true ;
+        }
+        
+        if ( ! ( iter instanceof RecordRangeIterator ) )
+        {
+            // Not a B+Tree : go via tuples. 
+            Iterator<Tuple<NodeId>> tuples = Iter.map(iter, transformToTuple) ;
+            if ( needsScan )
+                tuples = scan(tuples, patternNaturalOrder) ;
+            return TupleLib.packIds(tuples, tupleLength, SystemTDB.TupleBatchSize) ;
+        }
+        return new IterPacked((RecordRangeIterator)iter, tupleLength, natural, needsScan ? match : null, SystemTDB.TupleBatchSize) ;
+    }
+    
+    /** Batches of tuples, read as longs from the record pages, in natural order.
+     *  The first batch is small ({@link SystemTDB#TupleBatchInitialSize}) and each full batch
+     *  doubles the next, up to the batch size, so that a lookup with few matches
+     *  allocates little. The read buffers are reused; each batch returned is a new array
+     *  of exactly the matching rows.
+     */
+    private static class IterPacked implements Iterator<long[]>, Closeable
+    {
+        private final RecordRangeIterator iter ;
+        private final int N ;
+        private final int[] natural ;
+        private final long[] match ;
+        private final int maxRows ;
+        private long[] buffer ;             // Records, index order.
+        private long[] rows ;               // Matching records, natural order.
+        private long[] slot = null ;
+        private boolean finished = false ;
+
+        IterPacked(RecordRangeIterator iter, int N, int[] natural, long[] match, int batchSize)
+        {
+            this.iter = iter ;
+            this.N = N ;
+            this.natural = natural ;
+            this.match = match ;
+            this.maxRows = Math.max(1, batchSize) ;
+            int initial = Math.max(1, Math.min(SystemTDB.TupleBatchInitialSize, maxRows)) ;
+            this.buffer = new long[initial*N] ;
+            this.rows = new long[initial*N] ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( slot == null && ! finished )
+            {
+                int n = iter.nextBatchLongs(buffer, N) ;
+                int k = 0 ;
+                for ( int i = 0 ; i < n ; i++ )
+                {
+                    int x = i*N ;
+                    if ( match != null && ! matches(x) )
+                        continue ;
+                    for ( int j = 0 ; j < N ; j++ )
+                        rows[k+natural[j]] = buffer[x+j] ;
+                    k += N ;
+                }
+                if ( k > 0 )
+                    slot = Arrays.copyOf(rows, k) ;
+                if ( n < buffer.length/N )
+                    finished = true ;
+                else
+                    grow() ;
+            }
+            return slot != null ;
+        }
+
+        private void grow()
+        {
+            int size = buffer.length/N ;
+            if ( size >= maxRows )
+                return ;
+            size = Math.min(2*size, maxRows) ;
+            buffer = new long[size*N] ;
+            rows = new long[size*N] ;
+        }
+
+        private boolean matches(int x)
+        {
+            for ( int j = 0 ; j < N ; j++ )
+            {
+                if ( match[j] != NodeId.NodeIdAny.getId() && match[j] != buffer[x+j] )
+                    return false ;
+            }
+            return true ;
+        }
+
+        @Override
+        public long[] next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            long[] x = slot ;
+            slot = null ;
+            return x ;
+        }
+
+        @Override
+        public void remove()        { throw new UnsupportedOperationException() ; }
+
+        @Override
+        public void close()         { iter.close() ; }
+    }
+    
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
@@ -46,6 +46,11 @@ public class TupleIndexWrapper implements TupleIndex
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) {
         return index.find(pattern) ;
     }
+    
+    @Override
+    public Iterator<long[]> findPacked(Tuple<NodeId> pattern) {
+        return index.findPacked(pattern) ;
+    }
 
     @Override
     public Iterator<Tuple<NodeId>> all() {
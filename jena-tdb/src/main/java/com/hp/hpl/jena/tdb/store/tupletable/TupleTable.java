@@ -165,6 +165,26 @@ public class TupleTable implements Sync, Closeable
 //                log.warn("find(Tuple<NodeId> pattern): Null found: "+pattern) ;
 //        }
         
+        TupleIndex index = chooseIndex(pattern) ;
+        if ( index == null )
+            return scanAllIndex.all() ;
+        return index.find(pattern) ;
+    }
+    
+    /** Find all matching tuples, in batches of packed NodeId values.
+     * @see TupleIndex#findPacked
+     */
+    public Iterator<long[]> findPacked(Tuple<NodeId> pattern)
+    {
+        TupleIndex index = chooseIndex(pattern) ;
+        if ( index == null )
+            index = scanAllIndex ;
+        return index.findPacked(pattern) ;
+    }
+    
+    /** The index to use for a pattern; null means scan everything */
+    private TupleIndex chooseIndex(Tuple<NodeId> pattern)
+    {
         if ( tupleLen != pattern.size() )
             throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.size(), tupleLen)) ;
         
@@ -178,7 +198,7 @@ public class TupleTable implements Sync, Closeable
         }
 
         if ( numSlots == 0 )
-            return scanAllIndex.all() ;
+            return null ;
         
         int indexNumSlots = 0 ;
         TupleIndex index = null ;
@@ -198,7 +218,7 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0] ;
-        return index.find(pattern) ;
+        return index ;
     }
     
     @Override
@@ -19,29 +19,24 @@
 package com.hp.hpl.jena.tdb.sys;
 
 import java.util.Iterator ;
-import java.util.concurrent.atomic.AtomicLong ;
 
 import com.hp.hpl.jena.tdb.TDBException ;
 
-/** A policy that provide read-only access */ 
+/** A policy that provide read-only access.
+ *  Readers do not touch any shared state, so they do not contend with each other.
+ */ 
 public class DatasetControlReadOnly implements DatasetControl
 {
-    private final AtomicLong readCounter = new AtomicLong(0) ;
-    
     public DatasetControlReadOnly()
     { }
 
     @Override
     public void startRead()
-    {
-        readCounter.getAndIncrement() ;
-    }
+    {}
 
     @Override
     public void finishRead()
-    {
-        readCounter.decrementAndGet() ;
-    }
+    {}
 
     @Override
     public void startUpdate()
@@ -80,6 +80,13 @@ public class FileRef
         file("node2id.dat") ;
         file("prefixIdx.idn") ;
         file("prefixIdx.dat") ;
+        // Union triple table (optional). Added after the others so existing ids do not change.
+        file("USPO.idn") ;
+        file("USPO.dat") ;
+        file("UPOS.idn") ;
+        file("UPOS.dat") ;
+        file("UOSP.idn") ;
+        file("UOSP.dat") ;
         
         add(1000+idxOffset, "TEST") ;
         add(1001+idxOffset, "TEST1") ;
@@ -27,6 +27,12 @@ public class Names
     public static final String primaryIndexQuads        = "GSPO" ; 
     public static final String[] quadIndexes            = { primaryIndexQuads, "GPOS", "GOSP", "POSG", "OSPG", "SPOG"} ;
     
+    /** Graph-agnostic union triple table - off by default.
+     *  Index orders are over {@link #primaryIndexTriples}; files are named {@link #unionIndexFilePrefix}+order. */  
+    public static final String[] unionIndexes           = { } ;
+    public static final String[] unionIndexesAll        = { primaryIndexTriples, "POS", "OSP" } ;
+    public static final String unionIndexFilePrefix     = "U" ;
+    
     public static final String primaryIndexPrefix       = "GPU" ;
     public static final String[] prefixIndexes          = { primaryIndexPrefix } ;
     
@@ -37,9 +43,9 @@ public class Names
     /** BTrees - single file per tree */
     public static final String btExt                    = "idx" ;
     
-    /** ExtHash - dictionary file*/
+    /** ExtHash - dictionary file and bucket file (not "dat", which is the B+Tree records file) */
     public static final String extHashExt               = "exh" ;
-    public static final String extHashBucketExt         = "dat" ;
+    public static final String extHashBucketExt         = "exb" ;
 
     public static final String datasetConfig            = "config-tdb" ;        // name of the TDB configuration file.
 
@@ -50,6 +56,9 @@ public class Names
     public static final String journalFileBase          = "journal" ;
     public static final String journalFile              = journalFileBase+"."+extJournal ;
     
+    /** Marker file for a frozen (read-only, immutable) database */
+    public static final String frozenMarker             = "tdb.frozen" ;
+    
     public static final String indexId2Node             = "nodes" ;         // Node table
     public static final String indexNode2Id             = "node2id";        // Node hash to id table
     
@@ -62,6 +71,7 @@ public class Names
     
     /** Optimizer / stats */
     public static final String optStats                 = "stats.opt" ;
+    public static final String optCharSets              = "charsets.opt" ;
     public static final String optFixed                 = "fixed.opt" ;
     public static final String optNone                  = "none.opt" ; 
     public static final String optDefault               = optFixed ;
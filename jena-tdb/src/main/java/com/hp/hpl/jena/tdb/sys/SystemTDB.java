@@ -177,9 +177,41 @@ public class SystemTDB
 
     /** Size of read block cache (32 bit systems only).  Increase JVM size as necessary. Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 10*1000) ;
-    
+
+    /** Size of the on-heap read block cache in "offheap" file mode. Per file.
+     *  The main read cache (BlockReadCacheSize) is then held outside the Java heap. */
+    public static final int BlockReadCacheSizeOffHeap = intValue("BlockReadCacheSizeOffHeap", 100) ;
+
+    /** Number of B+Tree leaf blocks a range scan asks to be read ahead of its current position.
+     *  0 means no read ahead. */
+    public static final int RangeScanReadAhead      = intValue("RangeScanReadAhead", 8) ;
+
+    /** Number of background threads (shared by all files) doing block read ahead. */
+    public static final int ReadAheadThreads        = intValue("ReadAheadThreads", 2) ;
+
+    /** Milliseconds between rebalancing of cache sizes, when a database has a cache budget.
+     *  0 means only rebalance when asked (e.g. over JMX). */
+    public static final int CacheTuningInterval     = intValue("CacheTuningInterval", 10*1000) ;
+
     // ---- Misc
     
+    /** Number of query solutions whose NodeIds are turned into Nodes together.
+     *  1 means each solution is converted on its own. */
+    public static final int NodeIdBatchSize         = intValue("NodeIdBatchSize", 100) ;
+
+    /** Number of tuples read from an index together, as packed NodeId values, by the
+     *  allocation-light pattern matching path. */
+    public static final int TupleBatchSize          = intValue("TupleBatchSize", 256) ;
+
+    /** Number of tuples in the first batch of a packed index read. Later batches double
+     *  up to {@link #TupleBatchSize}, so a selective lookup does not pay for a full batch. */
+    public static final int TupleBatchInitialSize   = intValue("TupleBatchInitialSize", 8) ;
+
+    /** Group commit of write transactions: -1 means each commit syncs the journal itself;
+     *  0 or more means committers share journal syncs, and the thread doing a sync first waits
+     *  up to this many milliseconds for other commits to join it. */
+    public static final int JournalGroupCommitWindow = intValue("JournalGroupCommitWindow", -1) ;
+
 //    /** Number of adds/deletes between calls to sync (-ve to disable) */
 //    public static final int SyncTick                = intValue("SyncTick", -1) ;
 
@@ -391,6 +423,11 @@ public class SystemTDB
             TDB.logInfo.info("File mode: mapped (forced)") ;
             return FileMode.mapped ;
         }
+        if ( x.equalsIgnoreCase("offheap") )
+        {
+            TDB.logInfo.info("File mode: offheap (forced)") ;
+            return FileMode.offheap ;
+        }
         
         if ( x.equalsIgnoreCase("default") )
         {
@@ -402,6 +439,6 @@ public class SystemTDB
             TDB.logInfo.debug("File mode: Direct") ;
             return FileMode.direct ;
         }
-        throw new TDBException("Unrecognized file mode (not one of 'default', 'direct' or 'mapped': "+x) ;
+        throw new TDBException("Unrecognized file mode (not one of 'default', 'direct', 'mapped' or 'offheap': "+x) ;
     }
 }
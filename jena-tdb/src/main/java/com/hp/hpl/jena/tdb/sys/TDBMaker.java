@@ -18,10 +18,14 @@
 
 package com.hp.hpl.jena.tdb.sys;
 
+import java.util.HashMap ;
+import java.util.Map ;
+
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.tdb.StoreConnection ;
 import com.hp.hpl.jena.tdb.TDBFactory ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderFrozen ;
 import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
@@ -60,14 +64,48 @@ public class TDBMaker
     
     public static void releaseLocation(Location location)
     {
+        releaseFrozen(location) ;
         StoreConnection.release(location) ;
     }
 
     public static void reset()
     {
+        resetFrozen() ;
         StoreConnection.reset() ;
     }
     
+    // ---- Frozen: read-only, no transactions.
+    
+    private static Map<Location, DatasetGraphTDB> frozen = new HashMap<>() ;
+    
+    /** Open a frozen database.
+     * @see com.hp.hpl.jena.tdb.TDBFreeze
+     */
+    public static synchronized DatasetGraphTDB createDatasetGraphFrozen(Location location)
+    {
+        DatasetGraphTDB dsg = frozen.get(location) ;
+        if ( dsg == null )
+        {
+            dsg = DatasetBuilderFrozen.create(location) ;
+            frozen.put(location, dsg) ;
+        }
+        return dsg ;
+    }
+    
+    private static synchronized void releaseFrozen(Location location)
+    {
+        DatasetGraphTDB dsg = frozen.remove(location) ;
+        if ( dsg != null )
+            dsg.close() ;
+    }
+    
+    private static synchronized void resetFrozen()
+    {
+        for ( DatasetGraphTDB dsg : frozen.values() )
+            dsg.close() ;
+        frozen.clear() ;
+    }
+    
     // ---- Base storage.
     
     /* The one we are using */
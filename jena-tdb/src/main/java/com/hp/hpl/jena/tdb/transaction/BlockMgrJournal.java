@@ -24,6 +24,7 @@ import java.util.HashSet ;
 import java.util.Iterator ;
 import java.util.Map ;
 import java.util.Set ;
+import java.util.concurrent.ConcurrentHashMap ;
 
 import org.apache.jena.atlas.logging.Log ;
 import org.slf4j.Logger ;
@@ -53,7 +54,9 @@ public class BlockMgrJournal implements BlockMgr, TransactionLifecycle
     
     private final Set<Long> readBlocks = new HashSet<>() ;
     private final Set<Long> iteratorBlocks = new HashSet<>() ;
-    private final Map<Long, Block> writeBlocks = new HashMap<>() ;
+    // Read by snapshot readers while the transaction is written back.
+    private final Map<Long, Block> writeBlocks = new ConcurrentHashMap<>() ;
+    private final Set<Long> allocatedBlocks = new HashSet<>() ;
     private final Map<Long, Block> freedBlocks = new HashMap<>() ;
     private boolean closed  = false ;
     private boolean active  = false ;   // In a transaction, or preparing.
@@ -132,6 +135,7 @@ public class BlockMgrJournal implements BlockMgr, TransactionLifecycle
         this.readBlocks.clear() ;
         this.iteratorBlocks.clear() ;
         this.writeBlocks.clear() ;
+        this.allocatedBlocks.clear() ;
         this.freedBlocks.clear() ;
         this.writeBlockBufferAllocator.clear() ;
     }
@@ -149,6 +153,7 @@ public class BlockMgrJournal implements BlockMgr, TransactionLifecycle
         {
             block = replicate(block) ;
             writeBlocks.put(block.getId(), block) ;
+            allocatedBlocks.add(block.getId()) ;
         }
         return block ;
     }
@@ -200,6 +205,16 @@ public class BlockMgrJournal implements BlockMgr, TransactionLifecycle
         return block ;
     }
 
+    @Override
+    public void prefetch(long id)
+    {
+        checkIfClosed() ;
+        // A block changed in this transaction is already in memory.
+        if ( writeBlocks.containsKey(id) )
+            return ;
+        blockMgr.prefetch(id) ;
+    }
+
     private Block localBlock(long id)
     {
         checkIfClosed() ;
@@ -275,7 +290,7 @@ public class BlockMgrJournal implements BlockMgr, TransactionLifecycle
     public boolean valid(int id)
     {
         checkIfClosed() ;
-        if ( writeBlocks.containsKey(id) ) return true ;
+        if ( writeBlocks.containsKey((long)id) ) return true ;
         return blockMgr.valid(id) ; 
     }
 
@@ -370,6 +385,15 @@ public class BlockMgrJournal implements BlockMgr, TransactionLifecycle
         //blockMgr.endIterator(iterator) ;
     }
 
+    FileRef getFileRef()            { return fileRef ; }
+
+    /** The blocks this transaction has changed, including new ones.
+     *  Valid after commit until the transaction has been written back. */  
+    Set<Long> getWriteBlockIds()    { return writeBlocks.keySet() ; }
+
+    /** The blocks this transaction has allocated */
+    Set<Long> getAllocatedBlockIds(){ return allocatedBlocks ; }
+
     @Override
     public String toString() { return "Journal:"+fileRef.getFilename()+" ("+blockMgr.getClass().getSimpleName()+")" ; }
 
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.Map ;
+import java.util.concurrent.ConcurrentHashMap ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrWrapper ;
+import com.hp.hpl.jena.tdb.sys.FileRef ;
+
+/** The block manager of a read view that can be kept stable while committed
+ *  transactions are written back to the base files underneath it.  
+ *  Before a block is overwritten, the write-back calls {@link #preserve} so that
+ *  the view keeps its own copy of the block as it was (copy-on-write);
+ *  from then on, reads of that block are satisfied from the copy.
+ *  <p>
+ *  Shared by all the readers of the view, so it is thread-safe.
+ */
+public class BlockMgrSnapshot extends BlockMgrWrapper
+{
+    private final FileRef fileRef ;
+    private final Map<Long, Block> preImages = new ConcurrentHashMap<>() ;
+
+    public BlockMgrSnapshot(FileRef fileRef, BlockMgr blockMgr)
+    {
+        super(blockMgr) ;
+        this.fileRef = fileRef ;
+    }
+    
+    public FileRef getFileRef()     { return fileRef ; }
+
+    /** Keep the block, as this view sees it now, in case the block is about to change */ 
+    public void preserve(long id)
+    {
+        if ( preImages.containsKey(id) )
+            return ;
+        Block block = blockMgr.getRead(id) ;
+        Block copy = block.replicate() ;
+        blockMgr.release(block) ;
+        preImages.put(id, copy) ;
+    }
+
+    /** Number of blocks copied to keep this view stable */
+    public int getPreservedCount()  { return preImages.size() ; }
+    
+    @Override
+    public Block getRead(long id)
+    {
+        Block block = preImages.get(id) ;
+        if ( block != null )
+            return block ;
+        return check(blockMgr.getRead(id)) ;
+    }
+
+    @Override
+    public Block getReadIterator(long id)
+    {
+        Block block = preImages.get(id) ;
+        if ( block != null )
+            return block ;
+        return check(blockMgr.getReadIterator(id)) ;
+    }
+
+    // The block may have been preserved, and then overwritten, while it was being read:
+    // if so, the preserved copy is the one this view must see.
+    private Block check(Block block)
+    {
+        Block preImage = preImages.get(block.getId()) ;
+        if ( preImage == null )
+            return block ;
+        blockMgr.release(block) ;
+        return preImage ;
+    }
+
+    @Override
+    public void prefetch(long id)
+    {
+        if ( preImages.containsKey(id) )
+            return ;
+        blockMgr.prefetch(id) ;
+    }
+
+    @Override
+    public void release(Block block)
+    {
+        if ( preImages.get(block.getId()) == block )
+            return ;
+        blockMgr.release(block) ;
+    }
+
+    @Override
+    public String toString() { return "Snapshot:"+super.toString() ; }
+}
@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.tdb.transaction ;
 
+import java.util.HashMap ;
 import java.util.Map ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
@@ -54,11 +55,17 @@ public class DatasetBuilderTxn
     private Map<FileRef, NodeTable> nodeTables ;
     private Transaction txn ;
     private DatasetGraphTDB dsg ;
+    // Block managers of a read view that concurrent write-back keeps stable.
+    private Map<FileRef, BlockMgrSnapshot> snapshots ;
 
     public DatasetBuilderTxn(TransactionManager txnMgr) { this.txnMgr = txnMgr ; }
     
+    /** The snapshot block managers of the last read view built, by file (empty if not used) */  
+    public Map<FileRef, BlockMgrSnapshot> getSnapshots() { return snapshots ; }
+    
     public DatasetGraphTxn build(Transaction transaction, ReadWrite mode, DatasetGraphTDB dsg) {
         this.blockMgrs = dsg.getConfig().blockMgrs ;
+        this.snapshots = new HashMap<>() ;
         this.nodeTables = dsg.getConfig().nodeTables ;
         this.txn = transaction ;
         this.dsg = dsg ;
@@ -169,6 +176,12 @@ public class DatasetBuilderTxn
             BlockMgr blockMgr = blockMgrs.get(ref) ;
             if ( blockMgr == null )
                 throw new TDBException("No BlockMgr for " + ref) ;
+            if ( txnMgr != null && txnMgr.isConcurrentWriteBack() )
+            {
+                BlockMgrSnapshot snapshot = new BlockMgrSnapshot(ref, blockMgr) ;
+                snapshots.put(ref, snapshot) ;
+                blockMgr = snapshot ;
+            }
             blockMgr = new BlockMgrReadonly(blockMgr) ;
             return blockMgr ;
         }
@@ -39,6 +39,7 @@ import com.hp.hpl.jena.tdb.base.file.BufferChannelMem ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.sys.FileRef ;
 import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 /** The Journal is slightly odd - it is append-only for write but random read.
  *  The write performance is more important than read; reads only happen
@@ -71,6 +72,19 @@ class Journal implements Sync, Closeable
     private static int SizeofCRC = SizeOfInt ;
     private ByteBuffer crcTrailer = ByteBuffer.allocate(SizeofCRC) ;    // Adler: 32 bit.
     
+    // Group commit.
+    // Commit records are numbered as they are written; a sync makes all
+    // commits written before it started durable. 
+    private long commitsWritten = 0 ;                   // Guarded by this.
+    private final Object syncLock = new Object() ;
+    private long commitsSynced = 0 ;                    // Guarded by syncLock, as are the rest.
+    private boolean syncInProgress = false ;
+    private int groupCommitWindow = SystemTDB.JournalGroupCommitWindow ;
+    // Statistics.
+    private long commitSyncs = 0 ;
+    private long syncedCommits = 0 ;
+    private long maxCommitsPerSync = 0 ;
+    
     public static boolean exists(Location location)
     {
         if ( location.isMem() ) return false ;
@@ -183,6 +197,101 @@ class Journal implements Sync, Closeable
         return posn ;
     }
     
+    /** Write a commit record.
+     * @return The number of this commit, for {@link #syncCommit}.  
+     */
+    synchronized
+    public long writeCommit()
+    {
+        write(JournalEntryType.Commit, FileRef.Journal, null) ;
+        return ++commitsWritten ;
+    }
+    
+    synchronized
+    private long commitsWritten()   { return commitsWritten ; }
+    
+    /** Group commit: return when the commit with the given number is on disk.
+     * <p>
+     * If a sync is in progress, wait for it; it may cover this commit. Otherwise this
+     * thread syncs the journal for all commits written so far, after waiting up to
+     * the group commit window for more commits to join in.
+     */
+    public void syncCommit(long commitNumber)
+    {
+        synchronized (syncLock)
+        {
+            for ( ;; )
+            {
+                if ( commitsSynced >= commitNumber )
+                    return ;
+                if ( ! syncInProgress )
+                    break ;
+                waitSync(0) ;
+            }
+            syncInProgress = true ;
+            try {
+                if ( groupCommitWindow > 0 )
+                    // Releases syncLock: committers arriving now wait for this sync.
+                    waitSync(groupCommitWindow) ;
+            } catch (RuntimeException ex) {
+                syncInProgress = false ;
+                syncLock.notifyAll() ;
+                throw ex ;
+            }
+        }
+        
+        try { sync() ; }
+        finally {
+            synchronized (syncLock)
+            {
+                // On error, waiting committers find this did not cover them and try again.
+                syncInProgress = false ;
+                syncLock.notifyAll() ;
+            }
+        }
+    }
+    
+    // Called holding syncLock.
+    private void waitSync(long millis)
+    {
+        try { syncLock.wait(millis) ; }
+        catch (InterruptedException ex)
+        { throw new TDBTransactionException("Interrupted waiting for the journal to sync", ex) ; }
+    }
+    
+    /** Group commit window, in milliseconds, or -1 for no group commit */
+    public int getGroupCommitWindow()
+    {
+        synchronized (syncLock) { return groupCommitWindow ; }
+    }
+    
+    /** Set the group commit window, in milliseconds, or -1 for no group commit */
+    public void setGroupCommitWindow(int millis)
+    {
+        synchronized (syncLock) { groupCommitWindow = millis ; }
+    }
+    
+    /** Whether committers share journal syncs (see {@link #syncCommit}) */
+    public boolean isGroupCommit()      { return getGroupCommitWindow() >= 0 ; }
+    
+    /** Number of journal syncs that made at least one commit durable */
+    public long getCommitSyncCount()
+    {
+        synchronized (syncLock) { return commitSyncs ; }
+    }
+    
+    /** Number of commits made durable by journal syncs; divide by {@link #getCommitSyncCount()} for the average batch size. */ 
+    public long getSyncedCommitCount()
+    {
+        synchronized (syncLock) { return syncedCommits ; }
+    }
+    
+    /** Largest number of commits made durable by one journal sync */
+    public long getMaxCommitsPerSync()
+    {
+        synchronized (syncLock) { return maxCommitsPerSync ; }
+    }
+    
     synchronized
     public JournalEntry readJournal(long id)
     {
@@ -286,7 +395,22 @@ class Journal implements Sync, Closeable
     }
 
     @Override
-    public void sync()  { channel.sync() ; }
+    public void sync()
+    {
+        long target = commitsWritten() ;
+        channel.sync() ;
+        synchronized (syncLock)
+        {
+            if ( target > commitsSynced )
+            {
+                long n = target - commitsSynced ;
+                commitSyncs++ ;
+                syncedCommits += n ;
+                maxCommitsPerSync = Math.max(maxCommitsPerSync, n) ;
+                commitsSynced = target ;
+            }
+        }
+    }
 
     @Override
     public void close() { channel.close() ; }
@@ -22,7 +22,9 @@ import static org.apache.jena.atlas.logging.FmtLog.warn ;
 import static org.apache.jena.atlas.logging.Log.warn ;
 
 import java.nio.ByteBuffer ;
+import java.util.ArrayList ;
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.ByteBufferLib ;
@@ -36,10 +38,13 @@ import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
 import com.hp.hpl.jena.tdb.base.record.Record ;
 import com.hp.hpl.jena.tdb.index.Index ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeEncoding ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableCache ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableInline ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableLib ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableNative ;
+import com.hp.hpl.jena.tdb.store.nodetable.Nodec ;
 
 public class NodeTableTrans implements NodeTable, TransactionLifecycle
 {
@@ -48,9 +53,11 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
     private final NodeTable base ;
     private long allocOffset ;
     
-    private NodeTable nodeTableJournal = null ;
+    // Readers of views built on a committed transaction use this object
+    // while the transaction is enacted and cleared up. 
+    private volatile NodeTable nodeTableJournal = null ;
     private static int CacheSize = 10000 ;      // [TxTDB:TODO] Make configurable 
-    private boolean passthrough = false ;
+    private volatile boolean passthrough = false ;
     
     private Index nodeIndex ;
     private ObjectFile journalObjFile ;
@@ -118,6 +125,32 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
         return node ;
     }
 
+    @Override
+    public List<Node> getNodesForNodeIds(List<NodeId> ids)
+    {
+        // The ids for the base table are looked up in one batch.
+        // The journal table is small and cached so ids are looked up one at a time.
+        List<NodeId> baseIds = new ArrayList<>(ids.size()) ;
+        for ( NodeId id : ids )
+        {
+            if ( ! NodeId.isAny(id) && ( passthrough || id.getId() < allocOffset ) )
+                baseIds.add(id) ;
+        }
+        List<Node> baseNodes = base.getNodesForNodeIds(baseIds) ;
+        List<Node> nodes = new ArrayList<>(ids.size()) ;
+        int j = 0 ;
+        for ( NodeId id : ids )
+        {
+            if ( NodeId.isAny(id) )
+                nodes.add(Node.ANY) ;
+            else if ( passthrough || id.getId() < allocOffset )
+                nodes.add(baseNodes.get(j++)) ;
+            else
+                nodes.add(nodeTableJournal.getNodeForNodeId(mapToJournal(id))) ;
+        }
+        return nodes ;
+    }
+
     @Override
     public boolean containsNode(Node node) {
         NodeId x = getNodeIdForNode(node) ;
@@ -190,7 +223,10 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
             warn(log, "%s journalStartOffset not zero: %d/0x%02X",txn.getLabel(), journalObjFileStartOffset, journalObjFileStartOffset) ;
         allocOffset += journalObjFileStartOffset ;
         
-        this.nodeTableJournal = new NodeTableNative(nodeIndex, journalObjFile) ;
+        // The journal must encode nodes exactly as the base table will when they are appended.
+        NodeTableNative baseNative = NodeTableLib.findNative(base) ;
+        Nodec nodec = ( baseNative != null ) ? baseNative.getNodec() : NodeEncoding.sse.create() ;
+        this.nodeTableJournal = new NodeTableNative(nodeIndex, journalObjFile, nodec) ;
         this.nodeTableJournal = NodeTableCache.create(nodeTableJournal, CacheSize, CacheSize, 100) ;
         // This class knows about non-mappable inline values.   mapToJournal(NodeId)/mapFromJournal. 
         this.nodeTableJournal = NodeTableInline.create(nodeTableJournal) ;
@@ -354,8 +390,9 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
     
     private void finish()
     {
-        close() ;
+        // Switch before releasing the journal table; see nodeTableJournal.
         passthrough = true ;
+        close() ;
         nodeTableJournal = null ;
         journalObjFile = null ;
    }
@@ -363,14 +400,20 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
     @Override
     public Iterator<Pair<NodeId, Node>> all()
     {
+        NodeTable journal = nodeTableJournal ;
+        if ( passthrough || journal == null )
+            return base.all() ;
         // Better would be to convert the spill file format.
-        return Iter.concat(base.all(), nodeTableJournal.all()) ;
+        return Iter.concat(base.all(), journal.all()) ;
     }
 
     @Override
     public boolean isEmpty()
     {
-        return nodeTableJournal.isEmpty() && base.isEmpty() ;
+        NodeTable journal = nodeTableJournal ;
+        if ( passthrough || journal == null )
+            return base.isEmpty() ;
+        return journal.isEmpty() && base.isEmpty() ;
     }
 
     @Override
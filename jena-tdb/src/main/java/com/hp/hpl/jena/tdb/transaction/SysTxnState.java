@@ -26,6 +26,9 @@ public class SysTxnState
     final public long committedWriters ;
     final public long abortedWriters ;
     final public long queuedCommits ;
+    final public long writeBackFailures ;
+    final public long awaitingSync ;
+    final public long syncFailures ;
     
     SysTxnState(TransactionManager tm)
     {
@@ -35,6 +38,9 @@ public class SysTxnState
         committedWriters = tm.committedWriters.get() ;
         abortedWriters = tm.abortedWriters.get() ;
         queuedCommits = tm.commitedAwaitingFlush.size() ;
+        writeBackFailures = tm.writeBackFailures ;
+        awaitingSync = tm.awaitingSync.size() ;
+        syncFailures = tm.syncFailures ;
     }
     
     @Override
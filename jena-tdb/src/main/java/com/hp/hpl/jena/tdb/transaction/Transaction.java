@@ -26,7 +26,6 @@ import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
-import com.hp.hpl.jena.tdb.sys.FileRef ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 /** A transaction.  Much of the work is done in the transaction manager */
@@ -52,6 +51,8 @@ public class Transaction
     private TxnOutcome outcome ;
     
     private boolean changesPending ;
+    // Group commit : committed but the commit record may not be on disk yet.
+    private volatile boolean awaitingSync = false ;
     
     public Transaction(DatasetGraphTDB dsg, ReadWrite mode, long id, String label, TransactionManager txnMgr) {
         this.id = id ;
@@ -91,9 +92,17 @@ public class Transaction
      * Synchronization note: The transaction manager can call back into a
      * transaction so make sure that the lock for this object is released before
      * calling into the transaction manager
+     * 
+     * Group commit: the journal sync is done after the transaction manager has
+     * been notified, so the next writer can proceed and share the sync (see
+     * Journal.syncCommit). Until the sync returns, the transaction manager does not
+     * write the transaction back to the base data and new readers do not see it;
+     * only later writers, whose commits can not be on disk without this one, build on it.
+     * commit() does not return until the commit record is on disk.
      */
     
     public void commit() {
+        long groupCommit = -1 ;
         synchronized (this) {
             // Do prepare, write the COMMIT record.
             // Enacting is left to the TransactionManager.
@@ -126,8 +135,14 @@ public class Transaction
                     // ---- end prepare
                     
                     try {
-                        journal.write(JournalEntryType.Commit, FileRef.Journal, null) ;
-                        journal.sync() ;        // Commit point.
+                        long commitNumber = journal.writeCommit() ;
+                        if ( journal.isGroupCommit() )
+                        {
+                            groupCommit = commitNumber ;
+                            awaitingSync = true ;
+                        }
+                        else
+                            journal.sync() ;        // Commit point.
                     } catch (RuntimeException ex) {
                         // It either did all commit or didn't but we don't know which.
                         // Some low level system error - probably a sign of something
@@ -154,6 +169,20 @@ public class Transaction
                 SystemTDB.errlog.warn("Exception after commit point : transaction commited but internal status not recorded properly", ex) ;
             throw new TDBTransactionException("Exception after commit point - transaction did commit", ex) ;
         }
+        
+        if ( groupCommit >= 0 ) {
+            try { journal.syncCommit(groupCommit) ; }     // Commit point.
+            catch (RuntimeException ex) {
+                // Do not leave the transaction waiting for a sync that may never come.
+                txnMgr.notifySyncFailed(this) ;
+                if ( isIOException(ex) )
+                    SystemTDB.errlog.warn("IOException during 'commit' : transaction status not known (but not a partial commit): "+ex.getMessage()) ;
+                else
+                    SystemTDB.errlog.warn("Exception during 'commit' : transaction status not known (but not a partial commit): ",ex) ;
+                throw new TDBTransactionException("Exception at commit point", ex) ;
+            }
+            txnMgr.notifySynced(this) ;
+        }
     }
     
     private boolean isIOException(Throwable ex) {
@@ -250,6 +279,14 @@ public class Transaction
         txnMgr.notifyClose(this) ;
     }
     
+    /** Group commit : the commit record has been written to the journal
+     *  but the journal sync that makes it durable has not finished.
+     *  Readers do not see the transaction and it is not written back until then.
+     */
+    /*package*/ boolean isAwaitingSync()            { return awaitingSync ; }
+    
+    /*package*/ void signalSynced()                 { awaitingSync = false ; }
+    
     /** A write transaction has been processed and all chanages propagated back to the database */  
     /*package*/ void signalEnacted()
     {
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.Pair ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
+
+/** Record the changes made by one write transaction so they can be passed on
+ *  if, and when, it commits. Any other monitor of the transaction storage is
+ *  kept and is told of the changes as they happen.
+ *  At most {@code limit} changes are kept; after that, none are.
+ */
+class TransactionChanges implements DatasetChanges
+{
+    private final DatasetChanges other ;
+    private final int limit ;
+    // Null after too many changes.
+    private List<Pair<QuadAction, Quad>> actions = new ArrayList<>() ;
+    
+    TransactionChanges(DatasetChanges other, int limit)
+    {
+        this.other = other ;
+        this.limit = limit ;
+    }
+    
+    /** The monitor that was already in place, or null */
+    DatasetChanges getOther()   { return other ; }
+    
+    /** Whether there were too many changes to keep */
+    boolean overflowed()        { return actions == null ; }
+
+    @Override
+    public void start()
+    {
+        if ( other != null )
+            other.start() ;
+    }
+
+    @Override
+    public void change(QuadAction qaction, Node g, Node s, Node p, Node o)
+    {
+        if ( actions != null )
+        {
+            if ( actions.size() >= limit )
+                actions = null ;
+            else
+                actions.add(Pair.create(qaction, new Quad(g, s, p, o))) ;
+        }
+        if ( other != null )
+            other.change(qaction, g, s, p, o) ;
+    }
+
+    @Override
+    public void finish()
+    {
+        if ( other != null )
+            other.finish() ;
+    }
+    
+    /** Pass on the changes, in the order they were made. Not called after an overflow. */
+    void send(DatasetChanges dest)
+    {
+        dest.start() ;
+        for ( Pair<QuadAction, Quad> p : actions )
+        {
+            Quad q = p.getRight() ;
+            dest.change(p.getLeft(), q.getGraph(), q.getSubject(), q.getPredicate(), q.getObject()) ;
+        }
+        dest.finish() ;
+        actions.clear() ;
+    }
+}
@@ -66,4 +66,19 @@ public class TransactionInfo implements TransactionInfoMBean {
 		return transactionManager.activeReaders.get() ;
 	}
 
+	@Override
+	public long getJournalCommitSyncCount() {
+		return transactionManager.getJournal().getCommitSyncCount() ;
+	}
+
+	@Override
+	public long getJournalSyncedCommitCount() {
+		return transactionManager.getJournal().getSyncedCommitCount() ;
+	}
+
+	@Override
+	public long getJournalMaxCommitsPerSync() {
+		return transactionManager.getJournal().getMaxCommitsPerSync() ;
+	}
+
 }
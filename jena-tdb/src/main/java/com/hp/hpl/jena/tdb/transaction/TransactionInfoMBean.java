@@ -44,4 +44,13 @@ public interface TransactionInfoMBean
 
     /** Number of read transactions executing */
     long getCurrentReadTransactionCount() ; 
+
+    /** Number of journal syncs that made commits durable */
+    long getJournalCommitSyncCount() ;
+
+    /** Number of commits made durable by journal syncs (more than the sync count if commits were grouped) */
+    long getJournalSyncedCommitCount() ;
+
+    /** Largest number of commits made durable by a single journal sync */
+    long getJournalMaxCommitsPerSync() ;
 }
@@ -25,8 +25,12 @@ import static java.lang.String.format ;
 
 import java.io.File ;
 import java.util.ArrayList ;
+import java.util.HashMap ;
 import java.util.HashSet ;
+import java.util.IdentityHashMap ;
+import java.util.Iterator ;
 import java.util.List ;
+import java.util.Map ;
 import java.util.Set ;
 import java.util.concurrent.BlockingQueue ;
 import java.util.concurrent.LinkedBlockingDeque ;
@@ -41,7 +45,15 @@ import org.slf4j.LoggerFactory ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.shared.Lock ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSets ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSetsTracker ;
+import com.hp.hpl.jena.tdb.solver.stats.ReorderCharacteristicSets ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.sys.FileRef ;
+import com.hp.hpl.jena.tdb.sys.Names ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 public class TransactionManager
@@ -76,6 +88,42 @@ public class TransactionManager
         return 0 ;
     }
     
+    /** Write committed transactions back to the base dataset on a background thread,
+     *  instead of on the thread that finishes a transaction. Write-back is still a replay
+     *  of the whole journal in one go, not block by block, and it still starts at a moment
+     *  with no active transactions (see {@link #ConcurrentWriteBack} to let readers run).
+     *  The journal is replayed without holding the lock on the TransactionManager:
+     *  new readers can start meanwhile; new writers wait.
+     *  Read when a TransactionManager is created.
+     */
+    public static boolean BackgroundWriteBack = false ;
+    
+    /** With background write-back, when this many committed transactions are waiting
+     *  to be written back, new transactions, readers as well as writers, wait until
+     *  they have been. This bounds the size of the journal, and of each write-back,
+     *  under a continuous read load that never leaves a moment with no active transactions.
+     */
+    public static int WriteBackQueueLimit = 100 ;
+    
+    /** Write committed transactions back to the base dataset while there are active
+     *  read transactions, instead of waiting for a moment with no readers.
+     *  Before blocks are overwritten, each read view in use is given its own copy
+     *  of the blocks it can see (copy-on-write) so every reader keeps a stable snapshot.
+     *  With background write-back, new read transactions can also start while the
+     *  journal is being written back; new write transactions wait.
+     *  Not used for memory mapped files, where a block is changed in-place.
+     *  Read when a TransactionManager is created.
+     */
+    public static boolean ConcurrentWriteBack = false ;
+    
+    /** With background write-back, the delay before retrying after a failed write-back.
+     *  It doubles after each consecutive failure, up to {@link #WriteBackRetryMaxMillis}.
+     */
+    public static long WriteBackRetryMillis = 100 ;
+    
+    /** The longest delay between retries of a failing background write-back. */ 
+    public static long WriteBackRetryMaxMillis = 10*1000 ;
+    
     enum TxnPoint { BEGIN, COMMIT, ABORT, CLOSE, QUEUE, UNQUEUE }
     private List<Pair<Transaction, TxnPoint>> transactionStateTransition ;
     
@@ -90,6 +138,10 @@ public class TransactionManager
     
     int maxQueue = 0 ;
     List<Transaction> commitedAwaitingFlush = new ArrayList<>() ;
+    // Group commit : the committed transactions, at the end of commitedAwaitingFlush,
+    // whose commit records may not be on disk yet. They are not written back, and new
+    // readers do not see them, until a journal sync covers them.  
+    List<Transaction> awaitingSync = new ArrayList<>() ;
     
     static AtomicLong transactionId = new AtomicLong(1) ;
     
@@ -114,10 +166,29 @@ public class TransactionManager
     
     // Ensure single writer.
     private Semaphore writersWaiting = new Semaphore(1, true) ;
+    
+    // Statistics maintained as write transactions commit, or null. 
+    private CharacteristicSets onlineStats = null ;
+    // Told of the changes of each write transaction as it commits, or null.
+    private DatasetChanges commitListener = null ;
+    private int commitListenerLimit = Integer.MAX_VALUE ;
     // Delayes enacting transactions.
     private BlockingQueue<Transaction> queue = new LinkedBlockingDeque<>() ;
 
-    private Thread committerThread ;    // Later
+    // Background write-back; null if not in use.
+    private Thread committerThread = null ;
+    private final boolean backgroundWriteBack ;
+    private boolean stopping = false ;
+    // Background write-backs that failed; accessed holding the lock.
+    long writeBackFailures = 0 ;
+    // Group commit syncs that failed; accessed holding the lock.
+    long syncFailures = 0 ;
+    
+    // Concurrent write-back: the read views, and the number of active readers of each.
+    private final boolean concurrentWriteBack ;
+    private final Map<DatasetGraphTDB, ReaderView> readerViews = new IdentityHashMap<>() ;
+    // Set while the background write-back replays the journal without holding the lock.
+    private boolean writeBackActive = false ;
 
     private DatasetGraphTDB baseDataset ;
     private Journal journal ;
@@ -269,17 +340,52 @@ public class TransactionManager
     {
         this.baseDataset = dsg ; 
         this.journal = Journal.create(dsg.getLocation()) ;
-        // LATER
-//        Committer c = new Committer() ;
-//        this.committerThread = new Thread(c) ;
-//        committerThread.setDaemon(true) ;
-//        committerThread.start() ;
+        if ( TDB.getContext().isTrue(TDB.symStatsOnline) && dsg.getReorderTransform() instanceof ReorderCharacteristicSets )
+            this.onlineStats = ((ReorderCharacteristicSets)dsg.getReorderTransform()).getStats() ;
+        this.backgroundWriteBack = BackgroundWriteBack ;
+        this.concurrentWriteBack = ConcurrentWriteBack && ! isMapped(dsg) ;
+        if ( backgroundWriteBack )
+        {
+            Committer c = new Committer() ;
+            this.committerThread = new Thread(c, "TDB write-back: "+dsg.getLocation().getDirectoryPath()) ;
+            committerThread.setDaemon(true) ;
+            committerThread.start() ;
+        }
+    }
+
+    private static boolean isMapped(DatasetGraphTDB dsg)
+    {
+        if ( dsg.getLocation().isMem() )
+            return false ;
+        FileMode fileMode = dsg.getConfig().params.getFileMode() ;
+        if ( fileMode == null )
+            fileMode = SystemTDB.fileMode() ;
+        return fileMode == FileMode.mapped ;
+    }
+    
+    /** Whether write-back can happen while there are readers */ 
+    public boolean isConcurrentWriteBack()
+    {
+        return concurrentWriteBack ;
     }
 
     public void closedown()
     {
+        if ( committerThread != null )
+        {
+            synchronized(this)
+            {
+                stopping = true ;
+                notifyAll() ;
+            }
+            try { committerThread.join() ; }
+            catch (InterruptedException ex) { log.warn("Interrupted waiting for the write-back thread to finish") ; }
+            committerThread = null ;
+        }
         processDelayedReplayQueue(null) ;
         journal.close() ;
+        if ( onlineStats != null && onlineStats.resetChanged() && ! baseDataset.getLocation().isMem() )
+            onlineStats.write(baseDataset.getLocation().getPath(Names.optCharSets)) ;
     }
 
     public DatasetGraphTxn begin(ReadWrite mode)
@@ -323,6 +429,11 @@ public class TransactionManager
     {
         if ( mode == ReadWrite.WRITE && activeWriters.get() > 0 )    // Guard
             throw new TDBTransactionException("Existing active write transaction") ;
+        
+        if ( backgroundWriteBack )
+            awaitWriteBack(mode) ;
+        
+        Transaction basedOn = null ;
 
         if ( DEBUG ) 
             switch ( mode )
@@ -333,10 +444,15 @@ public class TransactionManager
         
         DatasetGraphTDB dsg = baseDataset ;
         // *** But, if there are pending, committed transactions, use latest.
-        if ( ! commitedAwaitingFlush.isEmpty() )
+        // Readers only see transactions known to be on disk.
+        int pending = commitedAwaitingFlush.size() ;
+        if ( mode == ReadWrite.READ )
+            pending -= awaitingSync.size() ;
+        if ( pending > 0 )
         {  
-            if ( DEBUG ) System.out.print(commitedAwaitingFlush.size()) ;
-            dsg = commitedAwaitingFlush.get(commitedAwaitingFlush.size()-1).getActiveDataset().getView() ;
+            if ( DEBUG ) System.out.print(pending) ;
+            basedOn = commitedAwaitingFlush.get(pending-1) ;
+            dsg = basedOn.getActiveDataset().getView() ;
         }
         else 
         {
@@ -346,7 +462,7 @@ public class TransactionManager
         
         log("begin$", txn) ;
         
-        DatasetGraphTxn dsgTxn = createDSGTxn(dsg, txn, mode) ;
+        DatasetGraphTxn dsgTxn = createDSGTxn(dsg, txn, mode, basedOn) ;
 
         txn.setActiveDataset(dsgTxn) ;
 
@@ -367,13 +483,31 @@ public class TransactionManager
         return dsgTxn ;
     }
 
+    // Called holding the lock on this object.
+    // Too many transactions waiting for write-back: hold back new transactions
+    // until the write-back thread has found a gap between the active ones.
+    private void awaitWriteBack(ReadWrite mode)
+    {
+        // The journal is being written back: writers wait until it is done.
+        while ( ( queue.size() >= WriteBackQueueLimit || ( writeBackActive && mode == ReadWrite.WRITE ) ) && ! stopping )
+        {
+            try { wait() ; }
+            catch (InterruptedException ex)
+            {
+                if ( mode == ReadWrite.WRITE )
+                    writersWaiting.release() ;
+                throw new TDBTransactionException("Interrupted waiting for write-back", ex) ;
+            }
+        }
+    }
+
     private Transaction createTransaction(DatasetGraphTDB dsg, ReadWrite mode, String label)
     {
         Transaction txn = new Transaction(dsg, mode, transactionId.getAndIncrement(), label, this) ;
         return txn ;
     }
 
-    private DatasetGraphTxn createDSGTxn(DatasetGraphTDB dsg, Transaction txn, ReadWrite mode)
+    private DatasetGraphTxn createDSGTxn(DatasetGraphTDB dsg, Transaction txn, ReadWrite mode, Transaction basedOn)
     {
         // A read transaction (if it has no lifecycle components) can be shared over all
         // read transactions at the same commit level. 
@@ -387,19 +521,126 @@ public class TransactionManager
             {
                 // No components so we don't need to notify them.
                 // We can just reuse the storage dataset.
+                readerViewStarts(dsgCached) ;
                 return new DatasetGraphTxn(dsgCached, txn) ;
             }
         }
         
-        DatasetGraphTxn dsgTxn = new DatasetBuilderTxn(this).build(txn, mode, dsg) ;
+        DatasetBuilderTxn builder = new DatasetBuilderTxn(this) ;
+        DatasetGraphTxn dsgTxn = builder.build(txn, mode, dsg) ;
+        if ( mode == ReadWrite.WRITE && onlineStats != null )
+            dsgTxn.getView().setMonitor(new CharacteristicSetsTracker(onlineStats, dsgTxn.getView())) ;
+        if ( mode == ReadWrite.WRITE && commitListener != null )
+            dsgTxn.getView().setMonitor(new TransactionChanges(dsgTxn.getView().getMonitor(), commitListenerLimit)) ;
         if ( mode == ReadWrite.READ )
         {
             // If a READ transaction, cache the storage view.
             // This is cleared when a WRITE commits
             currentReaderView.set(dsgTxn.getView());
+            if ( concurrentWriteBack )
+            {
+                readerViews.put(dsgTxn.getView(), new ReaderView(basedOn, builder.getSnapshots())) ;
+                readerViewStarts(dsgTxn.getView()) ;
+            }
         }
         return dsgTxn ;
     }
+    
+    // ---- Read views for concurrent write-back.
+    
+    /** A read view, the committed transaction it was built on (null for the base dataset)
+     *  and the block managers that keep it stable.
+     */
+    private static class ReaderView
+    {
+        final Transaction basedOn ;
+        final Map<FileRef, BlockMgrSnapshot> snapshots ;
+        int readers = 0 ;
+        
+        ReaderView(Transaction basedOn, Map<FileRef, BlockMgrSnapshot> snapshots)
+        {
+            this.basedOn = basedOn ;
+            this.snapshots = snapshots ;
+        }
+    }
+    
+    private void readerViewStarts(DatasetGraphTDB view)
+    {
+        ReaderView rv = readerViews.get(view) ;
+        if ( rv != null )
+            rv.readers++ ;
+    }
+
+    private void readerViewFinishes(Transaction txn)
+    {
+        if ( ! concurrentWriteBack || txn.getActiveDataset() == null )
+            return ;
+        ReaderView rv = readerViews.get(txn.getActiveDataset().getView()) ;
+        if ( rv != null )
+            rv.readers-- ;
+        dropIdleReaderViews() ;
+    }
+
+    // Forget the views that no reader uses now and no new reader will use.
+    private void dropIdleReaderViews()
+    {
+        if ( readerViews.isEmpty() )
+            return ;
+        DatasetGraphTDB current = currentReaderView.get() ;
+        Iterator<Map.Entry<DatasetGraphTDB, ReaderView>> iter = readerViews.entrySet().iterator() ;
+        while ( iter.hasNext() )
+        {
+            Map.Entry<DatasetGraphTDB, ReaderView> e = iter.next() ;
+            if ( e.getValue().readers <= 0 && e.getKey() != current )
+                iter.remove() ;
+        }
+    }
+    
+    /** Copy-on-write for a write-back of the given transactions (in commit order).
+     *  Every read view in use gets its own copy of each block that is about to be
+     *  overwritten, as the view sees it now.  Blocks allocated by transactions that
+     *  committed after the view was created are not part of the view and are skipped.
+     */
+    private void preserveReaderViews(List<Transaction> batch)
+    {
+        for ( ReaderView rv : readerViews.values() )
+        {
+            if ( rv.readers <= 0 )
+                continue ;
+            boolean later = ( rv.basedOn == null || ! batch.contains(rv.basedOn) ) ;
+            Map<FileRef, Set<Long>> unseen = new HashMap<>() ;
+            for ( Transaction txn : batch )
+            {
+                for ( TransactionLifecycle component : txn.lifecycleComponents() )
+                {
+                    if ( ! ( component instanceof BlockMgrJournal ) )
+                        continue ;
+                    BlockMgrJournal blkMgr = (BlockMgrJournal)component ;
+                    BlockMgrSnapshot snapshot = rv.snapshots.get(blkMgr.getFileRef()) ;
+                    if ( snapshot == null )
+                        // Not while there are readers (readerViewsCovered).
+                        throw new TDBTransactionException("No snapshot for "+blkMgr.getFileRef()) ;
+                    Set<Long> notInView = unseen.get(blkMgr.getFileRef()) ;
+                    if ( later )
+                    {
+                        if ( notInView == null )
+                        {
+                            notInView = new HashSet<>() ;
+                            unseen.put(blkMgr.getFileRef(), notInView) ;
+                        }
+                        notInView.addAll(blkMgr.getAllocatedBlockIds()) ;
+                    }
+                    for ( Long id : blkMgr.getWriteBlockIds() )
+                    {
+                        if ( notInView == null || ! notInView.contains(id) )
+                            snapshot.preserve(id) ;
+                    }
+                }
+                if ( txn == rv.basedOn )
+                    later = true ;
+            }
+        }
+    }
 
     /* Signal a transaction has commited.  The journal has a commit record
      * and a sync to disk. The code here manages the inter-transaction stage
@@ -412,6 +653,14 @@ public class TransactionManager
         if ( ! activeTransactions.contains(transaction) )
             SystemTDB.errlog.warn("Transaction not active: "+transaction.getTxnId()) ;
         
+        // Before the changes are written back and the transaction storage is released.
+        if ( transaction.getMode() == ReadWrite.WRITE )
+        {
+            sendChanges(transaction) ;
+            updateStatistics(transaction) ;
+            if ( transaction.isAwaitingSync() )
+                awaitingSync.add(transaction) ;
+        }
         noteTxnCommit(transaction) ;
 
         switch ( transaction.getMode() )
@@ -419,10 +668,46 @@ public class TransactionManager
             case READ: break ;
             case WRITE:
                 currentReaderView.set(null) ;       // Clear the READ transaction cache.
+                dropIdleReaderViews() ;
                 writersWaiting.release() ;          // Single writer: let another (waiting?) writer have a turn.
         }
     }
 
+    /* Group commit : signal the commit record of a transaction is on disk.
+     * So are those of all the transactions that committed before it.
+     */
+    synchronized
+    public void notifySynced(Transaction transaction)
+    {
+        synced(transaction) ;
+    }
+
+    /* Group commit : the sync of the journal for a transaction failed.
+     * Its commit record is in the journal but may not be on disk. It is
+     * treated as synced, as are the transactions before it, else it would hold
+     * up write-back for ever: write-back syncs the base files and makes it durable.
+     */
+    synchronized
+    public void notifySyncFailed(Transaction transaction)
+    {
+        syncFailures++ ;
+        synced(transaction) ;
+    }
+
+    private void synced(Transaction transaction)
+    {
+        int idx = awaitingSync.indexOf(transaction) ;
+        for ( int i = 0 ; i <= idx ; i++ )
+            awaitingSync.remove(0).signalSynced() ;
+        transaction.signalSynced() ;
+        // New readers can now see it.
+        currentReaderView.set(null) ;
+        if ( backgroundWriteBack )
+            signalWriteBack() ;
+        else if ( queue.size() >= QueueBatchSize )
+            processDelayedReplayQueue(transaction) ;
+    }
+
     synchronized
     public void notifyAbort(Transaction transaction)
     {
@@ -439,6 +724,62 @@ public class TransactionManager
         }
     }
     
+    /** Set the listener to be told of the changes made by each write transaction
+     *  that starts after this call, when, and if, it commits. The changes of one
+     *  transaction are sent between {@code start()} and {@code finish()}, in the order
+     *  they were made, holding the lock on this TransactionManager. Null for none.
+     *  <p>
+     *  Each transaction holds its changes in memory until it commits. If one makes more
+     *  than {@code maxChanges} changes, or they can not be sent, the listener is removed
+     *  (see {@link #getCommitListener}) rather than miss changes.
+     */
+    synchronized
+    public void setCommitListener(DatasetChanges listener, int maxChanges)
+    {
+        commitListener = listener ;
+        commitListenerLimit = maxChanges ;
+    }
+    
+    /** The listener for the changes of committed transactions, or null. */
+    synchronized
+    public DatasetChanges getCommitListener()
+    {
+        return commitListener ;
+    }
+    
+    private void sendChanges(Transaction transaction)
+    {
+        DatasetGraphTxn dsgTxn = transaction.getActiveDataset() ;
+        if ( dsgTxn == null || ! ( dsgTxn.getView().getMonitor() instanceof TransactionChanges ) )
+            return ;
+        TransactionChanges changes = (TransactionChanges)dsgTxn.getView().getMonitor() ;
+        dsgTxn.getView().setMonitor(changes.getOther()) ;
+        if ( commitListener == null )
+            return ;
+        if ( changes.overflowed() )
+        {
+            log.warn("Too many changes in one transaction to pass on: commit listener removed") ;
+            commitListener = null ;
+            return ;
+        }
+        try { changes.send(commitListener) ; }
+        catch (RuntimeException ex)
+        {
+            log.warn("Failed to pass on the changes after commit: commit listener removed", ex) ;
+            commitListener = null ;
+        }
+    }
+    
+    private void updateStatistics(Transaction transaction)
+    {
+        DatasetGraphTxn dsgTxn = transaction.getActiveDataset() ;
+        if ( dsgTxn == null || ! ( dsgTxn.getView().getMonitor() instanceof CharacteristicSetsTracker ) )
+            return ;
+        try { ((CharacteristicSetsTracker)dsgTxn.getView().getMonitor()).apply() ; }
+        catch (RuntimeException ex)
+        { log.warn("Failed to update statistics after commit", ex) ; }
+    }
+
     /** The stage in a commit after committing - make the changes permanent in the base data */ 
     private void enactTransaction(Transaction transaction)
     {
@@ -464,19 +805,31 @@ public class TransactionManager
     
     private void readerFinishesWorker(Transaction txn)
     {
-        if ( queue.size() >= QueueBatchSize )
+        readerViewFinishes(txn) ;
+        if ( backgroundWriteBack )
+            signalWriteBack() ;
+        else if ( queue.size() >= QueueBatchSize )
             processDelayedReplayQueue(txn) ;
     }
     
     private void writerAbortsWorker(Transaction txn)
     {
-        if ( queue.size() >= QueueBatchSize )
+        if ( backgroundWriteBack )
+            signalWriteBack() ;
+        else if ( queue.size() >= QueueBatchSize )
             processDelayedReplayQueue(txn) ;
     }
     
+    // Called holding the lock on this object. 
+    private void signalWriteBack()
+    {
+        if ( queue.size() > 0 )
+            notifyAll() ;
+    }
+    
     private void writerCommitsWorker(Transaction txn)
     {
-        if ( activeReaders.get() == 0 && queue.size() >= QueueBatchSize )
+        if ( ! backgroundWriteBack && ! txn.isAwaitingSync() && activeReaders.get() == 0 && queue.size() >= QueueBatchSize )
         {
             // Can commit immediately.
             // Ensure the queue is empty though.
@@ -500,6 +853,11 @@ public class TransactionManager
             maxQueue = Math.max(commitedAwaitingFlush.size(), maxQueue) ;
             if ( log() ) log("Add to pending queue", txn) ; 
             queue.add(txn) ;
+            if ( backgroundWriteBack )
+                signalWriteBack() ;
+            else if ( concurrentWriteBack && queue.size() > QueueBatchSize )
+                // Readers are active but they do not hold up write-back.
+                processDelayedReplayQueue(txn) ;
         }
 
     }
@@ -507,7 +865,7 @@ public class TransactionManager
     private void processDelayedReplayQueue(Transaction txn)
     {
         // Can we do work?
-        if ( activeReaders.get() != 0 || activeWriters.get() != 0 )
+        if ( ! writeBackPossible() )
         {
             if ( queue.size() > 0 && log() )
                 log(format("Pending transactions: R=%s / W=%s", activeReaders, activeWriters), txn) ;
@@ -533,40 +891,114 @@ public class TransactionManager
         // against the updated database.
         currentReaderView.set(null) ;
         
+        if ( activeReaders.get() != 0 )
+            preserveReaderViews(new ArrayList<>(queue)) ;
+
+        checkReplaySafe() ;
+        if ( DEBUG ) checkNodesDatJrnl("2", txn) ;
+
+        // Whole journal to base database. If this fails, the transactions
+        // stay queued, and in the journal, for the next attempt.
+        JournalControl.replay(journal, baseDataset) ;
+
+        if ( DEBUG ) checkNodesDatJrnl("3", txn) ;
+        
         while ( queue.size() > 0 )
         {
-            // Currently, replay is replay everything
-            // so looping on a per-transaction basis is
-            // pointless but harmless.  
-            
             try {
                 Transaction txn2 = queue.take() ;
                 if ( txn2.getMode() == ReadWrite.READ )
                     continue ;
                 if ( log() )
                     log("  Flush delayed commit of "+txn2.getLabel(), txn) ;
-                if ( DEBUG ) checkNodesDatJrnl("2", txn) ;
-                checkReplaySafe() ;
                 enactTransaction(txn2) ;
                 commitedAwaitingFlush.remove(txn2) ;
             } catch (InterruptedException ex)
             { Log.fatal(this, "Interruped!", ex) ; }
         }
 
-        checkReplaySafe() ;
-        if ( DEBUG ) checkNodesDatJrnl("3", txn) ;
-
-        // Whole journal to base database
-        JournalControl.replay(journal, baseDataset) ;
-
         if ( DEBUG ) checkNodesDatJrnl("4", txn) ;
         
         checkReplaySafe() ;
+        dropIdleReaderViews() ;
         if ( log() )
             log("End flush delayed commits", txn) ;
-        
-        
-        
+    }
+    
+    // Background write-back, first step, holding the lock.
+    // Readers of existing views are made stable; writers are held back
+    // until finishWriteBack. 
+    private List<Transaction> startWriteBack()
+    {
+        if ( log() )
+            log("Start write-back", null) ;
+        List<Transaction> batch = new ArrayList<>(queue) ;
+        preserveReaderViews(batch) ;
+        writeBackActive = true ;
+        return batch ;
+    }
+    
+    // Background write-back, last step, holding the lock.
+    // The journal has been written to the base dataset so the transactions
+    // can release their in-memory blocks.
+    private void finishWriteBack(List<Transaction> batch)
+    {
+        for ( Transaction txn : batch )
+        {
+            queue.remove(txn) ;
+            if ( txn.getMode() == ReadWrite.WRITE )
+                enactTransaction(txn) ;
+            commitedAwaitingFlush.remove(txn) ;
+        }
+        writeBackActive = false ;
+        currentReaderView.set(null) ;
+        dropIdleReaderViews() ;
+        if ( log() )
+            log("End write-back", null) ;
+    }
+    
+    // Background write-back, failed, holding the lock.
+    // The batch stays queued, and in the journal, for the next attempt.
+    // The base dataset may be partly written so views still in use keep
+    // their preserved blocks; only the snapshots of idle views are released.
+    private void abandonWriteBack(List<Transaction> batch)
+    {
+        writeBackActive = false ;
+        dropIdleReaderViews() ;
+        if ( log() )
+            log("Abandon write-back of "+batch.size()+" transactions", null) ;
+    }
+    
+    // Write-back needs the journal to itself, and the base dataset to itself
+    // unless readers are kept on snapshots. Every commit in the journal must be on disk.
+    private boolean writeBackPossible()
+    {
+        if ( activeWriters.get() != 0 || writeBackActive || ! awaitingSync.isEmpty() )
+            return false ;
+        return activeReaders.get() == 0 || ( concurrentWriteBack && readerViewsCovered() ) ;
+    }
+    
+    /** Does every read view in use have a snapshot of every file the queued transactions
+     *  change through the journal?  If not, write-back waits for the readers to finish.
+     *  Node tables are not in the journal: the nodes of a transaction are written to the
+     *  base node table in prepare, under the node table's lock, which lookups also take.    
+     */
+    private boolean readerViewsCovered()
+    {
+        for ( ReaderView rv : readerViews.values() )
+        {
+            if ( rv.readers <= 0 )
+                continue ;
+            for ( Transaction txn : queue )
+            {
+                for ( TransactionLifecycle component : txn.lifecycleComponents() )
+                {
+                    if ( component instanceof BlockMgrJournal && ! rv.snapshots.containsKey(((BlockMgrJournal)component).getFileRef()) )
+                        return false ;
+                }
+            }
+        }
+        return true ;
     }
 
     private void checkNodesDatJrnl(String label, Transaction txn)
@@ -583,7 +1015,7 @@ public class TransactionManager
     private void checkReplaySafe()
     {
         if ( ! checking ) return ;
-        if ( activeReaders.get() != 0 || activeWriters.get() != 0 )
+        if ( activeWriters.get() != 0 || ( activeReaders.get() != 0 && ! concurrentWriteBack ) )
             log.error("There are now active transactions") ;
     }
     
@@ -709,31 +1141,91 @@ public class TransactionManager
         return new SysTxnState(this) ;
     }
     
-    // LATER.
+    /** Background write-back of committed transactions to the base dataset.
+     * It waits until there are no active transactions and enough have committed
+     * (or new transactions are being held back), then replays the journal.
+     * With concurrent write-back, it does not wait for active readers.
+     * The lock on the TransactionManager is only held to start and to finish 
+     * a write-back, not while the journal is replayed. Each write-back covers
+     * the transactions queued when it starts; new writers wait until it is done,
+     * so that is at most {@link #WriteBackQueueLimit} transactions. New readers
+     * see the latest commit, which already has every block being written.
+     * If a write-back fails, the next attempt is delayed, for twice as long
+     * after each consecutive failure, so a persistent error does not keep
+     * the thread busy or the lock held.
+     */
     class Committer implements Runnable
     {
+        // Delay before retrying after a failed write-back; 0 after a success.
+        private long retryMillis = 0 ;
+        
         @Override
         public void run()
         {
-            for(;;)
+            for ( ;; )
             {
-                // Wait until the reader count goes to zero.
-                
-                // This wakes up for every transation but maybe 
-                // able to play several transactions at once (later).
-                try {
-                    Transaction txn = queue.take() ;
-                    // This takes a Write lock on the  DSG - this is where it blocks.
-                    JournalControl.replay(txn) ;
-                    synchronized(TransactionManager.this)
+                List<Transaction> batch ;
+                synchronized(TransactionManager.this)
+                {
+                    while ( ! stopping && ! writeBackDue() )
                     {
-                        commitedAwaitingFlush.remove(txn) ;
+                        try { TransactionManager.this.wait() ; }
+                        catch (InterruptedException ex)
+                        { Log.fatal(this, "Interrupted!", ex) ; return ; }
                     }
-                } catch (InterruptedException ex)
-                { Log.fatal(this, "Interruped!", ex) ; }
+                    if ( stopping )
+                        return ;
+                    batch = startWriteBack() ;
+                }
+                boolean ok = false ;
+                try { JournalControl.replay(journal, baseDataset) ; ok = true ; }
+                catch (RuntimeException ex)
+                { log.error("Exception during background write-back", ex) ; }
+                synchronized(TransactionManager.this)
+                {
+                    if ( ok )
+                        finishWriteBack(batch) ;
+                    else
+                        abandonWriteBack(batch) ;
+                    // Release any transactions waiting for the write-back.
+                    TransactionManager.this.notifyAll() ;
+                    if ( ! backOff(ok) )
+                        return ;
+                }
+            }
+        }
+        
+        // Called holding the lock. After a failure, wait (releasing the lock) 
+        // before the next attempt. Returns false if the thread should stop.
+        private boolean backOff(boolean succeeded)
+        {
+            if ( succeeded )
+            {
+                retryMillis = 0 ;
+                return true ;
+            }
+            writeBackFailures++ ;
+            retryMillis = ( retryMillis == 0 ) ? WriteBackRetryMillis : Math.min(2*retryMillis, WriteBackRetryMaxMillis) ;
+            long until = System.currentTimeMillis()+retryMillis ;
+            for ( ;; )
+            {
+                long remaining = until-System.currentTimeMillis() ;
+                if ( stopping || remaining <= 0 )
+                    return ! stopping ;
+                try { TransactionManager.this.wait(remaining) ; }
+                catch (InterruptedException ex)
+                { Log.fatal(this, "Interrupted!", ex) ; return false ; }
             }
         }
         
+        private boolean writeBackDue()
+        {
+            if ( queue.size() == 0 )
+                return false ;
+            if ( ! writeBackPossible() )
+                return false ;
+            return queue.size() >= QueueBatchSize || queue.size() >= WriteBackQueueLimit ;
+        }
     }
     
     private void transactionStarts(Transaction txn)
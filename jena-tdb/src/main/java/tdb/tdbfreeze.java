@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tdb;
+
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
+import tdb.cmdline.CmdTDB ;
+
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBFreeze ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+/** Freeze a database as a read-only snapshot for query serving, or thaw it.
+ * @see TDBFreeze
+ */
+public class tdbfreeze extends CmdTDB
+{
+    static public void main(String... argv)
+    { 
+        CmdTDB.init() ;
+        TDB.setOptimizerWarningFlag(false) ;
+        new tdbfreeze(argv).mainRun() ;
+    }
+
+    private static final ArgDecl argThaw = new ArgDecl(ArgDecl.NoValue, "thaw") ;
+    private boolean thaw = false ;
+    
+    protected tdbfreeze(String[] argv)
+    {
+        super(argv) ;
+        super.add(argThaw, "--thaw", "Make a frozen database updatable again") ;
+    }
+    
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        thaw = super.contains(argThaw) ;
+    }
+
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" --loc DIRECTORY [--thaw]\nFreeze a database: make it a read-only snapshot." ;
+    }
+
+    @Override
+    protected void exec()
+    {
+        Location location = getLocation() ;
+        if ( location == null )
+            throw new CmdException("No location given") ;
+        if ( thaw )
+            TDBFreeze.thaw(location) ;
+        else
+            TDBFreeze.freeze(location) ;
+    }
+}
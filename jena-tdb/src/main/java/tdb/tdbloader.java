@@ -24,13 +24,16 @@ import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFLanguages ;
 import tdb.cmdline.CmdTDB ;
 import tdb.cmdline.CmdTDBGraph ;
+import arq.cmdline.ArgDecl ;
 
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBLoader ;
 import com.hp.hpl.jena.tdb.store.GraphTDB ;
+import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader ;
 
 public class tdbloader extends CmdTDBGraph {
+    private static final ArgDecl argPipeline = new ArgDecl(ArgDecl.NoValue, "pipeline") ;
     // private static final ArgDecl argParallel = new ArgDecl(ArgDecl.NoValue, "parallel") ;
     // private static final ArgDecl argIncremental = new ArgDecl(ArgDecl.NoValue, "incr", "incremental") ;
 
@@ -46,6 +49,8 @@ public class tdbloader extends CmdTDBGraph {
 
     protected tdbloader(String[] argv) {
         super(argv) ;
+        super.add(argPipeline, "--pipeline",
+                  "Load all indexes at once, using a thread for each index") ;
         // super.add(argParallel, "--parallel",
         // "Do rebuilding of secondary indexes in a parallel") ;
         // super.add(argIncremental, "--incremental",
@@ -58,6 +63,8 @@ public class tdbloader extends CmdTDBGraph {
     @Override
     protected void processModulesAndArgs() {
         super.processModulesAndArgs() ;
+        if ( super.contains(argPipeline) )
+            BulkLoader.pipelined = true ;
         // doInParallel = super.contains(argParallel) ;
         // doIncremental = super.contains(argIncremental) ;
     }
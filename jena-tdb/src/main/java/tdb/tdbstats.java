@@ -22,19 +22,24 @@ import java.util.Iterator ;
 
 import org.apache.jena.atlas.lib.Tuple ;
 import org.apache.jena.atlas.logging.Log ;
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
 import tdb.cmdline.CmdTDB ;
 import tdb.cmdline.CmdTDBGraph ;
 
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.tdb.solver.SolverLib ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSets ;
 import com.hp.hpl.jena.tdb.solver.stats.Stats ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsCollectorCharSets ;
 import com.hp.hpl.jena.tdb.solver.stats.StatsCollectorNodeId ;
 import com.hp.hpl.jena.tdb.solver.stats.StatsResults ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.sys.Names ;
 
 public class tdbstats extends CmdTDBGraph
 {
@@ -45,9 +50,21 @@ public class tdbstats extends CmdTDBGraph
         new tdbstats(argv).mainRun() ;
     }
 
+    private static final ArgDecl argCharSets = new ArgDecl(ArgDecl.NoValue, "charsets") ;
+    private boolean charSets = false ;
+    
     protected tdbstats(String[] argv)
     {
         super(argv) ;
+        super.add(argCharSets, "--charsets",
+                  "Characteristic sets statistics of the default graph (for file "+Names.optCharSets+")") ;
+    }
+    
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        charSets = super.contains(argCharSets) ;
     }
     
     @Override
@@ -98,6 +115,14 @@ public class tdbstats extends CmdTDBGraph
     {
         DatasetGraphTDB dsg = getDatasetGraphTDB() ;
         Node gn = getGraphName() ;
+        if ( charSets )
+        {
+            if ( gn != null )
+                throw new CmdException("Characteristic sets are for the default graph only") ;
+            CharacteristicSets cs = StatsCollectorCharSets.gather(dsg.getTripleTable().getNodeTupleTable()) ;
+            cs.write(System.out) ;
+            return ;
+        }
         StatsResults results = stats(dsg, gn) ;
         Stats.write(System.out, results) ;
     }
@@ -34,9 +34,11 @@ import com.hp.hpl.jena.tdb.base.objectfile.TS_ObjectFile ;
 import com.hp.hpl.jena.tdb.graph.TS_Graph ;
 import com.hp.hpl.jena.tdb.index.TS_Index ;
 import com.hp.hpl.jena.tdb.lib.TS_LibTDB ;
+import com.hp.hpl.jena.tdb.mgt.TS_Mgt ;
 import com.hp.hpl.jena.tdb.setup.TS_TDBSetup ;
 import com.hp.hpl.jena.tdb.solver.TS_SolverTDB ;
 import com.hp.hpl.jena.tdb.store.TS_Store ;
+import com.hp.hpl.jena.tdb.store.bulkloader2.TS_BulkLoader2 ;
 import com.hp.hpl.jena.tdb.store.nodetable.TS_NodeTable ;
 import com.hp.hpl.jena.tdb.store.tupletable.TS_TupleTable ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
@@ -57,6 +59,7 @@ import com.hp.hpl.jena.tdb.transaction.TS_TransactionTDB ;
     , TS_TupleTable.class
     , TS_TDBSetup.class
     , TS_Store.class        // The main storage implementation.  Slow tests.
+    , TS_BulkLoader2.class
     , TS_SolverTDB.class
     , TS_Sys.class
     , TS_Graph.class
@@ -64,6 +67,7 @@ import com.hp.hpl.jena.tdb.transaction.TS_TransactionTDB ;
     , TS_TDBAssembler.class
     , TS_TransactionTDB.class
     , TS_ObjectFile.class
+    , TS_Mgt.class
 } )
 
 public class TC_TDB
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.block;
+
+import static org.apache.jena.atlas.lib.ByteBufferLib.fill ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.Callable ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+
+public class TestBlockMgrCacheConcurrent extends AbstractTestBlockMgr
+{
+    static final String filename = ConfigTest.getTestingDir()+"/block-mgr-cache" ;
+    
+    @BeforeClass static public void remove1() { FileOps.delete(filename) ; } 
+    @AfterClass  static public void remove2() { FileOps.delete(filename) ; }
+    
+    @Override
+    protected BlockMgr make()
+    { 
+        FileOps.delete(filename) ;
+        // Small read cache so the tests below see misses. No tracker.
+        BlockMgr mgr = BlockMgrFactory.createStdFileNoCache(filename, BlkSize) ;
+        return BlockMgrFactory.addCache(mgr, BlockCacheType.concurrent, 10, 5) ;
+    }
+
+    private BlockMgrCache cache()
+    {
+        return (BlockMgrCache)blockMgr ;
+    }
+
+    private long[] writeBlocks(int N)
+    {
+        long[] ids = new long[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Block block = blockMgr.allocate(BlkSize) ;
+            fill(block.getByteBuffer(), (byte)i) ;
+            ids[i] = block.getId() ;
+            blockMgr.write(block) ;
+            blockMgr.release(block) ;
+        }
+        blockMgr.sync() ;
+        return ids ;
+    }
+
+    @Test public void cache_concurrent_01()
+    {
+        BlockMgrCache mgr = cache() ;
+        assertEquals(BlockCacheType.concurrent, mgr.getCacheType()) ;
+        long[] ids = writeBlocks(3) ;
+        for ( int j = 0 ; j < 2 ; j++ )
+            for ( int i = 0 ; i < ids.length ; i++ )
+            {
+                Block block = blockMgr.getRead(ids[i]) ;
+                contains(block.getByteBuffer(), (byte)i) ;
+                blockMgr.release(block) ;
+            }
+        // After sync, the written blocks are in the read cache.
+        assertEquals(6, mgr.getCacheReadHits()) ;
+        assertEquals(0, mgr.getCacheMisses()) ;
+        assertTrue(mgr.getCacheHitRate() > 0.99) ;
+    }
+
+    @Test public void cache_concurrent_02() throws Exception
+    {
+        // More blocks than the read cache, read from several threads.
+        final int N = 50 ;
+        final long[] ids = writeBlocks(N) ;
+        ExecutorService executor = Executors.newFixedThreadPool(4) ;
+        try {
+            List<Future<Void>> results = new ArrayList<>() ;
+            for ( int t = 0 ; t < 4 ; t++ )
+            {
+                final int start = t ;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call()
+                    {
+                        for ( int j = 0 ; j < 20 ; j++ )
+                            for ( int i = 0 ; i < N ; i++ )
+                            {
+                                int x = (i+start*7) % N ;
+                                Block block = blockMgr.getRead(ids[x]) ;
+                                contains(block.getByteBuffer(), (byte)x) ;
+                                blockMgr.release(block) ;
+                            }
+                        return null ;
+                    }
+                })) ;
+            }
+            for ( Future<Void> f : results )
+                f.get() ;
+        } finally { executor.shutdown() ; }
+        BlockMgrCache mgr = cache() ;
+        assertTrue(mgr.getCacheMisses() > 0) ;
+        assertEquals(4*20*N, mgr.getCacheReadHits()+mgr.getCacheMisses()) ;
+    }
+}
@@ -19,6 +19,9 @@
 package com.hp.hpl.jena.tdb.base.file;
 
 import static com.hp.hpl.jena.tdb.base.BufferTestLib.sameValue ;
+
+import java.nio.ByteBuffer ;
+
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.After ;
 import org.junit.Before ;
@@ -98,4 +101,40 @@ public abstract class AbstractTestBlockAccessFixedSize extends BaseTest
         // Should not work. b2 not written.   
         Block b2a = file.read(b2.getId()) ;
     }    
+
+    @Test public void fileaccess_06()
+    {
+        // Prefetch is only a hint - the read must see the same contents either way.
+        Block b1 = data(file, blkSize) ;
+        file.write(b1) ;
+        file.sync() ;
+        file.prefetch(b1.getId()) ;
+        pause() ;
+        Block b9 = file.read(b1.getId()) ;
+        assertTrue(sameValue(b1, b9)) ;
+        // Not a valid block.
+        file.prefetch(b1.getId()+1) ;
+    }
+
+    @Test public void fileaccess_07()
+    {
+        // A write after a prefetch wins.
+        Block b1 = data(file, blkSize) ;
+        file.write(b1) ;
+        file.sync() ;
+        file.prefetch(b1.getId()) ;
+        pause() ;
+        ByteBuffer bb = ByteBuffer.allocate(blkSize) ;
+        for (int i = 0 ; i < blkSize ; i++ )
+            bb.put((byte)((blkSize-i)&0xFF)) ;
+        Block b2 = new Block(b1.getId(), bb) ;
+        file.overwrite(b2) ;
+        Block b9 = file.read(b1.getId()) ;
+        assertTrue(sameValue(b2, b9)) ;
+    }
+
+    private static void pause()
+    {
+        try { Thread.sleep(20) ; } catch (InterruptedException ex) {}
+    }
 }
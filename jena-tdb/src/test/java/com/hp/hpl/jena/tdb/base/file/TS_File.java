@@ -30,6 +30,8 @@ import org.junit.runners.Suite ;
     , TestBlockAccessByteArray.class
     , TestBlockAccessDirect.class
     , TestBlockAccessMapped.class
+    , TestBlockAccessMappedReadOnly.class
+    , TestBlockAccessOffHeap.class
     , TestLocationLock.class
 })
 
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.block.BlockException ;
+
+public class TestBlockAccessMappedReadOnly extends BaseTest
+{
+    static String filename = ConfigTest.getTestingDir()+"/test-file-access-mapped-ro" ;
+    static final int BlockSize = 64 ;
+    static final int NumBlocks = 10 ;
+    
+    private BlockAccess file = null ;
+    
+    @Before public void before()
+    {
+        FileOps.deleteSilent(filename) ;
+        BlockAccess out = new BlockAccessDirect(filename, BlockSize) ;
+        for ( int i = 0 ; i < NumBlocks ; i++ )
+        {
+            Block b = out.allocate(BlockSize) ;
+            for ( int j = 0 ; j < BlockSize ; j++ )
+                b.getByteBuffer().put(j, (byte)(i+j)) ;
+            out.write(b) ;
+        }
+        out.sync() ;
+        out.close() ;
+        file = new BlockAccessMappedReadOnly(filename, BlockSize) ;
+    }
+    
+    @After public void after()
+    {
+        file.close() ;
+        FileOps.deleteSilent(filename) ;
+    }
+    
+    @Test public void blockaccess_ro_01()
+    {
+        assertFalse(file.isEmpty()) ;
+        assertTrue(file.valid(0)) ;
+        assertTrue(file.valid(NumBlocks-1)) ;
+        assertFalse(file.valid(NumBlocks)) ;
+        assertFalse(file.valid(-1)) ;
+    }
+    
+    @Test public void blockaccess_ro_02()
+    {
+        for ( int i = NumBlocks-1 ; i >= 0 ; i-- )
+        {
+            Block b = file.read(i) ;
+            assertEquals(i, b.getId().longValue()) ;
+            ByteBuffer bb = b.getByteBuffer() ;
+            assertEquals(BlockSize, bb.capacity()) ;
+            for ( int j = 0 ; j < BlockSize ; j++ )
+                assertEquals((byte)(i+j), bb.get(j)) ;
+        }
+    }
+    
+    @Test public void blockaccess_ro_03()
+    {
+        Block b = file.read(3) ;
+        assertTrue(b.isReadOnly()) ;
+        assertTrue(b.getByteBuffer().isReadOnly()) ;
+    }
+
+    @Test(expected=BlockException.class)
+    public void blockaccess_ro_04()
+    {
+        file.read(NumBlocks) ;
+    }
+    
+    @Test(expected=BlockException.class)
+    public void blockaccess_ro_05()
+    {
+        file.write(file.read(0)) ;
+    }
+
+    @Test(expected=BlockException.class)
+    public void blockaccess_ro_06()
+    {
+        file.allocate(BlockSize) ;
+    }
+}
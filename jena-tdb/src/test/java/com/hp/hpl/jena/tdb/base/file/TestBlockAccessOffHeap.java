@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.file;
+
+import static com.hp.hpl.jena.tdb.base.BufferTestLib.sameValue ;
+
+import java.nio.ByteBuffer ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.AfterClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.block.Block ;
+
+public class TestBlockAccessOffHeap extends AbstractTestBlockAccessFixedSize
+{
+    static String filename = ConfigTest.getTestingDir()+"/test-file-access-offheap" ;
+    
+    static final int BlockSize = 50 ;
+    static final int CacheSize = 3 ;
+    public TestBlockAccessOffHeap()
+    {
+        super(BlockSize) ;
+    }
+
+    @AfterClass public static void cleanup() { FileOps.deleteSilent(filename) ; } 
+    
+    @Override
+    protected BlockAccess make()
+    {
+        FileOps.deleteSilent(filename) ;
+        return new BlockAccessOffHeap(filename, BlockSize, CacheSize) ;
+    }
+
+    private static Block fill(BlockAccess file, int value)
+    {
+        Block b = file.allocate(BlockSize) ;
+        ByteBuffer bb = b.getByteBuffer() ;
+        for ( int i = 0 ; i < BlockSize ; i++ )
+            bb.put(i, (byte)value) ;
+        file.write(b) ;
+        return b ;
+    }
+
+    private static void contains(Block b, int value)
+    {
+        ByteBuffer bb = b.getByteBuffer() ;
+        assertEquals(BlockSize, bb.capacity()) ;
+        for ( int i = 0 ; i < BlockSize ; i++ )
+            assertEquals((byte)value, bb.get(i)) ;
+    }
+
+    @Test public void offheap_01()
+    {
+        BlockAccessOffHeap file = (BlockAccessOffHeap)make() ;
+        try {
+            Block b1 = fill(file, 1) ;
+            Block b2 = file.read(b1.getId()) ;
+            assertNotSame(b1, b2) ;
+            assertTrue(sameValue(b1, b2)) ;
+            // Changing the returned block does not change the cache.
+            b2.getByteBuffer().put(0, (byte)99) ;
+            contains(file.read(b1.getId()), 1) ;
+            assertEquals(2, file.getCacheHits()) ;
+            assertEquals(0, file.getCacheMisses()) ;
+        } finally { file.close() ; }
+    }
+
+    @Test public void offheap_02()
+    {
+        // More blocks than cache slots.
+        BlockAccessOffHeap file = (BlockAccessOffHeap)make() ;
+        try {
+            int N = 4*CacheSize ;
+            long[] ids = new long[N] ;
+            for ( int i = 0 ; i < N ; i++ )
+                ids[i] = fill(file, i).getId() ;
+            assertEquals(CacheSize, file.getCacheEntries()) ;
+            for ( int j = 0 ; j < 3 ; j++ )
+                for ( int i = 0 ; i < N ; i++ )
+                    contains(file.read(ids[i]), i) ;
+            assertEquals(CacheSize, file.getCacheEntries()) ;
+            assertTrue(file.getCacheMisses() > 0) ;
+            assertEquals(3*N, file.getCacheHits()+file.getCacheMisses()) ;
+        } finally { file.close() ; }
+    }
+
+    @Test public void offheap_03()
+    {
+        // Overwrite updates the cached copy.
+        BlockAccessOffHeap file = (BlockAccessOffHeap)make() ;
+        try {
+            Block b1 = fill(file, 1) ;
+            Block b2 = file.read(b1.getId()) ;
+            ByteBuffer bb = b2.getByteBuffer() ;
+            for ( int i = 0 ; i < BlockSize ; i++ )
+                bb.put(i, (byte)2) ;
+            file.overwrite(b2) ;
+            contains(file.read(b1.getId()), 2) ;
+        } finally { file.close() ; }
+    }
+
+    @Test public void offheap_04() throws InterruptedException
+    {
+        // Reads that miss the cache, concurrent with writes: the cache never keeps an old copy.
+        final BlockAccessOffHeap file = (BlockAccessOffHeap)make() ;
+        try {
+            final int N = 2*CacheSize ;
+            final long[] ids = new long[N] ;
+            for ( int i = 0 ; i < N ; i++ )
+                ids[i] = fill(file, 0).getId() ;
+            final int Writes = 2000 ;
+            final AtomicReference<Throwable> failure = new AtomicReference<>() ;
+            Thread[] readers = new Thread[3] ;
+            for ( int t = 0 ; t < readers.length ; t++ )
+            {
+                readers[t] = new Thread() {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            for ( int j = 0 ; j < 10*Writes ; j++ )
+                                file.read(ids[j%N]) ;
+                        } catch (Throwable th) { failure.set(th) ; }
+                    }
+                } ;
+                readers[t].start() ;
+            }
+            for ( int v = 1 ; v <= Writes ; v++ )
+            {
+                Block b = file.read(ids[0]) ;
+                ByteBuffer bb = b.getByteBuffer() ;
+                for ( int i = 0 ; i < BlockSize ; i++ )
+                    bb.put(i, (byte)v) ;
+                file.overwrite(b) ;
+            }
+            for ( Thread t : readers )
+                t.join() ;
+            assertNull(failure.get()) ;
+            contains(file.read(ids[0]), Writes) ;
+        } finally { file.close() ; }
+    }
+
+    @Test public void arena_01()
+    {
+        BlockArena arena = new BlockArena(8, 2) ;
+        int s1 = arena.allocate() ;
+        int s2 = arena.allocate() ;
+        assertNotEquals(s1, s2) ;
+        assertEquals(-1, arena.allocate()) ;
+        arena.free(s1) ;
+        assertEquals(s1, arena.allocate()) ;
+        assertEquals(2, arena.getAllocatedSlots()) ;
+        ByteBuffer bb = ByteBuffer.wrap(new byte[]{1,2,3,4,5,6,7,8}) ;
+        arena.write(s2, bb) ;
+        ByteBuffer bb2 = ByteBuffer.allocate(8) ;
+        arena.read(s2, bb2) ;
+        assertEquals(bb, bb2) ;
+        arena.close() ;
+    }
+}
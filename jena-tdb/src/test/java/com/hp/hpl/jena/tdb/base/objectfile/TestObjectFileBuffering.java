@@ -83,6 +83,27 @@ public class TestObjectFileBuffering extends BaseTest
         }
     }
 
+    // Batch read, of objects written in order, some possibly still in the write buffer.
+    private void writeReadBatch(int sizeOfBuffer, int... sizes)
+    {
+        ObjectFileStorage file = (ObjectFileStorage)make(sizeOfBuffer) ;
+        int N = sizes.length ;
+        ByteBuffer bb[] = new ByteBuffer[N] ;
+        long loc[] = new long[N] ;
+        
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            bb[i] = ByteBuffer.allocate(sizes[i]) ;
+            for ( int j = 0 ; j < sizes[i] ; j++ )
+                bb[i].put((byte)((i+j)&0xFF)) ;
+            bb[i].rewind() ;
+            loc[i] = file.write(bb[i]) ;
+        }
+        ByteBuffer read[] = file.read(loc) ;
+        assertEquals(N, read.length) ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(sameValue(bb[i], read[i])) ;
+    }
     
     @Test public void objectfile_50()       { write(5, 10) ; }
     @Test public void objectfile_51()       { writePrealloc(5, 10) ; }
@@ -98,4 +119,9 @@ public class TestObjectFileBuffering extends BaseTest
     @Test public void objectfile_60()       { write(20, 4, 4, 8) ; }
     @Test public void objectfile_61()       { writePrealloc(20, 4, 4, 8) ; }
 
+    @Test public void objectfile_70()       { writeReadBatch(-1, 4, 4, 8) ; }
+    @Test public void objectfile_71()       { writeReadBatch(20, 4, 4, 8, 2) ; }    // Some in the write buffer
+    @Test public void objectfile_72()       { writeReadBatch(-1, 4, 3000, 8, 0, 5) ; }  // Larger than one read
+    @Test public void objectfile_73()       { writeReadBatch(-1, 70*1024, 8, 70*1024, 8) ; } // More than one read
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.objectfile;
+
+import java.nio.ByteBuffer ;
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.Pair ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.file.FileException ;
+import com.hp.hpl.jena.tdb.base.file.FileFactory ;
+
+public class TestObjectFileMappedReadOnly extends BaseTest
+{
+    static String filename = ConfigTest.getTestingDir()+"/test-objectfile-ro" ;
+    static String[] strings = { "abc", "", "0123456789", "xyz" } ;
+    
+    private long[] ids = new long[strings.length] ;
+    private ObjectFile file = null ;
+    
+    @Before public void before()
+    {
+        FileOps.deleteSilent(filename) ;
+        ObjectFile out = FileFactory.createObjectFileDisk(filename) ;
+        for ( int i = 0 ; i < strings.length ; i++ )
+            ids[i] = out.write(ByteBuffer.wrap(Bytes.string2bytes(strings[i]))) ;
+        out.sync() ;
+        out.close() ;
+        file = FileFactory.createObjectFileReadOnly(filename) ;
+    }
+    
+    @After public void after()
+    {
+        file.close() ;
+        FileOps.deleteSilent(filename) ;
+    }
+    
+    private static String str(ByteBuffer bb)
+    {
+        byte[] b = new byte[bb.remaining()] ;
+        bb.duplicate().get(b) ;
+        return Bytes.bytes2string(b) ;
+    }
+    
+    @Test public void objectfile_ro_01()
+    {
+        assertFalse(file.isEmpty()) ;
+        for ( int i = strings.length-1 ; i >= 0 ; i-- )
+            assertEquals(strings[i], str(file.read(ids[i]))) ;
+    }
+    
+    @Test public void objectfile_ro_02()
+    {
+        Iterator<Pair<Long, ByteBuffer>> iter = file.all() ;
+        for ( int i = 0 ; i < strings.length ; i++ )
+        {
+            assertTrue(iter.hasNext()) ;
+            Pair<Long, ByteBuffer> p = iter.next() ;
+            assertEquals(ids[i], p.getLeft().longValue()) ;
+            assertEquals(strings[i], str(p.getRight())) ;
+        }
+        assertFalse(iter.hasNext()) ;
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void objectfile_ro_03()
+    {
+        file.read(file.length()) ;
+    }
+    
+    @Test(expected=FileException.class)
+    public void objectfile_ro_04()
+    {
+        file.write(ByteBuffer.wrap(Bytes.string2bytes("def"))) ;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.extra ;
+
+import java.util.Random ;
+
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+
+import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.base.file.FileSet ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.index.BuilderStdIndex ;
+import com.hp.hpl.jena.tdb.index.Index ;
+import com.hp.hpl.jena.tdb.index.IndexBuilder ;
+import com.hp.hpl.jena.tdb.setup.BlockMgrBuilder ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** Load and lookup throughput of the node to NodeId index: B+Tree against extensible hashing.
+ *  Keys are random, as node hashes are. Not a unit test.
+ */
+public class T_NodeIndexThroughput
+{
+    static final int KEYS = 2000000 ;
+    static final int LOOKUPS = 1000000 ;
+    
+    public static void main(String... args)
+    {
+        LogCtl.setLog4j() ;
+        // Direct mode and small caches so that page touches show. 
+        StoreParams params = StoreParams.builder()
+            .fileMode(FileMode.direct)
+            .blockReadCacheSize(1000)
+            .blockWriteCacheSize(200)
+            .build() ;
+        BlockMgrBuilder blockMgrBuilder = new BuilderStdIndex.BlockMgrBuilderStd() ;
+        
+        run("B+Tree ", new BuilderStdIndex.IndexBuilderStd(blockMgrBuilder, blockMgrBuilder), params) ;
+        run("ExtHash", new BuilderStdIndex.IndexBuilderExtHash(blockMgrBuilder, blockMgrBuilder), params) ;
+    }
+    
+    static void run(String label, IndexBuilder indexBuilder, StoreParams params)
+    {
+        String dir = "target/tdb-nodeindex" ;
+        FileOps.ensureDir(dir) ;
+        FileOps.clearDirectory(dir) ;
+        RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId) ;
+        FileSet fileSet = new FileSet(Location.create(dir), "node2id") ;
+        Index index = indexBuilder.buildIndex(fileSet, recordFactory, params) ;
+        
+        Random random = new Random(1234) ;
+        long start = System.nanoTime() ;
+        for ( int i = 0 ; i < KEYS ; i++ )
+            index.add(record(recordFactory, random, i)) ;
+        index.sync() ;
+        long loadTime = System.nanoTime() - start ;
+
+        // Replay the same keys, in a different order, to look them up.
+        Record[] keys = new Record[KEYS] ;
+        random = new Random(1234) ;
+        for ( int i = 0 ; i < KEYS ; i++ )
+            keys[i] = record(recordFactory, random, i) ;
+        Random choice = new Random(5678) ;
+        start = System.nanoTime() ;
+        int found = 0 ;
+        for ( int i = 0 ; i < LOOKUPS ; i++ )
+        {
+            if ( index.find(keys[choice.nextInt(KEYS)]) != null )
+                found++ ;
+        }
+        long lookupTime = System.nanoTime() - start ;
+        index.close() ;
+        
+        if ( found != LOOKUPS )
+            System.err.printf("%s: found %d of %d\n", label, found, LOOKUPS) ;
+        System.out.printf("%s: load %,10.0f keys/s   lookup %,10.0f keys/s\n",
+                          label, KEYS/(loadTime/1e9), LOOKUPS/(lookupTime/1e9)) ;
+    }
+    
+    static Record record(RecordFactory recordFactory, Random random, long id)
+    {
+        byte[] key = new byte[SystemTDB.LenNodeHash] ;
+        random.nextBytes(key) ;
+        byte[] value = new byte[SystemTDB.SizeOfNodeId] ;
+        Bytes.setLong(id, value) ;
+        return recordFactory.create(key, value) ;
+    }
+}
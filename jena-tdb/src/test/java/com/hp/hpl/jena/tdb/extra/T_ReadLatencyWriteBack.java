@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.extra ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+import com.hp.hpl.jena.tdb.transaction.TransactionManager ;
+
+/** Read latency (p50, p99, max) while a writer commits large updates and they are
+ *  written back to the database, with and without concurrent write-back.
+ *  Not a unit test.
+ */
+public class T_ReadLatencyWriteBack
+{
+    static final int READERS = 4 ;
+    static final int UPDATES = 50 ;
+    static final int TRIPLES_PER_UPDATE = 20000 ;
+    static final int SUBJECTS = 1000 ;
+    static final String NS = "http://example/" ;
+    
+    public static void main(String... args) throws InterruptedException
+    {
+        LogCtl.setLog4j() ;
+        SystemTDB.setFileMode(FileMode.direct) ;
+        TransactionManager.BackgroundWriteBack = true ;
+        TransactionManager.QueueBatchSize = 4 ;
+        
+        run("Exclusive write-back ", false) ;
+        run("Concurrent write-back", true) ;
+    }
+    
+    static void run(String label, boolean concurrent) throws InterruptedException
+    {
+        String dir = "target/tdb-latency" ;
+        FileOps.ensureDir(dir) ;
+        FileOps.clearDirectory(dir) ;
+        TransactionManager.ConcurrentWriteBack = concurrent ;
+        final StoreConnection sConn = StoreConnection.make(Location.create(dir)) ;
+        
+        final AtomicBoolean finished = new AtomicBoolean(false) ;
+        final List<long[]> latencies = new ArrayList<>() ;
+        List<Thread> threads = new ArrayList<>() ;
+        for ( int i = 0 ; i < READERS ; i++ )
+        {
+            final long[] times = new long[1000000] ;
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    int n = 0 ;
+                    while ( ! finished.get() && n < times.length )
+                    {
+                        Node s = subject(n % SUBJECTS) ;
+                        long start = System.nanoTime() ;
+                        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+                        Iterator<Quad> iter = dsg.find(Node.ANY, s, Node.ANY, Node.ANY) ;
+                        while ( iter.hasNext() )
+                            iter.next() ;
+                        dsg.end() ;
+                        times[n++] = System.nanoTime() - start ;
+                    }
+                    synchronized(latencies) { latencies.add(Arrays.copyOf(times, n)) ; }
+                }
+            }) ;
+            threads.add(t) ;
+            t.start() ;
+        }
+        
+        long start = System.currentTimeMillis() ;
+        for ( int u = 0 ; u < UPDATES ; u++ )
+        {
+            DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+            Node g = Quad.defaultGraphIRI ;
+            Node p = NodeFactory.createURI(NS+"p"+u) ;
+            for ( int i = 0 ; i < TRIPLES_PER_UPDATE ; i++ )
+                dsg.add(g, subject(i % SUBJECTS), p, NodeFactory.createURI(NS+"o"+i)) ;
+            dsg.commit() ;
+            dsg.end() ;
+        }
+        long writeTime = System.currentTimeMillis() - start ;
+        finished.set(true) ;
+        for ( Thread t : threads )
+            t.join() ;
+        StoreConnection.release(sConn.getLocation()) ;
+        
+        int total = 0 ;
+        for ( long[] x : latencies )
+            total += x.length ;
+        long[] all = new long[total] ;
+        int idx = 0 ;
+        for ( long[] x : latencies )
+        {
+            System.arraycopy(x, 0, all, idx, x.length) ;
+            idx += x.length ;
+        }
+        Arrays.sort(all) ;
+        System.out.printf("%s: updates %.1fs, reads %d : p50 %.2fms p99 %.2fms max %.2fms\n",
+                          label, writeTime/1000.0, total, 
+                          millis(percentile(all, 50)), millis(percentile(all, 99)), millis(all.length == 0 ? 0 : all[all.length-1])) ;
+    }
+    
+    static Node subject(int i)      { return NodeFactory.createURI(NS+"s"+i) ; }
+    
+    static long percentile(long[] sorted, int pc)
+    {
+        if ( sorted.length == 0 )
+            return 0 ;
+        int i = (int)Math.ceil(pc/100.0*sorted.length) - 1 ;
+        return sorted[Math.max(0, i)] ;
+    }
+    
+    static double millis(long nanos)   { return nanos/1e6 ; }
+}
@@ -25,6 +25,7 @@ import com.hp.hpl.jena.tdb.index.bplustree.TestBPTreeRecords;
 import com.hp.hpl.jena.tdb.index.bplustree.TestBPlusTree;
 import com.hp.hpl.jena.tdb.index.bplustree.TestBPlusTreeRewriter ;
 import com.hp.hpl.jena.tdb.index.ext.TestExtHash;
+import com.hp.hpl.jena.tdb.index.ext.TestExtHashBlocks;
 
 
 @RunWith(Suite.class)
@@ -34,6 +35,7 @@ import com.hp.hpl.jena.tdb.index.ext.TestExtHash;
     TestBPlusTreeRewriter.class,
     
     TestExtHash.class,
+    TestExtHashBlocks.class,
     TestIndexMem.class
     
 } )
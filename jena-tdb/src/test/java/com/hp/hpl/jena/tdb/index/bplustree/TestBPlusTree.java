@@ -18,10 +18,22 @@
 
 package com.hp.hpl.jena.tdb.index.bplustree;
 
+import static com.hp.hpl.jena.tdb.base.record.RecordLib.r ;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.Bytes ;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
+import org.junit.Test ;
 
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.base.record.RecordLib ;
+import com.hp.hpl.jena.tdb.base.recordbuffer.RecordRangeIterator ;
+import com.hp.hpl.jena.tdb.index.IndexTestLib ;
 import com.hp.hpl.jena.tdb.index.RangeIndex ;
 import com.hp.hpl.jena.tdb.index.AbstractTestRangeIndex ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
@@ -56,4 +68,92 @@ public class TestBPlusTree extends AbstractTestRangeIndex
         }
         return bpt ; 
     }
+
+    private static BPlusTree make100()
+    {
+        BPlusTree bpt = BPlusTree.makeMem(2, 2, RecordLib.TestRecordLength, 0) ;
+        int[] keys = new int[100] ;
+        for ( int i = 0 ; i < keys.length ; i++ )
+            keys[i] = (37*i)%100 ;
+        IndexTestLib.add(bpt, keys) ;
+        return bpt ;
+    }
+
+    @Test public void bpt_range_01()
+    {
+        // Ranges starting and ending in different leaf pages and leaf-parents.
+        BPlusTree bpt = make100() ;
+        for ( int from = 0 ; from < 100 ; from += 7 )
+            for ( int to = from ; to <= 105 ; to += 11 )
+            {
+                List<Integer> x = RecordLib.toIntList(bpt.iterator(r(from), r(to))) ;
+                List<Integer> expected = new ArrayList<>() ;
+                for ( int i = from ; i < Math.min(to, 100) ; i++ )
+                    expected.add(i) ;
+                assertEquals(expected, x) ;
+            }
+    }
+
+    @Test public void bpt_batch_01()
+    {
+        BPlusTree bpt = make100() ;
+        List<Integer> expected = RecordLib.toIntList(bpt.iterator(r(10), r(90))) ;
+        assertEquals(80, expected.size()) ;
+        Iterator<Record> iter = bpt.iterator(r(10), r(90)) ;
+        assertTrue(iter instanceof RecordRangeIterator) ;
+        RecordRangeIterator rIter = (RecordRangeIterator)iter ;
+        List<Integer> x = new ArrayList<>() ;
+        Record[] batch = new Record[7] ;
+        int n ;
+        do {
+            n = rIter.nextBatch(batch) ;
+            for ( int i = 0 ; i < n ; i++ )
+                x.add(r(batch[i])) ;
+        } while ( n == batch.length ) ;
+        assertEquals(expected, x) ;
+        assertEquals(0, rIter.nextBatch(batch)) ;
+    }
+
+    @Test public void bpt_batch_02()
+    {
+        BPlusTree bpt = make100() ;
+        RecordRangeIterator rIter = (RecordRangeIterator)bpt.iterator(null, null) ;
+        // Mixed single and batch.
+        assertEquals(0, r(rIter.next())) ;
+        Record[] batch = new Record[200] ;
+        int n = rIter.nextBatch(batch) ;
+        assertEquals(99, n) ;
+        assertEquals(1, r(batch[0])) ;
+        assertEquals(99, r(batch[98])) ;
+        assertFalse(rIter.hasNext()) ;
+    }
+
+    @Test public void bpt_batch_03()
+    {
+        // Keys as longs, read straight from the pages.
+        RecordFactory factory = new RecordFactory(2*SystemTDB.SizeOfLong, 0) ;
+        BPlusTree bpt = BPlusTree.makeMem(2, 2, factory.keyLength(), 0) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            bpt.add(record(factory, (37*i)%100, -i)) ;
+        RecordRangeIterator rIter = (RecordRangeIterator)bpt.iterator(record(factory, 10, 0), record(factory, 90, 0)) ;
+        long[] batch = new long[2*7] ;
+        List<Long> x = new ArrayList<>() ;
+        int n ;
+        do {
+            n = rIter.nextBatchLongs(batch, 2) ;
+            for ( int i = 0 ; i < n ; i++ )
+                x.add(batch[2*i]) ;
+        } while ( n == 7 ) ;
+        assertEquals(80, x.size()) ;
+        for ( int i = 0 ; i < 80 ; i++ )
+            assertEquals(10L+i, x.get(i).longValue()) ;
+    }
+
+    private static Record record(RecordFactory factory, long v1, long v2)
+    {
+        byte[] b = new byte[factory.keyLength()] ;
+        Bytes.setLong(v1, b, 0) ;
+        Bytes.setLong(v2, b, SystemTDB.SizeOfLong) ;
+        return factory.create(b) ;
+    }
 }
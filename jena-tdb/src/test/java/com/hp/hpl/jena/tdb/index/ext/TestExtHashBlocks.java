@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.index.ext;
+
+import static com.hp.hpl.jena.tdb.base.record.RecordLib.intToRecord ;
+
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.base.file.FileSet ;
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.base.record.RecordLib ;
+import com.hp.hpl.jena.tdb.index.AbstractTestIndex ;
+import com.hp.hpl.jena.tdb.index.Index ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** ExtHash with the dictionary kept in blocks */
+public class TestExtHashBlocks extends AbstractTestIndex
+{
+    static boolean originalNullOut ; 
+    static boolean b ; 
+
+    @BeforeClass static public void setup()
+    {
+        originalNullOut = SystemTDB.NullOut ;
+        SystemTDB.NullOut = true ;
+        ExtHash.Checking = true ;
+        ExtHash.Logging = false ;
+        b = BlockMgrFactory.AddTracker ;
+        BlockMgrFactory.AddTracker = false ;
+    }
+    
+    @AfterClass static public void teardown()
+    {
+        BlockMgrFactory.AddTracker = b  ;
+        SystemTDB.NullOut = originalNullOut ;
+    }
+
+    @Override
+    protected Index makeIndex(int kLen, int vLen)
+    {
+        RecordFactory factory = new RecordFactory(kLen, vLen) ;
+        // Small blocks: the dictionary spreads over several blocks.
+        BlockMgr mgrDictionary = BlockMgrFactory.createMem("EXTD", 32) ;
+        BlockMgr mgrBuckets = BlockMgrFactory.createMem("EXTB", 32) ;
+        return new ExtHash(mgrDictionary, factory, mgrBuckets) ;
+    }
+    
+    @Test public void exthash_blocks_reopen()
+    {
+        RecordFactory factory = RecordLib.recordFactory ;
+        BlockMgr mgrDictionary = BlockMgrFactory.createMem("EXTD", 32) ;
+        BlockMgr mgrBuckets = BlockMgrFactory.createMem("EXTB", 32) ;
+        ExtHash extHash1 = new ExtHash(mgrDictionary, factory, mgrBuckets) ;
+        for ( int i = 0 ; i < 500 ; i++ )
+            extHash1.add(intToRecord(3*i)) ;
+        
+        // Same storage, new object : the dictionary comes from the blocks.
+        ExtHash extHash2 = new ExtHash(mgrDictionary, factory, mgrBuckets) ;
+        assertEquals(extHash1.dictionarySize(), extHash2.dictionarySize()) ;
+        extHash2.check() ;
+        for ( int i = 0 ; i < 500 ; i++ )
+        {
+            Record r = intToRecord(3*i) ;
+            assertNotNull(extHash2.find(r)) ;
+            assertNull(extHash2.find(intToRecord(3*i+1))) ;
+        }
+        assertEquals(500, extHash2.size()) ;
+    }
+    
+    @Test public void exthash_blocks_file()
+    {
+        FileSet fileSet = new FileSet(ConfigTest.getCleanDir(), "exthash") ;
+        RecordFactory factory = RecordLib.recordFactory ;
+        ExtHash extHash = create(fileSet, factory) ;
+        for ( int i = 0 ; i < 500 ; i++ )
+            extHash.add(intToRecord(i)) ;
+        extHash.sync() ;
+        extHash.close() ;
+        
+        extHash = create(fileSet, factory) ;
+        extHash.check() ;
+        for ( int i = 0 ; i < 500 ; i++ )
+            assertNotNull(extHash.find(intToRecord(i))) ;
+        assertEquals(500, extHash.size()) ;
+        extHash.close() ;
+    }
+
+    private static ExtHash create(FileSet fileSet, RecordFactory factory)
+    {
+        BlockMgr mgrDictionary = BlockMgrFactory.createStdFileNoCache(fileSet.filename(Names.extHashExt), 64) ;
+        BlockMgr mgrBuckets = BlockMgrFactory.createStdFileNoCache(fileSet.filename(Names.extHashBucketExt), 64) ;
+        return new ExtHash(mgrDictionary, factory, mgrBuckets) ;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import static org.apache.jena.atlas.lib.ByteBufferLib.fill ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.block.* ;
+
+public class TestCacheTuner extends BaseTest
+{
+    static final int BlkSize = 256 ;
+    static final String dir = ConfigTest.getCleanDir() ;
+
+    private BlockMgrCache cacheA ;
+    private BlockMgrCache cacheB ;
+    private long[] blocksA ;
+    private long[] blocksB ;
+
+    @Before public void before()
+    {
+        FileOps.clearDirectory(dir) ;
+        cacheA = make("A", 20) ;
+        cacheB = make("B", 20) ;
+        blocksA = writeBlocks(cacheA, 60) ;
+        blocksB = writeBlocks(cacheB, 5) ;
+    }
+
+    @After public void after()
+    {
+        cacheA.close() ;
+        cacheB.close() ;
+        FileOps.clearDirectory(dir) ;
+    }
+
+    private static BlockMgrCache make(String name, int readSlots)
+    {
+        BlockMgr mgr = BlockMgrFactory.createStdFileNoCache(dir+"/"+name, BlkSize) ;
+        return (BlockMgrCache)BlockMgrFactory.addCache(mgr, BlockCacheType.lru, readSlots, 0) ;
+    }
+
+    private static long[] writeBlocks(BlockMgr blockMgr, int N)
+    {
+        long[] ids = new long[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Block block = blockMgr.allocate(BlkSize) ;
+            fill(block.getByteBuffer(), (byte)i) ;
+            ids[i] = block.getId() ;
+            blockMgr.write(block) ;
+            blockMgr.release(block) ;
+        }
+        blockMgr.sync() ;
+        return ids ;
+    }
+
+    private static void read(BlockMgr blockMgr, long[] ids, int rounds)
+    {
+        for ( int j = 0 ; j < rounds ; j++ )
+            for ( long id : ids )
+                blockMgr.release(blockMgr.getRead(id)) ;
+    }
+
+    private CacheTuner tuner(int budget)
+    {
+        CacheTuner tuner = new CacheTuner(budget, 0) ;
+        tuner.addBlockCache("A", cacheA) ;
+        tuner.addBlockCache("B", cacheB) ;
+        return tuner ;
+    }
+
+    @Test public void tuner_01()
+    {
+        // No budget : watch only.
+        CacheTuner tuner = tuner(-1) ;
+        read(cacheA, blocksA, 3) ;
+        tuner.rebalance() ;
+        assertEquals(20, cacheA.getReadCacheSize()) ;
+        assertEquals(20, cacheB.getReadCacheSize()) ;
+        assertEquals(1, tuner.getRebalanceCount()) ;
+        assertEquals(0, tuner.getSlotsMoved()) ;
+        String[] caches = tuner.getCaches() ;
+        assertEquals(2, caches.length) ;
+        assertTrue(caches[0].startsWith("A ")) ;
+        tuner.close() ;
+    }
+
+    @Test public void tuner_02()
+    {
+        // Slots move from the cold cache to the hot one.
+        CacheTuner tuner = tuner(40) ;
+        read(cacheA, blocksA, 3) ;
+        read(cacheB, blocksB, 3) ;
+        tuner.rebalance() ;
+        int sizeA = cacheA.getReadCacheSize() ;
+        int sizeB = cacheB.getReadCacheSize() ;
+        assertTrue(sizeA > 20) ;
+        assertTrue(sizeB < 20) ;
+        // At least a quarter of an even share.
+        assertTrue(sizeB >= 5) ;
+        assertTrue(sizeA+sizeB <= 40) ;
+        assertEquals(sizeA-20, tuner.getSlotsMoved()) ;
+        assertTrue(tuner.getDecisions().length > 0) ;
+        tuner.close() ;
+    }
+
+    @Test public void tuner_03()
+    {
+        // Repeated rebalances : the hot cache keeps growing, up to what the budget allows.
+        CacheTuner tuner = tuner(40) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            read(cacheA, blocksA, 2) ;
+            read(cacheB, blocksB, 2) ;
+            tuner.rebalance() ;
+        }
+        assertEquals(35, cacheA.getReadCacheSize()) ;
+        assertEquals(5, cacheB.getReadCacheSize()) ;
+        // B still holds its working set.
+        long misses = cacheB.getCacheMisses() ;
+        read(cacheB, blocksB, 1) ;
+        assertEquals(misses, cacheB.getCacheMisses()) ;
+        tuner.close() ;
+    }
+
+    @Test public void tuner_04()
+    {
+        // Budget smaller than the caches in use.
+        CacheTuner tuner = tuner(-1) ;
+        tuner.setCacheBudget(30) ;
+        assertEquals(30, tuner.getCacheBudget()) ;
+        tuner.rebalance() ;
+        assertTrue(cacheA.getReadCacheSize()+cacheB.getReadCacheSize() <= 30) ;
+        tuner.close() ;
+    }
+
+    @Test public void tuner_05()
+    {
+        // No change when neither cache is ejecting entries.
+        CacheTuner tuner = tuner(40) ;
+        read(cacheB, blocksB, 3) ;
+        tuner.rebalance() ;
+        assertEquals(20, cacheA.getReadCacheSize()) ;
+        assertEquals(20, cacheB.getReadCacheSize()) ;
+        assertEquals(0, tuner.getDecisions().length) ;
+        tuner.close() ;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.sys.TDBMaker ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+
+public class TestTDBCacheInfo extends BaseTest
+{
+    static Quad q1 = SSE.parseQuad("(<g> <s> <p> 1)") ;
+    static Quad q2 = SSE.parseQuad("(<g> <s> <p> 'abc')") ;
+
+    Location location = null ;
+
+    @Before public void before()
+    {
+        TDBMaker.reset() ;
+        location = Location.create(ConfigTest.getCleanDir()) ;
+    }
+
+    @After public void after()
+    {
+        TDBMaker.reset() ;
+    }
+
+    private static long lookups(TDBCacheInfo info)
+    {
+        return info.getNode2NodeIdCacheHits()+info.getNode2NodeIdCacheMisses() ;
+    }
+
+    @Test public void cacheInfo_1()
+    {
+        // One per managed StoreConnection, watching the node table of the base dataset.
+        StoreConnection sConn = StoreConnection.make(location) ;
+        TDBCacheInfo info = sConn.getCacheInfo() ;
+        assertNotNull(info) ;
+        assertNotNull(info.getNodeCacheType()) ;
+        assertSame(info, StoreConnection.make(location).getCacheInfo()) ;
+    }
+
+    @Test public void cacheInfo_2()
+    {
+        StoreConnection sConn = StoreConnection.make(location) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.commit() ;
+        dsg.end() ;
+
+        TDBCacheInfo info = sConn.getCacheInfo() ;
+        long before = lookups(info) ;
+        dsg = sConn.begin(ReadWrite.READ) ;
+        Iterator<Quad> iter = dsg.find(q1.getGraph(), q1.getSubject(), Node.ANY, Node.ANY) ;
+        while ( iter.hasNext() )
+            iter.next() ;
+        dsg.end() ;
+        assertTrue(lookups(info) > before) ;
+    }
+}
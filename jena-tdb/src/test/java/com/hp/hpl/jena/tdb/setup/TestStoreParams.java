@@ -24,7 +24,11 @@ import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.Test ;
 
 import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeCacheType ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeEncoding ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeIndexType ;
 
 public class TestStoreParams extends BaseTest {
 
@@ -92,6 +96,65 @@ public class TestStoreParams extends BaseTest {
         assertArrayEquals(expected, params.getTripleIndexes()) ;
     }
 
+    @Test public void store_params_15() {
+        String xs = "{ \"tdb.node_cache_type\" : \"concurrent\" }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals(NodeCacheType.concurrent, params.getNodeCacheType()) ;
+        assertTrue(params.isSetNodeCacheType()) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
+    @Test public void store_params_16() {
+        String xs = "{ \"tdb.block_cache_type\" : \"concurrent\" }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals(BlockCacheType.concurrent, params.getBlockCacheType()) ;
+        assertTrue(params.isSetBlockCacheType()) ;
+        assertFalse(params.isSetNodeCacheType()) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
+    @Test public void store_params_17() {
+        String xs = "{ \"tdb.node_encoding\" : \"compressed\" }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals(NodeEncoding.compressed, params.getNodeEncoding()) ;
+        assertEquals(NodeEncoding.sse, StoreParams.getDftStoreParams().getNodeEncoding()) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
+    @Test public void store_params_18() {
+        String xs = "{ \"tdb.index_node2id_type\" : \"exthash\" }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals(NodeIndexType.exthash, params.getNode2IdIndexType()) ;
+        assertEquals(NodeIndexType.bptree, StoreParams.getDftStoreParams().getNode2IdIndexType()) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
+    @Test public void store_params_19() {
+        String xs = "{ \"tdb.cache_budget\" : 50000 }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals(50000, params.getCacheBudget().intValue()) ;
+        assertTrue(params.isSetCacheBudget()) ;
+        assertFalse(StoreParams.getDftStoreParams().isSetCacheBudget()) ;
+        // Dynamic : can be changed for an existing database.
+        StoreParams params2 = StoreParamsBuilder.modify(StoreParams.getDftStoreParams(), params) ;
+        assertEquals(50000, params2.getCacheBudget().intValue()) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
+    @Test public void store_params_1A() {
+        String xs = "{ \"tdb.node_namespaces\" : [ \"http://example/a#\" , \"http://example/b#\" ] }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertArrayEquals(new String[]{ "http://example/a#", "http://example/b#" }, params.getNodeNamespaces()) ;
+        assertEquals(0, StoreParams.getDftStoreParams().getNodeNamespaces().length) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
     // Check that setting gets recorded and propagated.
 
     @Test public void store_params_20() {
@@ -128,6 +191,15 @@ public class TestStoreParams extends BaseTest {
         
     }
 
+    @Test public void store_params_23() {
+        String xs = "{ \"tdb.union_indexes\" : [ \"SPO\" , \"POS\" ] }" ;
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertArrayEquals(new String[]{"SPO", "POS"}, params.getUnionIndexes()) ;
+        assertEquals(0, StoreParams.getDftStoreParams().getUnionIndexes().length) ;
+        assertEqualsStoreParams(params, roundTrip(params)) ;
+    }
+
     
     // --------
     
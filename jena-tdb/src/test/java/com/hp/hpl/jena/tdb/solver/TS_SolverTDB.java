@@ -25,6 +25,8 @@ import org.junit.runners.Suite ;
 @Suite.SuiteClasses( {
     TestSolverTDB.class     // Tests the TDB connectivity
     , TestStats.class
+    , TestFilterRange.class
+    , TestCharacteristicSets.class
 })
 
 public class TS_SolverTDB
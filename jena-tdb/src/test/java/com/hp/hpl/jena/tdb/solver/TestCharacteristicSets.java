@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.Arrays ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.BasicPattern ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSets ;
+import com.hp.hpl.jena.tdb.solver.stats.CharacteristicSetsTracker ;
+import com.hp.hpl.jena.tdb.solver.stats.ReorderCharacteristicSets ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsCollectorCharSets ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.sys.TDBInternal ;
+
+public class TestCharacteristicSets extends BaseTest
+{
+    static Node p = SSE.parseNode("<http://example/p>") ;
+    static Node q = SSE.parseNode("<http://example/q>") ;
+    static Node r = SSE.parseNode("<http://example/r>") ;
+
+    private static Map<Node, Long> subject(Object... pairs)
+    {
+        Map<Node, Long> x = new HashMap<>() ;
+        for ( int i = 0 ; i < pairs.length ; i += 2 )
+            x.put((Node)pairs[i], ((Number)pairs[i+1]).longValue()) ;
+        return x ;
+    }
+
+    // 10 subjects with p (1 each) and q (2 each), 90 subjects with only r.
+    private static CharacteristicSets example()
+    {
+        CharacteristicSets stats = new CharacteristicSets() ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            stats.addSubject(subject(p, 1, q, 2)) ;
+        for ( int i = 0 ; i < 90 ; i++ )
+            stats.addSubject(subject(r, 1)) ;
+        return stats ;
+    }
+
+    private static DatasetGraphTDB data()
+    {
+        DatasetGraphTDB dsg = TDBInternal.getBaseDatasetGraphTDB(TDBFactory.createDatasetGraph()) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s1> <http://example/p> 1)")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s1> <http://example/q> 2)")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s1> <http://example/q> 3)")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s2> <http://example/p> 1)")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s3> <http://example/r> 1)")) ;
+        return dsg ;
+    }
+
+    @Test public void charsets_01()
+    {
+        CharacteristicSets stats = example() ;
+        assertEquals(2, stats.getNumCharSets()) ;
+        assertEquals(100, stats.getSubjects()) ;
+        assertEquals(120, stats.getCount()) ;
+        assertEquals(20, stats.getPredicateStats(q).getTriples()) ;
+        assertEquals(10, stats.getPredicateStats(q).getSubjects()) ;
+        assertEquals(10, stats.estimateSubjects(Arrays.asList(p, q)), 0.01) ;
+        assertEquals(20, stats.estimateStar(Arrays.asList(p, q)), 0.01) ;
+        // p and r never occur together.
+        assertEquals(0, stats.estimateStar(Arrays.asList(p, r)), 0.01) ;
+    }
+
+    @Test public void charsets_02()
+    {
+        CharacteristicSets stats = example() ;
+        stats.removeSubject(subject(p, 1, q, 2)) ;
+        assertEquals(9, stats.getCharSet(subject(p, 1, q, 2).keySet()).getSubjects()) ;
+        assertEquals(117, stats.getCount()) ;
+        for ( int i = 0 ; i < 90 ; i++ )
+            stats.removeSubject(subject(r, 1)) ;
+        assertEquals(1, stats.getNumCharSets()) ;
+        assertNull(stats.getCharSet(subject(r, 1).keySet())) ;
+    }
+
+    @Test public void charsets_03()
+    {
+        CharacteristicSets stats = example() ;
+        stats.addObjects(q, 5) ;
+        stats.setHeavyHitter(q, SSE.parseNode("1"), 15) ;
+        CharacteristicSets stats2 = CharacteristicSets.parse(stats.format()) ;
+        assertEquals(stats.getCount(), stats2.getCount()) ;
+        assertEquals(stats.getSubjects(), stats2.getSubjects()) ;
+        assertEquals(stats.getNumCharSets(), stats2.getNumCharSets()) ;
+        assertEquals(5, stats2.getPredicateStats(q).getObjects()) ;
+        assertEquals(Long.valueOf(15), stats2.getPredicateStats(q).getHeavyHitters().get(SSE.parseNode("1"))) ;
+    }
+
+    @Test public void charsets_04()
+    {
+        CharacteristicSets stats = StatsCollectorCharSets.gather(data().getTripleTable().getNodeTupleTable()) ;
+        assertEquals(5, stats.getCount()) ;
+        assertEquals(3, stats.getSubjects()) ;
+        assertEquals(3, stats.getNumCharSets()) ;
+        assertEquals(2, stats.getPredicateStats(p).getSubjects()) ;
+        assertEquals(1, stats.getPredicateStats(p).getObjects()) ;
+        assertEquals(2, stats.getPredicateStats(q).getObjects()) ;
+    }
+
+    @Test public void charsets_05()
+    {
+        // Online changes give the same statistics as a full scan.
+        DatasetGraphTDB dsg = data() ;
+        CharacteristicSets stats = StatsCollectorCharSets.gather(dsg.getTripleTable().getNodeTupleTable()) ;
+        CharacteristicSetsTracker tracker = new CharacteristicSetsTracker(stats, dsg) ;
+        dsg.setMonitor(tracker) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s2> <http://example/q> 2)")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s2> <http://example/q> 2)")) ;
+        dsg.delete(SSE.parseQuad("(_ <http://example/s3> <http://example/r> 1)")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s4> <http://example/r> 9)")) ;
+        dsg.setMonitor(null) ;
+        tracker.apply() ;
+        
+        CharacteristicSets stats2 = StatsCollectorCharSets.gather(dsg.getTripleTable().getNodeTupleTable()) ;
+        assertEquals(stats2.getCount(), stats.getCount()) ;
+        assertEquals(stats2.getSubjects(), stats.getSubjects()) ;
+        assertEquals(stats2.getNumCharSets(), stats.getNumCharSets()) ;
+        for ( Node n : Arrays.asList(p, q, r) )
+        {
+            assertEquals(stats2.getPredicateStats(n).getTriples(), stats.getPredicateStats(n).getTriples()) ;
+            assertEquals(stats2.getPredicateStats(n).getSubjects(), stats.getPredicateStats(n).getSubjects()) ;
+            assertEquals(stats2.getPredicateStats(n).getObjects(), stats.getPredicateStats(n).getObjects()) ;
+        }
+    }
+
+    @Test public void charsets_06()
+    {
+        // ?x :r ?w is the largest pattern but no subject has both :p and :r
+        // so, as a star, it is the most selective after ?x :p ?u.
+        CharacteristicSets stats = example() ;
+        ReorderCharacteristicSets reorder = new ReorderCharacteristicSets(stats) ;
+        BasicPattern bgp = SSE.parseBGP("(bgp (?x <http://example/r> ?w) (?x <http://example/q> ?v) (?x <http://example/p> ?u))") ;
+        BasicPattern bgp2 = reorder.reorder(bgp) ;
+        assertEquals(bgp.get(2), bgp2.get(0)) ;
+        assertEquals(bgp.get(0), bgp2.get(1)) ;
+        assertEquals(bgp.get(1), bgp2.get(2)) ;
+    }
+
+    @Test public void charsets_07()
+    {
+        // A predicate not in the data goes first.
+        CharacteristicSets stats = example() ;
+        ReorderCharacteristicSets reorder = new ReorderCharacteristicSets(stats) ;
+        BasicPattern bgp = SSE.parseBGP("(bgp (?x <http://example/p> ?w) (?x <http://example/other> ?v))") ;
+        BasicPattern bgp2 = reorder.reorder(bgp) ;
+        assertEquals(bgp.get(1), bgp2.get(0)) ;
+    }
+}
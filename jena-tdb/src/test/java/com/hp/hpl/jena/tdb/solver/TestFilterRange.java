@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.Map ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.ExprUtils ;
+import com.hp.hpl.jena.tdb.store.IntegerNode ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+
+public class TestFilterRange extends BaseTest
+{
+    static Var x = Var.alloc("x") ;
+    
+    private static FilterRange range(String exprStr)
+    {
+        ExprList exprs = new ExprList(ExprUtils.parse(exprStr)) ;
+        Map<Var, FilterRange> ranges = FilterRange.create(exprs) ;
+        return ranges.get(x) ;
+    }
+
+    // Test whether a NodeId is in one of the ranges.
+    private static boolean contains(FilterRange r, NodeId id)
+    {
+        long v = id.getId() + Long.MIN_VALUE ;
+        for ( int i = 0 ; i < r.size() ; i++ )
+        {
+            if ( r.start(i).getId() + Long.MIN_VALUE <= v && v < r.finish(i).getId() + Long.MIN_VALUE )
+                return true ;
+        }
+        return false ;
+    }
+
+    private static boolean contains(FilterRange r, String nodeStr)
+    {
+        NodeId id = NodeId.inline(SSE.parseNode(nodeStr)) ;
+        assertNotNull(id) ;
+        return contains(r, id) ;
+    }
+
+    @Test public void filter_range_01()
+    {
+        FilterRange r = range("?x > 5") ;
+        assertNotNull(r) ;
+        assertEquals(3, r.size()) ;
+        assertEquals(IntegerNode.pack(6), r.start(1).getId()) ;
+        assertFalse(contains(r, "5")) ;
+        assertTrue(contains(r, "6")) ;
+        assertFalse(contains(r, "-1")) ;
+        // Not inline : always included.
+        assertTrue(contains(r, NodeId.create(0x00000000000000FFL))) ;
+    }
+
+    @Test public void filter_range_02()
+    {
+        // Negative integers sort after positive ones.
+        FilterRange r = range("?x < 0") ;
+        assertNotNull(r) ;
+        assertEquals(2, r.size()) ;
+        assertEquals(IntegerNode.pack(IntegerNode.MIN), r.start(1).getId()) ;
+        assertTrue(contains(r, "-7")) ;
+        assertFalse(contains(r, "0")) ;
+        assertFalse(contains(r, "7")) ;
+    }
+
+    @Test public void filter_range_03()
+    {
+        FilterRange r = range("?x >= 3 && 4.5 >= ?x") ;
+        assertNotNull(r) ;
+        assertFalse(contains(r, "2")) ;
+        assertTrue(contains(r, "3")) ;
+        assertTrue(contains(r, "4")) ;
+        assertFalse(contains(r, "5")) ;
+        // Decimals are not restricted.
+        assertTrue(contains(r, "9.5")) ;
+    }
+
+    @Test public void filter_range_04()
+    {
+        assertNull(range("?x = 'abc'")) ;
+        assertNull(range("?x != 5")) ;
+        assertNull(range("?x > ?y")) ;
+    }
+
+    @Test public void filter_range_05()
+    {
+        FilterRange r = range("?x >= '2010-06-15'^^<http://www.w3.org/2001/XMLSchema#date>") ;
+        assertNotNull(r) ;
+        assertTrue(contains(r, "'2010-06-15'^^<http://www.w3.org/2001/XMLSchema#date>")) ;
+        assertTrue(contains(r, "'2010-06-14+05:00'^^<http://www.w3.org/2001/XMLSchema#date>")) ;
+        assertTrue(contains(r, "'2020-01-01Z'^^<http://www.w3.org/2001/XMLSchema#date>")) ;
+        assertFalse(contains(r, "'2009-06-15'^^<http://www.w3.org/2001/XMLSchema#date>")) ;
+        assertFalse(contains(r, "'2009-06-15Z'^^<http://www.w3.org/2001/XMLSchema#date>")) ;
+        // Other inline types
+        assertTrue(contains(r, "1")) ;
+        assertTrue(contains(r, "'2001-06-15T00:00:00'^^<http://www.w3.org/2001/XMLSchema#dateTime>")) ;
+    }
+
+    @Test public void filter_range_06()
+    {
+        // Finding the range, or the gap before it, for a NodeId.
+        FilterRange r = range("?x > 5") ;
+        NodeId six = NodeId.inline(SSE.parseNode("6")) ;
+        NodeId five = NodeId.inline(SSE.parseNode("5")) ;
+        NodeId minus = NodeId.inline(SSE.parseNode("-1")) ;
+        assertEquals(1, r.next(six)) ;
+        assertTrue(r.contains(1, six)) ;
+        // In the gap before range 1.
+        assertEquals(1, r.next(five)) ;
+        assertFalse(r.contains(1, five)) ;
+        // Negative integers : in the gap before the last range.
+        assertEquals(2, r.next(minus)) ;
+        assertFalse(r.contains(2, minus)) ;
+        assertEquals(0, r.next(NodeId.create(0x00000000000000FFL))) ;
+        assertTrue(r.contains(0, NodeId.create(0x00000000000000FFL))) ;
+    }
+
+    @Test public void filter_range_07()
+    {
+        // Dates : every timezone has a range; each NodeId is found in its own.
+        FilterRange r = range("?x >= '2010-06-15'^^<http://www.w3.org/2001/XMLSchema#date>") ;
+        String[] dates = { "'2010-06-15'^^<http://www.w3.org/2001/XMLSchema#date>",
+                           "'2010-06-14+05:00'^^<http://www.w3.org/2001/XMLSchema#date>",
+                           "'2020-01-01Z'^^<http://www.w3.org/2001/XMLSchema#date>" } ;
+        for ( String d : dates )
+        {
+            NodeId id = NodeId.inline(SSE.parseNode(d)) ;
+            int i = r.next(id) ;
+            assertTrue(i < r.size()) ;
+            assertTrue(r.contains(i, id)) ;
+        }
+        NodeId early = NodeId.inline(SSE.parseNode("'2009-06-15Z'^^<http://www.w3.org/2001/XMLSchema#date>")) ;
+        assertFalse(r.contains(r.next(early), early)) ;
+    }
+}
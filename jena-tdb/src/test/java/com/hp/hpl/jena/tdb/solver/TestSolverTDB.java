@@ -26,6 +26,7 @@ import java.util.List ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.StrUtils ;
+import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
 
@@ -49,6 +50,7 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
 import com.hp.hpl.jena.sparql.sse.SSE ;
 import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBFactory ;
 import com.hp.hpl.jena.util.FileManager ;
 
@@ -67,8 +69,16 @@ public class TestSolverTDB extends BaseTest
 
         pmap = new PrefixMappingImpl() ;
         pmap.setNsPrefix("", "http://example/") ;
-        
+        TDB.getContext().set(TDB.symMergeJoin, true) ;
+    }
+    
+    @AfterClass static public void afterClass()
+    {
+        TDB.getContext().unset(TDB.symMergeJoin) ;
+        StageMergeJoin.MaxRunSize = maxRunSize ;
     }
+    
+    static int maxRunSize = StageMergeJoin.MaxRunSize ;
             
     static private void addAll(Graph srcGraph, Graph dstGraph)
     {
@@ -125,6 +135,68 @@ public class TestSolverTDB extends BaseTest
         equals(rs1, rs2) ;
     }
 
+    @Test public void solve_07()
+    {
+        // Star, merge join on ?s.
+        ResultSet rs1 = exec("(bgp (?s :p :o) (?s :p :x))", graph) ;
+        ResultSet rs2 = results("(row (?s :s))") ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_08()
+    {
+        // Chain, merge join on ?z.
+        ResultSet rs1 = exec("(bgp (?z :q :y) (:s :p ?z))", graph) ;
+        ResultSet rs2 = results("(row (?z :x))") ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_09()
+    {
+        // Star, merge join on ?s, no match.
+        ResultSet rs1 = exec("(bgp (?s :p :o) (?s :q :y))", graph) ;
+        ResultSet rs2 = results("empty") ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_10()
+    {
+        // Merge join on ?p, several tuples for each value of ?p.
+        ResultSet rs1 = exec("(bgp (:h ?p ?o1) (:k ?p ?o2))", hubGraph()) ;
+        ResultSet rs2 = results(hubRows()) ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_11()
+    {
+        // As solve_10, with a run longer than a merge join holds.
+        StageMergeJoin.MaxRunSize = 2 ;
+        try {
+            ResultSet rs1 = exec("(bgp (:h ?p ?o1) (:k ?p ?o2))", hubGraph()) ;
+            ResultSet rs2 = results(hubRows()) ;
+            equals(rs1, rs2) ;
+        } finally { StageMergeJoin.MaxRunSize = maxRunSize ; }
+    }
+
+    private static Graph hubGraph()
+    {
+        Graph g = TDBFactory.createDatasetGraph().getDefaultGraph() ;
+        for ( String t : new String[]{ "(:h :p :a1)", "(:h :p :a2)", "(:h :p :a3)",
+                                       "(:k :p :b1)", "(:k :p :b2)",
+                                       "(:h :q :c)", "(:k :r :d)" } )
+            g.add(SSE.parseTriple(t, pmap)) ;
+        return g ;
+    }
+
+    private static String[] hubRows()
+    {
+        List<String> rows = new ArrayList<>() ;
+        for ( String a : new String[]{ ":a1", ":a2", ":a3" } )
+            for ( String b : new String[]{ ":b1", ":b2" } )
+                rows.add("(row (?p :p) (?o1 "+a+") (?o2 "+b+"))") ;
+        return rows.toArray(new String[0]) ;
+    }
+
     // ------
     
     private static void equals(ResultSet rs1, ResultSet rs2)
@@ -44,6 +44,9 @@ import com.hp.hpl.jena.tdb.sys.TestOps ;
     , TestStoreConnectionsDirect.class
     , TestStoreConnectionsMapped.class
     , TestLocationLockStoreConnection.class
+    , TestTDBCompact.class
+    , TestTDBFreeze.class
+    , TestUnionTable.class
 } )
 public class TS_Store
 { 
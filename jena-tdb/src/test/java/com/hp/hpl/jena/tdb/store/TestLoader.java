@@ -38,6 +38,7 @@ import com.hp.hpl.jena.tdb.ConfigTest ;
 import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBLoader ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader ;
 import com.hp.hpl.jena.tdb.sys.TDBMaker ;
 
 public class TestLoader extends BaseTest {
@@ -163,4 +164,36 @@ public class TestLoader extends BaseTest {
         String uri2 = dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("") ;
         assertNull(uri2) ;
     }
+
+    @Test
+    public void load_pipeline_01() {
+        DatasetGraphTDB dsg = fresh() ;
+        BulkLoader.pipelined = true ;
+        try {
+            TDBLoader.load(dsg, DIR + "data-2.nt", false) ;
+        } finally { BulkLoader.pipelined = false ; }
+        assertEquals(1, dsg.getDefaultGraph().size()) ;
+        // All indexes.
+        List<Triple> x = Iter.toList(dsg.getDefaultGraph().find(s, null, null)) ;
+        assertEquals(1, x.size()) ;
+        x = Iter.toList(dsg.getDefaultGraph().find(null, p, null)) ;
+        assertEquals(1, x.size()) ;
+        x = Iter.toList(dsg.getDefaultGraph().find(null, null, o)) ;
+        assertEquals(1, x.size()) ;
+    }
+
+    @Test
+    public void load_pipeline_02() {
+        DatasetGraphTDB dsg = fresh() ;
+        BulkLoader.pipelined = true ;
+        try {
+            TDBLoader.load(dsg, DIR + "data-1.nq", false) ;
+        } finally { BulkLoader.pipelined = false ; }
+        assertTrue(dsg.getDefaultGraph().isEmpty()) ;
+        assertEquals(1, dsg.getGraph(g).size()) ;
+        List<Quad> z = Iter.toList(dsg.find(null, null, null, o)) ;
+        assertEquals(1, z.size()) ;
+        z = Iter.toList(dsg.find(null, null, p, null)) ;
+        assertEquals(1, z.size()) ;
+    }
 }
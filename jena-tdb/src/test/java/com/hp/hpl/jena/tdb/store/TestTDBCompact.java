@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.io.ByteArrayInputStream ;
+import java.io.File ;
+import java.io.IOException ;
+import java.nio.charset.StandardCharsets ;
+import java.nio.file.Files ;
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBCompact ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.TDBLoader ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+import com.hp.hpl.jena.tdb.transaction.TransactionManager ;
+
+public class TestTDBCompact extends BaseTest
+{
+    static Quad q1 = SSE.parseQuad("(<g> <s> <p> 1)") ;
+    static Quad q2 = SSE.parseQuad("(<g> <s> <p> 2)") ;
+    static Quad q3 = SSE.parseQuad("(<g> <s> <p> 3)") ;
+    
+    String DIR = null ;
+    long switchTimeout ;
+
+    @Before public void before()
+    {
+        StoreConnection.reset() ;
+        DIR = ConfigTest.getCleanDir() ;
+        switchTimeout = TDBCompact.SwitchTimeout ;
+    }
+
+    @After public void after()
+    {
+        TDBCompact.SwitchTimeout = switchTimeout ;
+        StoreConnection.reset() ;
+    }
+    
+    private static void write(StoreConnection sConn, Quad add, Quad delete)
+    {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        if ( add != null )
+            dsg.add(add) ;
+        if ( delete != null )
+            dsg.delete(delete) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+    
+    private static void check(StoreConnection sConn, Quad... quads)
+    {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        try {
+            for ( Quad quad : quads )
+                assertTrue(dsg.contains(quad)) ;
+            long count = 0 ;
+            for ( Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+                count++ ;
+            assertEquals(quads.length, count) ;
+        } finally { dsg.end() ; }
+    }
+
+    @Test public void compact_1()
+    {
+        StoreConnection sConn = StoreConnection.make(DIR) ;
+        write(sConn, q1, null) ;
+        write(sConn, q2, null) ;
+        write(sConn, q3, q2) ;
+        TDBCompact.compact(sConn) ;
+        check(sConn, q1, q3) ;
+        assertFalse(FileOps.exists(Location.create(DIR).getPath(TDBCompact.dirCompact))) ;
+        assertFalse(FileOps.exists(Location.create(DIR).getPath(TDBCompact.dirCompactOld))) ;
+    }
+
+    @Test public void compact_2()
+    {
+        // Usable afterwards, and after a restart.
+        StoreConnection sConn = StoreConnection.make(DIR) ;
+        write(sConn, q1, null) ;
+        TDBCompact.compact(sConn) ;
+        write(sConn, q2, q1) ;
+        check(sConn, q2) ;
+        StoreConnection.release(sConn.getLocation()) ;
+        check(StoreConnection.make(DIR), q2) ;
+    }
+
+    @Test public void compact_3()
+    {
+        // A long running reader stops the switch; the dataset is unchanged.
+        TDBCompact.SwitchTimeout = 100 ;
+        StoreConnection sConn = StoreConnection.make(DIR) ;
+        write(sConn, q1, null) ;
+        DatasetGraphTxn reader = sConn.begin(ReadWrite.READ) ;
+        try {
+            TDBCompact.compact(sConn) ;
+            fail("Compaction switched with an active reader") ;
+        } catch (TDBException ex) {}
+        reader.end() ;
+        check(sConn, q1) ;
+        assertFalse(FileOps.exists(Location.create(DIR).getPath(TDBCompact.dirCompact))) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void compact_4()
+    {
+        TDBCompact.compact(Location.mem()) ;
+    }
+    
+    private static DatasetGraphTDB create(Location location, Quad... quads)
+    {
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(location) ;
+        for ( Quad q : quads )
+            dsg.add(q) ;
+        dsg.sync() ;
+        dsg.close() ;
+        return dsg ;
+    }
+    
+    @Test public void compact_5() throws IOException
+    {
+        // Stopped part way through the switch: finished when next opened.
+        Location location = Location.create(DIR) ;
+        create(location, q1) ;
+        Location newLocation = location.getSubLocation(TDBCompact.dirCompact) ;
+        create(newLocation, q2) ;
+        new File(newLocation.getPath(TDBCompact.markerSwitch)).createNewFile() ;
+        // One file already moved to one side.
+        File oldDir = new File(location.getSubDirectory(TDBCompact.dirCompactOld)) ;
+        for ( File f : new File(newLocation.getDirectoryPath()).listFiles() )
+        {
+            File current = new File(location.getDirectoryPath(), f.getName()) ;
+            if ( current.exists() )
+            {
+                Files.move(current.toPath(), new File(oldDir, f.getName()).toPath()) ;
+                break ;
+            }
+        }
+        
+        check(StoreConnection.make(location), q2) ;
+        assertFalse(FileOps.exists(location.getPath(TDBCompact.dirCompact))) ;
+        assertFalse(FileOps.exists(location.getPath(TDBCompact.dirCompactOld))) ;
+    }
+
+    @Test public void compact_6()
+    {
+        // Stopped before the new files were complete: discarded when next opened.
+        Location location = Location.create(DIR) ;
+        create(location, q1) ;
+        create(location.getSubLocation(TDBCompact.dirCompact), q2) ;
+        
+        check(StoreConnection.make(location), q1) ;
+        assertFalse(FileOps.exists(location.getPath(TDBCompact.dirCompact))) ;
+    }
+    
+    @Test public void compact_7()
+    {
+        // Too many changes in one transaction to pass on: the listener is dropped, not given some of them.
+        TransactionManager txnMgr = new TransactionManager(DatasetBuilderStd.create(Location.mem())) ;
+        Recorder recorder = new Recorder() ;
+        txnMgr.setCommitListener(recorder, 2) ;
+        DatasetGraphTxn dsg = txnMgr.begin(ReadWrite.WRITE) ;
+        dsg.add(q1) ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertEquals(1, recorder.changes.size()) ;
+        assertSame(recorder, txnMgr.getCommitListener()) ;
+        
+        dsg = txnMgr.begin(ReadWrite.WRITE) ;
+        dsg.add(q2) ;
+        dsg.add(q3) ;
+        dsg.delete(q1) ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertEquals(1, recorder.changes.size()) ;
+        assertNull(txnMgr.getCommitListener()) ;
+        txnMgr.closedown() ;
+    }
+    
+    @Test public void compact_8()
+    {
+        // Loading with the bulk loader in a transaction is seen, and so is clear().
+        TransactionManager txnMgr = new TransactionManager(DatasetBuilderStd.create(Location.mem())) ;
+        Recorder recorder = new Recorder() ;
+        txnMgr.setCommitListener(recorder, 100) ;
+        DatasetGraphTxn dsg = txnMgr.begin(ReadWrite.WRITE) ;
+        String data = "<g> <s> <p> \"1\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n<s> <p> <o> .\n" ;
+        TDBLoader.load(dsg.getView(), new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), false) ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertEquals(2, recorder.changes.size()) ;
+        assertTrue(recorder.changes.contains(QuadAction.ADD+" "+q1)) ;
+        
+        dsg = txnMgr.begin(ReadWrite.WRITE) ;
+        dsg.clear() ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertEquals(4, recorder.changes.size()) ;
+        assertTrue(recorder.changes.contains(QuadAction.DELETE+" "+q1)) ;
+        txnMgr.closedown() ;
+    }
+    
+    @Test public void compact_9()
+    {
+        // Settings in the dataset context are kept across the switch.
+        StoreConnection sConn = StoreConnection.make(DIR) ;
+        sConn.getBaseDataset().getContext().set(TDB.symUnionDefaultGraph, true) ;
+        write(sConn, q1, null) ;
+        TDBCompact.compact(sConn) ;
+        assertTrue(sConn.getBaseDataset().getContext().isTrue(TDB.symUnionDefaultGraph)) ;
+        check(sConn, q1) ;
+    }
+    
+    private static class Recorder implements DatasetChanges
+    {
+        List<String> changes = new ArrayList<>() ;
+        
+        @Override
+        public void start()     {}
+
+        @Override
+        public void change(QuadAction qaction, Node g, Node s, Node p, Node o)
+        {
+            changes.add(qaction+" "+new Quad(g, s, p, o)) ;
+        }
+
+        @Override
+        public void finish()    {}
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.TDBFreeze ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.sys.TDBMaker ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+import com.hp.hpl.jena.tdb.transaction.TDBTransactionException ;
+
+public class TestTDBFreeze extends BaseTest
+{
+    static Quad q1 = SSE.parseQuad("(<g> <s> <p> 1)") ;
+    static Quad q2 = SSE.parseQuad("(<g> <s> <p> 'abc')") ;
+    static Quad q3 = SSE.parseQuad("(<g> <s> <p> <o>)") ;
+    
+    Location location = null ;
+
+    @Before public void before()
+    {
+        TDBMaker.reset() ;
+        location = Location.create(ConfigTest.getCleanDir()) ;
+        StoreConnection sConn = StoreConnection.make(location) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.commit() ;
+        dsg.end() ;
+        TDBFreeze.freeze(location) ;
+    }
+
+    @After public void after()
+    {
+        TDBMaker.reset() ;
+    }
+    
+    private static long count(DatasetGraph dsg)
+    {
+        long count = 0 ;
+        for ( Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+            count++ ;
+        return count ;
+    }
+
+    @Test public void freeze_1()
+    {
+        assertTrue(TDBFreeze.isFrozen(location)) ;
+        DatasetGraph dsg = TDBFactory.createDatasetGraph(location) ;
+        assertTrue(dsg instanceof DatasetGraphFrozen) ;
+        assertTrue(dsg.contains(q1)) ;
+        assertTrue(dsg.contains(q2)) ;
+        assertFalse(dsg.contains(q3)) ;
+        assertEquals(2, count(dsg)) ;
+    }
+
+    @Test public void freeze_2()
+    {
+        DatasetGraphFrozen dsg = (DatasetGraphFrozen)TDBFactory.createDatasetGraph(location) ;
+        dsg.begin(ReadWrite.READ) ;
+        assertTrue(dsg.isInTransaction()) ;
+        assertTrue(dsg.contains(q1)) ;
+        dsg.end() ;
+        assertFalse(dsg.isInTransaction()) ;
+        try {
+            dsg.begin(ReadWrite.WRITE) ;
+            fail("Write transaction on a frozen dataset") ;
+        } catch (TDBTransactionException ex) {}
+    }
+
+    @Test(expected=TDBException.class)
+    public void freeze_3()
+    {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph(location) ;
+        dsg.add(q3) ;
+    }
+    
+    @Test(expected=TDBException.class)
+    public void freeze_4()
+    {
+        StoreConnection.make(location) ;
+    }
+
+    @Test public void freeze_5()
+    {
+        TDBFactory.createDatasetGraph(location) ;
+        TDBFreeze.thaw(location) ;
+        assertFalse(TDBFreeze.isFrozen(location)) ;
+        DatasetGraph dsg = TDBFactory.createDatasetGraph(location) ;
+        assertTrue(dsg instanceof DatasetGraphTransaction) ;
+        StoreConnection sConn = StoreConnection.make(location) ;
+        DatasetGraphTxn txn = sConn.begin(ReadWrite.WRITE) ;
+        txn.add(q3) ;
+        txn.commit() ;
+        txn.end() ;
+        txn = sConn.begin(ReadWrite.READ) ;
+        assertEquals(3, count(txn)) ;
+        txn.end() ;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.io.ByteArrayInputStream ;
+import java.io.InputStream ;
+
+import org.apache.jena.atlas.iterator.Filter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.atlas.lib.Tuple ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** The union table : distinct triples of the named graphs, kept by DatasetGraphTDB */
+public class TestUnionTable extends BaseTest
+{
+    static Quad q1 = SSE.parseQuad("(<g1> <s> <p> <o>)") ;
+    static Quad q2 = SSE.parseQuad("(<g2> <s> <p> <o>)") ;
+    static Quad q3 = SSE.parseQuad("(<g2> <s> <p> 'abc')") ;
+    static Quad q4 = SSE.parseQuad("(<urn:x-arq:DefaultGraph> <s> <p> 'def')") ;
+    
+    DatasetGraphTDB dsg = null ;
+    
+    @Before public void before()
+    {
+        StoreParams params = StoreParams.builder().unionIndexes(Names.unionIndexesAll).build() ;
+        dsg = DatasetBuilderStd.create(Location.mem(), params) ;
+    }
+    
+    private long unionCount()
+    {
+        return Iter.count(dsg.getUnionTable().find(null, null, null)) ;
+    }
+
+    @Test public void union_table_1()
+    {
+        assertNull(DatasetBuilderStd.create(Location.mem()).getUnionTable()) ;
+        assertNotNull(dsg.getUnionTable()) ;
+        assertTrue(dsg.getUnionTable().isEmpty()) ;
+    }
+
+    @Test public void union_table_2()
+    {
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.add(q3) ;
+        dsg.add(q4) ;
+        assertEquals(2, unionCount()) ;
+        Graph union = dsg.getGraph(Quad.unionGraph) ;
+        assertEquals(2, union.size()) ;
+        assertEquals(2, Iter.count(union.find(Node.ANY, Node.ANY, Node.ANY))) ;
+        assertTrue(union.contains(q3.asTriple())) ;
+        assertFalse(union.contains(q4.asTriple())) ;
+    }
+
+    @Test public void union_table_3()
+    {
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.delete(q1) ;
+        // Still in g2.
+        assertEquals(1, unionCount()) ;
+        dsg.delete(q2) ;
+        assertEquals(0, unionCount()) ;
+    }
+
+    @Test public void union_table_4()
+    {
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.add(q3) ;
+        dsg.deleteAny(q2.getGraph(), Node.ANY, Node.ANY, Node.ANY) ;
+        assertEquals(1, unionCount()) ;
+        Triple t = q1.asTriple() ;
+        assertTrue(dsg.getUnionTable().find(t.getSubject(), t.getPredicate(), t.getObject()).hasNext()) ;
+        dsg.clear() ;
+        assertTrue(dsg.getUnionTable().isEmpty()) ;
+    }
+
+    @Test public void union_table_5()
+    {
+        // Bypass the dataset, as the bulk loader does.
+        dsg.getQuadTable().add(q1) ;
+        dsg.getQuadTable().add(q2) ;
+        dsg.getQuadTable().add(q3) ;
+        assertEquals(0, unionCount()) ;
+        dsg.rebuildUnionTable() ;
+        assertEquals(2, unionCount()) ;
+    }
+
+    @Test public void union_table_6()
+    {
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.add(q3) ;
+        String qs = "SELECT * { ?s ?p ?o . ?s ?p ?o2 }" ;
+        Query query = QueryFactory.create(qs) ;
+        QueryExecution qExec = QueryExecutionFactory.create(query, dsg.toDataset()) ;
+        qExec.getContext().setTrue(TDB.symUnionDefaultGraph) ;
+        // 2 distinct triples, with the same subject and predicate.
+        assertEquals(4, ResultSetFormatter.consume(qExec.execSelect())) ;
+    }
+
+    @Test public void union_table_7()
+    {
+        // Quad filters see the graph, so are not applied to the union table.
+        dsg.add(q1) ;
+        dsg.add(q3) ;
+        final NodeId g2 = dsg.getQuadTable().getNodeTupleTable().getNodeTable().getNodeIdForNode(q3.getGraph()) ;
+        Filter<Tuple<NodeId>> filter = new Filter<Tuple<NodeId>>() {
+            @Override
+            public boolean accept(Tuple<NodeId> item)
+            { return item.size() != 4 || ! item.get(0).equals(g2) ; }
+        } ;
+        Query query = QueryFactory.create("SELECT * { ?s ?p ?o }") ;
+        QueryExecution qExec = QueryExecutionFactory.create(query, dsg.toDataset()) ;
+        qExec.getContext().setTrue(TDB.symUnionDefaultGraph) ;
+        qExec.getContext().set(SystemTDB.symTupleFilter, filter) ;
+        assertEquals(1, ResultSetFormatter.consume(qExec.execSelect())) ;
+    }
+
+    private static InputStream input(String data)
+    {
+        return new ByteArrayInputStream(StrUtils.asUTF8bytes(data)) ;
+    }
+
+    @Test public void union_table_8()
+    {
+        // Bulk loads add their triples to the union table.
+        dsg.add(q1) ;
+        BulkLoader.loadDataset(dsg, input("<http://example/s> <http://example/p> <http://example/o> <http://example/g3> .\n"+
+                                          "<http://example/s> <http://example/p> \"x\" <http://example/g3> .\n"+
+                                          "<http://example/s> <http://example/p> \"y\" .\n"), false) ;
+        assertEquals(3, unionCount()) ;
+        BulkLoader.loadNamedGraph(dsg, NodeFactory.createURI("http://example/g4"),
+                                  input("<http://example/s> <http://example/p> <http://example/o> .\n"+
+                                        "<http://example/s2> <http://example/p> <http://example/o> .\n"), false) ;
+        assertEquals(4, unionCount()) ;
+        BulkLoader.loadDefaultGraph(dsg, input("<http://example/s3> <http://example/p> <http://example/o> .\n"), false) ;
+        assertEquals(4, unionCount()) ;
+    }
+
+    @Test public void union_table_9()
+    {
+        // Quads not in the union table : a bulk load fills it in.
+        dsg.getQuadTable().add(q1) ;
+        dsg.getQuadTable().add(q3) ;
+        BulkLoader.loadDataset(dsg, input("<http://example/s> <http://example/p> \"x\" <http://example/g3> .\n"), false) ;
+        assertEquals(3, unionCount()) ;
+    }
+}
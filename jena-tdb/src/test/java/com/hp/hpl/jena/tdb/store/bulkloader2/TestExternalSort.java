@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.bulkloader2;
+
+import static com.hp.hpl.jena.tdb.base.record.RecordLib.intToRecord ;
+import static com.hp.hpl.jena.tdb.base.record.RecordLib.toIntList ;
+
+import java.io.File ;
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Random ;
+import java.util.TreeSet ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordLib ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+public class TestExternalSort extends BaseTest
+{
+    @Test public void sort_01() { test(new int[]{}, 10, 1) ; }
+    @Test public void sort_02() { test(new int[]{3, 1, 2}, 10, 1) ; }
+    @Test public void sort_03() { test(new int[]{3, 1, 2}, 1, 1) ; }
+    // Duplicates within and across runs.
+    @Test public void sort_04() { test(new int[]{5, 5, 1, 2, 5, 1, 9, 2}, 3, 2) ; }
+    // Negative => high bit set => sorts after positive (unsigned).
+    @Test public void sort_05() { test(new int[]{-1, 7, 0, -100, 300}, 2, 2) ; }
+
+    @Test public void sort_06()
+    {
+        Random random = new Random(1234) ;
+        int[] x = new int[5000] ;
+        for ( int i = 0 ; i < x.length ; i++ )
+            x[i] = random.nextInt(2000) ;
+        test(x, 333, 4) ;
+    }
+
+    @Test public void sort_07()
+    {
+        // The input fails part way through : the runs already written are removed.
+        File dir = new File(ConfigTest.getCleanDir()) ;
+        ExternalSort sorter = new ExternalSort(RecordLib.recordFactory, dir, 10, 2) ;
+        final Iterator<Record> input = intToRecord(new int[100]).iterator() ;
+        Iterator<Record> failing = new Iterator<Record>() {
+            int count = 0 ;
+            @Override
+            public boolean hasNext()    { return true ; }
+            @Override
+            public Record next()
+            {
+                if ( ++count > 55 )
+                    throw new IllegalStateException("Input failed") ;
+                return input.next() ;
+            }
+            @Override
+            public void remove()        { throw new UnsupportedOperationException() ; }
+        } ;
+        try {
+            sorter.sort(failing) ;
+            fail("Expected the sort to fail") ;
+        } catch (IllegalStateException ex) {}
+        if ( ! SystemTDB.isWindows )
+            assertEquals(0, dir.list().length) ;
+    }
+
+    private static void test(int[] values, int runLength, int numThreads)
+    {
+        File dir = new File(ConfigTest.getCleanDir()) ;
+        ExternalSort sorter = new ExternalSort(RecordLib.recordFactory, dir, runLength, numThreads) ;
+        Iterator<Record> iter = sorter.sort(intToRecord(values).iterator()) ;
+        List<Integer> results = toIntList(iter) ;
+
+        // Expected: distinct, in unsigned order.
+        TreeSet<Long> expected = new TreeSet<>() ;
+        for ( int v : values )
+            expected.add(v & 0xFFFFFFFFL) ;
+        List<Integer> x = new ArrayList<>() ;
+        for ( long v : expected )
+            x.add((int)v) ;
+        assertEquals(x, results) ;
+
+        // Run files are removed once the results have been read.
+        if ( ! SystemTDB.isWindows )
+            assertEquals(0, dir.list().length) ;
+    }
+}
@@ -18,6 +18,9 @@
 
 package com.hp.hpl.jena.tdb.store.nodetable;
 
+import java.util.ArrayList ;
+import java.util.List ;
+
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.Test ;
 
@@ -83,6 +86,47 @@ public abstract class AbstractTestNodeTable extends BaseTest
     @Test public void nodetable_06()    { testNode("'x'^^<http://example/dt>") ; }
     @Test public void nodetable_07()    { testNode("'نواف'") ; }
     
+    @Test public void nodetable_batch_01()
+    {
+        NodeTable nt = createEmptyNodeTable() ;
+        String[] x = { "<http://example/x>", "1", "_:b", "'x'", "'x'@en", "<http://example/y>" } ;
+        List<Node> nodes = new ArrayList<>() ;
+        List<NodeId> ids = new ArrayList<>() ;
+        for ( String str : x )
+        {
+            Node n = NodeFactoryExtra.parseNode(str) ;
+            nodes.add(n) ;
+            ids.add(nt.getAllocateNodeId(n)) ;
+        }
+        // Not in allocation order, and with duplicates.
+        List<NodeId> ids2 = new ArrayList<>() ;
+        List<Node> expected = new ArrayList<>() ;
+        for ( int i = ids.size()-1 ; i >= 0 ; i-- )
+        {
+            ids2.add(ids.get(i)) ;
+            expected.add(nodes.get(i)) ;
+        }
+        ids2.add(ids.get(2)) ;
+        expected.add(nodes.get(2)) ;
+        assertEquals(expected, nt.getNodesForNodeIds(ids2)) ;
+        // Again, through any caches.
+        assertEquals(expected, nt.getNodesForNodeIds(ids2)) ;
+    }
+
+    @Test public void nodetable_batch_02()
+    {
+        NodeTable nt = createEmptyNodeTable() ;
+        List<NodeId> ids = new ArrayList<>() ;
+        assertTrue(nt.getNodesForNodeIds(ids).isEmpty()) ;
+        NodeId id = nt.getAllocateNodeId(n1) ;
+        ids.add(NodeId.NodeDoesNotExist) ;
+        ids.add(id) ;
+        List<Node> nodes = nt.getNodesForNodeIds(ids) ;
+        assertEquals(2, nodes.size()) ;
+        assertNull(nodes.get(0)) ;
+        assertEquals(n1, nodes.get(1)) ;
+    }
+
     static Node badNode1 = com.hp.hpl.jena.graph.NodeFactory.createLiteral("abc", "99bad") ;
     
     @Test public void nodetable_bad_01()    { testNodeBad(badNode1) ; }
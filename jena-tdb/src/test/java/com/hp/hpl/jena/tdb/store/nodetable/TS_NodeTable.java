@@ -24,8 +24,11 @@ import org.junit.runners.Suite ;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestCodec.class
+    , TestNodecCompressed.class
     , TestNodeTableStored.class
+    , TestNodeTableExtHash.class
     , TestNodeTable.class
+    , TestNodeTableConcurrent.class
 })
 public class TS_NodeTable
 {
@@ -53,7 +53,7 @@ public class TestCodec extends BaseTest
     @Parameters public static Collection<Object[]> data()
     { 
         return Arrays.asList(new Object[][]
-                                        { { new NodecSSE() } } 
+                                        { { new NodecSSE() } , { new NodecCompressed() } } 
                                         ) ;                                        
     }
 
@@ -97,6 +97,24 @@ public class TestCodec extends BaseTest
     
     @Test public void nodec_uri_01()    { test ("<>") ; }
     @Test public void nodec_uri_02()    { test ("<http://example/>") ; }
+    @Test public void nodec_uri_03()    { test ("<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>") ; }
+    @Test public void nodec_uri_04()    { test ("<http://www.w3.org/1999/02/22-rdf-syntax-ns#>") ; }
+    @Test public void nodec_uri_05()    { test ("<http://dbpedia.org/resource/"+chineseBase+">") ; }
+    @Test public void nodec_uri_06()    { test ("<urn:x-local:abc>") ; }
+
+    @Test public void nodec_lit_40()    { test ("'2015-01-01T00:00:00Z'^^<http://www.w3.org/2001/XMLSchema#dateTime>") ; }
+    @Test public void nodec_lit_41()    { test ("'abc'^^<http://example/dt>") ; }
+    @Test public void nodec_lit_42()    { test ("'"+longString(asciiBase)+"'") ; }
+    @Test public void nodec_lit_43()    { test ("'"+longString(japaneseBase)+"'@ja") ; }
+    @Test public void nodec_lit_44()    { test ("'"+longString(greekBase)+"'^^<http://example/dt>") ; }
+
+    private static String longString(String base)
+    {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            sb.append(base) ;
+        return sb.toString() ;
+    }
     
     // Jena anon ids can have a string form including ":"
     @Test public void nodec_blank_01()  { test (com.hp.hpl.jena.graph.NodeFactory.createAnon(new AnonId("a"))) ; }
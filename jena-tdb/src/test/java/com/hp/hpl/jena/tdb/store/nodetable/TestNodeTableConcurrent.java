@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.nodetable;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.Build ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+
+public class TestNodeTableConcurrent extends AbstractTestNodeTable
+{
+    @Override
+    protected NodeTable createEmptyNodeTable()
+    {
+        StoreParams params = StoreParams.builder().nodeCacheType(NodeCacheType.concurrent).build() ;
+        return Build.makeNodeTable(Location.mem(), params) ;
+    }
+
+    @Test public void nodetable_concurrent_01()
+    {
+        NodeTable nt = createEmptyNodeTable() ;
+        NodeTableCache cache = NodeTableLib.findCache(nt) ;
+        assertNotNull(cache) ;
+        assertEquals(NodeCacheType.concurrent, cache.getCacheType()) ;
+    }
+
+    @Test public void nodetable_concurrent_02()
+    {
+        NodeTable nt = createEmptyNodeTable() ;
+        NodeTableCache cache = NodeTableLib.findCache(nt) ;
+        Node n = NodeFactoryExtra.parseNode("<http://example/x>") ;
+        NodeId id = nt.getAllocateNodeId(n) ;
+        long hits = cache.getNodeId2NodeCacheStats().getCacheHits() ;
+        assertEquals(n, nt.getNodeForNodeId(id)) ;
+        assertEquals(hits+1, cache.getNodeId2NodeCacheStats().getCacheHits()) ;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store.nodetable;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+import com.hp.hpl.jena.tdb.TDBException ;
+
+public class TestNodecCompressed extends BaseTest
+{
+    private static Nodec sse = new NodecSSE() ;
+    private static Nodec compressed = new NodecCompressed() ;
+
+    @Test public void nodec_compressed_01()
+    {
+        // Namespace coded.
+        Node n = NodeFactoryExtra.parseNode("<http://www.w3.org/2000/01/rdf-schema#label>") ;
+        assertTrue(encode(compressed, n).limit() < encode(sse, n).limit()) ;
+    }
+
+    @Test public void nodec_compressed_02()
+    {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 50 ; i++ )
+            sb.append("The quick brown fox. ") ;
+        Node n = NodeFactoryExtra.parseNode("'"+sb+"'@en") ;
+        ByteBuffer bb = encode(compressed, n) ;
+        assertTrue(bb.limit() < sb.length()/2) ;
+        assertEquals(n, compressed.decode(bb, null)) ;
+    }
+
+    // Nodes written with the SSE encoding can be read.
+    @Test public void nodec_compressed_03()     { readSSE("<http://example/>") ; }
+    @Test public void nodec_compressed_04()     { readSSE("'abc'@en") ; }
+    @Test public void nodec_compressed_05()     { readSSE("123") ; }
+    @Test public void nodec_compressed_06()     { readSSE("'-1'^^<http://www.w3.org/2001/XMLSchema#integer>") ; }
+
+    @Test public void nodec_compressed_07()
+    {
+        // The database's own namespaces.
+        Nodec nodec = new NodecCompressed(new String[]{ "http://example.org/data/" }) ;
+        Node n = NodeFactoryExtra.parseNode("<http://example.org/data/item1>") ;
+        ByteBuffer bb = encode(nodec, n) ;
+        assertTrue(bb.limit() < encode(compressed, n).limit()) ;
+        assertEquals(n, nodec.decode(bb, null)) ;
+    }
+
+    @Test public void nodec_compressed_08()
+    {
+        // Short texts compress against the namespaces.
+        String lex = "See http://www.w3.org/2004/02/skos/core#prefLabel" ;
+        Node n = NodeFactoryExtra.parseNode("'"+lex+"'") ;
+        ByteBuffer bb = encode(compressed, n) ;
+        assertTrue(bb.limit() < lex.length()) ;
+        assertEquals(n, compressed.decode(bb, null)) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void nodec_compressed_09()
+    {
+        // Literal, simple, unknown form of lexical form.
+        ByteBuffer bb = ByteBuffer.allocate(8) ;
+        bb.put((byte)2).put((byte)0).put((byte)1).putInt(0) ;
+        bb.flip() ;
+        compressed.decode(bb, null) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void nodec_compressed_10()
+    {
+        new NodecCompressed(new String[300]) ;
+    }
+
+    private static void readSSE(String str)
+    {
+        Node n = NodeFactoryExtra.parseNode(str) ;
+        ByteBuffer bb = encode(sse, n) ;
+        assertEquals(n, compressed.decode(bb, null)) ;
+    }
+
+    private static ByteBuffer encode(Nodec nodec, Node n)
+    {
+        ByteBuffer bb = ByteBuffer.allocate(nodec.maxSize(n)) ;
+        nodec.encode(n, bb, null) ;
+        return bb ;
+    }
+}
@@ -21,6 +21,7 @@ package com.hp.hpl.jena.tdb.store.tupletable;
 import static org.apache.jena.atlas.lib.Tuple.createTuple ;
 
 import java.util.Iterator ;
+import java.util.List ;
 import java.util.Set ;
 
 import org.apache.jena.atlas.iterator.Iter ;
@@ -34,6 +35,7 @@ import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.index.IndexFactory ;
 import com.hp.hpl.jena.tdb.index.IndexParams ;
 import com.hp.hpl.jena.tdb.index.RangeIndex ;
+import com.hp.hpl.jena.tdb.lib.TupleLib ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
@@ -284,6 +286,143 @@ public class TestTupleIndexRecordDirect extends BaseTest
         assertFalse(iter.hasNext()) ;
    }
 
+    @Test public void TupleIndexRecordFindFrom_1()
+    {
+        TupleIndexRecord index = create("POS") ;
+        add(index, n1, n2, n3) ;
+        add(index, n4, n2, n3) ;
+        add(index, n5, n2, n3) ;
+        add(index, n6, n2, n4) ;
+        
+        // P and O bound : in order of S.
+        Tuple<NodeId> tuple2 = createTuple(null, n2, n3) ;
+        Iterator<Tuple<NodeId>> iter = index.findFrom(tuple2, null) ;
+        assertEquals(3, Iter.count(iter)) ;
+        iter = index.findFrom(tuple2, n4) ;
+        assertEquals(createTuple(n4, n2, n3), iter.next()) ;
+        assertEquals(createTuple(n5, n2, n3), iter.next()) ;
+        assertFalse(iter.hasNext()) ;
+        iter = index.findFrom(tuple2, n6) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
+    @Test public void TupleIndexRecordFindFrom_2()
+    {
+        TupleIndexRecord index = create("SPO") ;
+        add(index, n1, n2, n3) ;
+        add(index, n4, n5, n6) ;
+        
+        // Nothing bound - whole index from start.
+        Tuple<NodeId> tuple2 = createTuple(null, null, null) ;
+        Iterator<Tuple<NodeId>> iter = index.findFrom(tuple2, n2) ;
+        assertEquals(createTuple(n4, n5, n6), iter.next()) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
+    @Test public void TupleIndexRecordFindFrom_3()
+    {
+        TupleIndexRecord index = create("SPO") ;
+        add(index, n1, n2, n3) ;
+        // Not a leading set of columns.
+        assertNull(index.findFrom(createTuple(n1, null, n3), null)) ;
+        // Fully bound.
+        assertNull(index.findFrom(createTuple(n1, n2, n3), null)) ;
+    }
+
+    @Test public void TupleIndexRecordFindRange_1()
+    {
+        TupleIndexRecord index = create("POS") ;
+        add(index, n1, n2, n3) ;
+        add(index, n4, n2, n3) ;
+        add(index, n5, n2, n3) ;
+        add(index, n6, n2, n3) ;
+        add(index, n6, n2, n4) ;
+        
+        // P and O bound : S in [n4, n6)
+        Tuple<NodeId> tuple2 = createTuple(null, n2, n3) ;
+        Iterator<Tuple<NodeId>> iter = index.findRange(tuple2, n4, n6) ;
+        assertEquals(createTuple(n4, n2, n3), iter.next()) ;
+        assertEquals(createTuple(n5, n2, n3), iter.next()) ;
+        assertFalse(iter.hasNext()) ;
+        // To the end of the P and O prefix.
+        iter = index.findRange(tuple2, n5, null) ;
+        assertEquals(2, Iter.count(iter)) ;
+        iter = index.findRange(tuple2, n2, n4) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
+    private static void testPacked(TupleIndexRecord index, Tuple<NodeId> pattern)
+    {
+        List<Tuple<NodeId>> expected = Iter.toList(index.find(pattern)) ;
+        List<Tuple<NodeId>> x = Iter.toList(TupleLib.unpackIds(index.findPacked(pattern), 3)) ;
+        assertEquals(expected, x) ;
+    }
+
+    @Test public void TupleIndexRecordFindPacked_1()
+    {
+        TupleIndexRecord index = create("POS") ;
+        add(index, n1, n2, n3) ;
+        add(index, n4, n2, n3) ;
+        add(index, n5, n2, n3) ;
+        add(index, n6, n2, n4) ;
+        add(index, n6, n3, n4) ;
+        testPacked(index, createTuple(null, n2, n3)) ;
+        testPacked(index, createTuple(null, n2, null)) ;
+        testPacked(index, createTuple(n6, n2, null)) ;      // Partial scan
+        testPacked(index, createTuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny)) ;  // Full scan
+        testPacked(index, createTuple(n6, n3, n4)) ;        // Exact match
+        testPacked(index, createTuple(n6, n3, n3)) ;        // No match
+    }
+
+    @Test public void TupleIndexRecordFindPacked_2()
+    {
+        // More tuples than one batch.
+        TupleIndexRecord index = create("SPO") ;
+        int N = 3*SystemTDB.TupleBatchSize+7 ;
+        for ( int i = 0 ; i < N ; i++ )
+            add(index, n1, new NodeId(i%5+10), new NodeId(i)) ;
+        testPacked(index, createTuple(n1, null, null)) ;
+        testPacked(index, createTuple(n1, new NodeId(12), null)) ;
+        testPacked(index, createTuple(n1, null, new NodeId(N/2))) ;
+        Iterator<long[]> iter = index.findPacked(createTuple(n1, NodeId.NodeIdAny, NodeId.NodeIdAny)) ;
+        int count = 0 ;
+        while ( iter.hasNext() )
+        {
+            long[] batch = iter.next() ;
+            assertEquals(0, batch.length%3) ;
+            count += batch.length/3 ;
+        }
+        assertEquals(N, count) ;
+    }
+
+    @Test public void TupleIndexRecordFindPacked_3()
+    {
+        // Batches start small and grow, never beyond the batch size.
+        TupleIndexRecord index = create("SPO") ;
+        int N = 3*SystemTDB.TupleBatchSize+7 ;
+        for ( int i = 0 ; i < N ; i++ )
+            add(index, n1, new NodeId(i%5+10), new NodeId(i)) ;
+        Iterator<long[]> iter = index.findPacked(createTuple(n1, NodeId.NodeIdAny, NodeId.NodeIdAny)) ;
+        long[] first = iter.next() ;
+        assertTrue(first.length/3 <= Math.max(1, SystemTDB.TupleBatchInitialSize)) ;
+        int count = first.length/3 ;
+        int last = count ;
+        while ( iter.hasNext() )
+        {
+            long[] batch = iter.next() ;
+            assertTrue(batch.length/3 <= SystemTDB.TupleBatchSize) ;
+            assertTrue(batch.length/3 >= last || ! iter.hasNext()) ;
+            last = batch.length/3 ;
+            count += last ;
+        }
+        assertEquals(N, count) ;
+        // A single match is a single small batch.
+        iter = index.findPacked(createTuple(n1, NodeId.NodeIdAny, new NodeId(N/2))) ;
+        long[] one = iter.next() ;
+        assertEquals(3, one.length) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
     @Test public void TupleIndexRecordFindNot_4()
     {
         TupleIndexRecord index = create("SPO") ;
@@ -231,4 +231,22 @@ public abstract class AbstractTestNodeTableTrans extends BaseTest
         ntt.commitClearup(txn) ;
     }
 
+    @Test 
+    public void nodetrans_08()
+    { 
+        // Readers of a view built on a committed transaction keep using its node table
+        // while it is enacted and cleared up.
+        Transaction txn = createTxn(14) ;
+        NodeTableTrans ntt = create(txn, node1) ;
+        ntt.begin(txn) ;
+        NodeId nodeId = ntt.getAllocateNodeId(node2) ;
+        ntt.commitPrepare(txn) ;
+        assertEquals(nodeId, ntt.getNodeIdForNode(node2)) ;
+        ntt.commitEnact(txn) ;
+        ntt.commitClearup(txn) ;
+        assertEquals(nodeId, ntt.getNodeIdForNode(node2)) ;
+        assertEquals(node2, ntt.getNodeForNodeId(nodeId)) ;
+        assertFalse(ntt.isEmpty()) ;
+        assertTrue(ntt.all().hasNext()) ;
+    }
 }
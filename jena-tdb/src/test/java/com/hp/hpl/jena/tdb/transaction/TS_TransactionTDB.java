@@ -28,12 +28,16 @@ import org.junit.runners.Suite ;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
       TestJournal.class
+    , TestBlockMgrSnapshot.class
     , TestTransIterator.class
     , TestObjectFileTransMem.class
     , TestObjectFileTransStorage.class
     , TestNodeTableTransMem.class
     , TestNodeTableTransDisk.class
     , TestTransMem.class
+    , TestTransGroupCommit.class
+    , TestTransMemWriteBack.class
+    , TestTransMemConcurrentWriteBack.class
     , TestTransDiskDirect.class
     , TestTransDiskMapped.class
     , TestTransRestart.class
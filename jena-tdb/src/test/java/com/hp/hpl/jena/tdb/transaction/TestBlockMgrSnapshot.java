@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.sys.FileRef ;
+
+public class TestBlockMgrSnapshot extends BaseTest
+{
+    static final int BlkSize = 16 ;
+    
+    @Test public void snapshot_01()
+    {
+        BlockMgr base = BlockMgrFactory.createMem("snapshot", BlkSize) ;
+        long id = create(base, 1) ;
+        BlockMgrSnapshot snapshot = new BlockMgrSnapshot(FileRef.create("snapshot"), base) ;
+        snapshot.preserve(id) ;
+        overwrite(base, id, 2) ;
+        
+        assertEquals(1, value(snapshot, id)) ;
+        assertEquals(2, value(base, id)) ;
+        assertEquals(1, snapshot.getPreservedCount()) ;
+    }
+
+    @Test public void snapshot_02()
+    {
+        // Blocks not preserved are read through.
+        BlockMgr base = BlockMgrFactory.createMem("snapshot", BlkSize) ;
+        long id1 = create(base, 1) ;
+        long id2 = create(base, 1) ;
+        BlockMgrSnapshot snapshot = new BlockMgrSnapshot(FileRef.create("snapshot"), base) ;
+        snapshot.preserve(id1) ;
+        snapshot.preserve(id1) ;
+        overwrite(base, id1, 3) ;
+        overwrite(base, id2, 4) ;
+        
+        assertEquals(1, value(snapshot, id1)) ;
+        assertEquals(4, value(snapshot, id2)) ;
+        assertEquals(1, snapshot.getPreservedCount()) ;
+        
+        snapshot.beginIterator(null) ;
+        Block block = snapshot.getReadIterator(id1) ;
+        assertEquals(1, block.getByteBuffer().get(0)) ;
+        snapshot.release(block) ;
+    }
+
+    private static long create(BlockMgr blockMgr, int value)
+    {
+        blockMgr.beginUpdate() ;
+        Block block = blockMgr.allocate(BlkSize) ;
+        block.getByteBuffer().put(0, (byte)value) ;
+        blockMgr.write(block) ;
+        blockMgr.endUpdate() ;
+        return block.getId() ;
+    }
+    
+    private static void overwrite(BlockMgr blockMgr, long id, int value)
+    {
+        Block block = blockMgr.getRead(id).replicate() ;
+        block.getByteBuffer().put(0, (byte)value) ;
+        blockMgr.overwrite(block) ;
+    }
+    
+    private static int value(BlockMgr blockMgr, long id)
+    {
+        blockMgr.beginRead() ;
+        Block block = blockMgr.getRead(id) ;
+        int x = block.getByteBuffer().get(0) ;
+        blockMgr.release(block) ;
+        blockMgr.endRead() ;
+        return x ;
+    }
+}
@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.transaction;
 
 import java.nio.ByteBuffer ;
 import java.util.Iterator ;
+import java.util.concurrent.atomic.AtomicReference ;
 
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.Bytes ;
@@ -162,6 +163,89 @@ public class TestJournal extends BaseTest
         assertFalse(equal(entry1a, entry2a)) ;
     }
 
+    @Test public void journal_commit_01()
+    {
+        // Not group commit.
+        journal.setGroupCommitWindow(-1) ;
+        assertFalse(journal.isGroupCommit()) ;
+        journal.writeCommit() ;
+        journal.sync() ;
+        journal.writeCommit() ;
+        journal.writeCommit() ;
+        journal.sync() ;
+        assertEquals(2, journal.getCommitSyncCount()) ;
+        assertEquals(3, journal.getSyncedCommitCount()) ;
+        assertEquals(2, journal.getMaxCommitsPerSync()) ;
+        Iterator<JournalEntry> iter = journal.entries() ;
+        for ( int i = 0 ; i < 3 ; i++ )
+            assertEquals(JournalEntryType.Commit, iter.next().getType()) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
+    @Test public void journal_commit_02()
+    {
+        journal.setGroupCommitWindow(0) ;
+        assertTrue(journal.isGroupCommit()) ;
+        long c1 = journal.writeCommit() ;
+        long c2 = journal.writeCommit() ;
+        journal.syncCommit(c1) ;
+        // Already covered.
+        journal.syncCommit(c2) ;
+        assertEquals(1, journal.getCommitSyncCount()) ;
+        assertEquals(2, journal.getSyncedCommitCount()) ;
+    }
+
+    @Test public void journal_commit_03() throws InterruptedException
+    {
+        journal.setGroupCommitWindow(5) ;
+        final int N = 20 ;
+        final AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        Thread[] threads = new Thread[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            threads[i] = new Thread() {
+                @Override
+                public void run()
+                {
+                    try { journal.syncCommit(journal.writeCommit()) ; }
+                    catch (Throwable th) { failure.set(th) ; }
+                }
+            } ;
+        }
+        for ( Thread t : threads )
+            t.start() ;
+        for ( Thread t : threads )
+            t.join() ;
+        assertNull(failure.get()) ;
+        assertEquals(N, journal.getSyncedCommitCount()) ;
+        assertTrue(journal.getCommitSyncCount() >= 1) ;
+        assertTrue(journal.getCommitSyncCount() <= N) ;
+    }
+
+    @Test public void journal_commit_04() throws InterruptedException
+    {
+        // A commit written during the window of a sync is covered by that sync.
+        journal.setGroupCommitWindow(1000) ;
+        final AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        final long c1 = journal.writeCommit() ;
+        Thread t = new Thread() {
+            @Override
+            public void run()
+            {
+                try { journal.syncCommit(c1) ; }
+                catch (Throwable th) { failure.set(th) ; }
+            }
+        } ;
+        t.start() ;
+        long c2 = journal.writeCommit() ;
+        journal.syncCommit(c2) ;
+        t.join() ;
+        assertNull(failure.get()) ;
+        assertEquals(1, journal.getCommitSyncCount()) ;
+        assertEquals(2, journal.getSyncedCommitCount()) ;
+        assertEquals(2, journal.getMaxCommitsPerSync()) ;
+    }
+
     private static boolean equal(JournalEntry entry1, JournalEntry entry2)
     {
         if ( entry1.getType() != entry2.getType())
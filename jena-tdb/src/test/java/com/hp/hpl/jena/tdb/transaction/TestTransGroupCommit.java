@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.concurrent.CountDownLatch ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+/** Group commit of write transactions */
+public class TestTransGroupCommit extends BaseTest
+{
+    private static final int Window = 1000 ;
+    
+    private Quad q1 = SSE.parseQuad("(<g> <s> <p> 1)") ;
+    private Quad q2 = SSE.parseQuad("(<g> <s> <p> 2)") ;
+    
+    private int queueBatchSize ;
+    private StoreConnection sConn ;
+    private Journal journal ;
+    // Counted down when a writer has written its commit record, before the journal sync.
+    private volatile CountDownLatch committed = new CountDownLatch(0) ;
+    
+    @Before public void before()
+    {
+        StoreConnection.reset() ;
+        queueBatchSize = TransactionManager.QueueBatchSize ;
+        // Write back at every opportunity.
+        TransactionManager.QueueBatchSize = 0 ;
+        sConn = StoreConnection.make(Location.mem()) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        journal = dsg.getTransaction().getJournal() ;
+        dsg.getTransaction().getTxnMgr().setCommitListener(new CommitSignal(), Integer.MAX_VALUE) ;
+        dsg.end() ;
+        journal.setGroupCommitWindow(Window) ;
+    }
+  
+    @After public void after()
+    {
+        journal.setGroupCommitWindow(-1) ;
+        StoreConnection.reset() ;
+        TransactionManager.QueueBatchSize = queueBatchSize ;
+    }
+
+    private class CommitSignal implements DatasetChanges
+    {
+        @Override public void start() {}
+        @Override public void change(QuadAction qaction, Node g, Node s, Node p, Node o) {}
+        @Override public void finish() { committed.countDown() ; }
+    }
+    
+    // Commit on another thread; with group commit, it waits in the group commit window.
+    private Thread commitLater(final Quad quad, final AtomicReference<Throwable> failure)
+    {
+        Thread t = new Thread() {
+            @Override
+            public void run()
+            {
+                DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+                try {
+                    dsg.add(quad) ;
+                    dsg.commit() ;
+                } catch (Throwable th) { failure.set(th) ; }
+                finally { dsg.end() ; }
+            }
+        } ;
+        t.start() ;
+        return t ;
+    }
+    
+    @Test public void group_commit_01() throws Throwable
+    {
+        AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        committed = new CountDownLatch(1) ;
+        Thread t = commitLater(q1, failure) ;
+        // Wait for the first writer to write its commit record.
+        assertTrue(committed.await(5, TimeUnit.SECONDS)) ;
+        assertEquals(1, sConn.getTransMgrState().queuedCommits) ;
+        
+        // Starts after the first writer has written its commit record, before the sync. 
+        DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+        // A later writer builds on the first one.
+        assertTrue(dsgW.contains(q1)) ;
+        
+        // Not on disk : not visible to readers, not written back.
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        assertFalse(dsgR.contains(q1)) ;
+        dsgR.end() ;
+        assertFalse(sConn.getBaseDataset().contains(q1)) ;
+        
+        // Shares the sync of the first writer.
+        dsgW.add(q2) ;
+        dsgW.commit() ;
+        dsgW.end() ;
+        
+        t.join() ;
+        if ( failure.get() != null )
+            throw failure.get() ;
+        assertEquals(1, journal.getCommitSyncCount()) ;
+        assertEquals(2, journal.getSyncedCommitCount()) ;
+
+        dsgR = sConn.begin(ReadWrite.READ) ;
+        assertTrue(dsgR.contains(q1)) ;
+        assertTrue(dsgR.contains(q2)) ;
+        dsgR.end() ;
+        
+        // With nothing active, written back.
+        sConn.flush() ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q1)) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+    }
+
+    @Test public void group_commit_02() throws Throwable
+    {
+        // Without group commit, each commit is visible to readers when commit returns.
+        journal.setGroupCommitWindow(-1) ;
+        AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        commitLater(q1, failure).join() ;
+        if ( failure.get() != null )
+            throw failure.get() ;
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        assertTrue(dsgR.contains(q1)) ;
+        dsgR.end() ;
+        assertEquals(1, journal.getCommitSyncCount()) ;
+    }
+    
+    @Test public void group_commit_03() throws Throwable
+    {
+        // A failed sync does not leave the transaction waiting for one.
+        AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        committed = new CountDownLatch(1) ;
+        Thread t = commitLater(q1, failure) ;
+        assertTrue(committed.await(5, TimeUnit.SECONDS)) ;
+        // The committer is in, or about to enter, the group commit window: its sync fails.
+        t.interrupt() ;
+        t.join() ;
+        assertTrue(failure.get() instanceof TDBTransactionException) ;
+        assertEquals(0, sConn.getTransMgrState().awaitingSync) ;
+        assertEquals(1, sConn.getTransMgrState().syncFailures) ;
+        
+        // Write-back is not held up, for this transaction or later ones.
+        sConn.flush() ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q1)) ;
+        
+        journal.setGroupCommitWindow(-1) ;
+        failure.set(null) ;
+        commitLater(q2, failure).join() ;
+        if ( failure.get() != null )
+            throw failure.get() ;
+        sConn.flush() ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+    }
+}
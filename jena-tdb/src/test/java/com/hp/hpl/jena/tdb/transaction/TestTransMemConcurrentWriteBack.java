@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.Iterator ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.block.BlockCacheType ;
+import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+
+/** Basic tests and tests of ordering (single thread), with write-back while there are readers */
+public class TestTransMemConcurrentWriteBack extends AbstractTestTransSeq
+{
+    private boolean writeBack ;
+    private boolean concurrentWriteBack ;
+    private int queueBatchSize ;
+    
+    @Before public void before()
+    {
+        StoreConnection.reset() ;
+        writeBack = TransactionManager.BackgroundWriteBack ;
+        concurrentWriteBack = TransactionManager.ConcurrentWriteBack ;
+        queueBatchSize = TransactionManager.QueueBatchSize ;
+        TransactionManager.ConcurrentWriteBack = true ;
+    }
+  
+    @After public void after()
+    {
+        StoreConnection.reset() ;
+        TransactionManager.BackgroundWriteBack = writeBack ;
+        TransactionManager.ConcurrentWriteBack = concurrentWriteBack ;
+        TransactionManager.QueueBatchSize = queueBatchSize ;
+    }
+    
+    @Override
+    protected StoreConnection getStoreConnection()
+    {
+        return StoreConnection.make(Location.mem()) ;
+    }
+    
+    @Test public void trans_concurrent_writeback_01()
+    {
+        // Write-back on the committing thread, with an active reader.
+        TransactionManager.BackgroundWriteBack = false ;
+        TransactionManager.QueueBatchSize = 1 ;
+        StoreConnection sConn = getStoreConnection() ;
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        
+        writeQuads(sConn) ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q1)) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+        // The reader still sees the dataset as it was when it started.
+        assertFalse(dsgR.contains(q1)) ;
+        assertFalse(dsgR.contains(q2)) ;
+        dsgR.end() ;
+        
+        DatasetGraphTxn dsgR2 = sConn.begin(ReadWrite.READ) ;
+        assertTrue(dsgR2.contains(q1)) ;
+        assertTrue(dsgR2.contains(q2)) ;
+        dsgR2.end() ;
+    }
+    
+    @Test public void trans_concurrent_writeback_02() throws InterruptedException
+    {
+        // Background write-back, with an active reader.
+        TransactionManager.BackgroundWriteBack = true ;
+        TransactionManager.QueueBatchSize = 2 ;
+        StoreConnection sConn = getStoreConnection() ;
+        DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+        dsgW.add(q) ;
+        dsgW.commit() ;
+        dsgW.end() ;
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        
+        writeQuads(sConn) ;
+        for ( int i = 0 ; i < 100 && sConn.getTransMgrState().queuedCommits != 0 ; i++ )
+            Thread.sleep(50) ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+        assertTrue(dsgR.contains(q)) ;
+        assertFalse(dsgR.contains(q1)) ;
+        assertFalse(dsgR.contains(q2)) ;
+        dsgR.end() ;
+    }
+    
+    @Test public void trans_concurrent_writeback_03() throws InterruptedException
+    {
+        // Background write-back to files with the lock-free block cache, 
+        // while readers are reading (and caching) the blocks being written.
+        TransactionManager.BackgroundWriteBack = true ;
+        TransactionManager.QueueBatchSize = 2 ;
+        StoreParams params = StoreParams.builder()
+            .fileMode(FileMode.direct)
+            .blockCacheType(BlockCacheType.concurrent)
+            .build() ;
+        final StoreConnection sConn = StoreConnection.make(Location.create(ConfigTest.getCleanDir()), params) ;
+        final int N = 200 ;
+        final AtomicBoolean done = new AtomicBoolean(false) ;
+        final AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        Runnable reader = new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    long last = 0 ;
+                    while ( ! done.get() )
+                    {
+                        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+                        try {
+                            long n = count(dsgR) ;
+                            if ( n < last )
+                                throw new AssertionError("Reader went back: "+n+" < "+last) ;
+                            long n2 = count(dsgR) ;
+                            if ( n2 != n )
+                                throw new AssertionError("Reader view changed: "+n+" -> "+n2) ;
+                            last = n ;
+                        } finally { dsgR.end() ; }
+                    }
+                } catch (Throwable th) { failure.compareAndSet(null, th) ; }
+            }
+        } ;
+        Thread[] readers = { new Thread(reader), new Thread(reader) } ;
+        for ( Thread t : readers )
+            t.start() ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+            dsgW.add(quad(i)) ;
+            dsgW.commit() ;
+            dsgW.end() ;
+        }
+        done.set(true) ;
+        for ( Thread t : readers )
+            t.join() ;
+        if ( failure.get() != null )
+            throw new AssertionError(failure.get()) ;
+        
+        for ( int i = 0 ; i < 100 && sConn.getTransMgrState().queuedCommits != 0 ; i++ )
+            Thread.sleep(50) ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        assertEquals(N, count(dsgR)) ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(dsgR.contains(quad(i))) ;
+        dsgR.end() ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(sConn.getBaseDataset().contains(quad(i))) ;
+    }
+    
+    private static Quad quad(int i)
+    {
+        return SSE.parseQuad("(<g> <s> <p> "+i+")") ;
+    }
+    
+    private static long count(DatasetGraphTxn dsg)
+    {
+        long n = 0 ;
+        for ( Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+            n++ ;
+        return n ;
+    }
+    
+    private void writeQuads(StoreConnection sConn)
+    {
+        DatasetGraphTxn dsgW1 = sConn.begin(ReadWrite.WRITE) ;
+        dsgW1.add(q1) ;
+        dsgW1.commit() ;
+        dsgW1.end() ;
+        DatasetGraphTxn dsgW2 = sConn.begin(ReadWrite.WRITE) ;
+        dsgW2.add(q2) ;
+        dsgW2.commit() ;
+        dsgW2.end() ;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.concurrent.CountDownLatch ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+/** Basic tests and tests of ordering (single thread), with background write-back */
+public class TestTransMemWriteBack extends AbstractTestTransSeq
+{
+    private boolean writeBack ;
+    private int queueBatchSize ;
+    private int queueLimit ;
+    
+    @Before public void before()
+    {
+        StoreConnection.reset() ;
+        writeBack = TransactionManager.BackgroundWriteBack ;
+        queueBatchSize = TransactionManager.QueueBatchSize ;
+        queueLimit = TransactionManager.WriteBackQueueLimit ;
+        TransactionManager.BackgroundWriteBack = true ;
+    }
+  
+    @After public void after()
+    {
+        StoreConnection.reset() ;
+        TransactionManager.BackgroundWriteBack = writeBack ;
+        TransactionManager.QueueBatchSize = queueBatchSize ;
+        TransactionManager.WriteBackQueueLimit = queueLimit ;
+    }
+    
+    @Override
+    protected StoreConnection getStoreConnection()
+    {
+        return StoreConnection.make(Location.mem()) ;
+    }
+    
+    @Test public void trans_writeback_01() throws InterruptedException
+    {
+        TransactionManager.QueueBatchSize = 2 ;
+        StoreConnection sConn = getStoreConnection() ;
+        // An active reader holds up write-back.
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        
+        DatasetGraphTxn dsgW1 = sConn.begin(ReadWrite.WRITE) ;
+        dsgW1.add(q1) ;
+        dsgW1.commit() ;
+        dsgW1.end() ;
+        DatasetGraphTxn dsgW2 = sConn.begin(ReadWrite.WRITE) ;
+        dsgW2.add(q2) ;
+        dsgW2.commit() ;
+        dsgW2.end() ;
+        assertEquals(2, sConn.getTransMgrState().queuedCommits) ;
+        
+        // Write-back happens after the reader finishes, not on this thread.
+        dsgR.end() ;
+        for ( int i = 0 ; i < 100 && sConn.getTransMgrState().queuedCommits != 0 ; i++ )
+            Thread.sleep(50) ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q1)) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+    }
+    
+    @Test public void trans_writeback_02() throws InterruptedException
+    {
+        // An active writer holds up write-back.
+        TransactionManager.QueueBatchSize = 1 ;
+        StoreConnection sConn = getStoreConnection() ;
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        DatasetGraphTxn dsgW1 = sConn.begin(ReadWrite.WRITE) ;
+        dsgW1.add(q1) ;
+        dsgW1.commit() ;
+        dsgW1.end() ;
+        
+        DatasetGraphTxn dsgW2 = sConn.begin(ReadWrite.WRITE) ;
+        dsgR.end() ;
+        Thread.sleep(200) ;
+        assertEquals(1, sConn.getTransMgrState().queuedCommits) ;
+        assertFalse(sConn.getBaseDataset().contains(q1)) ;
+        dsgW2.add(q2) ;
+        dsgW2.commit() ;
+        dsgW2.end() ;
+        
+        awaitWriteBack(sConn) ;
+        assertTrue(sConn.getBaseDataset().contains(q1)) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+    }
+    
+    @Test public void trans_writeback_03() throws InterruptedException
+    {
+        // Below the batch size, nothing is written back until a flush.
+        TransactionManager.QueueBatchSize = 10 ;
+        StoreConnection sConn = getStoreConnection() ;
+        DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+        dsgW.add(q1) ;
+        dsgW.commit() ;
+        dsgW.end() ;
+        Thread.sleep(200) ;
+        assertEquals(1, sConn.getTransMgrState().queuedCommits) ;
+        
+        sConn.flush() ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertTrue(sConn.getBaseDataset().contains(q1)) ;
+    }
+    
+    @Test public void trans_writeback_04() throws InterruptedException
+    {
+        // At WriteBackQueueLimit, a new reader waits until write-back is possible.
+        TransactionManager.QueueBatchSize = 10 ;
+        TransactionManager.WriteBackQueueLimit = 2 ;
+        final StoreConnection sConn = getStoreConnection() ;
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        for ( Quad q : new Quad[]{q1, q2} )
+        {
+            DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+            dsgW.add(q) ;
+            dsgW.commit() ;
+            dsgW.end() ;
+        }
+        
+        final CountDownLatch started = new CountDownLatch(1) ;
+        Thread t = new Thread() {
+            @Override public void run()
+            {
+                DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+                started.countDown() ;
+                dsg.end() ;
+            }
+        } ;
+        t.start() ;
+        assertFalse(started.await(200, TimeUnit.MILLISECONDS)) ;
+        
+        // The reader that holds up write-back finishes.
+        dsgR.end() ;
+        assertTrue(started.await(5, TimeUnit.SECONDS)) ;
+        t.join() ;
+        awaitWriteBack(sConn) ;
+        assertTrue(sConn.getBaseDataset().contains(q2)) ;
+        assertEquals(0, sConn.getTransMgrState().writeBackFailures) ;
+    }
+    
+    @Test public void trans_writeback_05() throws InterruptedException
+    {
+        // Aborted transactions leave nothing to write back.
+        TransactionManager.QueueBatchSize = 1 ;
+        StoreConnection sConn = getStoreConnection() ;
+        DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+        dsgW.add(q1) ;
+        dsgW.abort() ;
+        dsgW.end() ;
+        Thread.sleep(100) ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+        assertFalse(sConn.getBaseDataset().contains(q1)) ;
+        
+        DatasetGraphTxn dsgR = sConn.begin(ReadWrite.READ) ;
+        assertFalse(dsgR.contains(q1)) ;
+        dsgR.end() ;
+    }
+    
+    @Test public void trans_writeback_06() throws InterruptedException
+    {
+        // Readers start while the journal is written back; each sees a whole commit.
+        TransactionManager.QueueBatchSize = 1 ;
+        final StoreConnection sConn = getStoreConnection() ;
+        final AtomicBoolean done = new AtomicBoolean(false) ;
+        final AtomicReference<Throwable> failure = new AtomicReference<>() ;
+        Thread reader = new Thread() {
+            @Override public void run()
+            {
+                try {
+                    while ( ! done.get() )
+                    {
+                        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+                        try {
+                            // Each commit adds a pair of quads.
+                            for ( int i = 0 ; i < 50 ; i++ )
+                            {
+                                if ( dsg.contains(quad(i, 0)) != dsg.contains(quad(i, 1)) )
+                                    throw new AssertionError("Part of commit "+i) ;
+                            }
+                        } finally { dsg.end() ; }
+                    }
+                } catch (Throwable th) { failure.compareAndSet(null, th) ; }
+            }
+        } ;
+        reader.start() ;
+        for ( int i = 0 ; i < 50 ; i++ )
+        {
+            DatasetGraphTxn dsgW = sConn.begin(ReadWrite.WRITE) ;
+            dsgW.add(quad(i, 0)) ;
+            dsgW.add(quad(i, 1)) ;
+            dsgW.commit() ;
+            dsgW.end() ;
+        }
+        done.set(true) ;
+        reader.join() ;
+        if ( failure.get() != null )
+            throw new AssertionError(failure.get()) ;
+        awaitWriteBack(sConn) ;
+        for ( int i = 0 ; i < 50 ; i++ )
+            assertTrue(sConn.getBaseDataset().contains(quad(i, 1))) ;
+    }
+    
+    private static Quad quad(int i, int j)
+    {
+        return SSE.parseQuad("(<g> <s"+i+"> <p> "+j+")") ;
+    }
+    
+    private static void awaitWriteBack(StoreConnection sConn) throws InterruptedException
+    {
+        for ( int i = 0 ; i < 100 && sConn.getTransMgrState().queuedCommits != 0 ; i++ )
+            Thread.sleep(50) ;
+        assertEquals(0, sConn.getTransMgrState().queuedCommits) ;
+    }
+}